@@ -0,0 +1,111 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tukaani.xz.ArrayCache;
+import org.tukaani.xz.BasicArrayCache;
+import org.tukaani.xz.FilterOptions;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.MemoryBudget;
+import org.tukaani.xz.XZ;
+import org.tukaani.xz.XZInputStream;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Many small compressions and decompressions from several threads at
+ * the same time. With small inputs the allocation of the large arrays
+ * dominates, so this measures how well each {@code ArrayCache} works
+ * under contention. This is the JMH counterpart of
+ * {@code TestAllocSpeed}. Run with {@code -prof gc} to see
+ * the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ArrayCacheBenchmark {
+    @Param({ "Dummy", "Basic", "MemoryBudget" })
+    public String cache;
+
+    @Param({ "1", "6" })
+    public int preset;
+
+    @Param({ "4096" })
+    public int size;
+
+    private ArrayCache arrayCache;
+    private LZMA2Options options;
+    private byte[] data;
+    private byte[] compressed;
+
+    @Setup
+    public void setup() throws IOException {
+        switch (cache) {
+            case "Dummy":
+                arrayCache = ArrayCache.getDummyCache();
+                break;
+
+            case "Basic":
+                arrayCache = BasicArrayCache.getInstance();
+                break;
+
+            case "MemoryBudget":
+                // Large enough that nothing waits. This measures
+                // the bookkeeping overhead only.
+                arrayCache = new MemoryBudget(Integer.MAX_VALUE, -1,
+                        BasicArrayCache.getInstance());
+                break;
+
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown cache: " + cache);
+        }
+
+        options = new LZMA2Options(preset);
+        data = Corpus.generate("text", size);
+        compressed = Corpus.compress(data,
+                new FilterOptions[] { options }, 0);
+    }
+
+    @Benchmark
+    public void encode() throws IOException {
+        XZOutputStream out = new XZOutputStream(Corpus.NULL_OUTPUT,
+                new FilterOptions[] { options }, XZ.CHECK_CRC64,
+                arrayCache);
+        out.write(data);
+        out.close();
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) throws IOException {
+        XZInputStream in = new XZInputStream(
+                new ByteArrayInputStream(compressed), -1, true, arrayCache);
+        byte[] buf = new byte[size];
+        int n;
+        while ((n = in.read(buf)) != -1)
+            bh.consume(n);
+
+        in.close();
+    }
+}
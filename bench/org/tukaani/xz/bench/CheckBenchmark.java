@@ -0,0 +1,73 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tukaani.xz.UnsupportedOptionsException;
+import org.tukaani.xz.XZ;
+import org.tukaani.xz.check.Check;
+
+/**
+ * Integrity check speed. The buffer size affects how much the per-call
+ * overhead matters: the decoders update the check with the amount of
+ * data returned by each read, which may be small.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CheckBenchmark {
+    @Param({ "CRC32", "CRC64", "SHA-256" })
+    public String check;
+
+    @Param({ "64", "8192", "1048576" })
+    public int bufSize;
+
+    private byte[] data;
+    private int checkType;
+
+    @Setup
+    public void setup() {
+        data = Corpus.generate("random", bufSize);
+
+        switch (check) {
+            case "CRC32":
+                checkType = XZ.CHECK_CRC32;
+                break;
+
+            case "CRC64":
+                checkType = XZ.CHECK_CRC64;
+                break;
+
+            case "SHA-256":
+                checkType = XZ.CHECK_SHA256;
+                break;
+
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown check: " + check);
+        }
+    }
+
+    @Benchmark
+    public byte[] update() throws UnsupportedOptionsException {
+        Check c = Check.getInstance(checkType);
+        c.update(data, 0, data.length);
+        return c.finish();
+    }
+}
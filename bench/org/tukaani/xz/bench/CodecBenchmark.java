@@ -0,0 +1,77 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tukaani.xz.FilterOptions;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZInputStream;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * .xz compression and decompression of the whole corpus per preset.
+ * The score is corpus-sized operations per second, so multiplying it
+ * by {@code size} gives bytes per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CodecBenchmark {
+    @Param({ "0", "1", "3", "6", "9" })
+    public int preset;
+
+    @Param({ "text", "binary", "random" })
+    public String corpus;
+
+    @Param({ "4194304" })
+    public int size;
+
+    private byte[] data;
+    private byte[] compressed;
+    private LZMA2Options options;
+    private byte[] buf;
+
+    @Setup
+    public void setup() throws IOException {
+        data = Corpus.generate(corpus, size);
+        options = new LZMA2Options(preset);
+        compressed = Corpus.compress(data,
+                new FilterOptions[] { options }, 0);
+        buf = new byte[8192];
+    }
+
+    @Benchmark
+    public void encode() throws IOException {
+        XZOutputStream out = new XZOutputStream(Corpus.NULL_OUTPUT, options);
+        out.write(data);
+        out.finish();
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) throws IOException {
+        XZInputStream in = new XZInputStream(
+                new ByteArrayInputStream(compressed));
+        int n;
+        while ((n = in.read(buf)) != -1)
+            bh.consume(n);
+    }
+}
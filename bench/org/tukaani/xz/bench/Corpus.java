@@ -0,0 +1,183 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import org.tukaani.xz.FilterOptions;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Reproducible benchmark input. The data is generated from a fixed seed
+ * so that every run and every machine benchmarks the same bytes and
+ * results can be compared between versions.
+ */
+final class Corpus {
+    private static final long SEED = 0x585A4A617661L;
+
+    private static final String[] WORDS = {
+        "the", "of", "and", "to", "in", "a", "is", "that", "for", "it",
+        "as", "was", "with", "be", "by", "on", "not", "he", "this", "are",
+        "or", "his", "from", "at", "which", "but", "have", "an", "had",
+        "they", "you", "were", "their", "one", "all", "we", "can", "her",
+        "has", "there", "been", "if", "more", "when", "will", "would",
+        "who", "so", "no", "compression", "dictionary", "stream", "block",
+        "filter", "decoder", "encoder", "buffer", "index", "checksum",
+    };
+
+    /**
+     * Discards everything written to it. The compressors do their work
+     * regardless of where the output goes.
+     */
+    static final OutputStream NULL_OUTPUT = new OutputStream() {
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] buf, int off, int len) {}
+    };
+
+    private Corpus() {}
+
+    /**
+     * Generates {@code size} bytes of the given kind:
+     * <ul>
+     *   <li>{@code text}: English-like words and lines with
+     *       a skewed word distribution; compresses well</li>
+     *   <li>{@code binary}: x86-like machine code with CALL
+     *       instructions and repeated instruction sequences;
+     *       benefits from the BCJ filters</li>
+     *   <li>{@code table}: fixed-size little endian records with
+     *       slowly changing fields; benefits from the Delta filter</li>
+     *   <li>{@code random}: incompressible bytes</li>
+     * </ul>
+     */
+    static byte[] generate(String kind, int size) {
+        Random r = new Random(SEED ^ kind.hashCode());
+        byte[] buf = new byte[size];
+
+        switch (kind) {
+            case "text":
+                generateText(r, buf);
+                break;
+
+            case "binary":
+                generateBinary(r, buf);
+                break;
+
+            case "table":
+                generateTable(r, buf);
+                break;
+
+            case "random":
+                r.nextBytes(buf);
+                break;
+
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown corpus kind: " + kind);
+        }
+
+        return buf;
+    }
+
+    private static void generateText(Random r, byte[] buf) {
+        int pos = 0;
+        int lineLen = 0;
+
+        while (pos < buf.length) {
+            // Squaring makes the common words much more common.
+            double x = r.nextDouble();
+            String word = WORDS[(int)(x * x * WORDS.length)];
+
+            for (int i = 0; i < word.length() && pos < buf.length; ++i)
+                buf[pos++] = (byte)word.charAt(i);
+
+            lineLen += word.length() + 1;
+            if (pos < buf.length) {
+                if (lineLen > 60 + r.nextInt(20)) {
+                    buf[pos++] = '\n';
+                    lineLen = 0;
+                } else {
+                    buf[pos++] = ' ';
+                }
+            }
+        }
+    }
+
+    private static void generateBinary(Random r, byte[] buf) {
+        // A small set of "functions" is repeated with variations so
+        // that there are both long and short matches.
+        byte[][] snippets = new byte[64][];
+        for (int i = 0; i < snippets.length; ++i) {
+            snippets[i] = new byte[8 + r.nextInt(56)];
+            r.nextBytes(snippets[i]);
+        }
+
+        int pos = 0;
+        while (pos < buf.length) {
+            if (r.nextInt(4) == 0 && pos + 5 <= buf.length) {
+                // CALL rel32 to one of a few hundred targets. The BCJ
+                // filter converts these to absolute addresses which
+                // then repeat.
+                int target = r.nextInt(300) * 256;
+                int rel = target - (pos + 5);
+                buf[pos++] = (byte)0xE8;
+                buf[pos++] = (byte)rel;
+                buf[pos++] = (byte)(rel >>> 8);
+                buf[pos++] = (byte)(rel >>> 16);
+                buf[pos++] = (byte)(rel >>> 24);
+            } else {
+                byte[] s = snippets[r.nextInt(snippets.length)];
+                int n = Math.min(s.length, buf.length - pos);
+                System.arraycopy(s, 0, buf, pos, n);
+                if (n > 0 && r.nextInt(8) == 0)
+                    buf[pos + r.nextInt(n)] ^= (byte)r.nextInt(256);
+
+                pos += n;
+            }
+        }
+    }
+
+    private static void generateTable(Random r, byte[] buf) {
+        // 16-byte records: a counter, a timestamp, and two measurements.
+        long time = 1700000000000L;
+        int a = 1000;
+        int b = 50000;
+
+        for (int pos = 0; pos < buf.length; pos += 16) {
+            time += 1 + r.nextInt(16);
+            a += r.nextInt(7) - 3;
+            b += r.nextInt(201) - 100;
+
+            long[] fields = { pos / 16, time, a, b };
+            int[] sizes = { 4, 6, 2, 4 };
+            int off = pos;
+            for (int f = 0; f < fields.length; ++f)
+                for (int i = 0; i < sizes[f] && off < buf.length; ++i)
+                    buf[off++] = (byte)(fields[f] >>> (i * 8));
+        }
+    }
+
+    /**
+     * Compresses {@code data} into the .xz format.
+     *
+     * @param       blockSize   uncompressed size of each Block,
+     *                          or {@code 0} for a single Block
+     */
+    static byte[] compress(byte[] data, FilterOptions[] filters,
+                           long blockSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XZOutputStream xz = new XZOutputStream(out, filters);
+        if (blockSize > 0)
+            xz.setBlockSize(blockSize);
+
+        xz.write(data);
+        xz.finish();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,133 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tukaani.xz.ARM64Options;
+import org.tukaani.xz.ARMOptions;
+import org.tukaani.xz.ARMThumbOptions;
+import org.tukaani.xz.DeltaOptions;
+import org.tukaani.xz.FilterOptions;
+import org.tukaani.xz.FinishableOutputStream;
+import org.tukaani.xz.FinishableWrapperOutputStream;
+import org.tukaani.xz.IA64Options;
+import org.tukaani.xz.PowerPCOptions;
+import org.tukaani.xz.RISCVOptions;
+import org.tukaani.xz.SPARCOptions;
+import org.tukaani.xz.X86Options;
+
+/**
+ * Speed of the BCJ and Delta filters alone, without LZMA2. The BCJ
+ * filters get the x86-like corpus and the Delta filter the table
+ * corpus. The BCJ filters for other architectures convert less of
+ * the x86-like data but the loop over the data is the same.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FilterBenchmark {
+    @Param({ "X86", "ARM", "ARMThumb", "ARM64", "PowerPC", "IA64",
+             "SPARC", "RISCV", "Delta1", "Delta4", "Delta16" })
+    public String filter;
+
+    @Param({ "4194304" })
+    public int size;
+
+    private FilterOptions options;
+    private byte[] data;
+    private byte[] filtered;
+    private byte[] buf;
+
+    @Setup
+    public void setup() throws IOException {
+        options = getOptions(filter);
+        data = Corpus.generate(
+                options instanceof DeltaOptions ? "table" : "binary", size);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FinishableOutputStream f = options.getOutputStream(
+                new FinishableWrapperOutputStream(out));
+        f.write(data);
+        f.finish();
+        filtered = out.toByteArray();
+
+        buf = new byte[8192];
+    }
+
+    @Benchmark
+    public void encode() throws IOException {
+        FinishableOutputStream out = options.getOutputStream(
+                new FinishableWrapperOutputStream(Corpus.NULL_OUTPUT));
+        out.write(data);
+        out.finish();
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) throws IOException {
+        InputStream in = options.getInputStream(
+                new ByteArrayInputStream(filtered));
+        int n;
+        while ((n = in.read(buf)) != -1)
+            bh.consume(n);
+    }
+
+    private static FilterOptions getOptions(String name) throws IOException {
+        switch (name) {
+            case "X86":
+                return new X86Options();
+
+            case "ARM":
+                return new ARMOptions();
+
+            case "ARMThumb":
+                return new ARMThumbOptions();
+
+            case "ARM64":
+                return new ARM64Options();
+
+            case "PowerPC":
+                return new PowerPCOptions();
+
+            case "IA64":
+                return new IA64Options();
+
+            case "SPARC":
+                return new SPARCOptions();
+
+            case "RISCV":
+                return new RISCVOptions();
+
+            case "Delta1":
+                return new DeltaOptions(1);
+
+            case "Delta4":
+                return new DeltaOptions(4);
+
+            case "Delta16":
+                return new DeltaOptions(16);
+        }
+
+        throw new IllegalArgumentException("Unknown filter: " + name);
+    }
+}
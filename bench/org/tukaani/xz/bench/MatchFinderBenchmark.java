@@ -0,0 +1,106 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Compression speed with each match finder and encoder mode.
+ * The other settings come from the preset, so the difference between
+ * the results is caused by the match finder and the mode.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MatchFinderBenchmark {
+    @Param({ "HC3", "HC4", "BT2", "BT3", "BT4" })
+    public String mf;
+
+    @Param({ "FAST", "LAZY", "NORMAL" })
+    public String mode;
+
+    @Param({ "6" })
+    public int preset;
+
+    @Param({ "text", "binary" })
+    public String corpus;
+
+    @Param({ "4194304" })
+    public int size;
+
+    private byte[] data;
+    private LZMA2Options options;
+
+    @Setup
+    public void setup() throws IOException {
+        data = Corpus.generate(corpus, size);
+        options = new LZMA2Options(preset);
+        options.setMode(getMode(mode));
+        options.setMatchFinder(getMatchFinder(mf));
+    }
+
+    @Benchmark
+    public void encode() throws IOException {
+        XZOutputStream out = new XZOutputStream(Corpus.NULL_OUTPUT, options);
+        out.write(data);
+        out.finish();
+    }
+
+    static int getMatchFinder(String name) {
+        switch (name) {
+            case "HC3":
+                return LZMA2Options.MF_HC3;
+
+            case "HC4":
+                return LZMA2Options.MF_HC4;
+
+            case "BT2":
+                return LZMA2Options.MF_BT2;
+
+            case "BT3":
+                return LZMA2Options.MF_BT3;
+
+            case "BT4":
+                return LZMA2Options.MF_BT4;
+        }
+
+        throw new IllegalArgumentException("Unknown match finder: " + name);
+    }
+
+    static int getMode(String name) {
+        switch (name) {
+            case "FAST":
+                return LZMA2Options.MODE_FAST;
+
+            case "NORMAL":
+                return LZMA2Options.MODE_NORMAL;
+
+            case "LAZY":
+                return LZMA2Options.MODE_LAZY;
+
+            case "TURBO":
+                return LZMA2Options.MODE_TURBO;
+        }
+
+        throw new IllegalArgumentException("Unknown mode: " + name);
+    }
+}
@@ -0,0 +1,78 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Compression speed with each {@code MatchLengthFinder} implementation.
+ * <p>
+ * The implementation is chosen once per JVM from the system property
+ * {@code org.tukaani.xz.MatchLengthFinder}. JMH runs each parameter
+ * combination in its own fork, and the property is set in
+ * {@code setup} before the first compression in the fork initializes
+ * the class that reads it. The variants other than {@code Basic} exist
+ * only in the Java 9 part of the multi-release JAR, so on Java 8 all
+ * results are for {@code Basic}.
+ * <p>
+ * BT4 with a high nice length does the most match length comparisons
+ * per byte, so it shows the differences best.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MatchLengthFinderBenchmark {
+    @Param({ "Basic", "UnalignedLongLE" })
+    public String finder;
+
+    @Param({ "BT4", "HC4" })
+    public String mf;
+
+    @Param({ "273" })
+    public int niceLen;
+
+    @Param({ "text", "binary" })
+    public String corpus;
+
+    @Param({ "4194304" })
+    public int size;
+
+    private byte[] data;
+    private LZMA2Options options;
+
+    @Setup
+    public void setup() throws IOException {
+        System.setProperty("org.tukaani.xz.MatchLengthFinder", finder);
+
+        data = Corpus.generate(corpus, size);
+        options = new LZMA2Options(6);
+        options.setMatchFinder(MatchFinderBenchmark.getMatchFinder(mf));
+        options.setNiceLen(niceLen);
+    }
+
+    @Benchmark
+    public void encode() throws IOException {
+        XZOutputStream out = new XZOutputStream(Corpus.NULL_OUTPUT, options);
+        out.write(data);
+        out.finish();
+    }
+}
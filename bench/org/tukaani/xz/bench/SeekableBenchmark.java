@@ -0,0 +1,96 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tukaani.xz.FilterOptions;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.SeekableFileInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+
+/**
+ * Random reads from a multi-Block .xz file. Each read seeks to
+ * a random position and reads {@code readSize} bytes, so the cost is
+ * dominated by decompressing from the start of the Block to
+ * the position. The positions come from a fixed seed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SeekableBenchmark {
+    @Param({ "65536", "1048576" })
+    public int blockSize;
+
+    @Param({ "4096" })
+    public int readSize;
+
+    @Param({ "33554432" })
+    public int size;
+
+    private File file;
+    private SeekableXZInputStream in;
+    private Random random;
+    private byte[] buf;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        byte[] data = Corpus.generate("text", size);
+        byte[] compressed = Corpus.compress(data,
+                new FilterOptions[] { new LZMA2Options(6) }, blockSize);
+
+        file = File.createTempFile("xzbench", ".xz");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(compressed);
+        } finally {
+            out.close();
+        }
+
+        in = new SeekableXZInputStream(new SeekableFileInputStream(file));
+        random = new Random(1);
+        buf = new byte[readSize];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        in.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public int randomRead() throws IOException {
+        in.seek((long)(random.nextDouble() * (size - readSize)));
+        int off = 0;
+        while (off < readSize) {
+            int n = in.read(buf, off, readSize - off);
+            if (n == -1)
+                break;
+
+            off += n;
+        }
+
+        return off;
+    }
+}
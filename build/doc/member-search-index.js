@@ -0,0 +1 @@
+memberSearchIndex = [{"p":"org.tukaani.xz","c":"PresetDictTrainer","l":"addSample(byte[])"},{"p":"org.tukaani.xz","c":"PresetDictTrainer","l":"addSample(byte[], int, int)","u":"addSample(byte[],int,int)"},{"p":"org.tukaani.xz","c":"FilterAnalyzer","l":"analyze(byte[], int, int)","u":"analyze(byte[],int,int)"},{"p":"org.tukaani.xz","c":"FilterAnalyzer","l":"analyze(byte[], int, int, ArrayCache)","u":"analyze(byte[],int,int,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZFileAppender","l":"appendBlocks(RandomAccessFile, FilterOptions[])","u":"appendBlocks(java.io.RandomAccessFile,org.tukaani.xz.FilterOptions[])"},{"p":"org.tukaani.xz","c":"XZFileAppender","l":"appendBlocks(RandomAccessFile, FilterOptions[], ArrayCache)","u":"appendBlocks(java.io.RandomAccessFile,org.tukaani.xz.FilterOptions[],org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZFileAppender","l":"appendStream(RandomAccessFile, FilterOptions[], int)","u":"appendStream(java.io.RandomAccessFile,org.tukaani.xz.FilterOptions[],int)"},{"p":"org.tukaani.xz","c":"XZFileAppender","l":"appendStream(RandomAccessFile, FilterOptions[], int, ArrayCache)","u":"appendStream(java.io.RandomAccessFile,org.tukaani.xz.FilterOptions[],int,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"ARM64Options","l":"ARM64Options()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"ARMOptions","l":"ARMOptions()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"ARMThumbOptions","l":"ARMThumbOptions()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"ArrayCache","l":"ArrayCache()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"DeltaInputStream","l":"available()"},{"p":"org.tukaani.xz","c":"LZMA2InputStream","l":"available()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"available()"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"available()"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"available()"},{"p":"org.tukaani.xz","c":"BasicArrayCache","l":"BasicArrayCache()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"FilterTrials.Listener","l":"blockEncoded(int, long, long[])","u":"blockEncoded(int,long,long[])"},{"p":"org.tukaani.xz","c":"XZMetrics.Listener","l":"blockFinished(XZMetrics)","u":"blockFinished(org.tukaani.xz.XZMetrics)"},{"p":"org.tukaani.xz","c":"XZ","l":"CHECK_CRC32"},{"p":"org.tukaani.xz","c":"XZ","l":"CHECK_CRC64"},{"p":"org.tukaani.xz","c":"XZ","l":"CHECK_NONE"},{"p":"org.tukaani.xz","c":"XZ","l":"CHECK_SHA256"},{"p":"org.tukaani.xz","c":"RISCVOptions","l":"clone()"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"clone()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"clone()"},{"p":"org.tukaani.xz","c":"CloseIgnoringInputStream","l":"close()"},{"p":"org.tukaani.xz","c":"DeltaInputStream","l":"close()"},{"p":"org.tukaani.xz","c":"FinishableWrapperOutputStream","l":"close()"},{"p":"org.tukaani.xz","c":"LZMA2InputStream","l":"close()"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"close()"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"close()"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"close()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"close()"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"close()"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"close()"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"close()"},{"p":"org.tukaani.xz","c":"XZRecordWriter","l":"close()"},{"p":"org.tukaani.xz","c":"XZSearcher","l":"close()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"close(boolean)"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"close(boolean)"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"close(boolean)"},{"p":"org.tukaani.xz","c":"CloseIgnoringInputStream","l":"CloseIgnoringInputStream(InputStream)","u":"%3Cinit%3E(java.io.InputStream)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"copyBlocks(SeekableXZInputStream, int, int)","u":"copyBlocks(org.tukaani.xz.SeekableXZInputStream,int,int)"},{"p":"org.tukaani.xz","c":"CorruptedInputException","l":"CorruptedInputException()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"CorruptedInputException","l":"CorruptedInputException(String)","u":"%3Cinit%3E(java.lang.String)"},{"p":"org.tukaani.xz","c":"XZDecoder","l":"decode(ByteBuffer)","u":"decode(java.nio.ByteBuffer)"},{"p":"org.tukaani.xz","c":"DeltaInputStream","l":"DeltaInputStream(InputStream, int)","u":"%3Cinit%3E(java.io.InputStream,int)"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"DeltaOptions()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"DeltaOptions(int)","u":"%3Cinit%3E(int)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"DICT_SIZE_DEFAULT"},{"p":"org.tukaani.xz","c":"LZMA2InputStream","l":"DICT_SIZE_MAX"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"DICT_SIZE_MAX"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"DICT_SIZE_MAX"},{"p":"org.tukaani.xz","c":"LZMA2InputStream","l":"DICT_SIZE_MIN"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"DICT_SIZE_MIN"},{"p":"org.tukaani.xz","c":"DeltaInputStream","l":"DISTANCE_MAX"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"DISTANCE_MAX"},{"p":"org.tukaani.xz","c":"DeltaInputStream","l":"DISTANCE_MIN"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"DISTANCE_MIN"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"enableRelaxedEndCondition()"},{"p":"org.tukaani.xz","c":"XZEncoder","l":"encode(ByteBuffer)","u":"encode(java.nio.ByteBuffer)"},{"p":"org.tukaani.xz","c":"XZDecoder","l":"end()"},{"p":"org.tukaani.xz","c":"XZEncoder","l":"end()"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"endBlock()"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"endRecord()"},{"p":"org.tukaani.xz","c":"PresetDictTrainer","l":"evaluate(LZMA2Options, byte[], Iterable<byte[]>)","u":"evaluate(org.tukaani.xz.LZMA2Options,byte[],java.lang.Iterable)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"extract(long, long, OutputStream)","u":"extract(long,long,java.io.OutputStream)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"extract(long, long, WritableByteChannel)","u":"extract(long,long,java.nio.channels.WritableByteChannel)"},{"p":"org.tukaani.xz","c":"FilterAnalyzer","l":"FilterAnalyzer(LZMA2Options)","u":"%3Cinit%3E(org.tukaani.xz.LZMA2Options)"},{"p":"org.tukaani.xz","c":"FilterTrials","l":"FilterTrials(FilterOptions[][], ExecutorService)","u":"%3Cinit%3E(org.tukaani.xz.FilterOptions[][],java.util.concurrent.ExecutorService)"},{"p":"org.tukaani.xz","c":"XZSearcher","l":"findAll(byte[])"},{"p":"org.tukaani.xz","c":"XZSearcher","l":"findAll(Pattern, int)","u":"findAll(java.util.regex.Pattern,int)"},{"p":"org.tukaani.xz","c":"XZRecordIndex","l":"findRecord(long)"},{"p":"org.tukaani.xz","c":"FinishableOutputStream","l":"finish()"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"finish()"},{"p":"org.tukaani.xz","c":"XZEncoder","l":"finish()"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"finish()"},{"p":"org.tukaani.xz","c":"XZRecordWriter","l":"finish()"},{"p":"org.tukaani.xz","c":"FinishableOutputStream","l":"FinishableOutputStream()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"FinishableWrapperOutputStream","l":"FinishableWrapperOutputStream(OutputStream)","u":"%3Cinit%3E(java.io.OutputStream)"},{"p":"org.tukaani.xz","c":"XZDecoder","l":"finished()"},{"p":"org.tukaani.xz","c":"XZEncoder","l":"finished()"},{"p":"org.tukaani.xz","c":"MemoryBudget","l":"fitDictSize(LZMA2Options)","u":"fitDictSize(org.tukaani.xz.LZMA2Options)"},{"p":"org.tukaani.xz","c":"FinishableWrapperOutputStream","l":"flush()"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"flush()"},{"p":"org.tukaani.xz","c":"XZEncoder","l":"flush()"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"flush()"},{"p":"org.tukaani.xz","c":"XZ","l":"FOOTER_MAGIC"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getBlockCheckType(int)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getBlockCompPos(int)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getBlockCompSize(int)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getBlockCount()"},{"p":"org.tukaani.xz","c":"XZMetrics","l":"getBlockCount()"},{"p":"org.tukaani.xz","c":"XZSearcher.Hit","l":"getBlockNumber()"},{"p":"org.tukaani.xz","c":"XZRecordIndex","l":"getBlockNumber(int)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getBlockNumber(long)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getBlockPos(int)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getBlockSize(int)"},{"p":"org.tukaani.xz","c":"ArrayCache","l":"getByteArray(int, boolean)","u":"getByteArray(int,boolean)"},{"p":"org.tukaani.xz","c":"BasicArrayCache","l":"getByteArray(int, boolean)","u":"getByteArray(int,boolean)"},{"p":"org.tukaani.xz","c":"MemoryBudget","l":"getByteArray(int, boolean)","u":"getByteArray(int,boolean)"},{"p":"org.tukaani.xz","c":"ResettableArrayCache","l":"getByteArray(int, boolean)","u":"getByteArray(int,boolean)"},{"p":"org.tukaani.xz","c":"FilterTrials","l":"getCandidate(int)"},{"p":"org.tukaani.xz","c":"FilterTrials","l":"getCandidateCount()"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"getCheckName()"},{"p":"org.tukaani.xz","c":"XZMetrics","l":"getCheckNanos()"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"getCheckType()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getCheckTypes()"},{"p":"org.tukaani.xz","c":"XZMetrics","l":"getCodingNanos()"},{"p":"org.tukaani.xz","c":"XZMetrics","l":"getCompressedSize()"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getCompressedSizeWith()"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getCompressedSizeWithout()"},{"p":"org.tukaani.xz","c":"RISCVOptions","l":"getDecoderMemoryUsage()"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"getDecoderMemoryUsage()"},{"p":"org.tukaani.xz","c":"FilterOptions","l":"getDecoderMemoryUsage()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getDecoderMemoryUsage()"},{"p":"org.tukaani.xz","c":"FilterOptions","l":"getDecoderMemoryUsage(FilterOptions[])","u":"getDecoderMemoryUsage(org.tukaani.xz.FilterOptions[])"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getDecodeSpeedup()"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getDecodeTimeWith()"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getDecodeTimeWithout()"},{"p":"org.tukaani.xz","c":"ArrayCache","l":"getDefaultCache()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getDepthLimit()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getDictSize()"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"getDistance()"},{"p":"org.tukaani.xz","c":"ArrayCache","l":"getDummyCache()"},{"p":"org.tukaani.xz","c":"XZMetrics","l":"getElapsedNanos()"},{"p":"org.tukaani.xz","c":"RISCVOptions","l":"getEncoderMemoryUsage()"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"getEncoderMemoryUsage()"},{"p":"org.tukaani.xz","c":"FilterOptions","l":"getEncoderMemoryUsage()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getEncoderMemoryUsage()"},{"p":"org.tukaani.xz","c":"FilterOptions","l":"getEncoderMemoryUsage(FilterOptions[])","u":"getEncoderMemoryUsage(org.tukaani.xz.FilterOptions[])"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getEncodeSpeedup()"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getEncodeTimeWith()"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getEncodeTimeWithout()"},{"p":"org.tukaani.xz","c":"BasicArrayCache","l":"getHitCount()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getIncompressibleDetection()"},{"p":"org.tukaani.xz","c":"XZRecordWriter","l":"getIndex()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getIndexMemoryUsage()"},{"p":"org.tukaani.xz","c":"FilterOptions","l":"getInputStream(InputStream)","u":"getInputStream(java.io.InputStream)"},{"p":"org.tukaani.xz","c":"LZMA2PresetDict","l":"getInputStream(InputStream)","u":"getInputStream(java.io.InputStream)"},{"p":"org.tukaani.xz","c":"ARM64Options","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"ARMOptions","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"ARMThumbOptions","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"FilterOptions","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"IA64Options","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMA2PresetDict","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"PowerPCOptions","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"RISCVOptions","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"SPARCOptions","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"X86Options","l":"getInputStream(InputStream, ArrayCache)","u":"getInputStream(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"BasicArrayCache","l":"getInstance()"},{"p":"org.tukaani.xz","c":"ArrayCache","l":"getIntArray(int, boolean)","u":"getIntArray(int,boolean)"},{"p":"org.tukaani.xz","c":"BasicArrayCache","l":"getIntArray(int, boolean)","u":"getIntArray(int,boolean)"},{"p":"org.tukaani.xz","c":"MemoryBudget","l":"getIntArray(int, boolean)","u":"getIntArray(int,boolean)"},{"p":"org.tukaani.xz","c":"ResettableArrayCache","l":"getIntArray(int, boolean)","u":"getIntArray(int,boolean)"},{"p":"org.tukaani.xz","c":"XZMetrics","l":"getIONanos()"},{"p":"org.tukaani.xz","c":"XZRecordIndex","l":"getKey(int)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getLargestBlockSize()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getLc()"},{"p":"org.tukaani.xz","c":"XZSearcher.Hit","l":"getLength()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getLp()"},{"p":"org.tukaani.xz","c":"XZMetrics","l":"getLZMAChunkCount()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getMatchFinder()"},{"p":"org.tukaani.xz","c":"MemoryBudget","l":"getMemoryAvailable()"},{"p":"org.tukaani.xz","c":"MemoryBudget","l":"getMemoryLimit()"},{"p":"org.tukaani.xz","c":"MemoryLimitException","l":"getMemoryLimit()"},{"p":"org.tukaani.xz","c":"MemoryLimitException","l":"getMemoryNeeded()"},{"p":"org.tukaani.xz","c":"MemoryBudget","l":"getMemoryUsage()"},{"p":"org.tukaani.xz","c":"LZMA2InputStream","l":"getMemoryUsage(int)"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"getMemoryUsage(int, byte)","u":"getMemoryUsage(int,byte)"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"getMemoryUsage(int, int, int)","u":"getMemoryUsage(int,int,int)"},{"p":"org.tukaani.xz","c":"BasicArrayCache","l":"getMissCount()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getMode()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getNiceLen()"},{"p":"org.tukaani.xz","c":"XZRecordIndex","l":"getOffsetInBlock(int)"},{"p":"org.tukaani.xz","c":"LZMA2PresetDict","l":"getOptions()"},{"p":"org.tukaani.xz","c":"FilterOptions","l":"getOutputStream(FinishableOutputStream)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream)"},{"p":"org.tukaani.xz","c":"LZMA2PresetDict","l":"getOutputStream(FinishableOutputStream)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream)"},{"p":"org.tukaani.xz","c":"ARM64Options","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"ARMOptions","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"ARMThumbOptions","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"FilterOptions","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"IA64Options","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMA2PresetDict","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"PowerPCOptions","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"RISCVOptions","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"SPARCOptions","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"X86Options","l":"getOutputStream(FinishableOutputStream, ArrayCache)","u":"getOutputStream(org.tukaani.xz.FinishableOutputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getPb()"},{"p":"org.tukaani.xz","c":"XZSearcher.Hit","l":"getPosition()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"getPresetDict()"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"getProps()"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getRatioWith()"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getRatioWithout()"},{"p":"org.tukaani.xz","c":"XZRecordIndex","l":"getRecordCount()"},{"p":"org.tukaani.xz","c":"XZRecordIndex","l":"getRecordSize(int)"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getSampleCount()"},{"p":"org.tukaani.xz","c":"RISCVOptions","l":"getStartOffset()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"getStreamCount()"},{"p":"org.tukaani.xz","c":"XZMetrics","l":"getUncompressedChunkCount()"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"getUncompressedSize()"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"getUncompressedSize()"},{"p":"org.tukaani.xz","c":"XZMetrics","l":"getUncompressedSize()"},{"p":"org.tukaani.xz","c":"FilterTrials","l":"getWinCounts()"},{"p":"org.tukaani.xz","c":"XZ","l":"HEADER_MAGIC"},{"p":"org.tukaani.xz","c":"IA64Options","l":"IA64Options()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"LC_DEFAULT"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"LC_LP_MAX"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"length()"},{"p":"org.tukaani.xz","c":"SeekableInputStream","l":"length()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"length()"},{"p":"org.tukaani.xz","c":"XZRecordStream","l":"lines(File, Charset)","u":"lines(java.io.File,java.nio.charset.Charset)"},{"p":"org.tukaani.xz","c":"XZRecordStream","l":"lines(SeekableInputFactory, Charset)","u":"lines(org.tukaani.xz.SeekableInputFactory,java.nio.charset.Charset)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"LP_DEFAULT"},{"p":"org.tukaani.xz","c":"LZMA2InputStream","l":"LZMA2InputStream(InputStream, int)","u":"%3Cinit%3E(java.io.InputStream,int)"},{"p":"org.tukaani.xz","c":"LZMA2InputStream","l":"LZMA2InputStream(InputStream, int, byte[])","u":"%3Cinit%3E(java.io.InputStream,int,byte[])"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"LZMA2Options()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"LZMA2Options(int)","u":"%3Cinit%3E(int)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"LZMA2Options(int, int, int, int, int, int, int, int)","u":"%3Cinit%3E(int,int,int,int,int,int,int,int)"},{"p":"org.tukaani.xz","c":"LZMA2PresetDict","l":"LZMA2PresetDict(LZMA2Options)","u":"%3Cinit%3E(org.tukaani.xz.LZMA2Options)"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"LZMAInputStream(InputStream)","u":"%3Cinit%3E(java.io.InputStream)"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"LZMAInputStream(InputStream, ArrayCache)","u":"%3Cinit%3E(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"LZMAInputStream(InputStream, int)","u":"%3Cinit%3E(java.io.InputStream,int)"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"LZMAInputStream(InputStream, int, ArrayCache)","u":"%3Cinit%3E(java.io.InputStream,int,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"LZMAInputStream(InputStream, long, byte, int)","u":"%3Cinit%3E(java.io.InputStream,long,byte,int)"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"LZMAInputStream(InputStream, long, byte, int, byte[])","u":"%3Cinit%3E(java.io.InputStream,long,byte,int,byte[])"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"LZMAInputStream(InputStream, long, byte, int, byte[], ArrayCache)","u":"%3Cinit%3E(java.io.InputStream,long,byte,int,byte[],org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"LZMAInputStream(InputStream, long, int, int, int, int, byte[])","u":"%3Cinit%3E(java.io.InputStream,long,int,int,int,int,byte[])"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"LZMAInputStream(InputStream, long, int, int, int, int, byte[], ArrayCache)","u":"%3Cinit%3E(java.io.InputStream,long,int,int,int,int,byte[],org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"LZMAOutputStream(OutputStream, LZMA2Options, boolean)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.LZMA2Options,boolean)"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"LZMAOutputStream(OutputStream, LZMA2Options, boolean, ArrayCache)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.LZMA2Options,boolean,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"LZMAOutputStream(OutputStream, LZMA2Options, long)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.LZMA2Options,long)"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"LZMAOutputStream(OutputStream, LZMA2Options, long, ArrayCache)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.LZMA2Options,long,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZSearcher","l":"MAX_MATCH_LENGTH"},{"p":"org.tukaani.xz","c":"MemoryBudget","l":"MemoryBudget(int, long)","u":"%3Cinit%3E(int,long)"},{"p":"org.tukaani.xz","c":"MemoryBudget","l":"MemoryBudget(int, long, ArrayCache)","u":"%3Cinit%3E(int,long,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"MemoryLimitException","l":"MemoryLimitException(int, int)","u":"%3Cinit%3E(int,int)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"MF_BT2"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"MF_BT3"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"MF_BT4"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"MF_HC3"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"MF_HC4"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"MODE_FAST"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"MODE_LAZY"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"MODE_NORMAL"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"MODE_TURBO"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"MODE_UNCOMPRESSED"},{"p":"org.tukaani.xz","c":"XZDecoder","l":"needsInput()"},{"p":"org.tukaani.xz","c":"XZEncoder","l":"needsInput()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"NICE_LEN_MAX"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"NICE_LEN_MIN"},{"p":"org.tukaani.xz.flow","c":"XZCompressProcessor","l":"onComplete()"},{"p":"org.tukaani.xz.flow","c":"XZCompressProcessor","l":"onError(Throwable)","u":"onError(java.lang.Throwable)"},{"p":"org.tukaani.xz.flow","c":"XZCompressProcessor","l":"onNext(ByteBuffer)","u":"onNext(java.nio.ByteBuffer)"},{"p":"org.tukaani.xz.flow","c":"XZCompressProcessor","l":"onSubscribe(Flow.Subscription)","u":"onSubscribe(java.util.concurrent.Flow.Subscription)"},{"p":"org.tukaani.xz","c":"SeekableInputFactory","l":"open()"},{"p":"org.tukaani.xz","c":"FinishableWrapperOutputStream","l":"out"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"PB_DEFAULT"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"PB_MAX"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"position()"},{"p":"org.tukaani.xz","c":"SeekableInputStream","l":"position()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"position()"},{"p":"org.tukaani.xz","c":"PowerPCOptions","l":"PowerPCOptions()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"PRESET_DEFAULT"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"PRESET_MAX"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"PRESET_MIN"},{"p":"org.tukaani.xz","c":"PresetDictTrainer","l":"PresetDictTrainer(int)","u":"%3Cinit%3E(int)"},{"p":"org.tukaani.xz","c":"ArrayCache","l":"putArray(byte[])"},{"p":"org.tukaani.xz","c":"BasicArrayCache","l":"putArray(byte[])"},{"p":"org.tukaani.xz","c":"MemoryBudget","l":"putArray(byte[])"},{"p":"org.tukaani.xz","c":"ResettableArrayCache","l":"putArray(byte[])"},{"p":"org.tukaani.xz","c":"ArrayCache","l":"putArray(int[])"},{"p":"org.tukaani.xz","c":"BasicArrayCache","l":"putArray(int[])"},{"p":"org.tukaani.xz","c":"MemoryBudget","l":"putArray(int[])"},{"p":"org.tukaani.xz","c":"ResettableArrayCache","l":"putArray(int[])"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"randomAccessFile"},{"p":"org.tukaani.xz","c":"DeltaInputStream","l":"read()"},{"p":"org.tukaani.xz","c":"LZMA2InputStream","l":"read()"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"read()"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"read()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"read()"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"read()"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"read()"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"read(byte[])"},{"p":"org.tukaani.xz","c":"DeltaInputStream","l":"read(byte[], int, int)","u":"read(byte[],int,int)"},{"p":"org.tukaani.xz","c":"LZMA2InputStream","l":"read(byte[], int, int)","u":"read(byte[],int,int)"},{"p":"org.tukaani.xz","c":"LZMAInputStream","l":"read(byte[], int, int)","u":"read(byte[],int,int)"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"read(byte[], int, int)","u":"read(byte[],int,int)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"read(byte[], int, int)","u":"read(byte[],int,int)"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"read(byte[], int, int)","u":"read(byte[],int,int)"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"read(byte[], int, int)","u":"read(byte[],int,int)"},{"p":"org.tukaani.xz","c":"XZRecordIndex","l":"readFrom(InputStream)","u":"readFrom(java.io.InputStream)"},{"p":"org.tukaani.xz","c":"XZRecordIndex","l":"readRecord(SeekableXZInputStream, int)","u":"readRecord(org.tukaani.xz.SeekableXZInputStream,int)"},{"p":"org.tukaani.xz","c":"XZRecordStream","l":"records(File, byte)","u":"records(java.io.File,byte)"},{"p":"org.tukaani.xz","c":"XZRecordStream","l":"records(SeekableInputFactory, byte)","u":"records(org.tukaani.xz.SeekableInputFactory,byte)"},{"p":"org.tukaani.xz","c":"ResettableArrayCache","l":"reset()"},{"p":"org.tukaani.xz","c":"XZDecoder","l":"reset()"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"reset(InputStream)","u":"reset(java.io.InputStream)"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"reset(InputStream)","u":"reset(java.io.InputStream)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"reset(OutputStream)","u":"reset(java.io.OutputStream)"},{"p":"org.tukaani.xz","c":"ResettableArrayCache","l":"ResettableArrayCache(ArrayCache)","u":"%3Cinit%3E(org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"RISCVOptions","l":"RISCVOptions()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"FilterAnalyzer","l":"SAMPLE_SIZE"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"seek(long)"},{"p":"org.tukaani.xz","c":"SeekableInputStream","l":"seek(long)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"seek(long)"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"SeekableFileInputStream(File)","u":"%3Cinit%3E(java.io.File)"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"SeekableFileInputStream(RandomAccessFile)","u":"%3Cinit%3E(java.io.RandomAccessFile)"},{"p":"org.tukaani.xz","c":"SeekableFileInputStream","l":"SeekableFileInputStream(String)","u":"%3Cinit%3E(java.lang.String)"},{"p":"org.tukaani.xz","c":"SeekableInputStream","l":"SeekableInputStream()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"SeekableXZInputStream(SeekableInputStream)","u":"%3Cinit%3E(org.tukaani.xz.SeekableInputStream)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"SeekableXZInputStream(SeekableInputStream, ArrayCache)","u":"%3Cinit%3E(org.tukaani.xz.SeekableInputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"SeekableXZInputStream(SeekableInputStream, int)","u":"%3Cinit%3E(org.tukaani.xz.SeekableInputStream,int)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"SeekableXZInputStream(SeekableInputStream, int, ArrayCache)","u":"%3Cinit%3E(org.tukaani.xz.SeekableInputStream,int,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"SeekableXZInputStream(SeekableInputStream, int, boolean)","u":"%3Cinit%3E(org.tukaani.xz.SeekableInputStream,int,boolean)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"SeekableXZInputStream(SeekableInputStream, int, boolean, ArrayCache)","u":"%3Cinit%3E(org.tukaani.xz.SeekableInputStream,int,boolean,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"seekToBlock(int)"},{"p":"org.tukaani.xz","c":"XZRecordIndex","l":"seekToRecord(SeekableXZInputStream, int)","u":"seekToRecord(org.tukaani.xz.SeekableXZInputStream,int)"},{"p":"org.tukaani.xz","c":"PresetDictTrainer","l":"SEGMENT_SIZE_DEFAULT"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"setBlockSize(long)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"setBlockSize(long, boolean)","u":"setBlockSize(long,boolean)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"setContentDefinedBlocks(int, int, int)","u":"setContentDefinedBlocks(int,int,int)"},{"p":"org.tukaani.xz","c":"ArrayCache","l":"setDefaultCache(ArrayCache)","u":"setDefaultCache(org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setDepthLimit(int)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setDictSize(int)"},{"p":"org.tukaani.xz","c":"DeltaOptions","l":"setDistance(int)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"setFilterAnalyzer(FilterAnalyzer)","u":"setFilterAnalyzer(org.tukaani.xz.FilterAnalyzer)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"setFilterTrials(FilterTrials)","u":"setFilterTrials(org.tukaani.xz.FilterTrials)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setIncompressibleDetection(boolean)"},{"p":"org.tukaani.xz","c":"XZDecoder","l":"setInput(ByteBuffer)","u":"setInput(java.nio.ByteBuffer)"},{"p":"org.tukaani.xz","c":"XZEncoder","l":"setInput(ByteBuffer)","u":"setInput(java.nio.ByteBuffer)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setLc(int)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setLcLp(int, int)","u":"setLcLp(int,int)"},{"p":"org.tukaani.xz","c":"FilterTrials","l":"setListener(FilterTrials.Listener)","u":"setListener(org.tukaani.xz.FilterTrials.Listener)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setLp(int)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setMatchFinder(int)"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"setMetricsListener(XZMetrics.Listener)","u":"setMetricsListener(org.tukaani.xz.XZMetrics.Listener)"},{"p":"org.tukaani.xz","c":"XZDecoder","l":"setMetricsListener(XZMetrics.Listener)","u":"setMetricsListener(org.tukaani.xz.XZMetrics.Listener)"},{"p":"org.tukaani.xz","c":"XZEncoder","l":"setMetricsListener(XZMetrics.Listener)","u":"setMetricsListener(org.tukaani.xz.XZMetrics.Listener)"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"setMetricsListener(XZMetrics.Listener)","u":"setMetricsListener(org.tukaani.xz.XZMetrics.Listener)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"setMetricsListener(XZMetrics.Listener)","u":"setMetricsListener(org.tukaani.xz.XZMetrics.Listener)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setMode(int)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setNiceLen(int)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setPb(int)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setPreset(int)"},{"p":"org.tukaani.xz","c":"LZMA2Options","l":"setPresetDict(byte[])"},{"p":"org.tukaani.xz","c":"PresetDictTrainer","l":"setSegmentSize(int)"},{"p":"org.tukaani.xz","c":"RISCVOptions","l":"setStartOffset(int)"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"SingleXZInputStream(InputStream)","u":"%3Cinit%3E(java.io.InputStream)"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"SingleXZInputStream(InputStream, ArrayCache)","u":"%3Cinit%3E(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"SingleXZInputStream(InputStream, int)","u":"%3Cinit%3E(java.io.InputStream,int)"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"SingleXZInputStream(InputStream, int, ArrayCache)","u":"%3Cinit%3E(java.io.InputStream,int,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"SingleXZInputStream(InputStream, int, boolean)","u":"%3Cinit%3E(java.io.InputStream,int,boolean)"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"SingleXZInputStream(InputStream, int, boolean, ArrayCache)","u":"%3Cinit%3E(java.io.InputStream,int,boolean,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"SeekableInputStream","l":"skip(long)"},{"p":"org.tukaani.xz","c":"SPARCOptions","l":"SPARCOptions()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"XZSearcher","l":"stream(byte[])"},{"p":"org.tukaani.xz","c":"XZSearcher","l":"stream(Pattern, int)","u":"stream(java.util.regex.Pattern,int)"},{"p":"org.tukaani.xz","c":"XZMetrics.Listener","l":"streamFinished(XZMetrics)","u":"streamFinished(org.tukaani.xz.XZMetrics)"},{"p":"org.tukaani.xz.flow","c":"XZCompressProcessor","l":"subscribe(Flow.Subscriber<? super ByteBuffer>)","u":"subscribe(java.util.concurrent.Flow.Subscriber)"},{"p":"org.tukaani.xz","c":"PresetDictEvaluation","l":"toString()"},{"p":"org.tukaani.xz","c":"XZMetrics","l":"toString()"},{"p":"org.tukaani.xz","c":"PresetDictTrainer","l":"train()"},{"p":"org.tukaani.xz","c":"SeekableXZInputStream","l":"transferTo(OutputStream)","u":"transferTo(java.io.OutputStream)"},{"p":"org.tukaani.xz","c":"SingleXZInputStream","l":"transferTo(OutputStream)","u":"transferTo(java.io.OutputStream)"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"transferTo(OutputStream)","u":"transferTo(java.io.OutputStream)"},{"p":"org.tukaani.xz","c":"UnsupportedOptionsException","l":"UnsupportedOptionsException()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"UnsupportedOptionsException","l":"UnsupportedOptionsException(String)","u":"%3Cinit%3E(java.lang.String)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"updateFilters(FilterOptions)","u":"updateFilters(org.tukaani.xz.FilterOptions)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"updateFilters(FilterOptions[])","u":"updateFilters(org.tukaani.xz.FilterOptions[])"},{"p":"org.tukaani.xz","c":"FinishableWrapperOutputStream","l":"write(byte[])"},{"p":"org.tukaani.xz","c":"FinishableWrapperOutputStream","l":"write(byte[], int, int)","u":"write(byte[],int,int)"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"write(byte[], int, int)","u":"write(byte[],int,int)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"write(byte[], int, int)","u":"write(byte[],int,int)"},{"p":"org.tukaani.xz","c":"FinishableWrapperOutputStream","l":"write(int)"},{"p":"org.tukaani.xz","c":"LZMAOutputStream","l":"write(int)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"write(int)"},{"p":"org.tukaani.xz","c":"XZRecordWriter","l":"writeRecord(byte[], int, int)","u":"writeRecord(byte[],int,int)"},{"p":"org.tukaani.xz","c":"XZRecordWriter","l":"writeRecord(byte[], int, int, long)","u":"writeRecord(byte[],int,int,long)"},{"p":"org.tukaani.xz","c":"XZRecordIndex","l":"writeTo(OutputStream)","u":"writeTo(java.io.OutputStream)"},{"p":"org.tukaani.xz","c":"X86Options","l":"X86Options()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz.flow","c":"XZCompressProcessor","l":"XZCompressProcessor(FilterOptions)","u":"%3Cinit%3E(org.tukaani.xz.FilterOptions)"},{"p":"org.tukaani.xz.flow","c":"XZCompressProcessor","l":"XZCompressProcessor(FilterOptions[], int, ArrayCache)","u":"%3Cinit%3E(org.tukaani.xz.FilterOptions[],int,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZDecoder","l":"XZDecoder()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"XZDecoder","l":"XZDecoder(int, boolean, ArrayCache)","u":"%3Cinit%3E(int,boolean,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz.flow","c":"XZDecompressProcessor","l":"XZDecompressProcessor()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz.flow","c":"XZDecompressProcessor","l":"XZDecompressProcessor(int, boolean, ArrayCache)","u":"%3Cinit%3E(int,boolean,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZEncoder","l":"XZEncoder(FilterOptions, int)","u":"%3Cinit%3E(org.tukaani.xz.FilterOptions,int)"},{"p":"org.tukaani.xz","c":"XZEncoder","l":"XZEncoder(FilterOptions[], int, ArrayCache)","u":"%3Cinit%3E(org.tukaani.xz.FilterOptions[],int,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZFormatException","l":"XZFormatException()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"XZInputStream(InputStream)","u":"%3Cinit%3E(java.io.InputStream)"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"XZInputStream(InputStream, ArrayCache)","u":"%3Cinit%3E(java.io.InputStream,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"XZInputStream(InputStream, int)","u":"%3Cinit%3E(java.io.InputStream,int)"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"XZInputStream(InputStream, int, ArrayCache)","u":"%3Cinit%3E(java.io.InputStream,int,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"XZInputStream(InputStream, int, boolean)","u":"%3Cinit%3E(java.io.InputStream,int,boolean)"},{"p":"org.tukaani.xz","c":"XZInputStream","l":"XZInputStream(InputStream, int, boolean, ArrayCache)","u":"%3Cinit%3E(java.io.InputStream,int,boolean,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZIOException","l":"XZIOException()","u":"%3Cinit%3E()"},{"p":"org.tukaani.xz","c":"XZIOException","l":"XZIOException(String)","u":"%3Cinit%3E(java.lang.String)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"XZOutputStream(OutputStream, FilterOptions)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.FilterOptions)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"XZOutputStream(OutputStream, FilterOptions, ArrayCache)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.FilterOptions,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"XZOutputStream(OutputStream, FilterOptions, int)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.FilterOptions,int)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"XZOutputStream(OutputStream, FilterOptions, int, ArrayCache)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.FilterOptions,int,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"XZOutputStream(OutputStream, FilterOptions[])","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.FilterOptions[])"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"XZOutputStream(OutputStream, FilterOptions[], ArrayCache)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.FilterOptions[],org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"XZOutputStream(OutputStream, FilterOptions[], int)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.FilterOptions[],int)"},{"p":"org.tukaani.xz","c":"XZOutputStream","l":"XZOutputStream(OutputStream, FilterOptions[], int, ArrayCache)","u":"%3Cinit%3E(java.io.OutputStream,org.tukaani.xz.FilterOptions[],int,org.tukaani.xz.ArrayCache)"},{"p":"org.tukaani.xz","c":"XZRecordWriter","l":"XZRecordWriter(XZOutputStream, long)","u":"%3Cinit%3E(org.tukaani.xz.XZOutputStream,long)"},{"p":"org.tukaani.xz","c":"XZSearcher","l":"XZSearcher(File, ExecutorService)","u":"%3Cinit%3E(java.io.File,java.util.concurrent.ExecutorService)"},{"p":"org.tukaani.xz","c":"XZSearcher","l":"XZSearcher(SeekableInputFactory, ExecutorService)","u":"%3Cinit%3E(org.tukaani.xz.SeekableInputFactory,java.util.concurrent.ExecutorService)"}];updateSearchResults();
\ No newline at end of file
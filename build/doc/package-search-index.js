@@ -0,0 +1 @@
+packageSearchIndex = [{"l":"All Packages","u":"allpackages-index.html"},{"l":"org.tukaani.xz"},{"l":"org.tukaani.xz.flow"}];updateSearchResults();
\ No newline at end of file
@@ -0,0 +1 @@
+typeSearchIndex = [{"l":"All Classes and Interfaces","u":"allclasses-index.html"},{"p":"org.tukaani.xz","l":"ARM64Options"},{"p":"org.tukaani.xz","l":"ARMOptions"},{"p":"org.tukaani.xz","l":"ARMThumbOptions"},{"p":"org.tukaani.xz","l":"ArrayCache"},{"p":"org.tukaani.xz","l":"BasicArrayCache"},{"p":"org.tukaani.xz","l":"CloseIgnoringInputStream"},{"p":"org.tukaani.xz","l":"CorruptedInputException"},{"p":"org.tukaani.xz","l":"DeltaInputStream"},{"p":"org.tukaani.xz","l":"DeltaOptions"},{"p":"org.tukaani.xz","l":"FilterAnalyzer"},{"p":"org.tukaani.xz","l":"FilterOptions"},{"p":"org.tukaani.xz","l":"FilterTrials"},{"p":"org.tukaani.xz","l":"FinishableOutputStream"},{"p":"org.tukaani.xz","l":"FinishableWrapperOutputStream"},{"p":"org.tukaani.xz","l":"XZSearcher.Hit"},{"p":"org.tukaani.xz","l":"IA64Options"},{"p":"org.tukaani.xz","l":"FilterTrials.Listener"},{"p":"org.tukaani.xz","l":"XZMetrics.Listener"},{"p":"org.tukaani.xz","l":"LZMA2InputStream"},{"p":"org.tukaani.xz","l":"LZMA2Options"},{"p":"org.tukaani.xz","l":"LZMA2PresetDict"},{"p":"org.tukaani.xz","l":"LZMAInputStream"},{"p":"org.tukaani.xz","l":"LZMAOutputStream"},{"p":"org.tukaani.xz","l":"MemoryBudget"},{"p":"org.tukaani.xz","l":"MemoryLimitException"},{"p":"org.tukaani.xz","l":"PowerPCOptions"},{"p":"org.tukaani.xz","l":"PresetDictEvaluation"},{"p":"org.tukaani.xz","l":"PresetDictTrainer"},{"p":"org.tukaani.xz","l":"ResettableArrayCache"},{"p":"org.tukaani.xz","l":"RISCVOptions"},{"p":"org.tukaani.xz","l":"SeekableFileInputStream"},{"p":"org.tukaani.xz","l":"SeekableInputFactory"},{"p":"org.tukaani.xz","l":"SeekableInputStream"},{"p":"org.tukaani.xz","l":"SeekableXZInputStream"},{"p":"org.tukaani.xz","l":"SingleXZInputStream"},{"p":"org.tukaani.xz","l":"SPARCOptions"},{"p":"org.tukaani.xz","l":"UnsupportedOptionsException"},{"p":"org.tukaani.xz","l":"X86Options"},{"p":"org.tukaani.xz","l":"XZ"},{"p":"org.tukaani.xz.flow","l":"XZCompressProcessor"},{"p":"org.tukaani.xz","l":"XZDecoder"},{"p":"org.tukaani.xz.flow","l":"XZDecompressProcessor"},{"p":"org.tukaani.xz","l":"XZEncoder"},{"p":"org.tukaani.xz","l":"XZFileAppender"},{"p":"org.tukaani.xz","l":"XZFormatException"},{"p":"org.tukaani.xz","l":"XZInputStream"},{"p":"org.tukaani.xz","l":"XZIOException"},{"p":"org.tukaani.xz","l":"XZMetrics"},{"p":"org.tukaani.xz","l":"XZOutputStream"},{"p":"org.tukaani.xz","l":"XZRecordIndex"},{"p":"org.tukaani.xz","l":"XZRecordStream"},{"p":"org.tukaani.xz","l":"XZRecordWriter"},{"p":"org.tukaani.xz","l":"XZSearcher"}];updateSearchResults();
\ No newline at end of file
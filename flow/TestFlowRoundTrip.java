@@ -0,0 +1,303 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+/*
+ * Usage:
+ *   java -jar build/jar/TestFlowRoundTrip.jar
+ *
+ * Runs randomized round-trip checks of XZCompressProcessor and
+ * XZDecompressProcessor. This is separate from TestRoundTrip because
+ * java.util.concurrent.Flow needs Java 9 or later.
+ *
+ * Data is compressed and decompressed through the processors with
+ * input buffers of random sizes and with the output requested in
+ * batches of random sizes. The compressed data is checked with
+ * XZInputStream too. Each round is run a second time so that
+ * the subscriber requests exactly as many buffers as the processor
+ * publishes: onComplete must arrive even though the demand is zero
+ * at that point. Truncated input must give onError.
+ *
+ * The data and the buffer sizes come from a fixed seed so a failure can
+ * be reproduced. A different seed can be given with -Dseed=N.
+ * The first failed check is printed and the exit status is 1.
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import org.tukaani.xz.*;
+import org.tukaani.xz.flow.*;
+
+class TestFlowRoundTrip {
+    private static Random rng;
+    private static int checks;
+
+    public static void main(String[] args) throws Exception {
+        long seed = Long.getLong("seed", 1);
+        rng = new Random(seed);
+        checks = 0;
+
+        try {
+            testFlow();
+        } catch (Exception | AssertionError e) {
+            System.err.println("flow: FAILED (seed " + seed + ")");
+            e.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("flow: OK (" + checks + " checks)");
+    }
+
+    private static void check(boolean ok, String what) {
+        if (!ok)
+            throw new AssertionError(what);
+
+        ++checks;
+    }
+
+    private static void testFlow() throws Exception {
+        for (int round = 0; round < 40; ++round) {
+            String what = "round " + round;
+            byte[] data = data(round == 0 ? 0 : rng.nextInt(300 << 10));
+            LZMA2Options options = new LZMA2Options(rng.nextInt(4));
+            long slices = rng.nextLong();
+
+            // Compress with unlimited demand.
+            Collector c = run(new XZCompressProcessor(options), data,
+                              slices, Long.MAX_VALUE);
+            check(c.error == null, what + ": compress: " + c.error);
+            check(c.completed, what + ": compress: onComplete");
+            byte[] xz = c.toByteArray();
+            check(Arrays.equals(data, decompress(xz)),
+                  what + ": compress: XZInputStream");
+
+            // Request exactly as many buffers as were published above.
+            // The input is split the same way so the output is too.
+            Collector exact = run(new XZCompressProcessor(options), data,
+                                  slices, c.items);
+            check(exact.error == null, what + ": exact: " + exact.error);
+            check(exact.completed, what + ": exact compress: onComplete");
+            check(Arrays.equals(xz, exact.toByteArray()),
+                  what + ": exact compress: output");
+
+            // Decompress with unlimited demand and with exact demand.
+            slices = rng.nextLong();
+            Collector d = run(new XZDecompressProcessor(), xz, slices,
+                              Long.MAX_VALUE);
+            check(d.error == null, what + ": decompress: " + d.error);
+            check(d.completed, what + ": decompress: onComplete");
+            check(Arrays.equals(data, d.toByteArray()),
+                  what + ": decompress: output");
+
+            exact = run(new XZDecompressProcessor(), xz, slices, d.items);
+            check(exact.error == null, what + ": exact: " + exact.error);
+            check(exact.completed, what + ": exact decompress: onComplete");
+            check(Arrays.equals(data, exact.toByteArray()),
+                  what + ": exact decompress: output");
+
+            // Truncated input must be an error, not a silent end.
+            byte[] cut = Arrays.copyOf(xz, rng.nextInt(xz.length));
+            d = run(new XZDecompressProcessor(), cut, rng.nextLong(),
+                    Long.MAX_VALUE);
+            check(d.error instanceof IOException,
+                  what + ": truncated: " + d.error);
+            check(!d.completed, what + ": truncated: onComplete");
+        }
+    }
+
+    /**
+     * Publishes {@code input} through {@code processor} and collects
+     * the output. The input is split into slices with a Random seeded
+     * with {@code slices}. At most {@code limit} buffers are requested
+     * in total. Everything happens in the calling thread, so the result
+     * is complete when this returns.
+     */
+    private static Collector run(Flow.Processor<ByteBuffer, ByteBuffer>
+                                     processor, byte[] input,
+                                 long slices, long limit) {
+        Collector collector = new Collector(limit);
+        new ArrayPublisher(input, new Random(slices)).subscribe(processor);
+        processor.subscribe(collector);
+        return collector;
+    }
+
+    /**
+     * Publishes an array in slices of random sizes, one slice per
+     * requested item. onComplete is sent either right after the last
+     * slice or on the next request.
+     */
+    private static final class ArrayPublisher
+            implements Flow.Publisher<ByteBuffer> {
+        private final byte[] data;
+        private final Random random;
+        private final int maxSlice;
+        private final boolean eagerComplete;
+
+        ArrayPublisher(byte[] data, Random random) {
+            this.data = data;
+            this.random = random;
+            maxSlice = 1 + random.nextInt(40000);
+            eagerComplete = random.nextBoolean();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> s) {
+            s.onSubscribe(new Flow.Subscription() {
+                private int pos = 0;
+                private boolean done = false;
+
+                @Override
+                public void request(long n) {
+                    for (; n > 0 && !done; --n) {
+                        if (pos == data.length) {
+                            done = true;
+                            s.onComplete();
+                            return;
+                        }
+
+                        int len = Math.min(data.length - pos,
+                                           1 + random.nextInt(maxSlice));
+                        ByteBuffer buf = ByteBuffer.wrap(data, pos, len);
+                        pos += len;
+
+                        if (eagerComplete && pos == data.length)
+                            done = true;
+
+                        s.onNext(buf);
+
+                        if (done)
+                            s.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    done = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Requests buffers in batches of random sizes, a new batch when
+     * the previous one has been received, until {@code limit} buffers
+     * have been requested.
+     */
+    private static final class Collector
+            implements Flow.Subscriber<ByteBuffer> {
+        private final List<ByteBuffer> received = new ArrayList<>();
+        private final long limit;
+        private Flow.Subscription subscription;
+        private long requested = 0;
+        private long outstanding = 0;
+
+        long items = 0;
+        boolean completed = false;
+        Throwable error = null;
+
+        Collector(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            requestMore();
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            check(!completed && error == null, "onNext after the end");
+            check(outstanding > 0, "onNext without demand");
+            received.add(item);
+            ++items;
+
+            if (--outstanding == 0)
+                requestMore();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            check(!completed && error == null, "onError after the end");
+            error = t;
+        }
+
+        @Override
+        public void onComplete() {
+            check(!completed && error == null, "onComplete after the end");
+            completed = true;
+        }
+
+        private void requestMore() {
+            long n = Math.min(limit - requested, 1 + rng.nextInt(4));
+            if (n > 0) {
+                requested += n;
+                outstanding += n;
+                subscription.request(n);
+            }
+        }
+
+        byte[] toByteArray() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (ByteBuffer buf : received)
+                out.write(buf.array(), buf.arrayOffset() + buf.position(),
+                          buf.remaining());
+
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] decompress(byte[] xz) throws IOException {
+        InputStream in = new XZInputStream(new ByteArrayInputStream(xz));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+
+        while ((n = in.read(buf)) != -1)
+            out.write(buf, 0, n);
+
+        in.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates {@code size} bytes of text-like data with some random
+     * and repeated regions.
+     */
+    private static byte[] data(int size) {
+        byte[] buf = new byte[size];
+        byte[] words = "xz java flow buffer demand \n"
+                .getBytes(StandardCharsets.US_ASCII);
+        int pos = 0;
+
+        while (pos < size) {
+            int n = Math.min(size - pos, 1 + rng.nextInt(4096));
+
+            switch (rng.nextInt(3)) {
+                case 0:
+                    for (int i = 0; i < n; ++i)
+                        buf[pos + i] = (byte)rng.nextInt();
+                    break;
+
+                case 1:
+                    Arrays.fill(buf, pos, pos + n, (byte)rng.nextInt());
+                    break;
+
+                default:
+                    for (int i = 0; i < n; ++i)
+                        buf[pos + i] = words[rng.nextInt(words.length)];
+                    break;
+            }
+
+            pos += n;
+        }
+
+        return buf;
+    }
+}
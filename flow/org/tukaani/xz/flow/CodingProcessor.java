@@ -0,0 +1,299 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.flow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Common code of {@link XZCompressProcessor} and
+ * {@link XZDecompressProcessor}.
+ * <p>
+ * All coding is done in {@link #drain()} on the thread that calls
+ * {@code onNext}, {@code request}, or another method that makes progress
+ * possible. Only one thread runs {@code drain} at a time: a thread that
+ * finds another thread in {@code drain} only increments {@code wip} and
+ * the other thread loops once more. This way no thread ever waits and
+ * the signals to the subscriber are serialized as the Reactive Streams
+ * rules require.
+ * <p>
+ * One input buffer is requested from the upstream at a time and only
+ * when the coder needs more input and all output has been published.
+ * An output buffer is published only when the downstream has demand.
+ * Thus at most one input buffer and one output buffer are held and
+ * the memory usage doesn't depend on how fast either side is. Reading
+ * input without demand is needed so that the end of the input, for
+ * example the Index at the end of an .xz file, is seen and
+ * {@code onComplete} is signaled even if the last output buffer used
+ * up the demand.
+ */
+abstract class CodingProcessor
+        implements Flow.Processor<ByteBuffer, ByteBuffer> {
+    static final int BUF_SIZE = 64 << 10;
+
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicLong demand = new AtomicLong();
+
+    private volatile Flow.Subscription upstream = null;
+    private volatile Flow.Subscriber<? super ByteBuffer> downstream = null;
+
+    /**
+     * The input buffer received from the upstream but not yet given to
+     * the coder.
+     */
+    private volatile ByteBuffer next = null;
+    private volatile boolean upstreamDone = false;
+    private volatile Throwable upstreamError = null;
+    private volatile Throwable requestError = null;
+    private volatile boolean cancelled = false;
+
+    // These are accessed only in drain().
+    private boolean requested = false;
+    private boolean terminated = false;
+    private ByteBuffer out = null;
+
+    /**
+     * Gives the next input buffer to the coder.
+     */
+    abstract void setInput(ByteBuffer in);
+
+    /**
+     * Returns true if the coder cannot make progress without more input.
+     */
+    abstract boolean needsInput();
+
+    /**
+     * Codes from the current input into {@code out}.
+     */
+    abstract void code(ByteBuffer out) throws IOException;
+
+    /**
+     * Tells the coder that there is no more input.
+     *
+     * @return      true if the coder has produced all output,
+     *              false if {@link #code(ByteBuffer)} needs to be
+     *              called more
+     */
+    abstract boolean endOfInput() throws IOException;
+
+    /**
+     * Frees the memory used by the coder.
+     */
+    abstract void end();
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (subscriber == null)
+            throw new NullPointerException();
+
+        synchronized (this) {
+            if (downstream == null) {
+                downstream = subscriber;
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                        addDemand(n);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        cancelled = true;
+                        drain();
+                    }
+                });
+                drain();
+                return;
+            }
+        }
+
+        // Only one subscriber is supported because the output cannot be
+        // produced more than once.
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {}
+
+            @Override
+            public void cancel() {}
+        });
+        subscriber.onError(new IllegalStateException(
+                "The processor already has a subscriber"));
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (upstream == null) {
+                upstream = subscription;
+                drain();
+                return;
+            }
+        }
+
+        subscription.cancel();
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+        if (item == null)
+            throw new NullPointerException();
+
+        // Use a duplicate so that the position of the caller's buffer
+        // isn't modified.
+        next = item.duplicate();
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (throwable == null)
+            throw new NullPointerException();
+
+        upstreamError = throwable;
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    private void addDemand(long n) {
+        if (n <= 0) {
+            requestError = new IllegalArgumentException(
+                    "Non-positive request: " + n);
+        } else {
+            long old;
+            long sum;
+            do {
+                old = demand.get();
+                sum = old + n;
+                if (sum < 0)
+                    sum = Long.MAX_VALUE;
+            } while (!demand.compareAndSet(old, sum));
+        }
+
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0)
+            return;
+
+        int missed = 1;
+        do {
+            try {
+                drainLoop();
+            } catch (IOException | RuntimeException e) {
+                terminate(e);
+            }
+
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drainLoop() throws IOException {
+        while (!terminated) {
+            Flow.Subscription up = upstream;
+            Flow.Subscriber<? super ByteBuffer> down = downstream;
+            if (up == null || down == null)
+                return;
+
+            if (cancelled) {
+                terminated = true;
+                out = null;
+                end();
+                up.cancel();
+                return;
+            }
+
+            if (requestError != null) {
+                terminate(requestError);
+                return;
+            }
+
+            if (upstreamError != null) {
+                terminate(upstreamError);
+                return;
+            }
+
+            // Emit a full output buffer. Emit also the output produced
+            // so far before waiting for input so that the data doesn't
+            // get stuck in the processor. Only this needs demand.
+            if (out != null && (!out.hasRemaining()
+                    || (out.position() > 0 && needsInput()))) {
+                if (demand.get() == 0)
+                    return;
+
+                emit(down);
+                continue;
+            }
+
+            if (!needsInput()) {
+                if (out == null)
+                    out = ByteBuffer.allocate(BUF_SIZE);
+
+                code(out);
+                continue;
+            }
+
+            ByteBuffer in = next;
+            if (in != null) {
+                next = null;
+                requested = false;
+                setInput(in);
+                continue;
+            }
+
+            // onNext sets next before onComplete sets upstreamDone,
+            // so next has to be read again after upstreamDone.
+            if (upstreamDone && next == null) {
+                if (endOfInput()) {
+                    terminated = true;
+                    out = null;
+                    end();
+                    down.onComplete();
+                    return;
+                }
+
+                continue;
+            }
+
+            if (!requested) {
+                requested = true;
+                up.request(1);
+                continue;
+            }
+
+            return;
+        }
+    }
+
+    private void emit(Flow.Subscriber<? super ByteBuffer> down) {
+        out.flip();
+        ByteBuffer buf = out;
+        out = null;
+        demand.decrementAndGet();
+        down.onNext(buf);
+    }
+
+    private void terminate(Throwable t) {
+        if (terminated)
+            return;
+
+        terminated = true;
+        out = null;
+        end();
+
+        if (upstreamError == null && upstream != null)
+            upstream.cancel();
+
+        downstream.onError(t);
+    }
+}
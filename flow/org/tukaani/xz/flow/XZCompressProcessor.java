@@ -0,0 +1,113 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.flow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.tukaani.xz.ArrayCache;
+import org.tukaani.xz.FilterOptions;
+import org.tukaani.xz.UnsupportedOptionsException;
+import org.tukaani.xz.XZ;
+import org.tukaani.xz.XZEncoder;
+
+/**
+ * Compresses a {@code Flow.Publisher} of {@code ByteBuffer}s into
+ * the .xz format.
+ * <p>
+ * This is a {@link java.util.concurrent.Flow.Processor} that subscribes
+ * to uncompressed buffers and publishes compressed buffers. It uses
+ * {@link XZEncoder} and doesn't need a thread of its own: the work is
+ * done in the threads that deliver the input and request the output.
+ * Backpressure is honored in both directions. An input buffer is
+ * requested only when the encoder has used the previous input and
+ * all output has been published, and output is published only when
+ * the subscriber has requested it.
+ * <p>
+ * Small input buffers are combined by the encoder into full LZMA2
+ * chunks. A compressed buffer is published when it is full (64 KiB)
+ * or when the encoder needs more input, so the output follows
+ * the input at the granularity of LZMA2 chunks.
+ * <p>
+ * The input buffers are read between their position and limit without
+ * modifying them. Each published buffer is newly allocated and
+ * belongs to the subscriber. Only one subscriber is supported.
+ * <p>
+ * This class is in the separate xz-flow.jar because it needs Java 9
+ * or later.
+ *
+ * @see XZDecompressProcessor
+ * @since 1.13
+ */
+public class XZCompressProcessor extends CodingProcessor {
+    private final XZEncoder encoder;
+
+    /**
+     * Creates a new compressing processor with one filter and
+     * the CRC64 integrity check.
+     *
+     * @param       filterOptions
+     *                          filter options to use
+     *
+     * @throws      UnsupportedOptionsException
+     *                          invalid filter chain
+     *
+     * @throws      IOException may be thrown from {@link XZEncoder}
+     */
+    public XZCompressProcessor(FilterOptions filterOptions)
+            throws IOException {
+        this(new FilterOptions[] { filterOptions }, XZ.CHECK_CRC64,
+             ArrayCache.getDefaultCache());
+    }
+
+    /**
+     * Creates a new compressing processor.
+     *
+     * @param       filterOptions
+     *                          array of filter options to use
+     *
+     * @param       checkType   type of the integrity check,
+     *                          for example XZ.CHECK_CRC32
+     *
+     * @param       arrayCache  cache to be used for allocating large arrays
+     *
+     * @throws      UnsupportedOptionsException
+     *                          invalid filter chain
+     *
+     * @throws      IOException may be thrown from {@link XZEncoder}
+     */
+    public XZCompressProcessor(FilterOptions[] filterOptions, int checkType,
+                               ArrayCache arrayCache) throws IOException {
+        encoder = new XZEncoder(filterOptions, checkType, arrayCache);
+    }
+
+    @Override
+    void setInput(ByteBuffer in) {
+        encoder.setInput(in);
+    }
+
+    @Override
+    boolean needsInput() {
+        return encoder.needsInput() || encoder.finished();
+    }
+
+    @Override
+    void code(ByteBuffer out) throws IOException {
+        encoder.encode(out);
+    }
+
+    @Override
+    boolean endOfInput() {
+        if (encoder.finished())
+            return true;
+
+        encoder.finish();
+        return false;
+    }
+
+    @Override
+    void end() {
+        encoder.end();
+    }
+}
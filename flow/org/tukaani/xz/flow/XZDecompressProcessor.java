@@ -0,0 +1,98 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.flow;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.tukaani.xz.ArrayCache;
+import org.tukaani.xz.XZDecoder;
+import org.tukaani.xz.XZInputStream;
+
+/**
+ * Decompresses a {@code Flow.Publisher} of .xz data.
+ * <p>
+ * This is a {@link java.util.concurrent.Flow.Processor} that subscribes
+ * to compressed buffers and publishes uncompressed buffers. It uses
+ * {@link XZDecoder} and doesn't need a thread of its own: the work is
+ * done in the threads that deliver the input and request the output.
+ * Backpressure is honored in both directions. An input buffer is
+ * requested only when the decoder has used the previous input and
+ * all output has been published, and output is published only when
+ * the subscriber has requested it.
+ * <p>
+ * An uncompressed buffer is published when it is full (64 KiB) or when
+ * the decoder needs more input. Like {@link XZInputStream}, concatenated
+ * XZ Streams and Stream Padding are supported. If the input ends before
+ * the end of an XZ Stream, {@code onError} is called with
+ * {@code EOFException}. Other errors are the same as with
+ * {@link XZDecoder#decode(java.nio.ByteBuffer)}.
+ * <p>
+ * The input buffers are read between their position and limit without
+ * modifying them. Each published buffer is newly allocated and
+ * belongs to the subscriber. Only one subscriber is supported.
+ * <p>
+ * This class is in the separate xz-flow.jar because it needs Java 9
+ * or later.
+ *
+ * @see XZCompressProcessor
+ * @since 1.13
+ */
+public class XZDecompressProcessor extends CodingProcessor {
+    private final XZDecoder decoder;
+
+    /**
+     * Creates a new decompressing processor with no memory usage limit.
+     */
+    public XZDecompressProcessor() {
+        this(-1, true, ArrayCache.getDefaultCache());
+    }
+
+    /**
+     * Creates a new decompressing processor.
+     *
+     * @param       memoryLimit memory usage limit in kibibytes (KiB)
+     *                          for each Block, or {@code -1} to impose
+     *                          no memory usage limit
+     *
+     * @param       verifyCheck if {@code true}, the integrity checks
+     *                          will be verified; this should almost never
+     *                          be set to {@code false}
+     *
+     * @param       arrayCache  cache to be used for allocating large arrays
+     */
+    public XZDecompressProcessor(int memoryLimit, boolean verifyCheck,
+                                 ArrayCache arrayCache) {
+        decoder = new XZDecoder(memoryLimit, verifyCheck, arrayCache);
+    }
+
+    @Override
+    void setInput(ByteBuffer in) {
+        decoder.setInput(in);
+    }
+
+    @Override
+    boolean needsInput() {
+        return decoder.needsInput();
+    }
+
+    @Override
+    void code(ByteBuffer out) throws IOException {
+        decoder.decode(out);
+    }
+
+    @Override
+    boolean endOfInput() throws IOException {
+        if (!decoder.finished())
+            throw new EOFException();
+
+        return true;
+    }
+
+    @Override
+    void end() {
+        decoder.end();
+    }
+}
@@ -0,0 +1,15 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+/**
+ * {@code java.util.concurrent.Flow} processors for XZ compression and
+ * decompression.
+ * <p>
+ * These classes need Java 9 or later, so they are in a separate JAR,
+ * xz-flow.jar, which needs xz.jar. They use only the public API of
+ * {@link org.tukaani.xz.XZEncoder} and {@link org.tukaani.xz.XZDecoder}.
+ *
+ * @since 1.13
+ */
+package org.tukaani.xz.flow;
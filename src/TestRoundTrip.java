@@ -0,0 +1,1761 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+/*
+ * Usage:
+ *   java -jar build/jar/TestRoundTrip.jar [TEST]...
+ *
+ * Runs randomized round-trip checks of the features that work on whole
+ * .xz files or on parts of them. Without arguments all tests are run.
+ * The tests:
+ *
+ *   copy        XZOutputStream.copyBlocks: concatenating and splitting
+ *               files at Block boundaries
+ *   append      XZFileAppender.appendStream and appendBlocks on empty
+ *               and existing files; the file must be valid after
+ *               finish() without closing it
+ *   blocks      Block sizes from setBlockSize, also aligned to records
+ *               with endRecord, and from setContentDefinedBlocks;
+ *               content-defined boundaries must come back after
+ *               an insertion
+ *   range       SeekableXZInputStream.extract and transferTo of
+ *               the input streams
+ *   records     XZRecordWriter and XZRecordIndex, including negative
+ *               and extreme keys and corrupt saved indexes
+ *   lines       XZRecordStream.lines and records compared with
+ *               BufferedReader and a plain split, sequential and
+ *               parallel
+ *   search      XZSearcher compared with a plain search of each Block,
+ *               including Blocks bigger than the 1 MiB search window
+ *   nonblocking XZEncoder and XZDecoder with input and output given in
+ *               steps down to one byte, concatenated Streams with
+ *               Stream Padding, long Indexes, and truncated and
+ *               corrupt input compared with XZInputStream
+ *   budget      MemoryBudget with limits that are often too small:
+ *               every coder must either work or throw
+ *               MemoryLimitException, and all memory must be back in
+ *               the budget after the coder has been closed
+ *
+ * The data, the options, and the Block boundaries come from a fixed
+ * seed so a failure can be reproduced. A different seed can be given
+ * with -Dseed=N. The first failed check is printed and the exit status
+ * is 1.
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.tukaani.xz.*;
+
+class TestRoundTrip {
+    private static final String[] TESTS = {
+            "copy", "append", "blocks", "range", "records", "lines",
+            "search", "nonblocking", "budget" };
+
+    private static Random rng;
+    private static int checks;
+
+    public static void main(String[] args) throws Exception {
+        long seed = Long.getLong("seed", 1);
+        String[] tests = args.length > 0 ? args : TESTS;
+
+        for (String name : tests) {
+            rng = new Random(seed);
+            checks = 0;
+
+            try {
+                run(name);
+            } catch (Exception | AssertionError e) {
+                System.err.println(name + ": FAILED (seed " + seed + ")");
+                e.printStackTrace();
+                System.exit(1);
+            }
+
+            System.out.println(name + ": OK (" + checks + " checks)");
+        }
+    }
+
+    private static void run(String name) throws Exception {
+        switch (name) {
+            case "copy":
+                testCopy();
+                break;
+
+            case "append":
+                testAppend();
+                break;
+
+            case "blocks":
+                testBlocks();
+                break;
+
+            case "range":
+                testRange();
+                break;
+
+            case "records":
+                testRecords();
+                break;
+
+            case "lines":
+                testLines();
+                break;
+
+            case "search":
+                testSearch();
+                break;
+
+            case "nonblocking":
+                testNonBlocking();
+                break;
+
+            case "budget":
+                testBudget();
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown test: " + name);
+        }
+    }
+
+    private static void check(boolean ok, String what) {
+        if (!ok)
+            throw new AssertionError(what);
+
+        ++checks;
+    }
+
+    private static void checkEquals(byte[] expected, byte[] actual,
+                                    String what) {
+        check(Arrays.equals(expected, actual), what);
+    }
+
+    /**
+     * Checks that {@code task} throws {@code type}.
+     */
+    private static void checkThrows(Class<? extends Throwable> type,
+                                    String what, Task task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            if (type.isInstance(t)) {
+                ++checks;
+                return;
+            }
+
+            throw new AssertionError(what + ": got " + t, t);
+        }
+
+        throw new AssertionError(what + ": nothing was thrown");
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * Creates {@code size} bytes of text-like data with some random
+     * and repeated regions so that both LZMA and uncompressed chunks
+     * get used.
+     */
+    private static byte[] data(int size) {
+        byte[] buf = new byte[size];
+        String[] words = { "xz ", "java ", "block ", "stream ", "index ",
+                           "\n", "0123 ", "the ", "data " };
+        int pos = 0;
+
+        while (pos < size) {
+            int n = Math.min(size - pos, 1 + rng.nextInt(4096));
+
+            switch (rng.nextInt(4)) {
+                case 0:
+                    for (int i = 0; i < n; ++i)
+                        buf[pos + i] = (byte)rng.nextInt();
+                    break;
+
+                case 1:
+                    Arrays.fill(buf, pos, pos + n, (byte)rng.nextInt());
+                    break;
+
+                default:
+                    for (int i = 0; i < n; ) {
+                        byte[] w = words[rng.nextInt(words.length)]
+                                .getBytes(StandardCharsets.US_ASCII);
+                        for (int j = 0; j < w.length && i < n; ++j)
+                            buf[pos + i++] = w[j];
+                    }
+                    break;
+            }
+
+            pos += n;
+        }
+
+        return buf;
+    }
+
+    /**
+     * Compresses {@code data} into Blocks of random sizes of at most
+     * {@code maxBlock} bytes.
+     */
+    private static byte[] compress(byte[] data, int checkType, int maxBlock)
+            throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        XZOutputStream out = new XZOutputStream(buf, filters(), checkType);
+        int pos = 0;
+
+        while (pos < data.length) {
+            int n = Math.min(data.length - pos, 1 + rng.nextInt(maxBlock));
+            out.write(data, pos, n);
+            out.endBlock();
+            pos += n;
+        }
+
+        out.finish();
+        return buf.toByteArray();
+    }
+
+    private static LZMA2Options options() throws IOException {
+        LZMA2Options options = new LZMA2Options(rng.nextInt(4));
+        options.setDictSize(LZMA2Options.DICT_SIZE_MIN << rng.nextInt(4));
+        return options;
+    }
+
+    /**
+     * Returns LZMA2 alone, Delta + LZMA2, or x86 BCJ + LZMA2. With
+     * the other filters the decoders can't write directly from
+     * the LZMA2 dictionary.
+     */
+    private static FilterOptions[] filters() throws IOException {
+        switch (rng.nextInt(8)) {
+            case 0:
+            case 1:
+                return new FilterOptions[] {
+                        new DeltaOptions(1 + rng.nextInt(4)), options() };
+
+            case 2:
+                return new FilterOptions[] { new X86Options(), options() };
+
+            default:
+                return new FilterOptions[] { options() };
+        }
+    }
+
+    private static byte[] decompress(byte[] xz) throws IOException {
+        InputStream in = new XZInputStream(new ByteArrayInputStream(xz));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1 + rng.nextInt(8192)];
+        int n;
+
+        while ((n = in.read(buf)) != -1)
+            out.write(buf, 0, n);
+
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static SeekableXZInputStream seekable(byte[] xz)
+            throws IOException {
+        return new SeekableXZInputStream(
+                new ByteArraySeekableInputStream(xz));
+    }
+
+    /**
+     * Copies random ranges of Blocks from a few files into one Stream
+     * with freshly compressed data in between, and splits a file into
+     * parts at Block boundaries.
+     */
+    private static void testCopy() throws Exception {
+        for (int round = 0; round < 50; ++round) {
+            int checkType = rng.nextBoolean() ? XZ.CHECK_CRC64
+                                              : XZ.CHECK_CRC32;
+            byte[][] src = new byte[3][];
+            byte[][] xz = new byte[3][];
+
+            for (int i = 0; i < src.length; ++i) {
+                src[i] = data(rng.nextInt(256 << 10));
+                xz[i] = compress(src[i], checkType,
+                                 1 + rng.nextInt(64 << 10));
+            }
+
+            // Concatenate random Block ranges and new data.
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            XZOutputStream out = new XZOutputStream(buf, options(),
+                                                    checkType);
+
+            for (int i = 0; i < src.length; ++i) {
+                SeekableXZInputStream in = seekable(xz[i]);
+                int count = in.getBlockCount();
+                int first = rng.nextInt(count + 1);
+                int n = rng.nextInt(count - first + 1);
+
+                // Decompression with in must continue normally after
+                // copyBlocks has read from the same file.
+                byte[] head = new byte[(int)Math.min(in.length(),
+                                                     rng.nextInt(1000))];
+                new DataInputStream(in).readFully(head);
+
+                byte[] more = data(rng.nextInt(10000));
+                out.write(more);
+                expected.write(more);
+
+                out.copyBlocks(in, first, n);
+
+                long start = n == 0 ? 0 : in.getBlockPos(first);
+                long end = n == 0 ? 0 : in.getBlockPos(first + n - 1)
+                        + in.getBlockSize(first + n - 1);
+                expected.write(src[i], (int)start, (int)(end - start));
+
+                byte[] rest = new byte[src[i].length - head.length];
+                new DataInputStream(in).readFully(rest);
+                check(in.read() == -1, "copy: end of source");
+                checkEquals(Arrays.copyOfRange(src[i], head.length,
+                                               src[i].length),
+                            rest, "copy: source after copyBlocks");
+                in.close();
+            }
+
+            out.finish();
+            byte[] result = buf.toByteArray();
+            checkEquals(expected.toByteArray(), decompress(result),
+                        "copy: concatenated data");
+            checkIndex(result, expected.toByteArray());
+
+            // Split the first file into two at a Block boundary.
+            SeekableXZInputStream in = seekable(xz[0]);
+            int count = in.getBlockCount();
+            int at = rng.nextInt(count + 1);
+            ByteArrayOutputStream part = new ByteArrayOutputStream();
+            ByteArrayOutputStream joined = new ByteArrayOutputStream();
+
+            for (int[] range : new int[][] { { 0, at },
+                                             { at, count - at } }) {
+                part.reset();
+                XZOutputStream p = new XZOutputStream(part, options(),
+                                                      checkType);
+                p.copyBlocks(in, range[0], range[1]);
+                p.finish();
+                joined.write(decompress(part.toByteArray()));
+            }
+
+            checkEquals(src[0], joined.toByteArray(), "copy: split parts");
+
+            // A different check type is rejected before anything is
+            // copied, and the Stream can still be used afterwards.
+            if (count > 0) {
+                final SeekableXZInputStream fin = in;
+                buf.reset();
+                final XZOutputStream o = new XZOutputStream(
+                        buf, options(), checkType == XZ.CHECK_CRC64
+                                        ? XZ.CHECK_CRC32 : XZ.CHECK_CRC64);
+                checkThrows(UnsupportedOptionsException.class,
+                            "copy: check type mismatch", new Task() {
+                    @Override
+                    public void run() throws Exception {
+                        o.copyBlocks(fin, 0, fin.getBlockCount());
+                    }
+                });
+                checkThrows(IndexOutOfBoundsException.class,
+                            "copy: range outside the file", new Task() {
+                    @Override
+                    public void run() throws Exception {
+                        o.copyBlocks(fin, 1, fin.getBlockCount());
+                    }
+                });
+                o.write(src[1]);
+                o.finish();
+                checkEquals(src[1], decompress(buf.toByteArray()),
+                            "copy: Stream after a rejected copy");
+            }
+
+            in.close();
+        }
+    }
+
+    /**
+     * Appends to a file a few times with both methods. The file is read
+     * after {@code finish()} but before {@code close()}, so nothing may
+     * be left in a buffer.
+     */
+    private static void testAppend() throws Exception {
+        File file = File.createTempFile("TestRoundTrip", ".xz");
+        file.deleteOnExit();
+
+        for (int round = 0; round < 30; ++round) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            int streams = 0;
+            int checkType = XZ.CHECK_CRC64;
+
+            FileOutputStream init = new FileOutputStream(file);
+            if (rng.nextBoolean()) {
+                checkType = rng.nextBoolean() ? XZ.CHECK_CRC64
+                                              : XZ.CHECK_CRC32;
+                byte[] data = data(rng.nextInt(64 << 10));
+                init.write(compress(data, checkType,
+                                    1 + rng.nextInt(16 << 10)));
+                init.write(new byte[4 * rng.nextInt(3)]);
+                expected.write(data);
+                streams = 1;
+            }
+
+            init.close();
+
+            for (int i = 0; i < 3; ++i) {
+                boolean blocks = rng.nextBoolean();
+                byte[] data = data(rng.nextInt(64 << 10));
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                XZOutputStream out = blocks
+                        ? XZFileAppender.appendBlocks(raf, filters())
+                        : XZFileAppender.appendStream(raf, filters(),
+                                                      checkType);
+                if (blocks && streams == 0)
+                    streams = 1;
+                else if (!blocks)
+                    ++streams;
+
+                out.setBlockSize(1 + rng.nextInt(16 << 10));
+                out.write(data);
+                out.finish();
+                expected.write(data);
+
+                byte[] xz = Files.readAllBytes(file.toPath());
+                checkEquals(expected.toByteArray(), decompress(xz),
+                            "append: data after finish()");
+
+                SeekableXZInputStream in = seekable(xz);
+                check(in.getStreamCount() == streams,
+                      "append: Stream count");
+                in.close();
+
+                out.close();
+                check(file.length() == xz.length,
+                      "append: close() after finish() wrote more");
+            }
+        }
+
+        file.delete();
+    }
+
+    /**
+     * Checks the Block sizes made by {@code setBlockSize} with and
+     * without records and by {@code setContentDefinedBlocks}, and that
+     * content-defined boundaries come back after an insertion so that
+     * the following compressed Blocks are identical.
+     */
+    private static void testBlocks() throws Exception {
+        for (int round = 0; round < 40; ++round) {
+            byte[] data = data(rng.nextInt(300 << 10));
+            FilterOptions[] filters = filters();
+
+            // Fixed size: all Blocks except the last are exactly
+            // blockSize bytes.
+            int blockSize = 1 + rng.nextInt(20000);
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            XZOutputStream out = new XZOutputStream(buf, filters);
+            out.setBlockSize(blockSize);
+            writeInPieces(out, data);
+            checkBlockSizes(blockSizes(buf.toByteArray()), data.length,
+                            blockSize, blockSize, "blocks: fixed size");
+
+            // Aligned to records: a Block ends after the first record
+            // that takes it to at least blockSize bytes.
+            List<Long> expected = new ArrayList<Long>();
+            long blockPos = 0;
+            buf.reset();
+            out = new XZOutputStream(buf, filters);
+            out.setBlockSize(blockSize, true);
+
+            for (int pos = 0; pos < data.length; ) {
+                int n = Math.min(data.length - pos, 1 + rng.nextInt(
+                        rng.nextBoolean() ? 100 : 2 * blockSize));
+                out.write(data, pos, n);
+                out.endRecord();
+                pos += n;
+                blockPos += n;
+
+                if (blockPos >= blockSize) {
+                    expected.add(blockPos);
+                    blockPos = 0;
+                }
+            }
+
+            if (blockPos > 0)
+                expected.add(blockPos);
+
+            out.finish();
+            long[] sizes = blockSizes(buf.toByteArray());
+            check(sizes.length == expected.size(),
+                  "blocks: record Block count");
+            for (int i = 0; i < sizes.length; ++i)
+                check(sizes[i] == expected.get(i),
+                      "blocks: record Block " + i + " size");
+
+            // With avgSize == minSize the boundaries don't depend on
+            // the data: all Blocks except the last are exactly minSize
+            // bytes. This used to give minSize + 1.
+            int minSize = 1 + rng.nextInt(20000);
+            byte[] xz = compressContentDefined(data, filters, minSize,
+                                               minSize, minSize
+                                               + rng.nextInt(3) * minSize);
+            checkBlockSizes(blockSizes(xz), data.length, minSize, minSize,
+                            "blocks: avgSize == minSize");
+
+            // Content-defined boundaries. The boundaries can come back
+            // after an insertion only if avgSize - minSize is bigger
+            // than the inserted length. Otherwise a boundary is found
+            // right after minSize bytes almost every time.
+            minSize = 1 + rng.nextInt(4096);
+            int avgSize = minSize + (256 << rng.nextInt(6));
+            int maxSize = 4 * avgSize;
+            xz = compressContentDefined(data, filters, minSize, avgSize,
+                                        maxSize);
+            long[] oldSizes = blockSizes(xz);
+            checkBlockSizes(oldSizes, data.length, minSize, maxSize,
+                            "blocks: content-defined");
+            checkEquals(data, decompress(xz), "blocks: content-defined");
+
+            // Insert a few bytes. The Blocks before the insertion stay
+            // the same. After it, the boundaries must soon match
+            // the old ones moved by the inserted length, and from
+            // there on the compressed Blocks must be the same.
+            int at = rng.nextInt(data.length + 1);
+            byte[] inserted = new byte[1 + rng.nextInt(100)];
+            rng.nextBytes(inserted);
+            ByteArrayOutputStream changed = new ByteArrayOutputStream();
+            changed.write(data, 0, at);
+            changed.write(inserted);
+            changed.write(data, at, data.length - at);
+            byte[] xz2 = compressContentDefined(changed.toByteArray(),
+                                                filters, minSize, avgSize,
+                                                maxSize);
+            long[] newSizes = blockSizes(xz2);
+            checkBlockSizes(newSizes, changed.size(), minSize, maxSize,
+                            "blocks: content-defined after insertion");
+            checkResync(xz, oldSizes, xz2, newSizes, at, inserted.length);
+        }
+    }
+
+    /**
+     * Checks that the Blocks that end before position {@code at} are
+     * the same and finds the first Block boundary from {@code at} on
+     * that is in both files when the boundaries of the new file are
+     * moved back by {@code shift}. All Blocks after that must be
+     * identical. The boundaries must meet within 20 Blocks of
+     * the old file.
+     */
+    private static void checkResync(byte[] oldXz, long[] oldSizes,
+                                    byte[] newXz, long[] newSizes,
+                                    long at, int shift)
+            throws IOException {
+        long[] oldEnds = ends(oldSizes);
+        long[] newEnds = ends(newSizes);
+        int i = 0;
+        int j = 0;
+
+        while (i < oldEnds.length && oldEnds[i] < at)
+            ++i;
+
+        int first = i;
+        for (int k = 0; k < first; ++k)
+            check(k < newEnds.length && newEnds[k] == oldEnds[k],
+                  "blocks: Block before the insertion changed");
+
+        while (i < oldEnds.length && j < newEnds.length) {
+            if (newEnds[j] - shift < oldEnds[i])
+                ++j;
+            else if (newEnds[j] - shift > oldEnds[i])
+                ++i;
+            else
+                break;
+        }
+
+        if (i == oldEnds.length || j == newEnds.length) {
+            check(oldEnds.length - first < 20,
+                  "blocks: boundaries didn't meet after the insertion");
+            return;
+        }
+
+        check(i - first < 20, "blocks: boundaries met late");
+        check(oldEnds.length - i == newEnds.length - j,
+              "blocks: Block count after the meeting point");
+
+        SeekableXZInputStream oldIn = seekable(oldXz);
+        SeekableXZInputStream newIn = seekable(newXz);
+
+        while (++i < oldEnds.length) {
+            ++j;
+            check(oldSizes[i] == newSizes[j],
+                  "blocks: Block size after the meeting point");
+
+            int oldPos = (int)oldIn.getBlockCompPos(i);
+            int newPos = (int)newIn.getBlockCompPos(j);
+            int size = (int)oldIn.getBlockCompSize(i);
+            check(size == newIn.getBlockCompSize(j)
+                      && Arrays.equals(
+                          Arrays.copyOfRange(oldXz, oldPos, oldPos + size),
+                          Arrays.copyOfRange(newXz, newPos, newPos + size)),
+                  "blocks: compressed Block after the meeting point");
+        }
+
+        oldIn.close();
+        newIn.close();
+    }
+
+    private static byte[] compressContentDefined(byte[] data,
+                                                 FilterOptions[] filters,
+                                                 int minSize, int avgSize,
+                                                 int maxSize)
+            throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        XZOutputStream out = new XZOutputStream(buf, filters);
+        out.setContentDefinedBlocks(minSize, avgSize, maxSize);
+        writeInPieces(out, data);
+        return buf.toByteArray();
+    }
+
+    /**
+     * Writes {@code data} in pieces of random sizes and finishes
+     * the stream. The pieces must not affect the Block boundaries.
+     */
+    private static void writeInPieces(XZOutputStream out, byte[] data)
+            throws IOException {
+        for (int pos = 0; pos < data.length; ) {
+            int n = Math.min(data.length - pos, step(65536));
+            out.write(data, pos, n);
+            pos += n;
+        }
+
+        out.finish();
+    }
+
+    private static long[] blockSizes(byte[] xz) throws IOException {
+        SeekableXZInputStream in = seekable(xz);
+        long[] sizes = new long[in.getBlockCount()];
+        for (int i = 0; i < sizes.length; ++i)
+            sizes[i] = in.getBlockSize(i);
+
+        in.close();
+        return sizes;
+    }
+
+    /**
+     * Returns the uncompressed end positions of the Blocks.
+     */
+    private static long[] ends(long[] sizes) {
+        long[] ends = new long[sizes.length];
+        long pos = 0;
+        for (int i = 0; i < sizes.length; ++i) {
+            pos += sizes[i];
+            ends[i] = pos;
+        }
+
+        return ends;
+    }
+
+    /**
+     * Checks that the Blocks add up to {@code total} bytes and that
+     * all except the last one are from {@code min} to {@code max}
+     * bytes. The last one may be smaller.
+     */
+    private static void checkBlockSizes(long[] sizes, long total,
+                                        long min, long max, String what) {
+        long sum = 0;
+        for (int i = 0; i < sizes.length; ++i) {
+            check(sizes[i] > 0 && sizes[i] <= max
+                      && (sizes[i] >= min || i == sizes.length - 1),
+                  what + ": Block " + i + " is " + sizes[i] + " bytes");
+            sum += sizes[i];
+        }
+
+        check(sum == total, what + ": total size");
+    }
+
+    /**
+     * Extracts random ranges with both extract methods and compares
+     * transferTo of all three input streams with the original data.
+     */
+    private static void testRange() throws Exception {
+        for (int round = 0; round < 50; ++round) {
+            byte[] data = data(rng.nextInt(512 << 10));
+            byte[] xz = compress(data, XZ.CHECK_CRC64,
+                                 1 + rng.nextInt(128 << 10));
+            final SeekableXZInputStream in = seekable(xz);
+
+            for (int i = 0; i < 20; ++i) {
+                int pos = rng.nextInt(data.length + 1);
+                int len = rng.nextInt(data.length - pos + 1);
+                if (rng.nextBoolean())
+                    len = Math.min(len, rng.nextInt(100));
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                if (rng.nextBoolean())
+                    in.extract(pos, len, out);
+                else
+                    in.extract(pos, len, Channels.newChannel(out));
+
+                checkEquals(Arrays.copyOfRange(data, pos, pos + len),
+                            out.toByteArray(), "range: extract");
+                check(in.position() == pos + len, "range: position");
+            }
+
+            final int len = data.length;
+            checkThrows(EOFException.class, "range: past the end",
+                        new Task() {
+                @Override
+                public void run() throws Exception {
+                    in.extract(len, 1, new ByteArrayOutputStream());
+                }
+            });
+            checkThrows(XZIOException.class, "range: negative length",
+                        new Task() {
+                @Override
+                public void run() throws Exception {
+                    in.extract(0, -1, new ByteArrayOutputStream());
+                }
+            });
+
+            // transferTo continues from the current position.
+            int pos = rng.nextInt(data.length + 1);
+            in.seek(pos);
+            checkTransfer(in, Arrays.copyOfRange(data, pos, data.length),
+                          "range: SeekableXZInputStream.transferTo");
+            in.close();
+
+            checkTransfer(new SingleXZInputStream(
+                                  new ByteArrayInputStream(xz)),
+                          data, "range: SingleXZInputStream.transferTo");
+
+            // XZInputStream after a partial read, over concatenated
+            // Streams.
+            ByteArrayOutputStream two = new ByteArrayOutputStream();
+            two.write(xz);
+            two.write(xz);
+            byte[] both = new byte[data.length * 2];
+            System.arraycopy(data, 0, both, 0, data.length);
+            System.arraycopy(data, 0, both, data.length, data.length);
+
+            InputStream xin = new XZInputStream(
+                    new ByteArrayInputStream(two.toByteArray()));
+            byte[] head = new byte[rng.nextInt(data.length + 1)];
+            new DataInputStream(xin).readFully(head);
+            checkTransfer(xin, Arrays.copyOfRange(both, head.length,
+                                                  both.length),
+                          "range: XZInputStream.transferTo");
+        }
+    }
+
+    /**
+     * Calls {@code in.transferTo} and checks the data and the return
+     * value. The stream is closed afterwards.
+     */
+    private static void checkTransfer(InputStream in, byte[] expected,
+                                      String what) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long n;
+
+        if (in instanceof XZInputStream)
+            n = ((XZInputStream)in).transferTo(out);
+        else if (in instanceof SingleXZInputStream)
+            n = ((SingleXZInputStream)in).transferTo(out);
+        else
+            n = ((SeekableXZInputStream)in).transferTo(out);
+
+        check(n == expected.length, what + ": return value");
+        checkEquals(expected, out.toByteArray(), what);
+        check(in.read() == -1, what + ": end of stream");
+        in.close();
+    }
+
+    /**
+     * Writes random records with XZRecordWriter, saves and loads
+     * the index, and reads the records back. The keys start from
+     * different places including both ends of the range of long.
+     */
+    private static void testRecords() throws Exception {
+        long[] firstKeys = { 0, -1, 1L << 62, -(1L << 62),
+                             (1L << 62) - 1, -(1L << 62) - 1,
+                             Long.MIN_VALUE, Long.MAX_VALUE,
+                             Long.MAX_VALUE - 1000 };
+
+        for (int round = 0; round < 60; ++round) {
+            long key = round < firstKeys.length ? firstKeys[round]
+                                                : rng.nextLong();
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            XZRecordWriter writer = new XZRecordWriter(
+                    new XZOutputStream(buf, filters()),
+                    1 + rng.nextInt(32 << 10));
+            int count = rng.nextInt(2000);
+            long[] keys = new long[count];
+            int[] offsets = new int[count + 1];
+
+            for (int i = 0; i < count; ++i) {
+                // Mostly small steps, sometimes a huge one that
+                // still doesn't overflow.
+                long room = key < 0 ? Long.MAX_VALUE
+                                    : Long.MAX_VALUE - key;
+                long step = rng.nextInt(8) == 0 ? rng.nextLong() >>> 1
+                                                : rng.nextInt(4);
+                if (i > 0)
+                    key += Math.min(step, room);
+
+                byte[] record = data(rng.nextInt(200));
+                writer.writeRecord(record, 0, record.length, key);
+                expected.write(record);
+                keys[i] = key;
+                offsets[i + 1] = expected.size();
+            }
+
+            writer.close();
+
+            ByteArrayOutputStream saved = new ByteArrayOutputStream();
+            writer.getIndex().writeTo(saved);
+            byte[] savedBytes = saved.toByteArray();
+            XZRecordIndex index = XZRecordIndex.readFrom(
+                    new ByteArrayInputStream(savedBytes));
+            checkIndexEquals(writer.getIndex(), index);
+
+            byte[] data = expected.toByteArray();
+            checkEquals(data, decompress(buf.toByteArray()),
+                        "records: decompressed file");
+            check(index.getRecordCount() == count, "records: count");
+
+            SeekableXZInputStream in = seekable(buf.toByteArray());
+            for (int i = 0; i < Math.min(count, 100); ++i) {
+                int r = rng.nextInt(count);
+                check(index.getKey(r) == keys[r], "records: key");
+                checkEquals(Arrays.copyOfRange(data, offsets[r],
+                                               offsets[r + 1]),
+                            index.readRecord(in, r), "records: record");
+
+                int found = index.findRecord(keys[r]);
+                check(keys[found] == keys[r]
+                        && (found == 0 || keys[found - 1] < keys[r]),
+                      "records: findRecord");
+            }
+
+            in.close();
+
+            if (count > 0 && keys[count - 1] < Long.MAX_VALUE)
+                check(index.findRecord(keys[count - 1] + 1) == count,
+                      "records: findRecord past the last key");
+
+            // Truncated and corrupt saved indexes must be rejected.
+            final byte[] truncated = Arrays.copyOf(
+                    savedBytes, rng.nextInt(savedBytes.length));
+            checkThrows(EOFException.class, "records: truncated index",
+                        new Task() {
+                @Override
+                public void run() throws Exception {
+                    XZRecordIndex.readFrom(
+                            new ByteArrayInputStream(truncated));
+                }
+            });
+
+            final byte[] corrupt = savedBytes.clone();
+            corrupt[rng.nextInt(corrupt.length)] ^= 1 << rng.nextInt(8);
+            checkThrows(IOException.class, "records: corrupt index",
+                        new Task() {
+                @Override
+                public void run() throws Exception {
+                    XZRecordIndex.readFrom(
+                            new ByteArrayInputStream(corrupt));
+                }
+            });
+        }
+
+        // A key step bigger than Long.MAX_VALUE is rejected.
+        final XZRecordWriter writer = new XZRecordWriter(
+                new XZOutputStream(new ByteArrayOutputStream(),
+                                   options()), 1 << 20);
+        writer.writeRecord(new byte[1], 0, 1, -2);
+        checkThrows(IllegalArgumentException.class, "records: key range",
+                    new Task() {
+            @Override
+            public void run() throws Exception {
+                writer.writeRecord(new byte[1], 0, 1, Long.MAX_VALUE);
+            }
+        });
+        writer.close();
+
+        // Key deltas that overflow are corrupt. The first record has
+        // key 2^62 and the second one has a delta of 2^62.
+        final byte[] overflow = savedIndex(0, 1L << 62,
+                                           new long[] { 0, 1, 0,
+                                                        0, 1, 1L << 62 });
+        checkThrows(CorruptedInputException.class, "records: key overflow",
+                    new Task() {
+            @Override
+            public void run() throws Exception {
+                XZRecordIndex.readFrom(new ByteArrayInputStream(overflow));
+            }
+        });
+
+        // Starting from -1 the same delta doesn't overflow.
+        XZRecordIndex index = XZRecordIndex.readFrom(new ByteArrayInputStream(
+                savedIndex(1, 0, new long[] { 0, 1, 0,
+                                              0, 1, Long.MAX_VALUE })));
+        check(index.getKey(0) == -1
+                && index.getKey(1) == Long.MAX_VALUE - 1,
+              "records: big delta from a negative key");
+    }
+
+    private static void checkIndexEquals(XZRecordIndex a, XZRecordIndex b) {
+        check(a.getRecordCount() == b.getRecordCount(),
+              "records: loaded count");
+
+        for (int i = 0; i < a.getRecordCount(); ++i)
+            check(a.getKey(i) == b.getKey(i)
+                    && a.getBlockNumber(i) == b.getBlockNumber(i)
+                    && a.getOffsetInBlock(i) == b.getOffsetInBlock(i)
+                    && a.getRecordSize(i) == b.getRecordSize(i),
+                  "records: loaded record " + i);
+    }
+
+    /**
+     * Builds a saved XZRecordIndex by hand: the sign byte and VLI of
+     * the first key, and a Block delta, size, and key delta for every
+     * record.
+     */
+    private static byte[] savedIndex(int sign, long firstKey,
+                                     long[] records) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xFD);
+        out.write('X');
+        out.write('Z');
+        out.write('R');
+        out.write('I');
+        out.write(0);
+        writeVLI(out, records.length / 3);
+        out.write(sign);
+        writeVLI(out, firstKey);
+
+        for (long value : records)
+            writeVLI(out, value);
+
+        CRC32 crc = new CRC32();
+        crc.update(out.toByteArray());
+        for (int i = 0; i < 4; ++i)
+            out.write((int)(crc.getValue() >>> (i * 8)));
+
+        return out.toByteArray();
+    }
+
+    private static void writeVLI(ByteArrayOutputStream out, long num) {
+        while (num >= 0x80) {
+            out.write((int)(num | 0x80));
+            num >>>= 7;
+        }
+
+        out.write((int)num);
+    }
+
+    /**
+     * Compares XZRecordStream with BufferedReader.lines() for text and
+     * with a plain split for binary records. Lines and records are
+     * often longer than a Block so that they cross several Block
+     * boundaries.
+     */
+    private static void testLines() throws Exception {
+        String[] pieces = { "a", "log line ", "\u00e4\u20ac ", "\r\n",
+                            "\n", "\n\n", "x" };
+
+        for (int round = 0; round < 100; ++round) {
+            StringBuilder sb = new StringBuilder();
+            int len = rng.nextInt(4) == 0 ? rng.nextInt(20)
+                                          : rng.nextInt(200 << 10);
+            while (sb.length() < len)
+                sb.append(pieces[rng.nextInt(pieces.length)]);
+
+            String text = sb.toString();
+            byte[] xz = compress(text.getBytes(StandardCharsets.UTF_8),
+                                 XZ.CHECK_CRC64, 1 + rng.nextInt(8192));
+            CountingFactory factory = new CountingFactory(xz);
+
+            List<String> expected = new BufferedReader(new StringReader(
+                    text)).lines().collect(Collectors.<String>toList());
+
+            for (boolean parallel : new boolean[] { false, true }) {
+                Stream<String> lines = XZRecordStream.lines(
+                        factory, StandardCharsets.UTF_8);
+                if (parallel)
+                    lines = lines.parallel();
+
+                check(expected.equals(lines.collect(
+                                Collectors.<String>toList())),
+                      "lines: parallel=" + parallel);
+                lines.close();
+                check(factory.open.get() == 0, "lines: files closed");
+            }
+
+            // Stopping early must close the files too.
+            Stream<String> lines = XZRecordStream.lines(
+                    factory, StandardCharsets.UTF_8).parallel();
+            String first = lines.findFirst().orElse(null);
+            check(expected.isEmpty() ? first == null
+                                     : expected.get(0).equals(first),
+                  "lines: findFirst");
+            lines.close();
+            check(factory.open.get() == 0, "lines: files closed early");
+
+            // Binary records with a zero byte delimiter
+            byte[] data = data(rng.nextInt(100 << 10));
+            for (int i = 0; i < data.length; i += 1 + rng.nextInt(20000))
+                data[i] = 0;
+
+            factory = new CountingFactory(compress(
+                    data, XZ.CHECK_CRC32, 1 + rng.nextInt(8192)));
+            Stream<ByteBuffer> records = XZRecordStream.records(
+                    factory, (byte)0).parallel();
+            List<ByteBuffer> actual = records.collect(
+                    Collectors.<ByteBuffer>toList());
+            records.close();
+
+            List<ByteBuffer> split = split(data, (byte)0);
+            check(split.equals(actual), "lines: records");
+            for (ByteBuffer record : actual)
+                check(record.position() == 0, "lines: record position");
+
+            check(factory.open.get() == 0, "lines: record files closed");
+        }
+    }
+
+    /**
+     * Compares XZSearcher with java.util.regex and a plain byte search
+     * over each Block. The regular expressions use ^, \b, and
+     * lookbehind, which must work across the 1 MiB pieces that big
+     * Blocks are searched in.
+     */
+    private static void testSearch() throws Exception {
+        final int maxLen = 16;
+        Pattern[] regexes = {
+                Pattern.compile("(?<=java )block"),
+                Pattern.compile("^data", Pattern.MULTILINE),
+                Pattern.compile("\\bthe\\b"),
+                Pattern.compile("x*") };
+
+        // These don't depend on the bytes before the match, so they
+        // must give the same result as searching the whole data.
+        // Matches continue over Block boundaries.
+        Pattern[] wholeRegexes = {
+                Pattern.compile("x+"),
+                Pattern.compile("[0-3]+"),
+                Pattern.compile("(?:java )+") };
+        byte[] word = "index \nxz".getBytes(StandardCharsets.US_ASCII);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            for (int round = 0; round < 4; ++round) {
+                byte[] data = data((4 << 20) + rng.nextInt(2 << 20));
+                int blockSize = (1 << 20) + rng.nextInt(4 << 20);
+
+                // Put "block", "data", or "the" at the places where
+                // the 1 MiB pieces of Blocks start. Whether they match
+                // depends on the bytes before them.
+                byte[] tricky = "java blockxdata xthe "
+                        .getBytes(StandardCharsets.US_ASCII);
+                int[] skip = { 5, 11, 17 };
+                int n = 0;
+                for (int b = 0; b < data.length; b += blockSize) {
+                    for (int c = b + (1 << 20); c < b + blockSize
+                            && c + tricky.length <= data.length;
+                            c += 1 << 20) {
+                        int at = c - skip[n++ % skip.length];
+                        System.arraycopy(tricky, 0, data, at,
+                                         tricky.length);
+                    }
+                }
+
+                // Put runs that wholeRegexes match over the Block
+                // boundaries.
+                String[] runs = { "0000003333", "java java java ",
+                                  "xxxxxxxx" };
+                n = 0;
+                for (int b = blockSize; b + 16 <= data.length;
+                        b += blockSize) {
+                    byte[] run = runs[n++ % runs.length]
+                            .getBytes(StandardCharsets.US_ASCII);
+                    System.arraycopy(run, 0, data, b - run.length / 2,
+                                     run.length);
+                }
+
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                XZOutputStream out = new XZOutputStream(buf, filters());
+                out.setBlockSize(blockSize);
+                out.write(data);
+                out.finish();
+                byte[] xz = buf.toByteArray();
+                SeekableXZInputStream in = seekable(xz);
+                long[] blockPos = new long[in.getBlockCount() + 1];
+                for (int i = 0; i < blockPos.length - 1; ++i)
+                    blockPos[i] = in.getBlockPos(i);
+
+                blockPos[blockPos.length - 1] = in.length();
+                in.close();
+
+                XZSearcher searcher = new XZSearcher(
+                        new CountingFactory(xz),
+                        round % 2 == 0 ? executor : null);
+
+                for (Pattern regex : regexes)
+                    check(hitsToString(searcher.findAll(regex, maxLen))
+                            .equals(searchBlocks(data, blockPos, regex,
+                                                 maxLen)),
+                          "search: " + regex);
+
+                for (Pattern regex : wholeRegexes)
+                    check(hitsToString(searcher.findAll(regex, 1 << 16))
+                            .equals(searchWhole(data, blockPos, regex)),
+                          "search: whole data: " + regex);
+
+                Pattern literal = Pattern.compile(Pattern.quote(
+                        new String(word, StandardCharsets.ISO_8859_1)));
+                check(hitsToString(searcher.findAll(word)).equals(
+                              searchOverlapping(data, blockPos, literal)),
+                      "search: bytes");
+                searcher.close();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // A match that continues into the next Block is reported once.
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        XZOutputStream out = new XZOutputStream(buf, options());
+        out.setBlockSize(4);
+        out.write("aabbbbcc".getBytes(StandardCharsets.US_ASCII));
+        out.finish();
+        XZSearcher searcher = new XZSearcher(
+                new CountingFactory(buf.toByteArray()), null);
+        check(hitsToString(searcher.findAll(Pattern.compile("b+"), 16))
+                      .equals("0:2+4 "),
+              "search: match over a Block boundary");
+        searcher.close();
+    }
+
+    private static String hitsToString(List<XZSearcher.Hit> hits) {
+        StringBuilder sb = new StringBuilder();
+        for (XZSearcher.Hit hit : hits)
+            sb.append(hit.getBlockNumber()).append(':')
+              .append(hit.getPosition()).append('+')
+              .append(hit.getLength()).append(' ');
+
+        return sb.toString();
+    }
+
+    /**
+     * Finds the matches that start in each Block by matching from
+     * the beginning of the Block to at most {@code maxLen - 1} bytes
+     * past its end.
+     */
+    private static String searchBlocks(byte[] data, long[] blockPos,
+                                       Pattern regex, int maxLen) {
+        StringBuilder sb = new StringBuilder();
+        String text = new String(data, StandardCharsets.ISO_8859_1);
+        int prevEnd = 0;
+
+        for (int b = 0; b < blockPos.length - 1; ++b) {
+            int start = (int)blockPos[b];
+            int end = (int)blockPos[b + 1];
+            if (start == end)
+                continue;
+
+            Matcher m = regex.matcher(text.substring(
+                    start, Math.min(data.length, end + maxLen - 1)));
+            while (m.find() && start + m.start() < end) {
+                // Skip the matches that overlap a match that started
+                // in the previous Block.
+                if (start + m.start() < prevEnd)
+                    continue;
+
+                sb.append(b).append(':').append(start + m.start())
+                  .append('+').append(m.end() - m.start()).append(' ');
+                prevEnd = start + m.end();
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Finds the matches with one Matcher over the whole data.
+     */
+    private static String searchWhole(byte[] data, long[] blockPos,
+                                      Pattern regex) {
+        StringBuilder sb = new StringBuilder();
+        Matcher m = regex.matcher(
+                new String(data, StandardCharsets.ISO_8859_1));
+        int b = 0;
+
+        while (m.find()) {
+            if (m.start() == data.length)
+                break;
+
+            while (m.start() >= blockPos[b + 1])
+                ++b;
+
+            sb.append(b).append(':').append(m.start()).append('+')
+              .append(m.end() - m.start()).append(' ');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Finds also the overlapping occurrences of a literal pattern.
+     */
+    private static String searchOverlapping(byte[] data, long[] blockPos,
+                                            Pattern literal) {
+        StringBuilder sb = new StringBuilder();
+        Matcher m = literal.matcher(
+                new String(data, StandardCharsets.ISO_8859_1));
+        int b = 0;
+
+        for (int from = 0; from < data.length && m.find(from);
+                from = m.start() + 1) {
+            while (m.start() >= blockPos[b + 1])
+                ++b;
+
+            sb.append(b).append(':').append(m.start()).append('+')
+              .append(m.end() - m.start()).append(' ');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Compresses with XZEncoder and decompresses with XZDecoder using
+     * random input and output steps. Truncated and corrupt files must
+     * give the same result with XZDecoder as with XZInputStream.
+     */
+    private static void testNonBlocking() throws Exception {
+        int[] checkTypes = { XZ.CHECK_NONE, XZ.CHECK_CRC32,
+                             XZ.CHECK_CRC64, XZ.CHECK_SHA256 };
+        XZDecoder decoder = new XZDecoder(MEMORY_LIMIT, true,
+                                          ArrayCache.getDefaultCache());
+
+        for (int round = 0; round < 300; ++round) {
+            // A few Streams, each followed by Stream Padding
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            ByteArrayOutputStream file = new ByteArrayOutputStream();
+            int streams = 1 + rng.nextInt(3);
+
+            for (int i = 0; i < streams; ++i) {
+                byte[] data = data(rng.nextInt(4) == 0 ? rng.nextInt(10)
+                                                       : rng.nextInt(100000));
+                int checkType = checkTypes[rng.nextInt(checkTypes.length)];
+                byte[] xz = encode(data, checkType);
+                checkEquals(data, decompress(xz), "nonblocking: encoder");
+                expected.write(data);
+                file.write(xz);
+                file.write(new byte[4 * rng.nextInt(3)]);
+            }
+
+            byte[] xz = file.toByteArray();
+            decoder.reset();
+            checkEquals(expected.toByteArray(), decode(decoder, xz, true),
+                        "nonblocking: decoder");
+
+            // Truncated and corrupt input
+            byte[] bad = rng.nextBoolean()
+                    ? Arrays.copyOf(xz, rng.nextInt(xz.length))
+                    : xz.clone();
+            if (bad.length == xz.length)
+                bad[rng.nextInt(bad.length)] ^= 1 << rng.nextInt(8);
+
+            String streamResult = decompressResult(bad);
+            decoder.reset();
+            String decoderResult;
+            try {
+                byte[] out = decode(decoder, bad, false);
+                decoderResult = decoder.finished()
+                        ? "OK " + Arrays.hashCode(out)
+                        : EOFException.class.getName();
+            } catch (IOException e) {
+                decoderResult = e.getClass().getName();
+            }
+
+            check(decoderResult.equals(streamResult),
+                  "nonblocking: bad input: XZInputStream gave "
+                  + streamResult + ", XZDecoder gave " + decoderResult);
+        }
+
+        // Thousands of tiny Blocks make the Index longer than the input
+        // steps and the buffers of the decoder. A corrupt byte in
+        // the Index must be found like with XZInputStream.
+        for (int round = 0; round < 30; ++round) {
+            byte[] data = data(rng.nextInt(200000));
+            byte[] xz = compress(data, XZ.CHECK_CRC32, 1 + rng.nextInt(64));
+            decoder.reset();
+            checkEquals(data, decode(decoder, xz, true),
+                        "nonblocking: long Index");
+
+            // Backward Size is in the Stream Footer after the CRC32.
+            int backwardSize = 0;
+            for (int i = 0; i < 4; ++i)
+                backwardSize |= (xz[xz.length - 8 + i] & 0xFF) << (i * 8);
+
+            int indexSize = (backwardSize + 1) * 4;
+            byte[] bad = xz.clone();
+            bad[xz.length - 12 - indexSize + rng.nextInt(indexSize)]
+                    ^= 1 << rng.nextInt(8);
+
+            String streamResult = decompressResult(bad);
+            String decoderResult;
+            decoder.reset();
+            try {
+                decode(decoder, bad, false);
+                decoderResult = decoder.finished() ? "OK" : "EOF";
+            } catch (IOException e) {
+                decoderResult = e.getClass().getName();
+            }
+
+            check(!streamResult.startsWith("OK"),
+                  "nonblocking: bad Index wasn't detected");
+            check(decoderResult.equals(streamResult),
+                  "nonblocking: bad Index: XZInputStream gave "
+                  + streamResult + ", XZDecoder gave " + decoderResult);
+        }
+
+        decoder.end();
+    }
+
+    /**
+     * Memory usage limit in KiB for decompressing corrupt files.
+     * A corrupt dictionary size could need much memory otherwise.
+     */
+    private static final int MEMORY_LIMIT = 64 << 10;
+
+    /**
+     * Compresses with XZEncoder giving the input in random pieces,
+     * sometimes flushing, and taking the output into buffers of random
+     * sizes down to one byte. The result must be identical to
+     * XZOutputStream with the same writes and flushes.
+     */
+    private static byte[] encode(byte[] data, int checkType)
+            throws IOException {
+        FilterOptions[] filters = filters();
+        XZEncoder encoder = new XZEncoder(filters, checkType,
+                                          ArrayCache.getDefaultCache());
+        ByteArrayOutputStream refBuf = new ByteArrayOutputStream();
+        XZOutputStream ref = new XZOutputStream(refBuf, filters, checkType);
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        ByteBuffer out = ByteBuffer.allocate(step(65536));
+        int pos = 0;
+
+        while (!encoder.finished()) {
+            if (encoder.needsInput()) {
+                if (pos == data.length) {
+                    encoder.finish();
+                    ref.finish();
+                } else {
+                    int n = Math.min(data.length - pos, step(65536));
+                    encoder.setInput(ByteBuffer.wrap(data, pos, n));
+                    ref.write(data, pos, n);
+                    pos += n;
+
+                    if (rng.nextInt(20) == 0) {
+                        encoder.flush();
+                        ref.flush();
+                    }
+                }
+            }
+
+            out.limit(step(out.capacity()));
+            encoder.encode(out);
+            out.flip();
+            result.write(out.array(), 0, out.limit());
+            out.clear();
+        }
+
+        encoder.end();
+        checkEquals(refBuf.toByteArray(), result.toByteArray(),
+                    "nonblocking: same as XZOutputStream");
+        return result.toByteArray();
+    }
+
+    /**
+     * Decompresses with XZDecoder giving the input in random pieces and
+     * taking the output into buffers of random sizes down to one byte.
+     * If {@code mustFinish} is true, the decoder must report that it
+     * has finished.
+     */
+    private static byte[] decode(XZDecoder decoder, byte[] xz,
+                                 boolean mustFinish) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        ByteBuffer out = ByteBuffer.allocate(step(65536));
+        int pos = 0;
+
+        while (true) {
+            if (decoder.needsInput()) {
+                if (pos == xz.length)
+                    break;
+
+                int n = Math.min(xz.length - pos, step(65536));
+                decoder.setInput(ByteBuffer.wrap(xz, pos, n));
+                pos += n;
+            }
+
+            out.limit(step(out.capacity()));
+            decoder.decode(out);
+            out.flip();
+            result.write(out.array(), 0, out.limit());
+            out.clear();
+        }
+
+        if (mustFinish)
+            check(decoder.finished(), "nonblocking: finished");
+
+        return result.toByteArray();
+    }
+
+    /**
+     * Returns a step size from 1 to {@code max}, often a tiny one.
+     */
+    private static int step(int max) {
+        switch (rng.nextInt(3)) {
+            case 0:
+                return 1;
+
+            case 1:
+                return 1 + rng.nextInt(Math.min(max, 16));
+
+            default:
+                return 1 + rng.nextInt(max);
+        }
+    }
+
+    /**
+     * Decompresses with XZInputStream and returns "OK" and a hash of
+     * the data, or the class name of the exception.
+     */
+    private static String decompressResult(byte[] xz) {
+        try {
+            InputStream in = new XZInputStream(new ByteArrayInputStream(xz),
+                                               MEMORY_LIMIT);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1)
+                out.write(buf, 0, n);
+
+            return "OK " + Arrays.hashCode(out.toByteArray());
+        } catch (IOException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    /**
+     * Compresses and decompresses with a MemoryBudget whose limit is
+     * random and often too small for the coder. Both outcomes must be
+     * seen, and the budget must be empty after every coder.
+     */
+    private static void testBudget() throws Exception {
+        int[] outcomes = new int[2];
+
+        for (int round = 0; round < 100; ++round) {
+            final byte[] data = data(rng.nextInt(200000));
+            final byte[] xz = compress(data, XZ.CHECK_CRC32, 1 << 16);
+            final FilterOptions[] filters = filters();
+            final LZMA2Options options = options();
+            final boolean analyze = rng.nextBoolean();
+
+            ByteArrayOutputStream lzmaBuf = new ByteArrayOutputStream();
+            LZMAOutputStream lzmaOut = new LZMAOutputStream(
+                    lzmaBuf, options, data.length);
+            lzmaOut.write(data);
+            lzmaOut.close();
+            final byte[] lzma = lzmaBuf.toByteArray();
+
+            final MemoryBudget budget = new MemoryBudget(
+                    (16 << rng.nextInt(10)) + rng.nextInt(1024), 0);
+
+            ++outcomes[withBudget("XZOutputStream", budget, new Task() {
+                @Override
+                public void run() throws Exception {
+                    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                    XZOutputStream out = new XZOutputStream(
+                            buf, filters, XZ.CHECK_CRC64, budget);
+                    try {
+                        // The trial compressions of the analyzer
+                        // allocate from the budget too.
+                        if (analyze)
+                            out.setFilterAnalyzer(
+                                    new FilterAnalyzer(options));
+
+                        out.write(data);
+                        out.finish();
+                    } finally {
+                        out.close();
+                    }
+
+                    checkEquals(data, decompress(buf.toByteArray()),
+                                "budget: XZOutputStream");
+                }
+            })];
+
+            ++outcomes[withBudget("LZMAOutputStream", budget, new Task() {
+                @Override
+                public void run() throws Exception {
+                    LZMAOutputStream out = new LZMAOutputStream(
+                            new ByteArrayOutputStream(), options,
+                            data.length, budget);
+                    try {
+                        out.write(data);
+                    } finally {
+                        out.close();
+                    }
+                }
+            })];
+
+            ++outcomes[withBudget("XZEncoder", budget, new Task() {
+                @Override
+                public void run() throws Exception {
+                    XZEncoder encoder = new XZEncoder(
+                            filters, XZ.CHECK_CRC64, budget);
+                    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                    ByteBuffer out = ByteBuffer.allocate(8192);
+                    try {
+                        encoder.setInput(ByteBuffer.wrap(data));
+                        encoder.finish();
+                        while (!encoder.finished()) {
+                            encoder.encode(out);
+                            buf.write(out.array(), 0, out.position());
+                            out.clear();
+                        }
+                    } finally {
+                        encoder.end();
+                    }
+
+                    checkEquals(data, decompress(buf.toByteArray()),
+                                "budget: XZEncoder");
+                }
+            })];
+
+            ++outcomes[withBudget("XZInputStream", budget, new Task() {
+                @Override
+                public void run() throws Exception {
+                    InputStream in = new XZInputStream(
+                            new ByteArrayInputStream(xz), budget);
+                    checkEquals(data, readAll(in), "budget: XZInputStream");
+                }
+            })];
+
+            ++outcomes[withBudget("SeekableXZInputStream", budget,
+                                  new Task() {
+                @Override
+                public void run() throws Exception {
+                    InputStream in = new SeekableXZInputStream(
+                            new ByteArraySeekableInputStream(xz), budget);
+                    checkEquals(data, readAll(in),
+                                "budget: SeekableXZInputStream");
+                }
+            })];
+
+            ++outcomes[withBudget("LZMAInputStream", budget, new Task() {
+                @Override
+                public void run() throws Exception {
+                    InputStream in = new LZMAInputStream(
+                            new ByteArrayInputStream(lzma), -1, budget);
+                    checkEquals(data, readAll(in),
+                                "budget: LZMAInputStream");
+                }
+            })];
+
+            ++outcomes[withBudget("XZDecoder", budget, new Task() {
+                @Override
+                public void run() throws Exception {
+                    XZDecoder decoder = new XZDecoder(MEMORY_LIMIT, true,
+                                                      budget);
+                    try {
+                        checkEquals(data, decode(decoder, xz, true),
+                                    "budget: XZDecoder");
+                    } finally {
+                        decoder.end();
+                    }
+                }
+            })];
+        }
+
+        check(outcomes[0] > 0 && outcomes[1] > 0,
+              "budget: both outcomes: " + Arrays.toString(outcomes));
+    }
+
+    /**
+     * Runs {@code task}, which must close its coder. Returns 1 if it
+     * threw MemoryLimitException and 0 if it succeeded. Other
+     * exceptions are failures.
+     */
+    private static int withBudget(String what, MemoryBudget budget,
+                                  Task task) throws Exception {
+        int failed = 0;
+
+        try {
+            task.run();
+        } catch (MemoryLimitException e) {
+            failed = 1;
+        }
+
+        check(budget.getMemoryUsage() == 0,
+              "budget: " + what + ": " + budget.getMemoryUsage()
+              + " KiB still in use");
+        return failed;
+    }
+
+    /**
+     * Reads {@code in} to the end and closes it even if reading fails.
+     */
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+
+        try {
+            while ((n = in.read(buf)) != -1)
+                out.write(buf, 0, n);
+        } finally {
+            in.close();
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Splits {@code data} at {@code delimiter} like
+     * XZRecordStream.records does.
+     */
+    private static List<ByteBuffer> split(byte[] data, byte delimiter) {
+        List<ByteBuffer> records = new ArrayList<ByteBuffer>();
+        int start = 0;
+
+        for (int i = 0; i < data.length; ++i) {
+            if (data[i] == delimiter) {
+                records.add(ByteBuffer.wrap(
+                        Arrays.copyOfRange(data, start, i)));
+                start = i + 1;
+            }
+        }
+
+        if (start < data.length)
+            records.add(ByteBuffer.wrap(
+                    Arrays.copyOfRange(data, start, data.length)));
+
+        return records;
+    }
+
+    /**
+     * Opens streams over a byte array and counts the streams that
+     * haven't been closed.
+     */
+    private static class CountingFactory implements SeekableInputFactory {
+        private final byte[] buf;
+        final AtomicInteger open = new AtomicInteger();
+
+        CountingFactory(byte[] buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public SeekableInputStream open() {
+            open.incrementAndGet();
+            return new ByteArraySeekableInputStream(buf) {
+                private boolean closed = false;
+
+                @Override
+                public void close() {
+                    if (!closed) {
+                        closed = true;
+                        open.decrementAndGet();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Checks that the Index of a single-Stream file agrees with its
+     * contents Block by Block.
+     */
+    private static void checkIndex(byte[] xz, byte[] data)
+            throws IOException {
+        SeekableXZInputStream in = seekable(xz);
+        check(in.getStreamCount() == 1, "index: Stream count");
+        check(in.length() == data.length, "index: length");
+
+        for (int i = 0; i < in.getBlockCount(); ++i) {
+            byte[] block = new byte[(int)in.getBlockSize(i)];
+            in.seekToBlock(i);
+            new DataInputStream(in).readFully(block);
+            int pos = (int)in.getBlockPos(i);
+            checkEquals(Arrays.copyOfRange(data, pos, pos + block.length),
+                        block, "index: Block " + i);
+        }
+
+        in.close();
+    }
+
+    /**
+     * SeekableInputStream over a byte array.
+     */
+    private static class ByteArraySeekableInputStream
+            extends SeekableInputStream {
+        private final byte[] buf;
+        private int pos = 0;
+
+        ByteArraySeekableInputStream(byte[] buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return pos < buf.length ? buf[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+
+            if (pos >= buf.length)
+                return -1;
+
+            int n = Math.min(len, buf.length - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public long length() {
+            return buf.length;
+        }
+
+        @Override
+        public long position() {
+            return pos;
+        }
+
+        @Override
+        public void seek(long pos) throws IOException {
+            if (pos < 0)
+                throw new IOException("Negative seek position");
+
+            this.pos = (int)Math.min(pos, buf.length);
+        }
+    }
+}
@@ -0,0 +1,674 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+/*
+ * Usage:
+ *   java -jar build/jar/TestScaling.jar [NAME=VALUE]... > results.csv
+ *
+ * Runs whole-file compression and decompression over a matrix of
+ * configurations and writes one CSV row per run to standard output.
+ * Progress goes to standard error. The arguments override the lists
+ * of values to try; each is a comma-separated list:
+ *
+ *   corpus=text,log,binary,random,compressed
+ *   size=1M,16M             uncompressed sizes (K and M suffixes work)
+ *   preset=1,6              LZMA2 presets
+ *   block=0,4M              Block sizes; 0 means a single Block
+ *   threads=1,2,4           number of threads
+ *   cache=Dummy,Basic       ArrayCache implementations
+ *   op=compress,decompress,pdecompress
+ *   warmup=1                unreported runs before each measurement
+ *   repeat=3                reported runs per configuration
+ *   xz=auto                 "auto" looks for xz in PATH, "none" skips
+ *                           the comparison, anything else is a path
+ *
+ * The operations:
+ *
+ *   compress     Each thread compresses the whole file. The throughput
+ *                is the total of all threads, which shows how
+ *                concurrent streams scale and how the ArrayCache copes
+ *                with contention.
+ *   decompress   The same for decompression with XZInputStream.
+ *   pdecompress  The threads decompress the Blocks of one file in
+ *                parallel using SeekableXZInputStream. This scales only
+ *                if the file has multiple Blocks.
+ *
+ * The corpus is generated from a fixed seed so results are comparable
+ * between runs and versions. "compressed" is text compressed with
+ * preset 0, which is nearly incompressible like other already
+ * compressed data.
+ *
+ * The CSV columns:
+ *
+ *   mib_per_s       uncompressed MiB processed per second by all threads
+ *   ratio           compressed size / uncompressed size
+ *   peak_rss_kib    peak resident set size during the run (Linux only);
+ *                   this includes the whole Java heap, so use -Xmx
+ *                   to make it meaningful
+ *   alloc_mib_per_s heap allocation rate of the worker threads
+ *                   (needs the com.sun.management extension)
+ *   gc_ms           time spent in garbage collection during the run
+ *   xz_ratio        ratio from the xz tool with the same preset and
+ *                   Block size, or empty if xz isn't available
+ *
+ * Example:
+ *   java -Xmx2g -jar build/jar/TestScaling.jar \
+ *       corpus=log size=64M block=0,8M threads=1,4 op=pdecompress
+ */
+
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.tukaani.xz.*;
+
+class TestScaling {
+    private static final long SEED = 0x585A4A617661L;
+    private static final int BUF_SIZE = 64 << 10;
+
+    private static final String CSV_HEADER = "corpus,size,preset,block,"
+            + "threads,cache,op,run,seconds,mib_per_s,peak_rss_kib,"
+            + "alloc_mib_per_s,gc_ms,ratio,xz_ratio";
+
+    private static final Map<String, String> settings
+            = new HashMap<String, String>();
+
+    private static volatile Exception exception = null;
+
+    public static void main(String[] args) throws Exception {
+        settings.put("corpus", "text,log,binary,random,compressed");
+        settings.put("size", "1M,16M");
+        settings.put("preset", "1,6");
+        settings.put("block", "0,4M");
+        settings.put("threads", "1,2,4");
+        settings.put("cache", "Dummy,Basic");
+        settings.put("op", "compress,decompress,pdecompress");
+        settings.put("warmup", "1");
+        settings.put("repeat", "3");
+        settings.put("xz", "auto");
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !settings.containsKey(arg.substring(0, eq)))
+                throw new Exception("Invalid argument: " + arg
+                        + "\nValid names: " + settings.keySet());
+
+            settings.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        int warmup = Integer.parseInt(settings.get("warmup"));
+        int repeat = Integer.parseInt(settings.get("repeat"));
+        String xz = findXz(settings.get("xz"));
+        if (xz == null)
+            System.err.println("xz not found, skipping the comparison");
+
+        System.out.println(CSV_HEADER);
+
+        for (String corpus : list("corpus")) {
+            for (String size : list("size")) {
+                byte[] data = generate(corpus, (int)parseSize(size));
+                runFile(corpus, data, xz, warmup, repeat);
+            }
+        }
+    }
+
+    /**
+     * Runs all configurations for one generated file.
+     */
+    private static void runFile(String corpus, byte[] data, String xz,
+                                int warmup, int repeat) throws Exception {
+        for (String presetArg : list("preset")) {
+            for (String blockArg : list("block")) {
+                int preset = Integer.parseInt(presetArg);
+                long block = parseSize(blockArg);
+                LZMA2Options options = new LZMA2Options(preset);
+                byte[] compressed = compress(data, options, block,
+                                             ArrayCache.getDummyCache());
+
+                String ratios = format((double)compressed.length
+                                       / data.length) + ",";
+                if (xz != null) {
+                    long xzSize = runXz(xz, data, preset, block);
+                    if (xzSize >= 0)
+                        ratios += format((double)xzSize / data.length);
+                }
+
+                for (String cache : list("cache")) {
+                    for (String threads : list("threads")) {
+                        for (String op : list("op")) {
+                            String prefix = corpus + "," + data.length
+                                    + "," + preset + "," + block + ","
+                                    + threads + "," + cache + "," + op
+                                    + ",";
+                            System.err.println(prefix);
+
+                            for (int run = -warmup; run < repeat; ++run) {
+                                String result = measure(op,
+                                        Integer.parseInt(threads), data,
+                                        compressed, options, block,
+                                        getCache(cache));
+                                if (run >= 0)
+                                    System.out.println(prefix + run + ","
+                                            + result + "," + ratios);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one configuration once and returns the CSV columns from
+     * seconds to gc_ms.
+     */
+    private static String measure(final String op, int threadCount,
+                                  final byte[] data, final byte[] compressed,
+                                  final LZMA2Options options,
+                                  final long block, final ArrayCache cache)
+            throws Exception {
+        if (!op.equals("compress") && !op.equals("decompress")
+                && !op.equals("pdecompress"))
+            throw new Exception("Unknown operation: " + op);
+
+        final long[] allocated = new long[threadCount];
+        final AtomicInteger nextBlock = new AtomicInteger();
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; ++i) {
+            final int id = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    long before = getAllocatedBytes();
+
+                    try {
+                        if (op.equals("compress"))
+                            compress(data, options, block, cache);
+                        else if (op.equals("decompress"))
+                            decompress(compressed, cache);
+                        else
+                            decompressBlocks(compressed, nextBlock, cache);
+                    } catch (Exception e) {
+                        exception = e;
+                    }
+
+                    allocated[id] = before < 0
+                                    ? -1 : getAllocatedBytes() - before;
+                }
+            };
+        }
+
+        System.gc();
+        resetPeakRss();
+        long gcBefore = getGcMillis();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < threadCount; ++i)
+            threads[i].start();
+
+        for (int i = 0; i < threadCount; ++i)
+            threads[i].join();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long gcMillis = getGcMillis() - gcBefore;
+        long peakRss = getPeakRss();
+
+        if (exception != null)
+            throw exception;
+
+        // In pdecompress the threads share one file.
+        long bytes = op.equals("pdecompress")
+                     ? data.length : (long)data.length * threadCount;
+
+        long allocatedTotal = 0;
+        for (int i = 0; i < threadCount; ++i) {
+            if (allocated[i] < 0) {
+                allocatedTotal = -1;
+                break;
+            }
+
+            allocatedTotal += allocated[i];
+        }
+
+        return format(seconds) + ","
+               + format(bytes / seconds / (1 << 20)) + ","
+               + (peakRss < 0 ? "" : Long.toString(peakRss)) + ","
+               + (allocatedTotal < 0 ? ""
+                  : format(allocatedTotal / seconds / (1 << 20))) + ","
+               + gcMillis;
+    }
+
+    private static byte[] compress(byte[] data, LZMA2Options options,
+                                   long block, ArrayCache cache)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                data.length / 2 + 1024);
+        XZOutputStream out = new XZOutputStream(bytes,
+                new FilterOptions[] { options }, XZ.CHECK_CRC64, cache);
+        if (block > 0)
+            out.setBlockSize(block);
+
+        for (int off = 0; off < data.length; off += BUF_SIZE)
+            out.write(data, off, Math.min(BUF_SIZE, data.length - off));
+
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static void decompress(byte[] compressed, ArrayCache cache)
+            throws IOException {
+        XZInputStream in = new XZInputStream(
+                new ByteArrayInputStream(compressed), -1, true, cache);
+        byte[] buf = new byte[BUF_SIZE];
+        while (in.read(buf) != -1) {}
+
+        in.close();
+    }
+
+    private static void decompressBlocks(byte[] compressed,
+                                         AtomicInteger nextBlock,
+                                         ArrayCache cache)
+            throws IOException {
+        SeekableXZInputStream in = new SeekableXZInputStream(
+                new ByteArraySeekableInputStream(compressed), -1, cache);
+        byte[] buf = new byte[BUF_SIZE];
+
+        int blockNumber;
+        while ((blockNumber = nextBlock.getAndIncrement())
+                < in.getBlockCount()) {
+            in.seekToBlock(blockNumber);
+            long left = in.getBlockSize(blockNumber);
+            while (left > 0) {
+                int n = in.read(buf, 0, (int)Math.min(buf.length, left));
+                if (n == -1)
+                    throw new EOFException();
+
+                left -= n;
+            }
+        }
+
+        in.close();
+    }
+
+    /**
+     * Generates the corpus. See the comment at the top of the file.
+     */
+    private static byte[] generate(String corpus, int size)
+            throws IOException {
+        Random r = new Random(SEED ^ corpus.hashCode());
+        byte[] buf = new byte[size];
+
+        switch (corpus) {
+            case "text":
+                generateText(r, buf);
+                break;
+
+            case "log":
+                generateLog(r, buf);
+                break;
+
+            case "binary":
+                generateBinary(r, buf);
+                break;
+
+            case "random":
+                r.nextBytes(buf);
+                break;
+
+            case "compressed": {
+                // Compress text in pieces until there is enough.
+                byte[] text = new byte[1 << 20];
+                int pos = 0;
+                while (pos < size) {
+                    generateText(r, text);
+                    byte[] c = compress(text, new LZMA2Options(0), 0,
+                                        ArrayCache.getDummyCache());
+                    int n = Math.min(c.length, size - pos);
+                    System.arraycopy(c, 0, buf, pos, n);
+                    pos += n;
+                }
+
+                break;
+            }
+
+            default:
+                throw new IOException("Unknown corpus: " + corpus);
+        }
+
+        return buf;
+    }
+
+    private static final String[] WORDS = {
+        "the", "of", "and", "to", "in", "a", "is", "that", "for", "it",
+        "as", "was", "with", "be", "by", "on", "not", "he", "this", "are",
+        "or", "his", "from", "at", "which", "but", "have", "an", "had",
+        "they", "you", "were", "their", "one", "all", "we", "can", "her",
+        "has", "there", "been", "if", "more", "when", "will", "would",
+        "who", "so", "no", "compression", "dictionary", "stream", "block",
+        "filter", "decoder", "encoder", "buffer", "index", "checksum",
+    };
+
+    private static void generateText(Random r, byte[] buf) {
+        int pos = 0;
+        int lineLen = 0;
+
+        while (pos < buf.length) {
+            // Squaring makes the common words much more common.
+            double x = r.nextDouble();
+            int start = pos;
+            pos = put(buf, pos, WORDS[(int)(x * x * WORDS.length)]);
+            lineLen += pos - start + 1;
+
+            if (pos < buf.length) {
+                if (lineLen > 60 + r.nextInt(20)) {
+                    buf[pos++] = '\n';
+                    lineLen = 0;
+                } else {
+                    buf[pos++] = ' ';
+                }
+            }
+        }
+    }
+
+    private static final String[] LEVELS = {
+        "INFO", "INFO", "INFO", "DEBUG", "DEBUG", "WARN", "ERROR",
+    };
+
+    private static final String[] MESSAGES = {
+        "request completed", "cache miss for key", "connection opened",
+        "connection closed", "retrying after timeout", "user logged in",
+        "slow query detected", "payload too large",
+    };
+
+    private static void generateLog(Random r, byte[] buf) {
+        long time = 1700000000000L;
+        int pos = 0;
+
+        while (pos < buf.length) {
+            time += r.nextInt(50);
+            String line = time + " [worker-" + r.nextInt(16) + "] "
+                    + LEVELS[r.nextInt(LEVELS.length)] + " "
+                    + MESSAGES[r.nextInt(MESSAGES.length)]
+                    + " id=" + Long.toHexString(r.nextLong())
+                    + " ms=" + r.nextInt(2000) + "\n";
+            pos = put(buf, pos, line);
+        }
+    }
+
+    private static void generateBinary(Random r, byte[] buf) {
+        // A set of "functions" is repeated with small changes and
+        // mixed with x86 CALL instructions to a few hundred targets.
+        byte[][] snippets = new byte[64][];
+        for (int i = 0; i < snippets.length; ++i) {
+            snippets[i] = new byte[8 + r.nextInt(56)];
+            r.nextBytes(snippets[i]);
+        }
+
+        int pos = 0;
+        while (pos < buf.length) {
+            if (r.nextInt(4) == 0 && pos + 5 <= buf.length) {
+                int rel = r.nextInt(300) * 256 - (pos + 5);
+                buf[pos++] = (byte)0xE8;
+                for (int i = 0; i < 4; ++i)
+                    buf[pos++] = (byte)(rel >>> (i * 8));
+            } else {
+                byte[] s = snippets[r.nextInt(snippets.length)];
+                int n = Math.min(s.length, buf.length - pos);
+                System.arraycopy(s, 0, buf, pos, n);
+                if (r.nextInt(8) == 0)
+                    buf[pos + r.nextInt(n)] ^= (byte)r.nextInt(256);
+
+                pos += n;
+            }
+        }
+    }
+
+    private static int put(byte[] buf, int pos, String s) {
+        for (int i = 0; i < s.length() && pos < buf.length; ++i)
+            buf[pos++] = (byte)s.charAt(i);
+
+        return pos;
+    }
+
+    private static ArrayCache getCache(String name) throws Exception {
+        switch (name) {
+            case "Dummy":
+                return ArrayCache.getDummyCache();
+
+            case "Basic":
+                return BasicArrayCache.getInstance();
+        }
+
+        throw new Exception("Unknown ArrayCache: " + name);
+    }
+
+    /**
+     * Finds the xz tool.
+     *
+     * @return      path to xz or null if it shouldn't or cannot be used
+     */
+    private static String findXz(String setting) {
+        if (setting.equals("none"))
+            return null;
+
+        if (!setting.equals("auto"))
+            return setting;
+
+        String path = System.getenv("PATH");
+        if (path == null)
+            return null;
+
+        for (String dir : path.split(File.pathSeparator)) {
+            File f = new File(dir, "xz");
+            if (f.canExecute())
+                return f.getPath();
+
+            f = new File(dir, "xz.exe");
+            if (f.canExecute())
+                return f.getPath();
+        }
+
+        return null;
+    }
+
+    /**
+     * Compresses {@code data} with the xz tool.
+     *
+     * @return      compressed size, or -1 if running xz failed
+     */
+    private static long runXz(String xz, final byte[] data, int preset,
+                              long block) {
+        List<String> command = new ArrayList<String>();
+        command.add(xz);
+        command.add("-" + preset);
+        command.add("-T1");
+        command.add("-c");
+        if (block > 0)
+            command.add("--block-size=" + block);
+
+        try {
+            final Process process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+
+            // Write in another thread so that neither side blocks
+            // on a full pipe.
+            Thread writer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        OutputStream out = process.getOutputStream();
+                        out.write(data);
+                        out.close();
+                    } catch (IOException e) {
+                        // Reading will see that xz failed.
+                    }
+                }
+            };
+            writer.start();
+
+            InputStream in = process.getInputStream();
+            byte[] buf = new byte[BUF_SIZE];
+            long size = 0;
+            int n;
+            while ((n = in.read(buf)) != -1)
+                size += n;
+
+            writer.join();
+            return process.waitFor() == 0 ? size : -1;
+
+        } catch (IOException e) {
+            System.err.println("Running xz failed: " + e);
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return -1;
+
+        return ((com.sun.management.ThreadMXBean)bean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long getGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean
+                : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, bean.getCollectionTime());
+
+        return total;
+    }
+
+    /**
+     * Resets the peak RSS of the process on Linux. On other systems or
+     * old kernels this does nothing and the peak is for the whole
+     * lifetime of the process.
+     */
+    private static void resetPeakRss() {
+        try {
+            FileOutputStream out = new FileOutputStream(
+                    "/proc/self/clear_refs");
+            try {
+                out.write('5');
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            // Not supported.
+        }
+    }
+
+    /**
+     * Gets the peak RSS in KiB, or -1 if it isn't available.
+     */
+    private static long getPeakRss() {
+        try {
+            BufferedReader in = new BufferedReader(
+                    new FileReader("/proc/self/status"));
+            try {
+                String line;
+                while ((line = in.readLine()) != null)
+                    if (line.startsWith("VmHWM:"))
+                        return Long.parseLong(line.substring(6).trim()
+                                              .split(" ")[0]);
+            } finally {
+                in.close();
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux.
+        }
+
+        return -1;
+    }
+
+    private static List<String> list(String name) {
+        List<String> values = new ArrayList<String>();
+        for (String s : settings.get(name).split(","))
+            if (!s.isEmpty())
+                values.add(s.trim());
+
+        return values;
+    }
+
+    private static long parseSize(String s) {
+        long mul = 1;
+        if (s.endsWith("K")) {
+            mul = 1 << 10;
+            s = s.substring(0, s.length() - 1);
+        } else if (s.endsWith("M")) {
+            mul = 1 << 20;
+            s = s.substring(0, s.length() - 1);
+        }
+
+        return Long.parseLong(s) * mul;
+    }
+
+    private static String format(double d) {
+        return String.format(Locale.ROOT, "%.4g", d);
+    }
+
+    /**
+     * SeekableInputStream over a byte array so that the file system
+     * doesn't affect the results.
+     */
+    private static class ByteArraySeekableInputStream
+            extends SeekableInputStream {
+        private final byte[] buf;
+        private int pos = 0;
+
+        ByteArraySeekableInputStream(byte[] buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return pos < buf.length ? buf[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+
+            if (pos >= buf.length)
+                return -1;
+
+            int n = Math.min(len, buf.length - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public long length() {
+            return buf.length;
+        }
+
+        @Override
+        public long position() {
+            return pos;
+        }
+
+        @Override
+        public void seek(long pos) throws IOException {
+            if (pos < 0)
+                throw new IOException("Negative seek position");
+
+            this.pos = (int)Math.min(pos, buf.length);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+import java.io.*;
+import org.tukaani.xz.*;
+
+/**
+ * Copies XZ Blocks from one or more .xz files into a single XZ Stream
+ * on standard output without recompressing them.
+ * <p>
+ * Arguments: filename[:first[:count]] ...
+ * <p>
+ * If only the filename is given, all Blocks of the file are copied.
+ * Otherwise {@code count} Blocks starting from the Block number
+ * {@code first} are copied. If {@code count} is omitted, the rest of
+ * the Blocks are copied. All copied Blocks must use the same integrity
+ * check type.
+ * <p>
+ * Giving many files concatenates them. Giving one file with a range
+ * of Blocks extracts a part of the file into a standalone .xz file.
+ */
+class XZSpliceDemo {
+    public static void main(String[] args) throws Exception {
+        OutputStream stdout = new BufferedOutputStream(System.out);
+        XZOutputStream out = null;
+
+        for (int i = 0; i < args.length; ++i) {
+            String[] parts = args[i].split(":");
+            SeekableXZInputStream in = new SeekableXZInputStream(
+                    new SeekableFileInputStream(parts[0]));
+
+            int first = parts.length >= 2 ? Integer.parseInt(parts[1]) : 0;
+            int count = parts.length >= 3 ? Integer.parseInt(parts[2])
+                                          : in.getBlockCount() - first;
+
+            if (out == null) {
+                int checkType = count > 0 ? in.getBlockCheckType(first)
+                                          : XZ.CHECK_CRC64;
+                out = new XZOutputStream(stdout, new LZMA2Options(),
+                                         checkType);
+            }
+
+            out.copyBlocks(in, first, count);
+            in.close();
+        }
+
+        if (out != null)
+            out.finish();
+
+        stdout.flush();
+    }
+}
@@ -34,6 +34,14 @@ package org.tukaani.xz;
  * or {@code close()} or {@code close(boolean)} is called. This is true even
  * if closing throws an exception.
  * <p>
+ * {@code XZOutputStream}, {@code XZInputStream}, and
+ * {@code SingleXZInputStream} can be reused for a new Stream with
+ * {@code reset}. This keeps the arrays so that they don't need to be
+ * allocated and cleared again. {@code XZOutputStream.reset} finishes
+ * the old Stream without returning the arrays to the cache. After
+ * a decompressor has been reset, the arrays are returned to the cache
+ * only when it is closed.
+ * <p>
  * Raw decompressors don't support {@code close(boolean)}. With raw
  * decompressors, if one wants to put the arrays back to the cache without
  * closing the underlying {@code InputStream}, one can wrap the
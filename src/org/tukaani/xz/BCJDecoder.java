@@ -37,6 +37,13 @@ class BCJDecoder extends BCJCoder implements FilterDecoder {
 
     @Override
     public InputStream getInputStream(InputStream in, ArrayCache arrayCache) {
+        return new SimpleInputStream(in, getSimpleFilter());
+    }
+
+    /**
+     * Creates a new decoder for the filter that converts data in place.
+     */
+    SimpleFilter getSimpleFilter() {
         SimpleFilter simpleFilter = null;
 
         if (filterID == X86_FILTER_ID)
@@ -58,6 +65,6 @@ class BCJDecoder extends BCJCoder implements FilterDecoder {
         else
             assert false;
 
-        return new SimpleInputStream(in, simpleFilter);
+        return simpleFilter;
     }
 }
@@ -45,4 +45,7 @@ class BCJEncoder extends BCJCoder implements FilterEncoder {
                                                   ArrayCache arrayCache) {
         return options.getOutputStream(out, arrayCache);
     }
+
+    @Override
+    public void putArraysToCache() {}
 }
@@ -9,6 +9,7 @@ import java.lang.ref.SoftReference;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A basic {@link ArrayCache} implementation.
@@ -29,6 +30,9 @@ import java.util.Map;
  * A statically allocated global {@code BasicArrayCache} instance is
  * available via {@link #getInstance()} which is a good choice in most
  * situations where caching is wanted.
+ * <p>
+ * {@link #getHitCount()} and {@link #getMissCount()} can be used to see
+ * how often the arrays are reused.
  *
  * @since 1.7
  */
@@ -161,6 +165,52 @@ public class BasicArrayCache extends ArrayCache {
      */
     private final CacheMap<int[]> intArrayCache = new CacheMap<int[]>();
 
+    /**
+     * Number of requests of cacheable size that were served from
+     * the cache and that had to allocate a new array. These are
+     * updated only while {@link XZMetrics#isEnabled()} is true.
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Gets the number of array requests that were served with
+     * an array from the cache. The requests are counted only while
+     * a stream has an {@link XZMetrics.Listener}.
+     *
+     * @since 1.13
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of array requests that had to allocate a new array
+     * because no suitable array was in the cache. Requests of small
+     * arrays, which are never cached, aren't counted. Like the hits,
+     * the misses are counted only while a stream has
+     * an {@link XZMetrics.Listener}.
+     *
+     * @since 1.13
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Updates the hit or miss count after a request of {@code size}
+     * elements.
+     */
+    private void count(Object array, int size) {
+        if (!XZMetrics.isEnabled())
+            return;
+
+        if (array != null)
+            hitCount.incrementAndGet();
+        else if (size >= CACHEABLE_SIZE_MIN)
+            missCount.incrementAndGet();
+    }
+
     /**
      * Gets {@code T[size]} from the given {@code cache}.
      * If no such array is found, {@code null} is returned.
@@ -233,6 +283,7 @@ public class BasicArrayCache extends ArrayCache {
     @Override
     public byte[] getByteArray(int size, boolean fillWithZeros) {
         byte[] array = getArray(byteArrayCache, size);
+        count(array, size);
 
         if (array == null)
             array = new byte[size];
@@ -259,6 +310,7 @@ public class BasicArrayCache extends ArrayCache {
     @Override
     public int[] getIntArray(int size, boolean fillWithZeros) {
         int[] array = getArray(intArrayCache, size);
+        count(array, size);
 
         if (array == null)
             array = new int[size];
@@ -0,0 +1,100 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+/**
+ * Finds content-defined Block boundaries with a gear rolling hash.
+ * <p>
+ * The hash is shifted left by one bit for every byte and a random
+ * value from a table is added. Thus the highest bits depend on
+ * the last 64 bytes and a boundary is placed after a byte when
+ * the highest bits of the hash are zero. The hash isn't updated
+ * for the first {@code minSize} bytes of a Block, which both enforces
+ * the minimum size and makes skipping those bytes cheap.
+ * <p>
+ * The boundaries must stay the same in all versions of this library.
+ * Otherwise the same input compressed with different versions would
+ * give different Blocks. Thus the table is generated with a fixed
+ * seed and the algorithm must not be changed.
+ */
+final class BlockChunker {
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // SplitMix64 with a fixed seed
+        long state = 0x5A8B3C1D2E4F6071L;
+        for (int i = 0; i < GEAR.length; ++i) {
+            state += 0x9E3779B97F4A7C15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private final int minSize;
+    private final long mask;
+    private long hash = 0;
+
+    /**
+     * Creates a new chunker. The average distance between boundaries
+     * is about {@code minSize} plus {@code avgSize - minSize} rounded
+     * down to a power of two. If {@code avgSize <= minSize}, every
+     * boundary is placed exactly after {@code minSize} bytes.
+     */
+    BlockChunker(int minSize, int avgSize) {
+        this.minSize = minSize;
+
+        int bits = avgSize > minSize
+                   ? 31 - Integer.numberOfLeadingZeros(avgSize - minSize)
+                   : 0;
+        mask = bits == 0 ? 0 : -1L << (64 - bits);
+    }
+
+    /**
+     * Forgets the hash state. This must be called at the start of
+     * every Block.
+     */
+    void reset() {
+        hash = 0;
+    }
+
+    /**
+     * Looks for a boundary in {@code buf[off, off + len)} which continues
+     * the current Block whose uncompressed size so far is
+     * {@code blockPos}.
+     *
+     * @return      number of bytes up to and including the byte after
+     *              which a boundary is placed, or -1 if there is no
+     *              boundary in the given data
+     */
+    int findBoundary(byte[] buf, int off, int len, long blockPos) {
+        int i = off;
+        int end = off + len;
+
+        if (blockPos < minSize) {
+            i += (int)Math.min(len, minSize - blockPos);
+
+            // Without hash bits to test, cut as soon as the minimum
+            // size has been reached.
+            if (mask == 0 && blockPos + (i - off) == minSize) {
+                hash = 0;
+                return i - off;
+            }
+        }
+
+        long h = hash;
+        while (i < end) {
+            h = (h << 1) + GEAR[buf[i++] & 0xFF];
+            if ((h & mask) == 0) {
+                hash = 0;
+                return i - off;
+            }
+        }
+
+        hash = h;
+        return -1;
+    }
+}
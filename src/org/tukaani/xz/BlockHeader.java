@@ -0,0 +1,147 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.tukaani.xz.common.DecoderUtil;
+
+/**
+ * Decoded XZ Block Header. This is shared by {@code BlockInputStream}
+ * and {@code XZDecoder}.
+ */
+final class BlockHeader {
+    final int headerSize;
+    final long compressedSizeInHeader;
+    final long uncompressedSizeInHeader;
+
+    /**
+     * The maximum valid compressed size. This is the value from
+     * the Compressed Size field if it is present.
+     */
+    final long compressedSizeLimit;
+
+    final FilterDecoder[] filters;
+
+    /**
+     * Decodes a Block Header.
+     *
+     * @param       buf         the whole Block Header; the first byte
+     *                          is the Block Header Size field
+     *
+     * @param       checkSize   size of the integrity check field
+     */
+    BlockHeader(byte[] buf, int checkSize) throws IOException {
+        headerSize = buf.length;
+        assert headerSize == 4 * ((buf[0] & 0xFF) + 1);
+
+        // Validate the CRC32.
+        if (!DecoderUtil.isCRC32Valid(buf, 0, headerSize - 4, headerSize - 4))
+            throw new CorruptedInputException("XZ Block Header is corrupt");
+
+        // Check for reserved bits in Block Flags.
+        if ((buf[1] & 0x3C) != 0)
+            throw new UnsupportedOptionsException(
+                    "Unsupported options in XZ Block Header");
+
+        // Memory for the Filter Flags field
+        int filterCount = (buf[1] & 0x03) + 1;
+        long[] filterIDs = new long[filterCount];
+        byte[][] filterProps = new byte[filterCount][];
+
+        // Use a stream to parse the fields after the Block Flags field.
+        // Exclude the CRC32 field at the end.
+        ByteArrayInputStream bufStream = new ByteArrayInputStream(
+                buf, 2, headerSize - 6);
+
+        long compressedSize = -1;
+        long uncompressedSize = -1;
+
+        // Set the maximum valid compressed size. This is overridden
+        // by the value from the Compressed Size field if it is present.
+        long limit = (DecoderUtil.VLI_MAX & ~3) - headerSize - checkSize;
+
+        try {
+            // Decode and validate Compressed Size if the relevant flag
+            // is set in Block Flags.
+            if ((buf[1] & 0x40) != 0x00) {
+                compressedSize = DecoderUtil.decodeVLI(bufStream);
+
+                if (compressedSize == 0 || compressedSize > limit)
+                    throw new CorruptedInputException();
+
+                limit = compressedSize;
+            }
+
+            // Decode Uncompressed Size if the relevant flag is set
+            // in Block Flags.
+            if ((buf[1] & 0x80) != 0x00)
+                uncompressedSize = DecoderUtil.decodeVLI(bufStream);
+
+            // Decode Filter Flags.
+            for (int i = 0; i < filterCount; ++i) {
+                filterIDs[i] = DecoderUtil.decodeVLI(bufStream);
+
+                long filterPropsSize = DecoderUtil.decodeVLI(bufStream);
+                if (filterPropsSize > bufStream.available())
+                    throw new CorruptedInputException();
+
+                filterProps[i] = new byte[(int)filterPropsSize];
+                bufStream.read(filterProps[i]);
+            }
+
+        } catch (IOException e) {
+            throw new CorruptedInputException("XZ Block Header is corrupt");
+        }
+
+        compressedSizeInHeader = compressedSize;
+        uncompressedSizeInHeader = uncompressedSize;
+        compressedSizeLimit = limit;
+
+        // Check that the remaining bytes are zero.
+        for (int i = bufStream.available(); i > 0; --i)
+            if (bufStream.read() != 0x00)
+                throw new UnsupportedOptionsException(
+                        "Unsupported options in XZ Block Header");
+
+        // Check if the Filter IDs are supported, decode
+        // the Filter Properties, and check that they are
+        // supported by this decoder implementation.
+        filters = new FilterDecoder[filterIDs.length];
+
+        for (int i = 0; i < filters.length; ++i) {
+            if (filterIDs[i] == LZMA2Coder.FILTER_ID)
+                filters[i] = new LZMA2Decoder(filterProps[i]);
+
+            else if (filterIDs[i] == DeltaCoder.FILTER_ID)
+                filters[i] = new DeltaDecoder(filterProps[i]);
+
+            else if (BCJDecoder.isBCJFilterID(filterIDs[i]))
+                filters[i] = new BCJDecoder(filterIDs[i], filterProps[i]);
+
+            else
+                throw new UnsupportedOptionsException(
+                        "Unknown Filter ID " + filterIDs[i]);
+        }
+
+        RawCoder.validate(filters);
+    }
+
+    /**
+     * Throws {@code MemoryLimitException} if decoding the Block needs
+     * more than {@code memoryLimit} KiB of memory. A negative
+     * {@code memoryLimit} means no limit.
+     */
+    void checkMemoryUsage(int memoryLimit) throws MemoryLimitException {
+        if (memoryLimit >= 0) {
+            int memoryNeeded = 0;
+            for (int i = 0; i < filters.length; ++i)
+                memoryNeeded += filters[i].getMemoryUsage();
+
+            if (memoryNeeded > memoryLimit)
+                throw new MemoryLimitException(memoryNeeded, memoryLimit);
+        }
+    }
+}
@@ -6,10 +6,10 @@ package org.tukaani.xz;
 
 import java.io.InputStream;
 import java.io.DataInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
-import org.tukaani.xz.common.DecoderUtil;
 import org.tukaani.xz.check.Check;
 
 class BlockInputStream extends InputStream {
@@ -26,8 +26,36 @@ class BlockInputStream extends InputStream {
     private long uncompressedSize = 0;
     private boolean endReached = false;
 
+    /**
+     * The LZMA2 decoder of the filter chain or {@code null}.
+     */
+    private LZMA2InputStream lzma2 = null;
+
+    /**
+     * True if {@code lzma2} was created in the reusable mode.
+     */
+    private final boolean reuseLZMA2;
+
+    /**
+     * Counters of this Block or {@code null} if nothing is measured.
+     */
+    private final XZMetrics metrics;
+
+    /**
+     * Time spent in the output stream given to
+     * {@code read(OutputStream, int)}. It is excluded from
+     * the coding time.
+     */
+    private long transferNanos = 0;
+
     private final byte[] tempBuf = new byte[1];
 
+    /**
+     * Buffer for {@code read(OutputStream, int)} when the filter chain
+     * has other filters than LZMA2. It is allocated when needed.
+     */
+    private byte[] transferBuf = null;
+
     public BlockInputStream(InputStream in,
                             Check check, boolean verifyCheck,
                             int memoryLimit,
@@ -35,8 +63,36 @@ class BlockInputStream extends InputStream {
                             long uncompressedSizeInIndex,
                             ArrayCache arrayCache)
             throws IOException, IndexIndicatorException {
+        this(in, check, verifyCheck, memoryLimit, unpaddedSizeInIndex,
+             uncompressedSizeInIndex, arrayCache, false, null, null);
+    }
+
+    /**
+     * Creates a new Block decoder. If {@code reuseLZMA2} is true,
+     * the LZMA2 decoder is created in the reusable mode: {@code oldLZMA2}
+     * (if not {@code null}) is reset and used if possible, and the arrays
+     * of the LZMA2 decoder aren't returned to the cache at the end of
+     * the Block. The decoder can be got with {@code getLZMA2InputStream}
+     * to pass it to the next Block.
+     * <p>
+     * If {@code metrics} isn't {@code null}, the times and the chunk
+     * counts are added to it and the sizes are set when the end of
+     * the Block has been reached.
+     */
+    public BlockInputStream(InputStream in,
+                            Check check, boolean verifyCheck,
+                            int memoryLimit,
+                            long unpaddedSizeInIndex,
+                            long uncompressedSizeInIndex,
+                            ArrayCache arrayCache,
+                            boolean reuseLZMA2,
+                            LZMA2InputStream oldLZMA2,
+                            XZMetrics metrics)
+            throws IOException, IndexIndicatorException {
         this.check = check;
         this.verifyCheck = verifyCheck;
+        this.reuseLZMA2 = reuseLZMA2;
+        this.metrics = metrics;
         inData = new DataInputStream(in);
 
         // Block Header Size or Index Indicator
@@ -53,69 +109,10 @@ class BlockInputStream extends InputStream {
         buf[0] = (byte)b;
         inData.readFully(buf, 1, headerSize - 1);
 
-        // Validate the CRC32.
-        if (!DecoderUtil.isCRC32Valid(buf, 0, headerSize - 4, headerSize - 4))
-            throw new CorruptedInputException("XZ Block Header is corrupt");
-
-        // Check for reserved bits in Block Flags.
-        if ((buf[1] & 0x3C) != 0)
-            throw new UnsupportedOptionsException(
-                    "Unsupported options in XZ Block Header");
-
-        // Memory for the Filter Flags field
-        int filterCount = (buf[1] & 0x03) + 1;
-        long[] filterIDs = new long[filterCount];
-        byte[][] filterProps = new byte[filterCount][];
-
-        // Use a stream to parse the fields after the Block Flags field.
-        // Exclude the CRC32 field at the end.
-        ByteArrayInputStream bufStream = new ByteArrayInputStream(
-                buf, 2, headerSize - 6);
-
-        try {
-            // Set the maximum valid compressed size. This is overridden
-            // by the value from the Compressed Size field if it is present.
-            compressedSizeLimit = (DecoderUtil.VLI_MAX & ~3)
-                                  - headerSize - check.getSize();
-
-            // Decode and validate Compressed Size if the relevant flag
-            // is set in Block Flags.
-            if ((buf[1] & 0x40) != 0x00) {
-                compressedSizeInHeader = DecoderUtil.decodeVLI(bufStream);
-
-                if (compressedSizeInHeader == 0
-                        || compressedSizeInHeader > compressedSizeLimit)
-                    throw new CorruptedInputException();
-
-                compressedSizeLimit = compressedSizeInHeader;
-            }
-
-            // Decode Uncompressed Size if the relevant flag is set
-            // in Block Flags.
-            if ((buf[1] & 0x80) != 0x00)
-                uncompressedSizeInHeader = DecoderUtil.decodeVLI(bufStream);
-
-            // Decode Filter Flags.
-            for (int i = 0; i < filterCount; ++i) {
-                filterIDs[i] = DecoderUtil.decodeVLI(bufStream);
-
-                long filterPropsSize = DecoderUtil.decodeVLI(bufStream);
-                if (filterPropsSize > bufStream.available())
-                    throw new CorruptedInputException();
-
-                filterProps[i] = new byte[(int)filterPropsSize];
-                bufStream.read(filterProps[i]);
-            }
-
-        } catch (IOException e) {
-            throw new CorruptedInputException("XZ Block Header is corrupt");
-        }
-
-        // Check that the remaining bytes are zero.
-        for (int i = bufStream.available(); i > 0; --i)
-            if (bufStream.read() != 0x00)
-                throw new UnsupportedOptionsException(
-                        "Unsupported options in XZ Block Header");
+        BlockHeader header = new BlockHeader(buf, check.getSize());
+        compressedSizeInHeader = header.compressedSizeInHeader;
+        uncompressedSizeInHeader = header.uncompressedSizeInHeader;
+        compressedSizeLimit = header.compressedSizeLimit;
 
         // Validate the Block Header against the Index when doing
         // random access reading.
@@ -154,46 +151,40 @@ class BlockInputStream extends InputStream {
             uncompressedSizeInHeader = uncompressedSizeInIndex;
         }
 
-        // Check if the Filter IDs are supported, decode
-        // the Filter Properties, and check that they are
-        // supported by this decoder implementation.
-        FilterDecoder[] filters = new FilterDecoder[filterIDs.length];
-
-        for (int i = 0; i < filters.length; ++i) {
-            if (filterIDs[i] == LZMA2Coder.FILTER_ID)
-                filters[i] = new LZMA2Decoder(filterProps[i]);
-
-            else if (filterIDs[i] == DeltaCoder.FILTER_ID)
-                filters[i] = new DeltaDecoder(filterProps[i]);
-
-            else if (BCJDecoder.isBCJFilterID(filterIDs[i]))
-                filters[i] = new BCJDecoder(filterIDs[i], filterProps[i]);
-
-            else
-                throw new UnsupportedOptionsException(
-                        "Unknown Filter ID " + filterIDs[i]);
-        }
-
-        RawCoder.validate(filters);
-
-        // Check the memory usage limit.
-        if (memoryLimit >= 0) {
-            int memoryNeeded = 0;
-            for (int i = 0; i < filters.length; ++i)
-                memoryNeeded += filters[i].getMemoryUsage();
-
-            if (memoryNeeded > memoryLimit)
-                throw new MemoryLimitException(memoryNeeded, memoryLimit);
-        }
+        FilterDecoder[] filters = header.filters;
+        header.checkMemoryUsage(memoryLimit);
 
         // Use an input size counter to calculate
         // the size of the Compressed Data field.
-        inCounted = new CountingInputStream(in);
+        inCounted = new CountingInputStream(in, metrics);
 
         // Initialize the filter chain.
         filterChain = inCounted;
-        for (int i = filters.length - 1; i >= 0; --i)
-            filterChain = filters[i].getInputStream(filterChain, arrayCache);
+        try {
+            for (int i = filters.length - 1; i >= 0; --i) {
+                if (reuseLZMA2 && filters[i] instanceof LZMA2Decoder) {
+                    lzma2 = ((LZMA2Decoder)filters[i])
+                            .getReusableInputStream(filterChain, oldLZMA2,
+                                                    arrayCache);
+                    filterChain = lzma2;
+                } else {
+                    filterChain = filters[i].getInputStream(filterChain,
+                                                            arrayCache);
+                    if (filterChain instanceof LZMA2InputStream)
+                        lzma2 = (LZMA2InputStream)filterChain;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw MemoryBudget.unwrap(e);
+        }
+    }
+
+    /**
+     * Returns the LZMA2 decoder if it was created in the reusable mode,
+     * otherwise {@code null}.
+     */
+    public LZMA2InputStream getLZMA2InputStream() {
+        return reuseLZMA2 ? lzma2 : null;
     }
 
     @Override
@@ -206,12 +197,115 @@ class BlockInputStream extends InputStream {
         if (endReached)
             return -1;
 
-        int ret = filterChain.read(buf, off, len);
+        int ret;
 
-        if (ret > 0) {
-            if (verifyCheck)
+        if (metrics == null) {
+            ret = filterChain.read(buf, off, len);
+
+            if (ret > 0 && verifyCheck)
+                check.update(buf, off, ret);
+        } else {
+            long ioNanos = metrics.ioNanos;
+            long start = System.nanoTime();
+            ret = filterChain.read(buf, off, len);
+            long checkStart = addCodingTime(start, ioNanos);
+
+            if (ret > 0 && verifyCheck) {
                 check.update(buf, off, ret);
+                metrics.checkNanos += System.nanoTime() - checkStart;
+            }
+        }
+
+        return updateState(ret, len);
+    }
+
+    /**
+     * Like {@code read(byte[], int, int)} but writes the data to
+     * {@code out}. If the filter chain has only LZMA2, the data is written
+     * directly from the dictionary buffer of the LZMA2 decoder.
+     */
+    int read(final OutputStream out, int len) throws IOException {
+        if (endReached)
+            return -1;
+
+        if (!(filterChain instanceof LZMA2InputStream)) {
+            // The other filters need a buffer anyway.
+            if (transferBuf == null)
+                transferBuf = new byte[8192];
+
+            int ret = read(transferBuf, 0, Math.min(len, transferBuf.length));
+            if (ret > 0)
+                out.write(transferBuf, 0, ret);
 
+            return ret;
+        }
+
+        // Update the check while the data is written.
+        OutputStream checkedOut = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                tempBuf[0] = (byte)b;
+                write(tempBuf, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] buf, int off, int len)
+                    throws IOException {
+                if (metrics == null) {
+                    if (verifyCheck)
+                        check.update(buf, off, len);
+
+                    out.write(buf, off, len);
+                } else {
+                    long start = System.nanoTime();
+
+                    if (verifyCheck)
+                        check.update(buf, off, len);
+
+                    long writeStart = System.nanoTime();
+                    out.write(buf, off, len);
+
+                    metrics.checkNanos += writeStart - start;
+                    transferNanos += System.nanoTime() - start;
+                }
+            }
+        };
+
+        int ret;
+
+        if (metrics == null) {
+            ret = ((LZMA2InputStream)filterChain).read(checkedOut, len);
+        } else {
+            long ioNanos = metrics.ioNanos;
+            long oldTransferNanos = transferNanos;
+            long start = System.nanoTime();
+            ret = ((LZMA2InputStream)filterChain).read(checkedOut, len);
+            addCodingTime(start, ioNanos);
+            metrics.codingNanos -= transferNanos - oldTransferNanos;
+        }
+
+        return updateState(ret, len);
+    }
+
+    /**
+     * Adds the time since {@code start} to the coding time, excluding
+     * the I/O time that was added after {@code ioNanos} was read.
+     *
+     * @return      the current time
+     */
+    private long addCodingTime(long start, long ioNanos) {
+        long now = System.nanoTime();
+        metrics.codingNanos += now - start - (metrics.ioNanos - ioNanos);
+        return now;
+    }
+
+    /**
+     * Updates the sizes after {@code ret} bytes out of the requested
+     * {@code len} bytes have been decoded and validates the Block
+     * at the end.
+     */
+    private int updateState(int ret, int len) throws IOException {
+        if (ret > 0) {
             uncompressedSize += ret;
 
             // Catch invalid values.
@@ -236,15 +330,36 @@ class BlockInputStream extends InputStream {
 
                 validate();
                 endReached = true;
+                setMetrics();
             }
         } else if (ret == -1) {
             validate();
             endReached = true;
+            setMetrics();
         }
 
         return ret;
     }
 
+    /**
+     * Sets the sizes and the chunk counts of {@code metrics} at the end
+     * of the Block.
+     */
+    private void setMetrics() {
+        if (metrics == null)
+            return;
+
+        metrics.blockCount = 1;
+        metrics.uncompressedSize = uncompressedSize;
+        metrics.compressedSize = (getUnpaddedSize() + 3) & ~3;
+
+        if (lzma2 != null) {
+            metrics.lzmaChunkCount = lzma2.getLZMAChunkCount();
+            metrics.uncompressedChunkCount
+                    = lzma2.getUncompressedChunkCount();
+        }
+    }
+
     private void validate() throws IOException {
         long compressedSize = inCounted.getSize();
 
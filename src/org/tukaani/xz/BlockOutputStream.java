@@ -7,6 +7,7 @@ package org.tukaani.xz;
 import java.io.OutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import org.tukaani.xz.common.EncoderUtil;
 import org.tukaani.xz.check.Check;
 
@@ -16,6 +17,18 @@ class BlockOutputStream extends FinishableOutputStream {
     private FinishableOutputStream filterChain;
     private final Check check;
 
+    /**
+     * The LZMA2 encoder of the filter chain or {@code null}. One of
+     * these is used to get the chunk counts for {@code metrics}.
+     */
+    private LZMA2OutputStream lzma2 = null;
+    private UncompressedLZMA2OutputStream uncompressedLZMA2 = null;
+
+    /**
+     * Counters of this Block or {@code null} if nothing is measured.
+     */
+    private final XZMetrics metrics;
+
     private final int headerSize;
     private final long compressedSizeLimit;
     private long uncompressedSize = 0;
@@ -25,14 +38,39 @@ class BlockOutputStream extends FinishableOutputStream {
     public BlockOutputStream(OutputStream out, FilterEncoder[] filters,
                              Check check, ArrayCache arrayCache)
             throws IOException {
+        this(out, filters, check, arrayCache, null);
+    }
+
+    /**
+     * Creates a new Block encoder. If {@code metrics} isn't {@code null},
+     * the times and the chunk counts are added to it and the sizes are
+     * set when the Block is finished.
+     */
+    public BlockOutputStream(OutputStream out, FilterEncoder[] filters,
+                             Check check, ArrayCache arrayCache,
+                             XZMetrics metrics)
+            throws IOException {
         this.out = out;
         this.check = check;
+        this.metrics = metrics;
 
         // Initialize the filter chain.
-        outCounted = new CountingOutputStream(out);
+        outCounted = new CountingOutputStream(out, metrics);
         filterChain = outCounted;
-        for (int i = filters.length - 1; i >= 0; --i)
-            filterChain = filters[i].getOutputStream(filterChain, arrayCache);
+        try {
+            for (int i = filters.length - 1; i >= 0; --i) {
+                filterChain = filters[i].getOutputStream(filterChain,
+                                                         arrayCache);
+                if (filterChain instanceof LZMA2OutputStream)
+                    lzma2 = (LZMA2OutputStream)filterChain;
+                else if (filterChain
+                        instanceof UncompressedLZMA2OutputStream)
+                    uncompressedLZMA2
+                            = (UncompressedLZMA2OutputStream)filterChain;
+            }
+        } catch (UncheckedIOException e) {
+            throw MemoryBudget.unwrap(e);
+        }
 
         // Prepare to encode the Block Header field.
         ByteArrayOutputStream bufStream = new ByteArrayOutputStream();
@@ -88,22 +126,48 @@ class BlockOutputStream extends FinishableOutputStream {
 
     @Override
     public void write(byte[] buf, int off, int len) throws IOException {
-        filterChain.write(buf, off, len);
-        check.update(buf, off, len);
+        if (metrics == null) {
+            filterChain.write(buf, off, len);
+            check.update(buf, off, len);
+        } else {
+            long ioNanos = metrics.ioNanos;
+            long start = System.nanoTime();
+            filterChain.write(buf, off, len);
+            long checkStart = addCodingTime(start, ioNanos);
+            check.update(buf, off, len);
+            metrics.checkNanos += System.nanoTime() - checkStart;
+        }
+
         uncompressedSize += len;
         validate();
     }
 
     @Override
     public void flush() throws IOException {
-        filterChain.flush();
+        if (metrics == null) {
+            filterChain.flush();
+        } else {
+            long ioNanos = metrics.ioNanos;
+            long start = System.nanoTime();
+            filterChain.flush();
+            addCodingTime(start, ioNanos);
+        }
+
         validate();
     }
 
     @Override
     public void finish() throws IOException {
         // Finish the Compressed Data field.
-        filterChain.finish();
+        if (metrics == null) {
+            filterChain.finish();
+        } else {
+            long ioNanos = metrics.ioNanos;
+            long start = System.nanoTime();
+            filterChain.finish();
+            addCodingTime(start, ioNanos);
+        }
+
         validate();
 
         // Block Padding
@@ -112,6 +176,33 @@ class BlockOutputStream extends FinishableOutputStream {
 
         // Check
         out.write(check.finish());
+
+        if (metrics != null) {
+            metrics.blockCount = 1;
+            metrics.uncompressedSize = uncompressedSize;
+            metrics.compressedSize = (getUnpaddedSize() + 3) & ~3;
+
+            if (lzma2 != null) {
+                metrics.lzmaChunkCount = lzma2.getLZMAChunkCount();
+                metrics.uncompressedChunkCount
+                        = lzma2.getUncompressedChunkCount();
+            } else if (uncompressedLZMA2 != null) {
+                metrics.uncompressedChunkCount
+                        = uncompressedLZMA2.getChunkCount();
+            }
+        }
+    }
+
+    /**
+     * Adds the time since {@code start} to the coding time, excluding
+     * the I/O time that was added after {@code ioNanos} was read.
+     *
+     * @return      the current time
+     */
+    private long addCodingTime(long start, long ioNanos) {
+        long now = System.nanoTime();
+        metrics.codingNanos += now - start - (metrics.ioNanos - ioNanos);
+        return now;
     }
 
     private void validate() throws IOException {
@@ -11,17 +11,34 @@ import java.io.IOException;
  * Counts the number of bytes read from an input stream.
  * The {@code close()} method does nothing, that is, the underlying
  * {@code InputStream} isn't closed.
+ * <p>
+ * If {@code metrics} isn't {@code null}, the time spent in
+ * the underlying input stream is added to its I/O time.
  */
 class CountingInputStream extends CloseIgnoringInputStream {
+    private final XZMetrics metrics;
     private long size = 0;
 
     public CountingInputStream(InputStream in) {
+        this(in, null);
+    }
+
+    public CountingInputStream(InputStream in, XZMetrics metrics) {
         super(in);
+        this.metrics = metrics;
     }
 
     @Override
     public int read() throws IOException {
-        int ret = in.read();
+        int ret;
+        if (metrics == null) {
+            ret = in.read();
+        } else {
+            long start = System.nanoTime();
+            ret = in.read();
+            metrics.ioNanos += System.nanoTime() - start;
+        }
+
         if (ret != -1 && size >= 0)
             ++size;
 
@@ -30,7 +47,15 @@ class CountingInputStream extends CloseIgnoringInputStream {
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
-        int ret = in.read(b, off, len);
+        int ret;
+        if (metrics == null) {
+            ret = in.read(b, off, len);
+        } else {
+            long start = System.nanoTime();
+            ret = in.read(b, off, len);
+            metrics.ioNanos += System.nanoTime() - start;
+        }
+
         if (ret > 0 && size >= 0)
             size += ret;
 
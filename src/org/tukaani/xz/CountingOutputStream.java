@@ -14,32 +14,61 @@ import java.io.IOException;
  * This is {@code FinishableOutputStream} instead
  * of {@code OutputStream} solely because it allows
  * using this as the output stream for a chain of raw filters.
+ * <p>
+ * If {@code metrics} isn't {@code null}, the time spent in
+ * the underlying output stream is added to its I/O time.
  */
 class CountingOutputStream extends FinishableOutputStream {
     private final OutputStream out;
+    private final XZMetrics metrics;
     private long size = 0;
 
     public CountingOutputStream(OutputStream out) {
+        this(out, null);
+    }
+
+    public CountingOutputStream(OutputStream out, XZMetrics metrics) {
         this.out = out;
+        this.metrics = metrics;
     }
 
     @Override
     public void write(int b) throws IOException {
-        out.write(b);
+        if (metrics == null) {
+            out.write(b);
+        } else {
+            long start = System.nanoTime();
+            out.write(b);
+            metrics.ioNanos += System.nanoTime() - start;
+        }
+
         if (size >= 0)
             ++size;
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        out.write(b, off, len);
+        if (metrics == null) {
+            out.write(b, off, len);
+        } else {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            metrics.ioNanos += System.nanoTime() - start;
+        }
+
         if (size >= 0)
             size += len;
     }
 
     @Override
     public void flush() throws IOException {
-        out.flush();
+        if (metrics == null) {
+            out.flush();
+        } else {
+            long start = System.nanoTime();
+            out.flush();
+            metrics.ioNanos += System.nanoTime() - start;
+        }
     }
 
     @Override
@@ -26,4 +26,8 @@ class DeltaDecoder extends DeltaCoder implements FilterDecoder {
     public InputStream getInputStream(InputStream in, ArrayCache arrayCache) {
         return new DeltaInputStream(in, distance);
     }
+
+    int getDistance() {
+        return distance;
+    }
 }
@@ -33,4 +33,7 @@ class DeltaEncoder extends DeltaCoder implements FilterEncoder {
                                                   ArrayCache arrayCache) {
         return options.getOutputStream(out, arrayCache);
     }
+
+    @Override
+    public void putArraysToCache() {}
 }
@@ -8,11 +8,12 @@ import java.io.IOException;
 import org.tukaani.xz.delta.DeltaEncoder;
 
 class DeltaOutputStream extends FinishableOutputStream {
-    private static final int FILTER_BUF_SIZE = 4096;
+    private static final int FILTER_BUF_SIZE_MIN = 4096;
+    private static final int FILTER_BUF_SIZE_MAX = 64 << 10;
 
     private FinishableOutputStream out;
     private final DeltaEncoder delta;
-    private final byte[] filterBuf = new byte[FILTER_BUF_SIZE];
+    private byte[] filterBuf = new byte[FILTER_BUF_SIZE_MIN];
 
     private boolean finished = false;
     private IOException exception = null;
@@ -20,7 +21,7 @@ class DeltaOutputStream extends FinishableOutputStream {
     private final byte[] tempBuf = new byte[1];
 
     static int getMemoryUsage() {
-        return 1 + FILTER_BUF_SIZE / 1024;
+        return 1 + FILTER_BUF_SIZE_MAX / 1024;
     }
 
     DeltaOutputStream(FinishableOutputStream out, DeltaOptions options) {
@@ -45,12 +46,18 @@ class DeltaOutputStream extends FinishableOutputStream {
         if (finished)
             throw new XZIOException("Stream finished");
 
+        // If the application writes in big chunks, switch to a bigger
+        // buffer to reduce the per-chunk overhead. Applications that
+        // write in small chunks keep using the small buffer.
+        if (len > filterBuf.length && filterBuf.length < FILTER_BUF_SIZE_MAX)
+            filterBuf = new byte[FILTER_BUF_SIZE_MAX];
+
         try {
-            while (len > FILTER_BUF_SIZE) {
-                delta.encode(buf, off, FILTER_BUF_SIZE, filterBuf);
+            while (len > filterBuf.length) {
+                delta.encode(buf, off, filterBuf.length, filterBuf);
                 out.write(filterBuf);
-                off += FILTER_BUF_SIZE;
-                len -= FILTER_BUF_SIZE;
+                off += filterBuf.length;
+                len -= filterBuf.length;
             }
 
             delta.encode(buf, off, len, filterBuf);
@@ -0,0 +1,533 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.tukaani.xz.common.ByteArrayView;
+
+/**
+ * Chooses a filter chain based on the data to be compressed.
+ * <p>
+ * The analyzer looks at a sample from the beginning of the data and
+ * picks one of the following:
+ * <ul>
+ *   <li>A BCJ filter followed by LZMA2 if the sample starts with an ELF,
+ *       PE, or Mach-O header of a supported architecture, or if the sample
+ *       looks like x86 machine code. For architectures whose instructions
+ *       are four bytes, the LZMA2 literal position bits are adjusted
+ *       too.</li>
+ *   <li>LZMA2 with {@code pb=0} if the sample looks like text.</li>
+ *   <li>Delta filter followed by LZMA2 if the sample looks like numeric
+ *       data with a fixed record size, for example, uncompressed audio
+ *       or images.</li>
+ *   <li>Plain LZMA2 otherwise.</li>
+ * </ul>
+ * <p>
+ * The heuristics are simple and only look at the sample. Statistics
+ * like byte frequencies can favor a filter that actually makes LZMA2
+ * compress worse, for example, with symbol tables in executables.
+ * Thus when the heuristics suggest a BCJ or Delta filter, the sample
+ * is compressed with a fast LZMA2 preset with and without the filter
+ * and the filter is used only if it helps. This costs much less than
+ * compressing the sample with the final settings would.
+ * <p>
+ * An instance of this class must not be used from multiple threads
+ * at the same time.
+ * <p>
+ * The easiest way to use this is
+ * {@link XZOutputStream#setFilterAnalyzer(FilterAnalyzer)} which
+ * analyzes the beginning of each XZ Block. The {@code analyze} method
+ * can be used directly too.
+ *
+ * @since 1.13
+ */
+public class FilterAnalyzer {
+    /**
+     * Number of bytes that are needed for the analysis. Bigger samples
+     * are allowed but only this many bytes are looked at.
+     */
+    public static final int SAMPLE_SIZE = 64 << 10;
+
+    /**
+     * Delta distances that are tried. Distances that aren't
+     * in this list are rarely useful.
+     */
+    private static final int[] DELTA_DISTANCES
+            = { 1, 2, 3, 4, 6, 8, 12, 16, 24, 32 };
+
+    /**
+     * Delta is used only if it makes the order-0 entropy of
+     * the sample at most this fraction of the original.
+     */
+    private static final double DELTA_ENTROPY_RATIO = 0.75;
+
+    /**
+     * A bigger distance is preferred over a smaller one only if it
+     * reduces the entropy at least this much more.
+     */
+    private static final double DELTA_DISTANCE_MARGIN = 0.95;
+
+    /**
+     * The sample is considered x86 code if at least this fraction of
+     * the bytes look like the start of a CALL or JMP instruction with
+     * a near target. In random data the fraction is about 0.00006.
+     */
+    private static final double X86_CALL_RATIO = 0.003;
+
+    /**
+     * The sample is considered text if at least this fraction of
+     * the bytes are printable ASCII characters or whitespace and
+     * there are no null bytes.
+     */
+    private static final double TEXT_RATIO = 0.9;
+
+    /**
+     * A filter suggested by the heuristics is used only if the trial
+     * compression of the sample with the filter is at most this fraction
+     * of the size without the filter. This avoids switching the filter
+     * chain back and forth when the difference is tiny.
+     */
+    private static final double TRIAL_RATIO = 0.98;
+
+    private static final int ARCH_NONE = 0;
+    private static final int ARCH_X86 = 1;
+    private static final int ARCH_ARM = 2;
+    private static final int ARCH_ARMTHUMB = 3;
+    private static final int ARCH_ARM64 = 4;
+    private static final int ARCH_POWERPC = 5;
+    private static final int ARCH_IA64 = 6;
+    private static final int ARCH_SPARC = 7;
+    private static final int ARCH_RISCV = 8;
+
+    private final LZMA2Options lzma2Options;
+
+    /**
+     * Compressed size of the current sample in the trial compression
+     * without extra filters, or -1 if not calculated yet.
+     */
+    private long plainTrialSize;
+
+    /**
+     * Filter chains that have already been returned. The same decision
+     * returns the same array so that the caller can avoid recreating
+     * the encoder when the chain doesn't change.
+     */
+    private final Map<String, FilterOptions[]> chains
+            = new HashMap<String, FilterOptions[]>();
+
+    /**
+     * Creates a new analyzer. The returned filter chains use LZMA2 with
+     * the settings from {@code lzma2Options} except that the literal
+     * context, literal position, and position bits may be adjusted.
+     * {@code lzma2Options} is copied so later changes to it have no
+     * effect.
+     *
+     * @param       lzma2Options
+     *                          LZMA2 settings to use as the base
+     */
+    public FilterAnalyzer(LZMA2Options lzma2Options) {
+        this.lzma2Options = (LZMA2Options)lzma2Options.clone();
+    }
+
+    /**
+     * Analyzes a sample of data and returns a filter chain suitable for
+     * compressing it. At most {@code SAMPLE_SIZE} bytes are looked at.
+     * <p>
+     * If the same kind of data is seen again, the same array is returned.
+     * The returned array and the options in it must not be modified.
+     *
+     * @param       buf         buffer containing the sample
+     * @param       off         start offset in {@code buf}
+     * @param       len         length of the sample
+     *
+     * @return      filter chain for {@code XZOutputStream}
+     */
+    public FilterOptions[] analyze(byte[] buf, int off, int len) {
+        return analyze(buf, off, len, ArrayCache.getDefaultCache());
+    }
+
+    /**
+     * Analyzes a sample of data like {@link #analyze(byte[], int, int)}
+     * but allocates the arrays of the trial compressions from
+     * {@code arrayCache}. {@code XZOutputStream} passes its own cache
+     * here so that the trials follow a {@link MemoryBudget} too.
+     *
+     * @param       buf         buffer containing the sample
+     * @param       off         start offset in {@code buf}
+     * @param       len         length of the sample
+     * @param       arrayCache  cache to be used for allocating large arrays
+     *
+     * @return      filter chain for {@code XZOutputStream}
+     */
+    public FilterOptions[] analyze(byte[] buf, int off, int len,
+                                   ArrayCache arrayCache) {
+        if (off < 0 || len < 0 || off + len < 0 || off + len > buf.length)
+            throw new IndexOutOfBoundsException();
+
+        len = Math.min(len, SAMPLE_SIZE);
+        plainTrialSize = -1;
+
+        int arch = detectExecutable(buf, off, len);
+        if (arch == ARCH_NONE && isX86Code(buf, off, len))
+            arch = ARCH_X86;
+
+        if (arch != ARCH_NONE) {
+            FilterOptions[] chain = getBCJChain(arch);
+            if (isBetter(buf, off, len, chain, arrayCache))
+                return chain;
+        } else if (isText(buf, off, len)) {
+            return getChain("text", null, lzma2Options.getLc(), 0, 0);
+        }
+
+        int distance = detectDeltaDistance(buf, off, len);
+        if (distance > 0) {
+            // With power-of-two distances, the position bits can match
+            // the record size.
+            int pb = (distance & (distance - 1)) == 0
+                     ? Math.min(Integer.numberOfTrailingZeros(distance),
+                                LZMA2Options.PB_MAX)
+                     : 0;
+            DeltaOptions delta;
+            try {
+                delta = new DeltaOptions(distance);
+            } catch (UnsupportedOptionsException e) {
+                // All values in DELTA_DISTANCES are valid.
+                throw new Error(e);
+            }
+
+            FilterOptions[] chain = getChain("delta" + distance, delta,
+                                             lzma2Options.getLc(), 0, pb);
+            if (isBetter(buf, off, len, chain, arrayCache))
+                return chain;
+        }
+
+        return getPlainChain();
+    }
+
+    private FilterOptions[] getPlainChain() {
+        return getChain("lzma2", null, lzma2Options.getLc(),
+                        lzma2Options.getLp(), lzma2Options.getPb());
+    }
+
+    /**
+     * Returns true if {@code chain} compresses the sample clearly better
+     * than plain LZMA2 when both use a fast preset.
+     */
+    private boolean isBetter(byte[] buf, int off, int len,
+                             FilterOptions[] chain, ArrayCache arrayCache) {
+        // Tiny samples say nothing useful. Trust the heuristics then.
+        if (len < 4096)
+            return true;
+
+        if (plainTrialSize < 0)
+            plainTrialSize = getTrialSize(buf, off, len, getPlainChain(),
+                                          arrayCache);
+
+        return getTrialSize(buf, off, len, chain, arrayCache)
+                <= plainTrialSize * TRIAL_RATIO;
+    }
+
+    /**
+     * Compresses the sample with the filters from {@code chain} followed
+     * by LZMA2 preset 0 with the lc/lp/pb values from {@code chain} and
+     * returns the compressed size.
+     */
+    private static long getTrialSize(byte[] buf, int off, int len,
+                                     FilterOptions[] chain,
+                                     ArrayCache arrayCache) {
+        // The dictionary doesn't need to be bigger than the sample.
+        LZMA2Options lzma2 = (LZMA2Options)((LZMA2Options)
+                chain[chain.length - 1]).clone();
+        try {
+            int lc = lzma2.getLc();
+            int lp = lzma2.getLp();
+            int pb = lzma2.getPb();
+            lzma2.setPreset(0);
+            lzma2.setDictSize(SAMPLE_SIZE);
+            lzma2.setLcLp(lc, lp);
+            lzma2.setPb(pb);
+        } catch (UnsupportedOptionsException e) {
+            throw new Error(e);
+        }
+
+        CountingOutputStream counter = new CountingOutputStream(
+                NullOutputStream.INSTANCE);
+        FinishableOutputStream out = lzma2.getOutputStream(counter,
+                                                           arrayCache);
+        for (int i = chain.length - 2; i >= 0; --i)
+            out = chain[i].getOutputStream(out, arrayCache);
+
+        try {
+            out.write(buf, off, len);
+            out.finish();
+        } catch (IOException e) {
+            // NullOutputStream doesn't throw.
+            throw new Error(e);
+        }
+
+        return counter.getSize();
+    }
+
+    private FilterOptions[] getBCJChain(int arch) {
+        switch (arch) {
+            case ARCH_X86:
+                return getChain("x86", new X86Options(),
+                                lzma2Options.getLc(), lzma2Options.getLp(),
+                                lzma2Options.getPb());
+
+            case ARCH_ARM:
+                return getChain("arm", new ARMOptions(), 2, 2, 2);
+
+            case ARCH_ARMTHUMB:
+                return getChain("armthumb", new ARMThumbOptions(), 3, 1, 1);
+
+            case ARCH_ARM64:
+                return getChain("arm64", new ARM64Options(), 2, 2, 2);
+
+            case ARCH_POWERPC:
+                return getChain("powerpc", new PowerPCOptions(), 2, 2, 2);
+
+            case ARCH_IA64:
+                return getChain("ia64", new IA64Options(), 3, 0, 4);
+
+            case ARCH_SPARC:
+                return getChain("sparc", new SPARCOptions(), 2, 2, 2);
+
+            case ARCH_RISCV:
+                return getChain("riscv", new RISCVOptions(),
+                                lzma2Options.getLc(), lzma2Options.getLp(),
+                                lzma2Options.getPb());
+        }
+
+        throw new Error();
+    }
+
+    /**
+     * Gets the cached filter chain for the given decision or creates
+     * a new one.
+     */
+    private FilterOptions[] getChain(String key, FilterOptions first,
+                                     int lc, int lp, int pb) {
+        FilterOptions[] chain = chains.get(key);
+        if (chain != null)
+            return chain;
+
+        LZMA2Options lzma2 = (LZMA2Options)lzma2Options.clone();
+        try {
+            lzma2.setLcLp(lc, lp);
+            lzma2.setPb(pb);
+        } catch (UnsupportedOptionsException e) {
+            // The values above are always valid.
+            throw new Error(e);
+        }
+
+        chain = first == null ? new FilterOptions[] { lzma2 }
+                              : new FilterOptions[] { first, lzma2 };
+        chains.put(key, chain);
+        return chain;
+    }
+
+    /**
+     * Detects the architecture from an ELF, PE, or Mach-O header at
+     * the beginning of the sample.
+     */
+    private static int detectExecutable(byte[] buf, int off, int len) {
+        // ELF: e_ident[EI_DATA] tells the byte order of e_machine.
+        if (len >= 20 && buf[off] == 0x7F && buf[off + 1] == 'E'
+                && buf[off + 2] == 'L' && buf[off + 3] == 'F') {
+            boolean bigEndian = buf[off + 5] == 2;
+            int machine = bigEndian
+                    ? ByteArrayView.getShortBE(buf, off + 18) & 0xFFFF
+                    : ByteArrayView.getShortLE(buf, off + 18) & 0xFFFF;
+
+            switch (machine) {
+                case 3:   // EM_386
+                case 62:  // EM_X86_64
+                    return ARCH_X86;
+
+                case 40:  // EM_ARM
+                    return ARCH_ARM;
+
+                case 183: // EM_AARCH64
+                    return ARCH_ARM64;
+
+                case 20:  // EM_PPC
+                case 21:  // EM_PPC64
+                    // The PowerPC filter supports only big endian.
+                    return bigEndian ? ARCH_POWERPC : ARCH_NONE;
+
+                case 50:  // EM_IA_64
+                    return ARCH_IA64;
+
+                case 2:   // EM_SPARC
+                case 18:  // EM_SPARC32PLUS
+                case 43:  // EM_SPARCV9
+                    return ARCH_SPARC;
+
+                case 243: // EM_RISCV
+                    return ARCH_RISCV;
+            }
+
+            return ARCH_NONE;
+        }
+
+        // PE: the MS-DOS header points to the PE header.
+        if (len >= 64 && buf[off] == 'M' && buf[off + 1] == 'Z') {
+            int peOff = ByteArrayView.getIntLE(buf, off + 0x3C);
+            if (peOff < 64 || peOff > len - 6
+                    || ByteArrayView.getIntLE(buf, off + peOff)
+                       != 0x00004550) // "PE\0\0"
+                return ARCH_NONE;
+
+            switch (ByteArrayView.getShortLE(buf, off + peOff + 4) & 0xFFFF) {
+                case 0x014C: // IMAGE_FILE_MACHINE_I386
+                case 0x8664: // IMAGE_FILE_MACHINE_AMD64
+                    return ARCH_X86;
+
+                case 0x01C0: // IMAGE_FILE_MACHINE_ARM
+                    return ARCH_ARM;
+
+                case 0x01C2: // IMAGE_FILE_MACHINE_THUMB
+                case 0x01C4: // IMAGE_FILE_MACHINE_ARMNT
+                    return ARCH_ARMTHUMB;
+
+                case 0xAA64: // IMAGE_FILE_MACHINE_ARM64
+                    return ARCH_ARM64;
+
+                case 0x0200: // IMAGE_FILE_MACHINE_IA64
+                    return ARCH_IA64;
+
+                case 0x5032: // IMAGE_FILE_MACHINE_RISCV32
+                case 0x5064: // IMAGE_FILE_MACHINE_RISCV64
+                    return ARCH_RISCV;
+            }
+
+            return ARCH_NONE;
+        }
+
+        // Mach-O (little endian, 32-bit or 64-bit)
+        if (len >= 8) {
+            int magic = ByteArrayView.getIntLE(buf, off);
+            if (magic == 0xFEEDFACE || magic == 0xFEEDFACF) {
+                switch (ByteArrayView.getIntLE(buf, off + 4)) {
+                    case 0x00000007: // CPU_TYPE_X86
+                    case 0x01000007: // CPU_TYPE_X86_64
+                        return ARCH_X86;
+
+                    case 0x0000000C: // CPU_TYPE_ARM
+                        return ARCH_ARM;
+
+                    case 0x0100000C: // CPU_TYPE_ARM64
+                        return ARCH_ARM64;
+                }
+            }
+        }
+
+        return ARCH_NONE;
+    }
+
+    /**
+     * Returns true if the sample has many E8 or E9 bytes followed by
+     * a 32-bit displacement whose highest byte is 0x00 or 0xFF.
+     * Those are near CALL and JMP instructions in x86 code.
+     */
+    private static boolean isX86Code(byte[] buf, int off, int len) {
+        int count = 0;
+        int end = off + len - 5;
+
+        for (int i = off; i <= end; ++i) {
+            if ((buf[i] & 0xFE) == 0xE8) {
+                int b = buf[i + 4];
+                if (b == 0x00 || b == -1) {
+                    ++count;
+                    i += 4;
+                }
+            }
+        }
+
+        return count >= len * X86_CALL_RATIO && count >= 8;
+    }
+
+    private static boolean isText(byte[] buf, int off, int len) {
+        if (len == 0)
+            return false;
+
+        int printable = 0;
+
+        for (int i = off; i < off + len; ++i) {
+            int b = buf[i] & 0xFF;
+            if (b == 0x00)
+                return false;
+
+            if ((b >= 0x20 && b < 0x7F) || b == '\t' || b == '\n'
+                    || b == '\r')
+                ++printable;
+        }
+
+        return printable >= len * TEXT_RATIO;
+    }
+
+    /**
+     * Returns the Delta distance that reduces the order-0 entropy of
+     * the sample the most, or zero if no distance helps enough.
+     */
+    private static int detectDeltaDistance(byte[] buf, int off, int len) {
+        // Too small samples don't give reliable statistics.
+        if (len < 4096)
+            return 0;
+
+        int[] freq = new int[256];
+        for (int i = off; i < off + len; ++i)
+            ++freq[buf[i] & 0xFF];
+
+        double original = getEntropy(freq, len);
+        double best = original * DELTA_ENTROPY_RATIO;
+        int bestDistance = 0;
+
+        for (int distance : DELTA_DISTANCES) {
+            Arrays.fill(freq, 0);
+            for (int i = off + distance; i < off + len; ++i)
+                ++freq[(buf[i] - buf[i - distance]) & 0xFF];
+
+            double entropy = getEntropy(freq, len - distance);
+            if (entropy < best * (bestDistance == 0
+                                  ? 1.0 : DELTA_DISTANCE_MARGIN)) {
+                best = entropy;
+                bestDistance = distance;
+            }
+        }
+
+        return bestDistance;
+    }
+
+    /**
+     * Calculates the order-0 entropy in bits per byte.
+     */
+    private static double getEntropy(int[] freq, int total) {
+        double sum = 0.0;
+        for (int i = 0; i < 256; ++i)
+            if (freq[i] != 0)
+                sum -= freq[i] * Math.log((double)freq[i] / total);
+
+        return sum / (total * Math.log(2.0));
+    }
+
+    /**
+     * Discards everything written to it.
+     */
+    private static final class NullOutputStream extends OutputStream {
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] buf, int off, int len) {}
+    }
+}
@@ -8,6 +8,14 @@ interface FilterEncoder extends FilterCoder {
     long getFilterID();
     byte[] getFilterProps();
     boolean supportsFlushing();
+
+    // The returned stream may be the stream from the previous call that
+    // has been reset to encode new data. Thus the stream from the previous
+    // call must not be used anymore.
     FinishableOutputStream getOutputStream(FinishableOutputStream out,
                                            ArrayCache arrayCache);
+
+    // Puts the arrays of the stream that is being kept for reuse back
+    // to the cache.
+    void putArraysToCache();
 }
@@ -0,0 +1,317 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.tukaani.xz.check.Check;
+
+/**
+ * Compresses each XZ Block with several candidate filter chains and
+ * keeps the smallest result.
+ * <p>
+ * This is meant for cases where compression ratio matters much more
+ * than CPU time. Every Block is compressed once with every candidate
+ * chain, so compression takes about as much CPU time as compressing
+ * the data once with each chain. With an {@code ExecutorService} the
+ * candidates are compressed in parallel. The output is a normal .xz
+ * file where each Block may use a different filter chain.
+ * <p>
+ * Pass an instance of this class to
+ * {@link XZOutputStream#setFilterTrials(FilterTrials)}. Then
+ * {@code XZOutputStream} buffers the uncompressed data of each Block
+ * in memory until the Block is finished with {@code endBlock()},
+ * {@code flush()}, or {@code finish()}. The compressed results of
+ * all candidates are kept in memory too. Thus the memory usage depends
+ * on the Block size, and the encoders of all candidates are allocated
+ * at the same time.
+ * <p>
+ * The number of Blocks won by each candidate is available from
+ * {@link #getWinCounts()}. A {@link Listener} can be used to get
+ * the compressed sizes of each Block, for example, to find out which
+ * candidates are never useful.
+ * <p>
+ * An instance of this class must be used by only one
+ * {@code XZOutputStream} at a time.
+ * <p>
+ * Example:
+ * <blockquote><pre>
+ * LZMA2Options lzma2 = new LZMA2Options(9);
+ * LZMA2Options lzma2Text = (LZMA2Options)lzma2.clone();
+ * lzma2Text.setPb(0);
+ *
+ * FilterTrials trials = new FilterTrials(new FilterOptions[][] {
+ *         { lzma2 },
+ *         { lzma2Text },
+ *         { new X86Options(), lzma2 },
+ *         { new DeltaOptions(4), lzma2 } }, executor);
+ *
+ * XZOutputStream out = new XZOutputStream(outfile, lzma2);
+ * out.setFilterTrials(trials);
+ * </pre></blockquote>
+ *
+ * @since 1.13
+ */
+public class FilterTrials {
+    /**
+     * Receives the results of each trial compressed Block.
+     *
+     * @since 1.13
+     */
+    public interface Listener {
+        /**
+         * Called after a Block has been compressed with all candidates
+         * and the smallest result has been written out.
+         *
+         * @param       winner      index of the candidate whose result
+         *                          was used
+         * @param       uncompressedSize
+         *                          uncompressed size of the Block
+         * @param       blockSizes  total size of the Block (header,
+         *                          compressed data, padding, and check)
+         *                          with each candidate; the array may
+         *                          be kept by the listener
+         */
+        void blockEncoded(int winner, long uncompressedSize,
+                          long[] blockSizes);
+    }
+
+    private final FilterOptions[][] candidates;
+    private final FilterEncoder[][] encoders;
+    private final ExecutorService executor;
+    private final long[] winCounts;
+    private Listener listener = null;
+
+    /**
+     * Creates a new set of candidate filter chains. The chains are
+     * validated like {@link XZOutputStream#updateFilters(FilterOptions[])}
+     * does.
+     *
+     * @param       candidates  filter chains to try; each chain has
+     *                          1-4 filters
+     *
+     * @param       executor    executor used to compress the candidates
+     *                          in parallel, or {@code null} to compress
+     *                          them one after another in the thread that
+     *                          calls {@code XZOutputStream}
+     *
+     * @throws      UnsupportedOptionsException
+     *                          no candidates or an invalid filter chain
+     */
+    public FilterTrials(FilterOptions[][] candidates,
+                        ExecutorService executor)
+            throws UnsupportedOptionsException {
+        if (candidates.length == 0)
+            throw new UnsupportedOptionsException(
+                    "At least one candidate filter chain is needed");
+
+        this.candidates = new FilterOptions[candidates.length][];
+        encoders = new FilterEncoder[candidates.length][];
+
+        for (int i = 0; i < candidates.length; ++i) {
+            FilterOptions[] chain = candidates[i];
+            if (chain.length < 1 || chain.length > 4)
+                throw new UnsupportedOptionsException(
+                        "XZ filter chain must be 1-4 filters");
+
+            this.candidates[i] = chain.clone();
+            encoders[i] = new FilterEncoder[chain.length];
+            for (int j = 0; j < chain.length; ++j)
+                encoders[i][j] = chain[j].getFilterEncoder();
+
+            RawCoder.validate(encoders[i]);
+        }
+
+        this.executor = executor;
+        winCounts = new long[candidates.length];
+    }
+
+    /**
+     * Sets the listener that gets the results of each Block.
+     * Use {@code null} to remove the listener.
+     * <p>
+     * The listener is called in the thread that uses
+     * {@code XZOutputStream}.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the number of candidate filter chains.
+     */
+    public int getCandidateCount() {
+        return candidates.length;
+    }
+
+    /**
+     * Gets a copy of the candidate filter chain with the given index.
+     * The {@code FilterOptions} objects aren't copied.
+     */
+    public FilterOptions[] getCandidate(int index) {
+        return candidates[index].clone();
+    }
+
+    /**
+     * Gets how many Blocks each candidate has won so far.
+     * The returned array is a copy.
+     */
+    public long[] getWinCounts() {
+        return winCounts.clone();
+    }
+
+    /**
+     * Compresses one Block with every candidate and writes the smallest
+     * result to {@code out}.
+     * <p>
+     * If {@code metrics} isn't {@code null}, the counters of the winner
+     * are added to it. The times of all candidates are added because
+     * all of them had to be compressed.
+     *
+     * @return      the Block that was written
+     */
+    EncodedBlock encode(final OutputStream out, final byte[] buf,
+                        final int len, final int checkType,
+                        final ArrayCache arrayCache, XZMetrics metrics)
+            throws IOException {
+        EncodedBlock[] blocks = new EncodedBlock[candidates.length];
+        Throwable failure = null;
+        final boolean measure = metrics != null;
+
+        if (executor == null) {
+            for (int i = 0; i < blocks.length; ++i)
+                blocks[i] = encodeCandidate(i, buf, len, checkType,
+                                            arrayCache, measure);
+        } else {
+            List<Future<EncodedBlock>> futures
+                    = new ArrayList<Future<EncodedBlock>>(blocks.length);
+
+            for (int i = 0; i < blocks.length; ++i) {
+                final int candidate = i;
+                futures.add(executor.submit(new Callable<EncodedBlock>() {
+                    @Override
+                    public EncodedBlock call() throws IOException {
+                        return encodeCandidate(candidate, buf, len,
+                                               checkType, arrayCache,
+                                               measure);
+                    }
+                }));
+            }
+
+            // Wait for every task even if one fails. The encoders are
+            // reused for the next Block so none of them may be left
+            // running.
+            boolean interrupted = false;
+            for (int i = 0; i < blocks.length; ++i) {
+                while (true) {
+                    try {
+                        blocks[i] = futures.get(i).get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        if (failure == null)
+                            failure = e.getCause();
+
+                        break;
+                    }
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                if (failure == null)
+                    failure = new InterruptedIOException();
+            }
+        }
+
+        if (failure instanceof IOException)
+            throw (IOException)failure;
+
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException)failure;
+
+        if (failure instanceof Error)
+            throw (Error)failure;
+
+        if (failure != null)
+            throw new IOException(failure);
+
+        int winner = 0;
+        long[] blockSizes = new long[blocks.length];
+        for (int i = 0; i < blocks.length; ++i) {
+            blockSizes[i] = blocks[i].data.size();
+            if (blockSizes[i] < blockSizes[winner])
+                winner = i;
+        }
+
+        if (measure) {
+            long start = System.nanoTime();
+            blocks[winner].data.writeTo(out);
+            metrics.ioNanos += System.nanoTime() - start;
+
+            metrics.add(blocks[winner].metrics);
+            for (int i = 0; i < blocks.length; ++i)
+                if (i != winner)
+                    metrics.addTimes(blocks[i].metrics);
+        } else {
+            blocks[winner].data.writeTo(out);
+        }
+
+        ++winCounts[winner];
+
+        if (listener != null)
+            listener.blockEncoded(winner, len, blockSizes);
+
+        return blocks[winner];
+    }
+
+    private EncodedBlock encodeCandidate(int candidate, byte[] buf, int len,
+                                         int checkType, ArrayCache arrayCache,
+                                         boolean measure)
+            throws IOException {
+        // Each candidate needs its own Check because the Check objects
+        // have state and the candidates may run in parallel. For the same
+        // reason each candidate has its own metrics.
+        EncodedBlock block = new EncodedBlock();
+        if (measure)
+            block.metrics = new XZMetrics();
+
+        BlockOutputStream blockEncoder = new BlockOutputStream(
+                block.data, encoders[candidate],
+                Check.getInstance(checkType), arrayCache, block.metrics);
+        blockEncoder.write(buf, 0, len);
+        blockEncoder.finish();
+
+        block.unpaddedSize = blockEncoder.getUnpaddedSize();
+        block.uncompressedSize = blockEncoder.getUncompressedSize();
+        return block;
+    }
+
+    /**
+     * Puts the arrays of the encoders that are kept for reuse back
+     * to the cache.
+     */
+    void putArraysToCache() {
+        for (int i = 0; i < encoders.length; ++i)
+            for (int j = 0; j < encoders[i].length; ++j)
+                encoders[i][j].putArraysToCache();
+    }
+
+    static class EncodedBlock {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        long unpaddedSize;
+        long uncompressedSize;
+        XZMetrics metrics = null;
+    }
+}
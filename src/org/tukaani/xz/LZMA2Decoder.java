@@ -29,4 +29,27 @@ class LZMA2Decoder extends LZMA2Coder implements FilterDecoder {
     public InputStream getInputStream(InputStream in, ArrayCache arrayCache) {
         return new LZMA2InputStream(in, dictSize, null, arrayCache);
     }
+
+    int getDictSize() {
+        return dictSize;
+    }
+
+    /**
+     * Like {@code getInputStream} but the returned decoder is reusable.
+     * If {@code old} isn't {@code null}, it is reset and returned if it
+     * is compatible. Otherwise its arrays are put back to the cache and
+     * a new decoder is created.
+     */
+    LZMA2InputStream getReusableInputStream(InputStream in,
+                                            LZMA2InputStream old,
+                                            ArrayCache arrayCache) {
+        if (old != null) {
+            if (old.reset(in, dictSize))
+                return old;
+
+            old.putArraysToCache();
+        }
+
+        return new LZMA2InputStream(in, dictSize, null, arrayCache, true);
+    }
 }
@@ -10,6 +10,13 @@ class LZMA2Encoder extends LZMA2Coder implements FilterEncoder {
     private final LZMA2Options options;
     private final byte[] props = new byte[1];
 
+    /**
+     * The encoder of the previous Block. It is reset and reused for
+     * the next Block so that the encoder doesn't need to be allocated
+     * and initialized again.
+     */
+    private LZMA2OutputStream lzma2 = null;
+
     LZMA2Encoder(LZMA2Options options) {
         if (options.getPresetDict() != null)
             throw new IllegalArgumentException(
@@ -45,6 +52,22 @@ class LZMA2Encoder extends LZMA2Coder implements FilterEncoder {
     @Override
     public FinishableOutputStream getOutputStream(FinishableOutputStream out,
                                                   ArrayCache arrayCache) {
-        return options.getOutputStream(out, arrayCache);
+        if (options.getMode() == LZMA2Options.MODE_UNCOMPRESSED)
+            return options.getOutputStream(out, arrayCache);
+
+        if (lzma2 == null)
+            lzma2 = new LZMA2OutputStream(out, options, arrayCache, true);
+        else
+            lzma2.reset(out);
+
+        return lzma2;
+    }
+
+    @Override
+    public void putArraysToCache() {
+        if (lzma2 != null) {
+            lzma2.putArraysToCache();
+            lzma2 = null;
+        }
     }
 }
@@ -8,6 +8,7 @@ package org.tukaani.xz;
 import java.io.InputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.EOFException;
 import org.tukaani.xz.lz.LZDecoder;
 import org.tukaani.xz.rangecoder.RangeDecoderFromBuffer;
@@ -46,6 +47,25 @@ public class LZMA2InputStream extends InputStream {
     private RangeDecoderFromBuffer rc;
     private LZMADecoder lzma;
 
+    /**
+     * Dictionary size rounded up to a multiple of 16 bytes.
+     */
+    private final int dictSize;
+
+    /**
+     * The lc/lp/pb properties byte that was used to create {@code lzma},
+     * or -1 if {@code lzma} hasn't been created yet.
+     */
+    private int lzmaProps = -1;
+
+    /**
+     * If true, the arrays aren't returned to the cache when the end of
+     * the LZMA2 data is reached. Instead the decoder can be reused with
+     * {@code reset} and the owner must call {@code putArraysToCache}
+     * when the decoder isn't needed anymore.
+     */
+    private final boolean reusable;
+
     private int uncompressedSize = 0;
     private boolean isLZMAChunk = false;
 
@@ -53,6 +73,13 @@ public class LZMA2InputStream extends InputStream {
     private boolean needProps = true;
     private boolean endReached = false;
 
+    /**
+     * Number of chunks decoded since the decoder was created or reset.
+     * These are read by {@code BlockInputStream} for {@link XZMetrics}.
+     */
+    private long lzmaChunkCount = 0;
+    private long uncompressedChunkCount = 0;
+
     private IOException exception = null;
 
     private final byte[] tempBuf = new byte[1];
@@ -74,7 +101,7 @@ public class LZMA2InputStream extends InputStream {
         return 40 + COMPRESSED_SIZE_MAX / 1024 + getDictSize(dictSize) / 1024;
     }
 
-    private static int getDictSize(int dictSize) {
+    static int getDictSize(int dictSize) {
         if (dictSize < DICT_SIZE_MIN || dictSize > DICT_SIZE_MAX)
             throw new IllegalArgumentException(
                     "Unsupported dictionary size " + dictSize);
@@ -158,6 +185,11 @@ public class LZMA2InputStream extends InputStream {
      */
     LZMA2InputStream(InputStream in, int dictSize, byte[] presetDict,
                      ArrayCache arrayCache) {
+        this(in, dictSize, presetDict, arrayCache, false);
+    }
+
+    LZMA2InputStream(InputStream in, int dictSize, byte[] presetDict,
+                     ArrayCache arrayCache, boolean reusable) {
         // Check for null because otherwise null isn't detect
         // in this constructor.
         if (in == null)
@@ -165,13 +197,65 @@ public class LZMA2InputStream extends InputStream {
 
         this.arrayCache = arrayCache;
         this.in = new DataInputStream(in);
+        this.dictSize = getDictSize(dictSize);
         this.rc = new RangeDecoderFromBuffer(COMPRESSED_SIZE_MAX, arrayCache);
-        this.lz = new LZDecoder(getDictSize(dictSize), presetDict, arrayCache);
+
+        try {
+            this.lz = new LZDecoder(this.dictSize, presetDict, arrayCache);
+        } catch (RuntimeException | Error e) {
+            rc.putArraysToCache(arrayCache);
+            throw e;
+        }
+
+        this.reusable = reusable;
 
         if (presetDict != null && presetDict.length > 0)
             needDictReset = false;
     }
 
+    /**
+     * Resets a reusable decoder to decode new LZMA2 data from
+     * {@code in}. The decoder may be in any state as long as its arrays
+     * haven't been put back to the cache. A preset dictionary isn't
+     * supported.
+     *
+     * @return      true if the decoder was reset; false if it cannot be
+     *              reused for the given dictionary size or its arrays
+     *              have already been put back to the cache
+     */
+    boolean reset(InputStream in, int dictSize) {
+        if (in == null)
+            throw new NullPointerException();
+
+        assert reusable;
+
+        // A bigger dictionary buffer would work too but then corrupt
+        // input that uses distances beyond the dictionary size from
+        // the headers wouldn't be detected.
+        if (lz == null || getDictSize(dictSize) != this.dictSize)
+            return false;
+
+        this.in = new DataInputStream(in);
+        rc.reset();
+        uncompressedSize = 0;
+        isLZMAChunk = false;
+        needDictReset = true;
+        needProps = true;
+        endReached = false;
+        exception = null;
+        lzmaChunkCount = 0;
+        uncompressedChunkCount = 0;
+        return true;
+    }
+
+    long getLZMAChunkCount() {
+        return lzmaChunkCount;
+    }
+
+    long getUncompressedChunkCount() {
+        return uncompressedChunkCount;
+    }
+
     /**
      * Decompresses the next byte from this input stream.
      * <p>
@@ -237,6 +321,39 @@ public class LZMA2InputStream extends InputStream {
         if (endReached)
             return -1;
 
+        return decode(buf, off, null, len);
+    }
+
+    /**
+     * Decompresses at most {@code len} bytes and writes them to {@code out}
+     * directly from the dictionary buffer. This avoids copying the data
+     * to an intermediate buffer.
+     *
+     * @return      number of bytes written, or {@code -1} if the end of
+     *              the compressed stream was reached
+     */
+    int read(OutputStream out, int len) throws IOException {
+        if (len == 0)
+            return 0;
+
+        if (in == null)
+            throw new XZIOException("Stream closed");
+
+        if (exception != null)
+            throw exception;
+
+        if (endReached)
+            return -1;
+
+        return decode(null, 0, out, len);
+    }
+
+    /**
+     * Decodes at most {@code len} bytes into {@code buf} or,
+     * if {@code out} isn't null, into {@code out}.
+     */
+    private int decode(byte[] buf, int off, OutputStream out, int len)
+            throws IOException {
         try {
             int size = 0;
 
@@ -256,7 +373,8 @@ public class LZMA2InputStream extends InputStream {
                     lzma.decode();
                 }
 
-                int copiedSize = lz.flush(buf, off);
+                int copiedSize = out == null ? lz.flush(buf, off)
+                                             : lz.flush(out);
                 off += copiedSize;
                 len -= copiedSize;
                 size += copiedSize;
@@ -280,7 +398,10 @@ public class LZMA2InputStream extends InputStream {
 
         if (control == 0x00) {
             endReached = true;
-            putArraysToCache();
+
+            if (!reusable)
+                putArraysToCache();
+
             return;
         }
 
@@ -312,6 +433,7 @@ public class LZMA2InputStream extends InputStream {
             }
 
             rc.prepareInputBuffer(in, compressedSize);
+            ++lzmaChunkCount;
 
         } else if (control > 0x02) {
             throw new CorruptedInputException();
@@ -319,12 +441,20 @@ public class LZMA2InputStream extends InputStream {
         } else {
             isLZMAChunk = false;
             uncompressedSize = in.readUnsignedShort() + 1;
+            ++uncompressedChunkCount;
         }
     }
 
     private void decodeProps() throws IOException {
         int props = in.readUnsignedByte();
 
+        // Reuse the old decoder if the properties didn't change.
+        // The probabilities need to be reset in any case.
+        if (props == lzmaProps) {
+            lzma.reset();
+            return;
+        }
+
         if (props > (4 * 5 + 4) * 9 + 8)
             throw new CorruptedInputException();
 
@@ -337,6 +467,7 @@ public class LZMA2InputStream extends InputStream {
             throw new CorruptedInputException();
 
         lzma = new LZMADecoder(lz, rc, lc, lp, pb);
+        lzmaProps = (pb * 5 + lp) * 9 + lc;
     }
 
     /**
@@ -369,7 +500,7 @@ public class LZMA2InputStream extends InputStream {
                            : Math.min(uncompressedSize, in.available());
     }
 
-    private void putArraysToCache() {
+    void putArraysToCache() {
         if (lz != null) {
             lz.putArraysToCache(arrayCache);
             lz = null;
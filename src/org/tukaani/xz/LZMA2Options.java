@@ -6,6 +6,7 @@ package org.tukaani.xz;
 
 import java.io.InputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import org.tukaani.xz.lz.LZEncoder;
 import org.tukaani.xz.lzma.LZMAEncoder;
 
@@ -41,8 +42,9 @@ public final class LZMA2Options extends FilterOptions {
      * Maximum dictionary size for compression is 768 MiB.
      * <p>
      * The decompressor supports bigger dictionaries, up to almost 2 GiB.
-     * With HC4 the encoder would support dictionaries bigger than 768 MiB.
-     * The 768 MiB limit comes from the current implementation of BT4 where
+     * With HC3 and HC4 the encoder would support dictionaries bigger than
+     * 768 MiB. The 768 MiB limit comes from the current implementation of
+     * the Binary Tree match finders (BT2, BT3, and BT4) where
      * we would otherwise hit the limits of signed ints in array indexing.
      * <p>
      * If you really need bigger dictionary for decompression,
@@ -98,6 +100,25 @@ public final class LZMA2Options extends FilterOptions {
      */
     public static final int MODE_NORMAL = LZMAEncoder.MODE_NORMAL;
 
+    /**
+     * Compression mode: lazy.
+     * This is between {@code MODE_FAST} and {@code MODE_NORMAL} in both
+     * speed and compression ratio. It works with all match finders.
+     *
+     * @since 1.13
+     */
+    public static final int MODE_LAZY = LZMAEncoder.MODE_LAZY;
+
+    /**
+     * Compression mode: turbo.
+     * This is the fastest mode but compresses worse than
+     * {@code MODE_FAST}. It uses its own match finder, thus the match
+     * finder, nice length, and depth limit settings are ignored.
+     *
+     * @since 1.13
+     */
+    public static final int MODE_TURBO = LZMAEncoder.MODE_TURBO;
+
     /**
      * Minimum value for {@code niceLen} is 8.
      */
@@ -108,11 +129,32 @@ public final class LZMA2Options extends FilterOptions {
      */
     public static final int NICE_LEN_MAX = 273;
 
+    /**
+     * Match finder: Hash Chain 2-3
+     *
+     * @since 1.13
+     */
+    public static final int MF_HC3 = LZEncoder.MF_HC3;
+
     /**
      * Match finder: Hash Chain 2-3-4
      */
     public static final int MF_HC4 = LZEncoder.MF_HC4;
 
+    /**
+     * Match finder: Binary tree 2
+     *
+     * @since 1.13
+     */
+    public static final int MF_BT2 = LZEncoder.MF_BT2;
+
+    /**
+     * Match finder: Binary tree 2-3
+     *
+     * @since 1.13
+     */
+    public static final int MF_BT3 = LZEncoder.MF_BT3;
+
     /**
      * Match finder: Binary tree 2-3-4
      */
@@ -133,6 +175,7 @@ public final class LZMA2Options extends FilterOptions {
     private int niceLen;
     private int mf;
     private int depthLimit;
+    private boolean incompressibleDetection = false;
 
     /**
      * Creates new LZMA2 options and sets them to the default values.
@@ -407,6 +450,22 @@ public final class LZMA2Options extends FilterOptions {
      * and {@code MODE_NORMAL} with Binary Tree match finders. This is
      * also what the presets do.
      * <p>
+     * {@code MODE_LAZY} doesn't do the full optimal parsing of
+     * {@code MODE_NORMAL}. Instead it compares the prices of the longest
+     * match and the repeated matches at the current byte to those found
+     * one or two bytes later, and encodes a literal if waiting for
+     * the later match is cheaper. It can be a good choice when
+     * {@code MODE_NORMAL} is too slow but {@code MODE_FAST} doesn't
+     * compress well enough, for example, with settings similar to
+     * the presets 3-5.
+     * <p>
+     * {@code MODE_TURBO} is meant for cases where compression speed
+     * matters more than the compression ratio. It uses a hash table
+     * that remembers only the latest position for each hash value,
+     * tests only the repeated match that uses the most recent distance,
+     * and encodes the first usable match without comparing prices.
+     * The output is still normal LZMA2.
+     * <p>
      * The special mode {@code MODE_UNCOMPRESSED} doesn't try to
      * compress the data at all (and doesn't use a match finder) and will
      * simply wrap it in uncompressed LZMA2 chunks.
@@ -415,7 +474,7 @@ public final class LZMA2Options extends FilterOptions {
      *                          {@code mode} is not supported
      */
     public void setMode(int mode) throws UnsupportedOptionsException {
-        if (mode < MODE_UNCOMPRESSED || mode > MODE_NORMAL)
+        if (mode < MODE_UNCOMPRESSED || mode > MODE_TURBO)
             throw new UnsupportedOptionsException(
                     "Unsupported compression mode: " + mode);
 
@@ -467,12 +526,22 @@ public final class LZMA2Options extends FilterOptions {
      * and compression ratio. Usually Hash Chain match finders are faster
      * than Binary Tree match finders. The default depends on the preset:
      * 0-3 use {@code MF_HC4} and 4-9 use {@code MF_BT4}.
+     * <p>
+     * The number in the name of a match finder is the number of bytes
+     * that are hashed to find match candidates. With small dictionaries
+     * and data that is dominated by short matches, {@code MF_HC3},
+     * {@code MF_BT2}, or {@code MF_BT3} can be faster or compress better
+     * than the four-byte variants. Hashing fewer bytes also means that
+     * the hash tables are smaller: {@code MF_BT2} uses a fixed-size
+     * 256&nbsp;KiB hash table independent of the dictionary size.
+     * The match finder doesn't affect the format of the compressed data.
      *
      * @throws      UnsupportedOptionsException
      *                          {@code mf} is not supported
      */
     public void setMatchFinder(int mf) throws UnsupportedOptionsException {
-        if (mf != MF_HC4 && mf != MF_BT4)
+        if (mf != MF_HC3 && mf != MF_HC4
+                && mf != MF_BT2 && mf != MF_BT3 && mf != MF_BT4)
             throw new UnsupportedOptionsException(
                     "Unsupported match finder: " + mf);
 
@@ -518,6 +587,41 @@ public final class LZMA2Options extends FilterOptions {
         return depthLimit;
     }
 
+    /**
+     * Enables or disables the detection of incompressible data.
+     * <p>
+     * Already-compressed or encrypted data cannot be compressed further.
+     * LZMA2 stores such data in uncompressed chunks, but normally it only
+     * does so after the data has been compressed and the result was
+     * found to be too big. When the detection is enabled and a chunk of
+     * the input turns out to be incompressible, the following input is
+     * stored in uncompressed chunks without running it through the match
+     * finder and the LZMA encoder. Compression is tried again after
+     * 256&nbsp;KiB, and if the data is still incompressible, after twice
+     * as much up to 4&nbsp;MiB. The byte frequencies of the stored data
+     * are checked after every 4&nbsp;KiB, and compression is tried again
+     * immediately if they indicate that the data might be compressible.
+     * <p>
+     * This can make compression of mixed data much faster at the cost
+     * of a slightly worse compression ratio because the data stored
+     * this way cannot be referred to by later matches. The output is
+     * normal LZMA2. The default is {@code false}.
+     *
+     * @since 1.13
+     */
+    public void setIncompressibleDetection(boolean enabled) {
+        incompressibleDetection = enabled;
+    }
+
+    /**
+     * Gets whether the detection of incompressible data is enabled.
+     *
+     * @since 1.13
+     */
+    public boolean getIncompressibleDetection() {
+        return incompressibleDetection;
+    }
+
     @Override
     public int getEncoderMemoryUsage() {
         return (mode == MODE_UNCOMPRESSED)
@@ -564,7 +668,12 @@ public final class LZMA2Options extends FilterOptions {
     @Override
     public InputStream getInputStream(InputStream in, ArrayCache arrayCache)
             throws IOException {
-        return new LZMA2InputStream(in, dictSize, presetDict, arrayCache);
+        try {
+            return new LZMA2InputStream(in, dictSize, presetDict,
+                                        arrayCache);
+        } catch (UncheckedIOException e) {
+            throw MemoryBudget.unwrap(e);
+        }
     }
 
     @Override
@@ -13,6 +13,29 @@ import org.tukaani.xz.lzma.LZMAEncoder;
 class LZMA2OutputStream extends FinishableOutputStream {
     static final int COMPRESSED_SIZE_MAX = 64 << 10;
 
+    /**
+     * When incompressible data is detected, this much input is stored
+     * in uncompressed chunks without trying to compress it. Each time
+     * the compression is tried again and it still doesn't help, the size
+     * is doubled up to {@code BYPASS_SIZE_MAX}.
+     */
+    private static final int BYPASS_SIZE_MIN = 256 << 10;
+    private static final int BYPASS_SIZE_MAX = 4 << 20;
+
+    /**
+     * If the estimated entropy of the data that was stored uncompressed
+     * drops below this many bits per byte, compression is tried again
+     * without waiting for the bypass size to be reached.
+     */
+    private static final double BYPASS_ENTROPY_LIMIT = 7.5;
+
+    /**
+     * While bypassing, the entropy is checked after every this many
+     * bytes so that compression is resumed soon after compressible
+     * data begins.
+     */
+    private static final int BYPASS_CHECK_SIZE = 4096;
+
     private final ArrayCache arrayCache;
 
     private FinishableOutputStream out;
@@ -22,14 +45,41 @@ class LZMA2OutputStream extends FinishableOutputStream {
     private LZMAEncoder lzma;
 
     private final int props; // Cannot change props on the fly for now.
+    private final boolean detectIncompressible;
+
+    /**
+     * If true, the arrays aren't returned to the cache when finishing.
+     * Instead the encoder can be reused with {@code reset} and the owner
+     * must call {@code putArraysToCache} when the encoder isn't needed
+     * anymore.
+     */
+    private final boolean reusable;
+
+    /**
+     * LZEncoder that has been primed with the preset dictionary, or null.
+     * If set, the dictionary is copied from it in the constructor and in
+     * {@code reset} instead of running the preset dictionary through
+     * the match finder.
+     */
+    private final LZEncoder primedLZ;
+
     private boolean dictResetNeeded = true;
     private boolean stateResetNeeded = true;
     private boolean propsNeeded = true;
 
     private int pendingSize = 0;
+    private int bypassSize = 0;
+    private int nextBypassSize = BYPASS_SIZE_MIN;
     private boolean finished = false;
     private IOException exception = null;
 
+    /**
+     * Number of chunks written since the encoder was created or reset.
+     * These are read by {@code BlockOutputStream} for {@link XZMetrics}.
+     */
+    private long lzmaChunkCount = 0;
+    private long uncompressedChunkCount = 0;
+
     private final byte[] chunkHeader = new byte[6];
 
     private final byte[] tempBuf = new byte[1];
@@ -48,8 +98,39 @@ class LZMA2OutputStream extends FinishableOutputStream {
                                                options.getMatchFinder());
     }
 
+    /**
+     * Creates an LZEncoder that has been primed with the preset dictionary
+     * from {@code options}. It can be passed to the constructor of any
+     * number of encoders that use the same options. The arrays are
+     * allocated without an ArrayCache because the returned object may be
+     * shared and is left to the garbage collector.
+     */
+    static LZEncoder getPrimedLZEncoder(LZMA2Options options) {
+        int dictSize = options.getDictSize();
+        LZEncoder lz = LZMAEncoder.getInstance(null,
+                options.getLc(), options.getLp(), options.getPb(),
+                options.getMode(),
+                dictSize, getExtraSizeBefore(dictSize),
+                options.getNiceLen(),
+                options.getMatchFinder(), options.getDepthLimit(),
+                ArrayCache.getDummyCache()).getLZEncoder();
+        lz.setPresetDict(dictSize, options.getPresetDict());
+        return lz;
+    }
+
     LZMA2OutputStream(FinishableOutputStream out, LZMA2Options options,
                       ArrayCache arrayCache) {
+        this(out, options, arrayCache, false);
+    }
+
+    LZMA2OutputStream(FinishableOutputStream out, LZMA2Options options,
+                      ArrayCache arrayCache, boolean reusable) {
+        this(out, options, arrayCache, reusable, null);
+    }
+
+    LZMA2OutputStream(FinishableOutputStream out, LZMA2Options options,
+                      ArrayCache arrayCache, boolean reusable,
+                      LZEncoder primedLZ) {
         if (out == null)
             throw new NullPointerException();
 
@@ -59,22 +140,85 @@ class LZMA2OutputStream extends FinishableOutputStream {
 
         int dictSize = options.getDictSize();
         int extraSizeBefore = getExtraSizeBefore(dictSize);
-        lzma = LZMAEncoder.getInstance(rc,
-                options.getLc(), options.getLp(), options.getPb(),
-                options.getMode(),
-                dictSize, extraSizeBefore, options.getNiceLen(),
-                options.getMatchFinder(), options.getDepthLimit(),
-                this.arrayCache);
+        try {
+            lzma = LZMAEncoder.getInstance(rc,
+                    options.getLc(), options.getLp(), options.getPb(),
+                    options.getMode(),
+                    dictSize, extraSizeBefore, options.getNiceLen(),
+                    options.getMatchFinder(), options.getDepthLimit(),
+                    this.arrayCache);
+        } catch (RuntimeException | Error e) {
+            rc.putArraysToCache(arrayCache);
+            throw e;
+        }
 
         lz = lzma.getLZEncoder();
 
         byte[] presetDict = options.getPresetDict();
-        if (presetDict != null && presetDict.length > 0) {
+        if (primedLZ != null) {
+            lz.copyStateFrom(primedLZ);
+            dictResetNeeded = false;
+        } else if (presetDict != null && presetDict.length > 0) {
             lz.setPresetDict(dictSize, presetDict);
             dictResetNeeded = false;
         }
 
         props = (options.getPb() * 5 + options.getLp()) * 9 + options.getLc();
+        detectIncompressible = options.getIncompressibleDetection();
+        this.reusable = reusable;
+        this.primedLZ = primedLZ;
+    }
+
+    /**
+     * Resets a reusable encoder to the state it had right after it was
+     * created and sets a new output stream. The encoder may be in any
+     * state, finished or not, as long as its arrays haven't been put
+     * back to the cache. If the encoder was created with a primed
+     * LZEncoder, the preset dictionary is restored from it.
+     */
+    void reset(FinishableOutputStream out) {
+        if (out == null)
+            throw new NullPointerException();
+
+        assert reusable && lzma != null;
+
+        this.out = out;
+        lzma.resetDict(primedLZ);
+        rc.reset();
+
+        dictResetNeeded = primedLZ == null;
+        stateResetNeeded = true;
+        propsNeeded = true;
+
+        pendingSize = 0;
+        bypassSize = 0;
+        nextBypassSize = BYPASS_SIZE_MIN;
+        finished = false;
+        exception = null;
+        lzmaChunkCount = 0;
+        uncompressedChunkCount = 0;
+    }
+
+    long getLZMAChunkCount() {
+        return lzmaChunkCount;
+    }
+
+    long getUncompressedChunkCount() {
+        return uncompressedChunkCount;
+    }
+
+    /**
+     * Puts the arrays back to the cache. After this the encoder cannot
+     * be used or reset anymore.
+     */
+    void putArraysToCache() {
+        if (lzma != null) {
+            lzma.putArraysToCache(arrayCache);
+            lzma = null;
+            lz = null;
+            rc.putArraysToCache(arrayCache);
+            rc = null;
+        }
     }
 
     @Override
@@ -101,7 +245,7 @@ class LZMA2OutputStream extends FinishableOutputStream {
                 len -= used;
                 pendingSize += used;
 
-                if (lzma.encodeForLZMA2())
+                if (encodeForLZMA2())
                     writeChunk();
             }
         } catch (IOException e) {
@@ -110,13 +254,71 @@ class LZMA2OutputStream extends FinishableOutputStream {
         }
     }
 
+    /**
+     * Encodes the available input or, if the input was found to be
+     * incompressible, skips it so that it will be stored uncompressed.
+     *
+     * @return      true if the LZMA2 chunk became full, false otherwise
+     */
+    private boolean encodeForLZMA2() {
+        if (bypassSize > 0)
+            return skipForLZMA2();
+
+        return lzma.encodeForLZMA2();
+    }
+
+    /**
+     * Skips input for an uncompressed chunk. If the data doesn't look
+     * random anymore, the chunk is ended early and the bypassing is
+     * stopped.
+     *
+     * @return      true if the chunk is ready, false if more input
+     *              is needed
+     */
+    private boolean skipForLZMA2() {
+        int limit = Math.min(bypassSize, COMPRESSED_SIZE_MAX);
+
+        while (true) {
+            int size = lzma.getUncompressedSize();
+            int next = Math.min(limit, (size / BYPASS_CHECK_SIZE + 1)
+                                       * BYPASS_CHECK_SIZE);
+            if (!lzma.skipForLZMA2(next))
+                return false;
+
+            if (next == limit && limit == bypassSize)
+                return true;
+
+            int checkSize = next - (next - 1) / BYPASS_CHECK_SIZE
+                                   * BYPASS_CHECK_SIZE;
+            if (lz.getEntropy(checkSize, checkSize) < BYPASS_ENTROPY_LIMIT) {
+                // writeBypassChunk will set bypassSize to zero.
+                bypassSize = next;
+                return true;
+            }
+
+            if (next == limit)
+                return true;
+        }
+    }
+
     private void writeChunk() throws IOException {
+        if (bypassSize > 0) {
+            writeBypassChunk();
+            return;
+        }
+
         int compressedSize = rc.finish();
         int uncompressedSize = lzma.getUncompressedSize();
 
         assert compressedSize > 0 : compressedSize;
         assert uncompressedSize > 0 : uncompressedSize;
 
+        // Consider the data incompressible if less than about 3 % was
+        // saved. This includes the case where the chunk is stored
+        // uncompressed below.
+        boolean incompressible = compressedSize + (uncompressedSize >>> 5)
+                                 >= uncompressedSize;
+
         // +2 because the header of a compressed chunk is 2 bytes
         // bigger than the header of an uncompressed chunk.
         if (compressedSize + 2 < uncompressedSize) {
@@ -131,6 +333,32 @@ class LZMA2OutputStream extends FinishableOutputStream {
         pendingSize -= uncompressedSize;
         lzma.resetUncompressedSize();
         rc.reset();
+
+        if (detectIncompressible) {
+            if (incompressible) {
+                // The following data will be stored in uncompressed
+                // chunks which reset the LZMA state. Reset the encoder
+                // already now; this also makes the bytes that the encoder
+                // has read ahead part of the next chunk.
+                lzma.reset();
+                bypassSize = nextBypassSize;
+                nextBypassSize = Math.min(nextBypassSize * 2,
+                                          BYPASS_SIZE_MAX);
+            } else {
+                nextBypassSize = BYPASS_SIZE_MIN;
+            }
+        }
+    }
+
+    private void writeBypassChunk() throws IOException {
+        int uncompressedSize = lzma.getUncompressedSize();
+        assert uncompressedSize > 0 : uncompressedSize;
+
+        writeUncompressed(uncompressedSize);
+
+        pendingSize -= uncompressedSize;
+        bypassSize -= uncompressedSize;
+        lzma.resetUncompressedSize();
     }
 
     private void writeLZMA(int uncompressedSize, int compressedSize)
@@ -164,6 +392,7 @@ class LZMA2OutputStream extends FinishableOutputStream {
         }
 
         rc.write(out);
+        ++lzmaChunkCount;
 
         propsNeeded = false;
         stateResetNeeded = false;
@@ -180,6 +409,7 @@ class LZMA2OutputStream extends FinishableOutputStream {
             lz.copyUncompressed(out, uncompressedSize, chunkSize);
             uncompressedSize -= chunkSize;
             dictResetNeeded = false;
+            ++uncompressedChunkCount;
         }
 
         stateResetNeeded = true;
@@ -195,7 +425,7 @@ class LZMA2OutputStream extends FinishableOutputStream {
 
         try {
             while (pendingSize > 0) {
-                lzma.encodeForLZMA2();
+                encodeForLZMA2();
                 writeChunk();
             }
 
@@ -207,11 +437,8 @@ class LZMA2OutputStream extends FinishableOutputStream {
 
         finished = true;
 
-        lzma.putArraysToCache(arrayCache);
-        lzma = null;
-        lz = null;
-        rc.putArraysToCache(arrayCache);
-        rc = null;
+        if (!reusable)
+            putArraysToCache();
     }
 
     @Override
@@ -226,7 +453,7 @@ class LZMA2OutputStream extends FinishableOutputStream {
             lz.setFlushing();
 
             while (pendingSize > 0) {
-                lzma.encodeForLZMA2();
+                encodeForLZMA2();
                 writeChunk();
             }
 
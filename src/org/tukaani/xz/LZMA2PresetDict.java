@@ -0,0 +1,131 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.InputStream;
+import org.tukaani.xz.lz.LZEncoder;
+
+/**
+ * Preset dictionary prepared for compressing many small inputs with
+ * raw LZMA2.
+ * <p>
+ * When a raw LZMA2 encoder is created with a preset dictionary
+ * (see {@link LZMA2Options#setPresetDict(byte[])}), the whole preset
+ * dictionary is run through the match finder before anything can be
+ * compressed. With small inputs this can take much longer than
+ * compressing the input itself. This class does it only once in
+ * the constructor. The encoders returned by
+ * {@link #getOutputStream(FinishableOutputStream)} get a copy of
+ * the already prepared match finder state which is much faster.
+ * <p>
+ * The copying is fastest when the dictionary size in the options isn't
+ * much bigger than the preset dictionary because the size of the copied
+ * match finder tables depends on the dictionary size.
+ * <p>
+ * An instance of this class isn't modified after it has been constructed.
+ * Thus it may be used from multiple threads at the same time.
+ * <p>
+ * Example:
+ * <blockquote><pre>
+ * LZMA2Options options = new LZMA2Options();
+ * options.setDictSize(LZMA2Options.DICT_SIZE_MIN);
+ * options.setPresetDict(dict);
+ * LZMA2PresetDict shared = new LZMA2PresetDict(options);
+ *
+ * // For each message:
+ * ByteArrayOutputStream buf = new ByteArrayOutputStream();
+ * FinishableOutputStream out = shared.getOutputStream(
+ *         new FinishableWrapperOutputStream(buf));
+ * out.write(message);
+ * out.finish();
+ * </pre></blockquote>
+ *
+ * @since 1.13
+ */
+public class LZMA2PresetDict {
+    private final LZMA2Options options;
+
+    /**
+     * The encoder state after the preset dictionary has been run
+     * through the match finder, or null with
+     * {@link LZMA2Options#MODE_UNCOMPRESSED}.
+     */
+    private final LZEncoder primedLZ;
+
+    /**
+     * Prepares the preset dictionary from {@code options} for use with
+     * the other settings in {@code options}. The options are copied so
+     * later changes to {@code options} have no effect.
+     *
+     * @param       options     LZMA2 options with a preset dictionary
+     *
+     * @throws      IllegalArgumentException
+     *                          if {@code options} doesn't have
+     *                          a non-empty preset dictionary
+     */
+    public LZMA2PresetDict(LZMA2Options options) {
+        byte[] presetDict = options.getPresetDict();
+        if (presetDict == null || presetDict.length == 0)
+            throw new IllegalArgumentException(
+                    "LZMA2Options don't have a preset dictionary");
+
+        // Copy the preset dictionary too so that the encoder and
+        // decoder always see the same data.
+        this.options = (LZMA2Options)options.clone();
+        this.options.setPresetDict(presetDict.clone());
+
+        primedLZ = options.getMode() == LZMA2Options.MODE_UNCOMPRESSED
+                   ? null : LZMA2OutputStream.getPrimedLZEncoder(this.options);
+    }
+
+    /**
+     * Gets a copy of the options used by this object.
+     */
+    public LZMA2Options getOptions() {
+        return (LZMA2Options)options.clone();
+    }
+
+    /**
+     * Creates a new raw LZMA2 encoder that uses the preset dictionary.
+     * This is like {@link LZMA2Options#getOutputStream(
+     * FinishableOutputStream)} but faster.
+     */
+    public FinishableOutputStream getOutputStream(FinishableOutputStream out) {
+        return getOutputStream(out, ArrayCache.getDefaultCache());
+    }
+
+    /**
+     * Creates a new raw LZMA2 encoder that uses the preset dictionary.
+     * This is like {@link LZMA2Options#getOutputStream(
+     * FinishableOutputStream, ArrayCache)} but faster.
+     */
+    public FinishableOutputStream getOutputStream(FinishableOutputStream out,
+                                                  ArrayCache arrayCache) {
+        if (primedLZ == null)
+            return options.getOutputStream(out, arrayCache);
+
+        return new LZMA2OutputStream(out, options, arrayCache, false,
+                                     primedLZ);
+    }
+
+    /**
+     * Creates a new raw LZMA2 decoder that uses the preset dictionary.
+     * The decoder only needs a plain copy of the preset dictionary so this
+     * is the same as {@link LZMA2Options#getInputStream(InputStream)}.
+     * It is provided for convenience.
+     */
+    public InputStream getInputStream(InputStream in) {
+        return getInputStream(in, ArrayCache.getDefaultCache());
+    }
+
+    /**
+     * Creates a new raw LZMA2 decoder that uses the preset dictionary.
+     * See {@link #getInputStream(InputStream)}.
+     */
+    public InputStream getInputStream(InputStream in, ArrayCache arrayCache) {
+        return new LZMA2InputStream(in, options.getDictSize(),
+                                    options.getPresetDict(), arrayCache);
+    }
+}
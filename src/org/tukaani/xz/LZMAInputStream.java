@@ -9,6 +9,7 @@ import java.io.InputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.EOFException;
+import java.io.UncheckedIOException;
 import org.tukaani.xz.lz.LZDecoder;
 import org.tukaani.xz.rangecoder.RangeDecoderFromStream;
 import org.tukaani.xz.lzma.LZMADecoder;
@@ -595,7 +596,13 @@ public class LZMAInputStream extends InputStream {
         if (uncompSize >= 0 && dictSize > uncompSize)
             dictSize = getDictSize((int)uncompSize);
 
-        lz = new LZDecoder(getDictSize(dictSize), presetDict, arrayCache);
+        try {
+            lz = new LZDecoder(getDictSize(dictSize), presetDict,
+                               arrayCache);
+        } catch (UncheckedIOException e) {
+            throw MemoryBudget.unwrap(e);
+        }
+
         rc = new RangeDecoderFromStream(in);
         lzma = new LZMADecoder(lz, rc, lc, lp, pb);
 
@@ -7,6 +7,7 @@ package org.tukaani.xz;
 
 import java.io.OutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import org.tukaani.xz.lz.LZEncoder;
 import org.tukaani.xz.rangecoder.RangeEncoderToStream;
 import org.tukaani.xz.lzma.LZMAEncoder;
@@ -57,12 +58,16 @@ public class LZMAOutputStream extends FinishableOutputStream {
         rc = new RangeEncoderToStream(out);
 
         int dictSize = options.getDictSize();
-        lzma = LZMAEncoder.getInstance(rc,
-                options.getLc(), options.getLp(), options.getPb(),
-                options.getMode(),
-                dictSize, 0, options.getNiceLen(),
-                options.getMatchFinder(), options.getDepthLimit(),
-                arrayCache);
+        try {
+            lzma = LZMAEncoder.getInstance(rc,
+                    options.getLc(), options.getLp(), options.getPb(),
+                    options.getMode(),
+                    dictSize, 0, options.getNiceLen(),
+                    options.getMatchFinder(), options.getDepthLimit(),
+                    arrayCache);
+        } catch (UncheckedIOException e) {
+            throw MemoryBudget.unwrap(e);
+        }
 
         lz = lzma.getLZEncoder();
 
@@ -0,0 +1,333 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * An ArrayCache wrapper that limits the total memory used by
+ * the large arrays of all streams that share it.
+ * <p>
+ * The {@code memoryLimit} arguments of the decompressors limit each
+ * stream separately. When many streams are used at the same time, their
+ * sum can still be too much for the heap. A {@code MemoryBudget} is
+ * consulted before every array that the compressors and decompressors
+ * allocate via an {@link ArrayCache}: the LZMA2 dictionaries, the match
+ * finder hash tables and trees, and the range coder buffers. It also
+ * covers the Index of {@link SeekableXZInputStream}. The memory is
+ * returned to the budget when the stream puts the arrays back to
+ * the cache, that is, when it finishes or is closed. Streams that use
+ * a budget must be closed or they keep their share of it.
+ * <p>
+ * When an allocation doesn't fit into the budget, the allocating
+ * thread waits until other streams return enough memory. The time to
+ * wait can be limited: if the memory doesn't become available in time,
+ * the allocation fails. With a zero wait time the allocation fails
+ * immediately. An allocation that is bigger than the whole budget
+ * fails immediately in any case.
+ * <p>
+ * A failure is reported as {@link MemoryLimitException}. If waiting
+ * is interrupted, {@code InterruptedIOException} is thrown and
+ * the interrupt status is set again. The arrays that were already
+ * allocated for the stream are returned to the budget before
+ * the exception is thrown, and a stream that has thrown one of these
+ * still has to be closed. The {@code ArrayCache} methods cannot throw
+ * {@code IOException}, so the budget itself throws
+ * {@code UncheckedIOException} wrapping one of these exceptions, and
+ * the compressors and decompressors throw the wrapped exception
+ * instead. Only the constructors of {@link LZMA2InputStream}, which
+ * cannot throw {@code IOException}, and the {@code getOutputStream}
+ * methods of {@link FilterOptions} throw the unchecked exception.
+ * <p>
+ * Waiting without a time limit can deadlock if every stream has
+ * allocated part of its memory and waits for the rest. A time limit
+ * avoids this.
+ * <p>
+ * For compression, {@link #fitDictSize(LZMA2Options)} can make
+ * the dictionary smaller when the budget is tight, so that compression
+ * continues with a somewhat worse ratio instead of waiting or failing.
+ * <p>
+ * Example of a process-wide budget of 1 GiB with at most 10 seconds
+ * of waiting:
+ * <blockquote><pre>
+ * ArrayCache.setDefaultCache(new MemoryBudget(1 &lt;&lt; 20, 10000,
+ *                                             BasicArrayCache.getInstance()));
+ * </pre></blockquote>
+ * <p>
+ * The arrays are counted while they are in use. Arrays kept by
+ * the underlying cache for reuse aren't counted.
+ *
+ * @since 1.13
+ */
+public class MemoryBudget extends ArrayCache {
+    private final int memoryLimit;
+    private final long limitBytes;
+    private final long maxWaitMillis;
+    private final ArrayCache arrayCache;
+
+    /**
+     * Sizes of the arrays that are in use. Arrays are compared by
+     * identity so that arrays from elsewhere don't affect the usage.
+     */
+    private final Map<Object, Long> inUse
+            = new IdentityHashMap<Object, Long>();
+
+    private long usedBytes = 0;
+
+    /**
+     * Creates a new MemoryBudget that uses the dummy cache for
+     * the actual allocations.
+     *
+     * @param       memoryLimit total memory usage limit in kibibytes (KiB)
+     *
+     * @param       maxWaitMillis
+     *                          how long an allocation may wait for memory
+     *                          in milliseconds; zero fails immediately and
+     *                          a negative value waits without a limit
+     */
+    public MemoryBudget(int memoryLimit, long maxWaitMillis) {
+        this(memoryLimit, maxWaitMillis, ArrayCache.getDummyCache());
+    }
+
+    /**
+     * Creates a new MemoryBudget.
+     *
+     * @param       memoryLimit total memory usage limit in kibibytes (KiB)
+     *
+     * @param       maxWaitMillis
+     *                          how long an allocation may wait for memory
+     *                          in milliseconds; zero fails immediately and
+     *                          a negative value waits without a limit
+     *
+     * @param       arrayCache  the cache that does the actual allocations;
+     *                          it must not be this budget
+     */
+    public MemoryBudget(int memoryLimit, long maxWaitMillis,
+                        ArrayCache arrayCache) {
+        if (memoryLimit < 0)
+            throw new IllegalArgumentException(
+                    "Memory usage limit cannot be negative");
+
+        if (arrayCache == null)
+            throw new NullPointerException();
+
+        this.memoryLimit = memoryLimit;
+        this.limitBytes = (long)memoryLimit << 10;
+        this.maxWaitMillis = maxWaitMillis;
+        this.arrayCache = arrayCache;
+    }
+
+    /**
+     * Gets the memory usage limit in kibibytes (KiB).
+     */
+    public int getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * Gets the memory currently in use in kibibytes (KiB), rounded up.
+     */
+    public synchronized int getMemoryUsage() {
+        return (int)((usedBytes + 1023) >>> 10);
+    }
+
+    /**
+     * Gets the memory currently available in kibibytes (KiB),
+     * rounded down.
+     */
+    public synchronized int getMemoryAvailable() {
+        return (int)((limitBytes - usedBytes) >>> 10);
+    }
+
+    /**
+     * Makes the dictionary size in {@code options} smaller if
+     * the encoder wouldn't fit into the currently available memory.
+     * The dictionary size is halved until the encoder fits or
+     * the dictionary size is {@link LZMA2Options#DICT_SIZE_MIN}.
+     * <p>
+     * Other streams may allocate memory after this has returned, so
+     * the allocations of the encoder may still need to wait. This only
+     * avoids starting with a dictionary that clearly doesn't fit.
+     *
+     * @return      true if the encoder fits into the available memory,
+     *              false if it doesn't fit even with the smallest
+     *              dictionary
+     */
+    public boolean fitDictSize(LZMA2Options options) {
+        int available = getMemoryAvailable();
+
+        try {
+            while (options.getEncoderMemoryUsage() > available) {
+                int dictSize = options.getDictSize();
+                if (dictSize <= LZMA2Options.DICT_SIZE_MIN)
+                    return false;
+
+                options.setDictSize(Math.max(dictSize >>> 1,
+                                             LZMA2Options.DICT_SIZE_MIN));
+            }
+        } catch (UnsupportedOptionsException e) {
+            // A smaller dictionary is always valid.
+            throw new RuntimeException(e);
+        }
+
+        return true;
+    }
+
+    @Override
+    public byte[] getByteArray(int size, boolean fillWithZeros) {
+        reserveUnchecked(size);
+
+        byte[] array;
+        try {
+            array = arrayCache.getByteArray(size, fillWithZeros);
+        } catch (RuntimeException | Error e) {
+            releaseBytes(size);
+            throw e;
+        }
+
+        track(array, size, array.length);
+        return array;
+    }
+
+    @Override
+    public void putArray(byte[] array) {
+        untrack(array);
+        arrayCache.putArray(array);
+    }
+
+    @Override
+    public int[] getIntArray(int size, boolean fillWithZeros) {
+        long bytes = (long)size * 4;
+        reserveUnchecked(bytes);
+
+        int[] array;
+        try {
+            array = arrayCache.getIntArray(size, fillWithZeros);
+        } catch (RuntimeException | Error e) {
+            releaseBytes(bytes);
+            throw e;
+        }
+
+        track(array, bytes, (long)array.length * 4);
+        return array;
+    }
+
+    @Override
+    public void putArray(int[] array) {
+        untrack(array);
+        arrayCache.putArray(array);
+    }
+
+    /**
+     * Reserves memory that isn't allocated via this cache.
+     *
+     * @param       kib         amount of memory in kibibytes (KiB)
+     */
+    void reserve(int kib) throws MemoryLimitException,
+                                 InterruptedIOException {
+        reserveBytes((long)kib << 10);
+    }
+
+    /**
+     * Returns memory reserved with {@link #reserve(int)}.
+     */
+    void release(int kib) {
+        releaseBytes((long)kib << 10);
+    }
+
+    /**
+     * Gets the exception that a budget has wrapped into {@code e} so
+     * that it can be thrown as a checked exception. If the cause isn't
+     * one that a budget throws, {@code e} itself is thrown.
+     */
+    static IOException unwrap(UncheckedIOException e) {
+        IOException cause = e.getCause();
+        if (cause instanceof MemoryLimitException
+                || cause instanceof InterruptedIOException)
+            return cause;
+
+        throw e;
+    }
+
+    private void reserveUnchecked(long bytes) {
+        try {
+            reserveBytes(bytes);
+        } catch (MemoryLimitException | InterruptedIOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void reserveBytes(long bytes)
+            throws MemoryLimitException, InterruptedIOException {
+        if (usedBytes + bytes > limitBytes) {
+            if (bytes > limitBytes || maxWaitMillis == 0)
+                throw newException(bytes);
+
+            long deadline = System.nanoTime() + maxWaitMillis * 1000000;
+
+            try {
+                while (usedBytes + bytes > limitBytes) {
+                    if (maxWaitMillis < 0) {
+                        wait();
+                    } else {
+                        long left = (deadline - System.nanoTime()) / 1000000;
+                        if (left <= 0)
+                            throw newException(bytes);
+
+                        wait(left);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException ioe = new InterruptedIOException();
+                ioe.initCause(e);
+                throw ioe;
+            }
+        }
+
+        usedBytes += bytes;
+    }
+
+    private synchronized void releaseBytes(long bytes) {
+        usedBytes -= bytes;
+        assert usedBytes >= 0;
+        notifyAll();
+    }
+
+    /**
+     * Remembers an allocated array. The underlying cache may return
+     * an array that is bigger than requested, so the reservation is
+     * adjusted to the actual size.
+     */
+    private synchronized void track(Object array, long reserved,
+                                    long actual) {
+        usedBytes += actual - reserved;
+        if (actual < reserved)
+            notifyAll();
+
+        inUse.put(array, actual);
+    }
+
+    /**
+     * Forgets an array and returns its memory to the budget.
+     * Arrays that weren't allocated via this budget are ignored.
+     */
+    private synchronized void untrack(Object array) {
+        Long bytes = inUse.remove(array);
+        if (bytes != null)
+            releaseBytes(bytes);
+    }
+
+    private MemoryLimitException newException(long bytes) {
+        return new MemoryLimitException(
+                (int)Math.min((usedBytes + bytes + 1023) >>> 10,
+                              Integer.MAX_VALUE),
+                memoryLimit);
+    }
+}
@@ -0,0 +1,132 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+/**
+ * Results of comparing compression with and without a preset dictionary.
+ * This is returned by
+ * {@link PresetDictTrainer#evaluate(LZMA2Options, byte[], Iterable)}.
+ * <p>
+ * The sizes are totals over all the samples. The times are totals in
+ * nanoseconds as measured with {@code System.nanoTime()}.
+ *
+ * @since 1.13
+ */
+public class PresetDictEvaluation {
+    int sampleCount = 0;
+    long uncompressedSize = 0;
+    long compressedSizeWithout = 0;
+    long compressedSizeWith = 0;
+    long encodeTimeWithout = 0;
+    long encodeTimeWith = 0;
+    long decodeTimeWithout = 0;
+    long decodeTimeWith = 0;
+
+    PresetDictEvaluation() {}
+
+    /**
+     * Gets the number of samples that were compressed.
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Gets the total uncompressed size of the samples.
+     */
+    public long getUncompressedSize() {
+        return uncompressedSize;
+    }
+
+    /**
+     * Gets the total compressed size without the preset dictionary.
+     */
+    public long getCompressedSizeWithout() {
+        return compressedSizeWithout;
+    }
+
+    /**
+     * Gets the total compressed size with the preset dictionary.
+     */
+    public long getCompressedSizeWith() {
+        return compressedSizeWith;
+    }
+
+    /**
+     * Gets the total compression time without the preset dictionary.
+     */
+    public long getEncodeTimeWithout() {
+        return encodeTimeWithout;
+    }
+
+    /**
+     * Gets the total compression time with the preset dictionary.
+     */
+    public long getEncodeTimeWith() {
+        return encodeTimeWith;
+    }
+
+    /**
+     * Gets the total decompression time without the preset dictionary.
+     */
+    public long getDecodeTimeWithout() {
+        return decodeTimeWithout;
+    }
+
+    /**
+     * Gets the total decompression time with the preset dictionary.
+     */
+    public long getDecodeTimeWith() {
+        return decodeTimeWith;
+    }
+
+    /**
+     * Gets the compression ratio (compressed size divided by uncompressed
+     * size) without the preset dictionary.
+     */
+    public double getRatioWithout() {
+        return uncompressedSize == 0
+               ? 0.0 : (double)compressedSizeWithout / uncompressedSize;
+    }
+
+    /**
+     * Gets the compression ratio (compressed size divided by uncompressed
+     * size) with the preset dictionary.
+     */
+    public double getRatioWith() {
+        return uncompressedSize == 0
+               ? 0.0 : (double)compressedSizeWith / uncompressedSize;
+    }
+
+    /**
+     * Gets how many times faster compression is with the preset dictionary.
+     * Values below {@code 1.0} mean that the preset dictionary makes
+     * compression slower.
+     */
+    public double getEncodeSpeedup() {
+        return encodeTimeWith == 0
+               ? 0.0 : (double)encodeTimeWithout / encodeTimeWith;
+    }
+
+    /**
+     * Gets how many times faster decompression is with the preset
+     * dictionary. Values below {@code 1.0} mean that the preset
+     * dictionary makes decompression slower.
+     */
+    public double getDecodeSpeedup() {
+        return decodeTimeWith == 0
+               ? 0.0 : (double)decodeTimeWithout / decodeTimeWith;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d samples, %d bytes: ratio %.4f -> %.4f, "
+                + "encode %.2fx, decode %.2fx",
+                sampleCount, uncompressedSize,
+                getRatioWithout(), getRatioWith(),
+                getEncodeSpeedup(), getDecodeSpeedup());
+    }
+}
@@ -0,0 +1,389 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.tukaani.xz.lz.LZEncoder;
+import org.tukaani.xz.lz.Matches;
+
+/**
+ * Builds a preset dictionary from sample data.
+ * <p>
+ * A preset dictionary helps a lot when many small chunks of similar data,
+ * for example records or messages of a few kilobytes or less, are
+ * compressed independently from each other with raw LZMA2. Without
+ * a preset dictionary such small inputs compress poorly because there
+ * is no history where to find matches.
+ * <p>
+ * The samples should be typical inputs, for example a few thousand
+ * records. They are run through the LZ match finder as if they were
+ * compressed one after another. Every time a string in a sample is found
+ * to repeat a string from an earlier sample, the first occurrence of that
+ * string gets credit for each byte. The dictionary is then assembled from
+ * the segments of the samples that got the most credit. The most valuable
+ * segments are put near the end of the dictionary where matches to them
+ * are the cheapest to encode.
+ * <p>
+ * Example:
+ * <blockquote><pre>
+ * PresetDictTrainer trainer = new PresetDictTrainer(32 &lt;&lt; 10);
+ * for (byte[] record : trainingRecords)
+ *     trainer.addSample(record);
+ *
+ * byte[] dict = trainer.train();
+ *
+ * LZMA2Options options = new LZMA2Options();
+ * System.out.println(PresetDictTrainer.evaluate(options, dict,
+ *                                               testRecords));
+ * options.setPresetDict(dict);
+ * </pre></blockquote>
+ * <p>
+ * The records used for the evaluation shouldn't be the same as
+ * the ones used for the training. Otherwise the results will be
+ * too optimistic.
+ *
+ * @since 1.13
+ */
+public class PresetDictTrainer {
+    /**
+     * Default size of the segments from which the dictionary is assembled.
+     */
+    public static final int SEGMENT_SIZE_DEFAULT = 256;
+
+    /**
+     * The samples are analyzed using a window of at most this many bytes.
+     * Repeated strings that are farther apart aren't seen as repeated.
+     */
+    private static final int WINDOW_SIZE_MAX = 8 << 20;
+
+    /**
+     * Matches shorter than this are ignored.
+     */
+    private static final int MATCH_LEN_MIN = 4;
+
+    private static final int MATCH_LEN_MAX = 273;
+
+    private final int dictSize;
+    private int segmentSize = SEGMENT_SIZE_DEFAULT;
+
+    private byte[] corpus = new byte[4096];
+    private int corpusSize = 0;
+
+    // Start offsets of the samples in the corpus
+    private int[] sampleStarts = new int[64];
+    private int sampleCount = 0;
+
+    /**
+     * Creates a new trainer that builds a dictionary of at most
+     * {@code dictSize} bytes.
+     *
+     * @param       dictSize    maximum size of the dictionary;
+     *                          must be positive
+     */
+    public PresetDictTrainer(int dictSize) {
+        if (dictSize <= 0)
+            throw new IllegalArgumentException(
+                    "Preset dictionary size must be positive");
+
+        this.dictSize = dictSize;
+    }
+
+    /**
+     * Sets the size of the segments from which the dictionary is
+     * assembled. Smaller segments fit the dictionary size more exactly
+     * while bigger segments keep more context around the repeated
+     * strings. The default is {@code SEGMENT_SIZE_DEFAULT}.
+     *
+     * @param       segmentSize segment size in bytes; must be at least
+     *                          {@code 16}
+     */
+    public void setSegmentSize(int segmentSize) {
+        if (segmentSize < 16)
+            throw new IllegalArgumentException(
+                    "Segment size must be at least 16 bytes");
+
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Adds a sample.
+     */
+    public void addSample(byte[] buf) {
+        addSample(buf, 0, buf.length);
+    }
+
+    /**
+     * Adds a sample from an array.
+     *
+     * @param       buf         buffer containing the sample
+     * @param       off         start offset in {@code buf}
+     * @param       len         length of the sample
+     */
+    public void addSample(byte[] buf, int off, int len) {
+        if (off < 0 || len < 0 || off + len < 0 || off + len > buf.length)
+            throw new IndexOutOfBoundsException();
+
+        if (len == 0)
+            return;
+
+        if (corpusSize + len < 0)
+            throw new IllegalStateException("Too much sample data");
+
+        if (corpusSize + len > corpus.length)
+            corpus = Arrays.copyOf(corpus, Math.max(
+                    corpusSize + len,
+                    (int)Math.min(corpus.length * 2L, Integer.MAX_VALUE)));
+
+        if (sampleCount == sampleStarts.length)
+            sampleStarts = Arrays.copyOf(sampleStarts, sampleCount * 2);
+
+        System.arraycopy(buf, off, corpus, corpusSize, len);
+        sampleStarts[sampleCount++] = corpusSize;
+        corpusSize += len;
+    }
+
+    /**
+     * Builds the preset dictionary from the samples added so far.
+     * The dictionary may be smaller than the requested size if the samples
+     * don't have enough repeated content. It is empty if there are no
+     * repeated strings at all.
+     *
+     * @return      the preset dictionary
+     */
+    public byte[] train() {
+        int[] scores = scoreCorpus();
+
+        // Split each sample into segments and calculate the sum of
+        // the scores of each segment. Leading and trailing bytes that
+        // didn't get any credit are left out.
+        List<long[]> segments = new ArrayList<long[]>();
+
+        for (int i = 0; i < sampleCount; ++i) {
+            int sampleEnd = i + 1 < sampleCount ? sampleStarts[i + 1]
+                                                : corpusSize;
+
+            for (int start = sampleStarts[i]; start < sampleEnd;
+                    start += segmentSize) {
+                int end = Math.min(start + segmentSize, sampleEnd);
+
+                int first = start;
+                while (first < end && scores[first] == 0)
+                    ++first;
+
+                int last = end;
+                while (last > first && scores[last - 1] == 0)
+                    --last;
+
+                long sum = 0;
+                for (int j = first; j < last; ++j)
+                    sum += scores[j];
+
+                if (sum > 0)
+                    segments.add(new long[] { sum, first, last });
+            }
+        }
+
+        // Pick the best segments until the dictionary is full.
+        Collections.sort(segments, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return Long.compare(b[0], a[0]);
+            }
+        });
+
+        int size = 0;
+        int count = 0;
+        while (count < segments.size() && size < dictSize) {
+            long[] seg = segments.get(count++);
+            int len = (int)(seg[2] - seg[1]);
+
+            // Truncate the last segment from the beginning.
+            if (len > dictSize - size) {
+                seg[1] = seg[2] - (dictSize - size);
+                len = dictSize - size;
+            }
+
+            size += len;
+        }
+
+        // Put the best segment last.
+        byte[] dict = new byte[size];
+        int pos = size;
+        for (int i = 0; i < count; ++i) {
+            long[] seg = segments.get(i);
+            int len = (int)(seg[2] - seg[1]);
+            pos -= len;
+            System.arraycopy(corpus, (int)seg[1], dict, pos, len);
+        }
+
+        assert pos == 0;
+        return dict;
+    }
+
+    /**
+     * Runs the samples through the match finder and returns an array
+     * that tells how much credit each byte of the corpus got.
+     */
+    private int[] scoreCorpus() {
+        int[] scores = new int[corpusSize];
+
+        // origins[i] is the position of the first known occurrence of
+        // the byte at position i. Crediting the first occurrence instead
+        // of the match source makes the credit of a string that repeats
+        // in many samples accumulate to one place.
+        int[] origins = new int[corpusSize];
+
+        int windowSize = Math.max(LZMA2Options.DICT_SIZE_MIN,
+                                  Math.min(corpusSize, WINDOW_SIZE_MAX));
+        ArrayCache arrayCache = ArrayCache.getDummyCache();
+        LZEncoder lz = LZEncoder.getInstance(windowSize, 0, 0,
+                                             MATCH_LEN_MAX, MATCH_LEN_MAX,
+                                             LZEncoder.MF_BT4, 0,
+                                             arrayCache);
+
+        int inPos = 0;
+        int pos = 0;
+        int sample = 0;
+
+        while (pos < corpusSize) {
+            if (inPos < corpusSize) {
+                inPos += lz.fillWindow(corpus, inPos, corpusSize - inPos);
+                if (inPos == corpusSize)
+                    lz.setFinishing();
+            }
+
+            while (lz.hasEnoughData(0)) {
+                while (sample + 1 < sampleCount
+                        && sampleStarts[sample + 1] <= pos)
+                    ++sample;
+
+                Matches matches = lz.getMatches();
+                int len = 1;
+
+                if (matches.count > 0) {
+                    len = matches.len[matches.count - 1];
+                    if (len < MATCH_LEN_MIN)
+                        len = 1;
+                }
+
+                if (len == 1) {
+                    origins[pos] = pos;
+                } else {
+                    int src = pos - matches.dist[matches.count - 1] - 1;
+
+                    // Only repeats across samples are something that
+                    // a preset dictionary can help with.
+                    boolean credit = src < sampleStarts[sample];
+
+                    for (int i = 0; i < len; ++i) {
+                        int origin = origins[src + i];
+                        origins[pos + i] = origin;
+                        if (credit)
+                            ++scores[origin];
+                    }
+
+                    lz.skip(len - 1);
+                }
+
+                pos += len;
+            }
+        }
+
+        lz.putArraysToCache(arrayCache);
+        return scores;
+    }
+
+    /**
+     * Compresses and decompresses each sample independently with raw
+     * LZMA2 both with and without the preset dictionary and reports
+     * the results. The preset dictionary set in {@code options}
+     * is ignored. The compression with the preset dictionary uses
+     * {@link LZMA2PresetDict} so the time needed to prepare the preset
+     * dictionary for each sample is small.
+     * <p>
+     * Use samples that weren't used for training the dictionary.
+     * The timing results are more reliable when this is called
+     * a few times so that the code has been warmed up.
+     *
+     * @param       options     LZMA2 options to use
+     * @param       presetDict  preset dictionary to evaluate
+     * @param       samples     samples to compress
+     *
+     * @return      the evaluation results
+     *
+     * @throws      IOException if the decompressed data doesn't match
+     *                          the original; this should never happen
+     */
+    public static PresetDictEvaluation evaluate(LZMA2Options options,
+                                                byte[] presetDict,
+                                                Iterable<byte[]> samples)
+            throws IOException {
+        LZMA2Options noDictOptions = (LZMA2Options)options.clone();
+        noDictOptions.setPresetDict(null);
+
+        LZMA2Options dictOptions = (LZMA2Options)options.clone();
+        dictOptions.setPresetDict(presetDict);
+        LZMA2PresetDict shared = presetDict == null || presetDict.length == 0
+                                 ? null : new LZMA2PresetDict(dictOptions);
+
+        PresetDictEvaluation result = new PresetDictEvaluation();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        for (byte[] sample : samples) {
+            ++result.sampleCount;
+            result.uncompressedSize += sample.length;
+
+            for (int i = 0; i < 2; ++i) {
+                LZMA2Options opts = i == 0 ? noDictOptions : dictOptions;
+
+                long start = System.nanoTime();
+                compressed.reset();
+                FinishableOutputStream out
+                        = new FinishableWrapperOutputStream(compressed);
+                out = i == 0 || shared == null ? opts.getOutputStream(out)
+                                               : shared.getOutputStream(out);
+                out.write(sample);
+                out.finish();
+                long encodeTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                byte[] decompressed = new byte[sample.length];
+                DataInputStream in = new DataInputStream(
+                        new LZMA2InputStream(
+                            new ByteArrayInputStream(
+                                compressed.toByteArray()),
+                            opts.getDictSize(), opts.getPresetDict()));
+                in.readFully(decompressed);
+                if (in.read() != -1)
+                    throw new CorruptedInputException();
+
+                long decodeTime = System.nanoTime() - start;
+
+                if (!Arrays.equals(sample, decompressed))
+                    throw new CorruptedInputException();
+
+                if (i == 0) {
+                    result.compressedSizeWithout += compressed.size();
+                    result.encodeTimeWithout += encodeTime;
+                    result.decodeTimeWithout += decodeTime;
+                } else {
+                    result.compressedSizeWith += compressed.size();
+                    result.encodeTimeWith += encodeTime;
+                    result.decodeTimeWith += decodeTime;
+                }
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,26 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.IOException;
+
+/**
+ * Opens independent {@link SeekableInputStream}s that read the same file.
+ * <p>
+ * This is used by classes that decompress different parts of
+ * a .xz file in parallel. Each thread needs its own stream because
+ * a {@code SeekableInputStream} has a position and isn't thread safe.
+ * The {@code open} method may be called from multiple threads at
+ * the same time.
+ *
+ * @since 1.13
+ */
+public interface SeekableInputFactory {
+    /**
+     * Opens a new stream positioned at the beginning of the file.
+     * The caller closes the stream.
+     */
+    SeekableInputStream open() throws IOException;
+}
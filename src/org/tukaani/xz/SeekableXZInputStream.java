@@ -8,7 +8,10 @@ import java.util.Arrays;
 import java.util.ArrayList;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import org.tukaani.xz.common.DecoderUtil;
 import org.tukaani.xz.common.StreamFlags;
 import org.tukaani.xz.check.Check;
@@ -580,6 +583,12 @@ public class SeekableXZInputStream extends SeekableInputStream {
 
         assert pos == 0;
 
+        // If a MemoryBudget is used, the Indexes count against it too.
+        // This is the last thing that can throw in the constructor so
+        // the memory doesn't need to be returned on errors.
+        if (arrayCache instanceof MemoryBudget)
+            ((MemoryBudget)arrayCache).reserve(indexMemoryUsage);
+
         // Save it now that indexMemoryUsage has been subtracted from it.
         this.memoryLimit = memoryLimit;
 
@@ -807,6 +816,130 @@ public class SeekableXZInputStream extends SeekableInputStream {
         if (len == 0)
             return 0;
 
+        return decode(buf, off, null, len);
+    }
+
+    /**
+     * Decompresses the rest of the data, starting from the current
+     * position, and writes it to {@code out}. If the filter chain has
+     * only LZMA2, the data is written directly from the dictionary buffer
+     * of the LZMA2 decoder. This avoids copying the data through
+     * an intermediate buffer.
+     * <p>
+     * {@code out} must not modify the array that is passed to its
+     * {@code write} method.
+     *
+     * @param       out         the output stream to write to
+     *
+     * @return      the number of bytes transferred
+     *
+     * @throws      CorruptedInputException
+     * @throws      UnsupportedOptionsException
+     * @throws      MemoryLimitException
+     *
+     * @throws      XZIOException if the stream has been closed
+     *
+     * @throws      IOException may be thrown by {@code in} or {@code out}
+     *
+     * @since 1.13
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        if (out == null)
+            throw new NullPointerException();
+
+        long total = 0;
+        int ret;
+        while ((ret = decode(null, 0, out, Integer.MAX_VALUE)) != -1)
+            total += ret;
+
+        return total;
+    }
+
+    /**
+     * Decompresses the uncompressed bytes {@code [pos, pos + len)} and
+     * writes them to {@code out}. Only the Blocks that contain the range
+     * are decompressed, and decompression stops in the middle of the last
+     * Block as soon as the range has been written. The data is written
+     * directly from the LZMA2 dictionary buffer like in
+     * {@link #transferTo(OutputStream)}.
+     * <p>
+     * This is the same as {@code seek(pos)} followed by reading
+     * {@code len} bytes and writing them to {@code out}. Afterwards
+     * the position of this stream is {@code pos + len}.
+     *
+     * @param       pos         uncompressed position of the first byte
+     * @param       len         number of bytes to write
+     * @param       out         the output stream to write to
+     *
+     * @throws      EOFException
+     *                          {@code pos + len} is greater than
+     *                          {@code length()}
+     *
+     * @throws      XZIOException
+     *                          {@code pos} or {@code len} is negative
+     *                          or the stream has been closed
+     *
+     * @throws      IOException may be thrown by {@code in} or {@code out}
+     *                          or decompression may fail
+     *
+     * @since 1.13
+     */
+    public void extract(long pos, long len, OutputStream out)
+            throws IOException {
+        if (out == null)
+            throw new NullPointerException();
+
+        if (len < 0)
+            throw new XZIOException("Negative length: " + len);
+
+        if (pos + len > uncompressedSize || pos + len < 0)
+            throw new EOFException();
+
+        seek(pos);
+
+        while (len > 0) {
+            int ret = decode(null, 0, out,
+                             (int)Math.min(len, Integer.MAX_VALUE));
+            if (ret == -1)
+                throw new EOFException();
+
+            len -= ret;
+        }
+    }
+
+    /**
+     * Decompresses the uncompressed bytes {@code [pos, pos + len)} and
+     * writes them to {@code channel}. This is like
+     * {@link #extract(long, long, OutputStream)}. The data is written
+     * with {@link ByteBuffer#wrap(byte[], int, int)} so it isn't copied
+     * before passing it to the channel.
+     *
+     * @since 1.13
+     */
+    public void extract(long pos, long len, final WritableByteChannel channel)
+            throws IOException {
+        extract(pos, len, new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte)b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] buf, int off, int len)
+                    throws IOException {
+                ByteBuffer bb = ByteBuffer.wrap(buf, off, len);
+                while (bb.hasRemaining())
+                    channel.write(bb);
+            }
+        });
+    }
+
+    /**
+     * Decompresses into {@code buf} or, if {@code out} isn't null,
+     * into {@code out}.
+     */
+    private int decode(byte[] buf, int off, OutputStream out, int len)
+            throws IOException {
         if (in == null)
             throw new XZIOException("Stream closed");
 
@@ -826,10 +959,11 @@ public class SeekableXZInputStream extends SeekableInputStream {
                 if (blockDecoder == null) {
                     seek();
                     if (endReached)
-                        break;
+                        return size > 0 ? size : -1;
                 }
 
-                int ret = blockDecoder.read(buf, off, len);
+                int ret = out == null ? blockDecoder.read(buf, off, len)
+                                      : blockDecoder.read(out, len);
 
                 if (ret > 0) {
                     curPos += ret;
@@ -922,6 +1056,9 @@ public class SeekableXZInputStream extends SeekableInputStream {
                 blockDecoder = null;
             }
 
+            if (arrayCache instanceof MemoryBudget)
+                ((MemoryBudget)arrayCache).release(indexMemoryUsage);
+
             try {
                 if (closeInput)
                     in.close();
@@ -1085,6 +1222,40 @@ public class SeekableXZInputStream extends SeekableInputStream {
         }
     }
 
+    /**
+     * Copies the given Block as is to {@code out} and returns its
+     * Unpadded Size. The Block Header, Block Padding, and Check are
+     * copied too. The position of the underlying input stream is restored
+     * afterwards so this doesn't disturb decompression.
+     */
+    long copyBlock(int blockNumber, OutputStream out, byte[] buf)
+            throws IOException {
+        if (in == null)
+            throw new XZIOException("Stream closed");
+
+        locateBlockByNumber(queriedBlockInfo, blockNumber);
+        long unpaddedSize = queriedBlockInfo.unpaddedSize;
+        long left = (unpaddedSize + 3) & ~3;
+
+        long savedPos = in.position();
+        in.seek(queriedBlockInfo.compressedOffset);
+
+        try {
+            while (left > 0) {
+                int size = in.read(buf, 0, (int)Math.min(left, buf.length));
+                if (size == -1)
+                    throw new CorruptedInputException();
+
+                out.write(buf, 0, size);
+                left -= size;
+            }
+        } finally {
+            in.seek(savedPos);
+        }
+
+        return unpaddedSize;
+    }
+
     /**
      * Locates the Block that contains the given uncompressed position.
      */
@@ -6,15 +6,17 @@ package org.tukaani.xz;
 
 import java.io.InputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import org.tukaani.xz.simple.SimpleFilter;
 
 class SimpleInputStream extends InputStream {
-    private static final int FILTER_BUF_SIZE = 4096;
+    private static final int FILTER_BUF_SIZE_MIN = 4096;
+    private static final int FILTER_BUF_SIZE_MAX = 64 << 10;
 
     private InputStream in;
     private final SimpleFilter simpleFilter;
 
-    private final byte[] filterBuf = new byte[FILTER_BUF_SIZE];
+    private byte[] filterBuf = new byte[FILTER_BUF_SIZE_MIN];
     private int pos = 0;
     private int filtered = 0;
     private int unfiltered = 0;
@@ -25,7 +27,7 @@ class SimpleInputStream extends InputStream {
     private final byte[] tempBuf = new byte[1];
 
     static int getMemoryUsage() {
-        return 1 + FILTER_BUF_SIZE / 1024;
+        return 1 + FILTER_BUF_SIZE_MAX / 1024;
     }
 
     SimpleInputStream(InputStream in, SimpleFilter simpleFilter) {
@@ -77,7 +79,7 @@ class SimpleInputStream extends InputStream {
                 // If end of filterBuf was reached, move the pending data to
                 // the beginning of the buffer so that more data can be
                 // copied into filterBuf on the next loop iteration.
-                if (pos + filtered + unfiltered == FILTER_BUF_SIZE) {
+                if (pos + filtered + unfiltered == filterBuf.length) {
                     System.arraycopy(filterBuf, pos, filterBuf, 0,
                                      filtered + unfiltered);
                     pos = 0;
@@ -88,8 +90,16 @@ class SimpleInputStream extends InputStream {
 
                 assert filtered == 0;
 
+                // If the application reads in big chunks, switch to
+                // a bigger buffer to reduce the per-chunk overhead.
+                // Applications that read in small chunks keep using
+                // the small buffer.
+                if (len > filterBuf.length
+                        && filterBuf.length < FILTER_BUF_SIZE_MAX)
+                    filterBuf = Arrays.copyOf(filterBuf, FILTER_BUF_SIZE_MAX);
+
                 // Get more data into the temporary buffer.
-                int inSize = FILTER_BUF_SIZE - (pos + filtered + unfiltered);
+                int inSize = filterBuf.length - (pos + filtered + unfiltered);
                 inSize = in.read(filterBuf, pos + filtered + unfiltered,
                                  inSize);
 
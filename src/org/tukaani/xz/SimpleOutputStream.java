@@ -5,15 +5,17 @@
 package org.tukaani.xz;
 
 import java.io.IOException;
+import java.util.Arrays;
 import org.tukaani.xz.simple.SimpleFilter;
 
 class SimpleOutputStream extends FinishableOutputStream {
-    private static final int FILTER_BUF_SIZE = 4096;
+    private static final int FILTER_BUF_SIZE_MIN = 4096;
+    private static final int FILTER_BUF_SIZE_MAX = 64 << 10;
 
     private FinishableOutputStream out;
     private final SimpleFilter simpleFilter;
 
-    private final byte[] filterBuf = new byte[FILTER_BUF_SIZE];
+    private byte[] filterBuf = new byte[FILTER_BUF_SIZE_MIN];
     private int pos = 0;
     private int unfiltered = 0;
 
@@ -23,7 +25,7 @@ class SimpleOutputStream extends FinishableOutputStream {
     private final byte[] tempBuf = new byte[1];
 
     static int getMemoryUsage() {
-        return 1 + FILTER_BUF_SIZE / 1024;
+        return 1 + FILTER_BUF_SIZE_MAX / 1024;
     }
 
     SimpleOutputStream(FinishableOutputStream out,
@@ -53,8 +55,16 @@ class SimpleOutputStream extends FinishableOutputStream {
             throw new XZIOException("Stream finished or closed");
 
         while (len > 0) {
+            // If the application writes in big chunks, switch to a bigger
+            // buffer to reduce the per-chunk overhead. Applications that
+            // write in small chunks keep using the small buffer.
+            if (len > filterBuf.length
+                    && filterBuf.length < FILTER_BUF_SIZE_MAX)
+                filterBuf = Arrays.copyOf(filterBuf, FILTER_BUF_SIZE_MAX);
+
             // Copy more unfiltered data into filterBuf.
-            int copySize = Math.min(len, FILTER_BUF_SIZE - (pos + unfiltered));
+            int copySize = Math.min(len,
+                                    filterBuf.length - (pos + unfiltered));
             System.arraycopy(buf, off, filterBuf, pos + unfiltered, copySize);
             off += copySize;
             len -= copySize;
@@ -78,7 +88,7 @@ class SimpleOutputStream extends FinishableOutputStream {
             // If end of filterBuf was reached, move the pending unfiltered
             // data to the beginning of the buffer so that more data can
             // be copied into filterBuf on the next loop iteration.
-            if (pos + unfiltered == FILTER_BUF_SIZE) {
+            if (pos + unfiltered == filterBuf.length) {
                 System.arraycopy(filterBuf, pos, filterBuf, 0, unfiltered);
                 pos = 0;
             }
@@ -7,6 +7,7 @@ package org.tukaani.xz;
 import java.io.InputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.EOFException;
 import org.tukaani.xz.common.DecoderUtil;
 import org.tukaani.xz.common.StreamFlags;
@@ -38,21 +39,42 @@ public class SingleXZInputStream extends InputStream {
     private InputStream in;
     private final ArrayCache arrayCache;
     private final int memoryLimit;
-    private final StreamFlags streamHeaderFlags;
-    private final Check check;
+    private StreamFlags streamHeaderFlags;
+    private Check check;
     private final boolean verifyCheck;
     private BlockInputStream blockDecoder = null;
     private final IndexHash indexHash = new IndexHash();
     private boolean endReached = false;
     private IOException exception = null;
 
+    /**
+     * The LZMA2 decoder of the previous Block. It is reset and reused
+     * for the next Block and, after {@code reset}, for the next Stream.
+     */
+    private LZMA2InputStream lzma2 = null;
+
+    /**
+     * If true, the arrays of {@code lzma2} aren't returned to the cache
+     * at the end of the Stream. This is set by {@code reset}.
+     */
+    private boolean keepArrays = false;
+
+    /**
+     * Listener set with {@code setMetricsListener} or {@code null}.
+     * The counters of the current Stream and Block are collected only
+     * when there is a listener.
+     */
+    private XZMetrics.Listener metricsListener = null;
+    private XZMetrics streamMetrics = null;
+    private XZMetrics blockMetrics = null;
+
     private final byte[] tempBuf = new byte[1];
 
     /**
      * Reads the Stream Header into a buffer.
      * This is a helper function for the constructors.
      */
-    private static byte[] readStreamHeader(InputStream in) throws IOException {
+    static byte[] readStreamHeader(InputStream in) throws IOException {
         byte[] streamHeader = new byte[DecoderUtil.STREAM_HEADER_SIZE];
         new DataInputStream(in).readFully(streamHeader);
         return streamHeader;
@@ -326,6 +348,23 @@ public class SingleXZInputStream extends InputStream {
         return check.getName();
     }
 
+    /**
+     * Sets a listener that gets the {@link XZMetrics} of each XZ Block
+     * and of the XZ Stream. Use {@code null} to stop collecting
+     * the metrics. The Stream totals are collected from the time
+     * the listener is set. If this is called in the middle of a Block,
+     * that Block isn't reported.
+     *
+     * @param       listener    listener to use or {@code null}
+     *
+     * @since 1.13
+     */
+    public void setMetricsListener(XZMetrics.Listener listener) {
+        XZMetrics.listenerChanged(metricsListener, listener);
+        metricsListener = listener;
+        streamMetrics = listener == null ? null : new XZMetrics();
+    }
+
     /**
      * Decompresses the next byte from this input stream.
      * <p>
@@ -394,6 +433,64 @@ public class SingleXZInputStream extends InputStream {
         if (len == 0)
             return 0;
 
+        return decode(buf, off, null, len);
+    }
+
+    /**
+     * Like {@code read(byte[], int, int)} but writes the data to
+     * {@code out}, directly from the LZMA2 dictionary buffer if possible.
+     */
+    int read(OutputStream out, int len) throws IOException {
+        if (len == 0)
+            return 0;
+
+        return decode(null, 0, out, len);
+    }
+
+    /**
+     * Decompresses the rest of the data and writes it to {@code out}.
+     * If the filter chain has only LZMA2, the data is written directly
+     * from the dictionary buffer of the LZMA2 decoder. This avoids
+     * copying the data through an intermediate buffer.
+     * <p>
+     * {@code out} must not modify the array that is passed to its
+     * {@code write} method.
+     *
+     * @param       out         the output stream to write to
+     *
+     * @return      the number of bytes transferred
+     *
+     * @throws      CorruptedInputException
+     * @throws      UnsupportedOptionsException
+     * @throws      MemoryLimitException
+     *
+     * @throws      XZIOException if the stream has been closed
+     *
+     * @throws      EOFException
+     *                          compressed input is truncated or corrupt
+     *
+     * @throws      IOException may be thrown by {@code in} or {@code out}
+     *
+     * @since 1.13
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        if (out == null)
+            throw new NullPointerException();
+
+        long total = 0;
+        int ret;
+        while ((ret = read(out, Integer.MAX_VALUE)) != -1)
+            total += ret;
+
+        return total;
+    }
+
+    /**
+     * Decompresses into {@code buf} or, if {@code out} isn't null,
+     * into {@code out}.
+     */
+    private int decode(byte[] buf, int off, OutputStream out, int len)
+            throws IOException {
         if (in == null)
             throw new XZIOException("Stream closed");
 
@@ -408,19 +505,32 @@ public class SingleXZInputStream extends InputStream {
         try {
             while (len > 0) {
                 if (blockDecoder == null) {
+                    if (metricsListener != null)
+                        blockMetrics = new XZMetrics();
+
                     try {
                         blockDecoder = new BlockInputStream(
                                 in, check, verifyCheck, memoryLimit, -1, -1,
-                                arrayCache);
+                                arrayCache, true, lzma2, blockMetrics);
                     } catch (IndexIndicatorException e) {
+                        blockMetrics = null;
                         indexHash.validate(in);
                         validateStreamFooter();
                         endReached = true;
+
+                        if (!keepArrays)
+                            putArraysToCache();
+
+                        streamFinished();
                         return size > 0 ? size : -1;
                     }
+
+                    if (blockDecoder.getLZMA2InputStream() != null)
+                        lzma2 = blockDecoder.getLZMA2InputStream();
                 }
 
-                int ret = blockDecoder.read(buf, off, len);
+                int ret = out == null ? blockDecoder.read(buf, off, len)
+                                      : blockDecoder.read(out, len);
 
                 if (ret > 0) {
                     size += ret;
@@ -430,6 +540,7 @@ public class SingleXZInputStream extends InputStream {
                     indexHash.add(blockDecoder.getUnpaddedSize(),
                                   blockDecoder.getUncompressedSize());
                     blockDecoder = null;
+                    blockFinished();
                 }
             }
         } catch (IOException e) {
@@ -441,6 +552,35 @@ public class SingleXZInputStream extends InputStream {
         return size;
     }
 
+    /**
+     * Gives the counters of the finished Block to the listener.
+     */
+    private void blockFinished() {
+        XZMetrics block = blockMetrics;
+        blockMetrics = null;
+
+        if (block != null && metricsListener != null) {
+            block.stop();
+            streamMetrics.add(block);
+            metricsListener.blockFinished(block);
+        }
+    }
+
+    /**
+     * Gives the totals of the finished Stream to the listener.
+     */
+    private void streamFinished() {
+        if (metricsListener != null) {
+            XZMetrics stream = streamMetrics;
+            streamMetrics = null;
+
+            stream.uncompressedSize = indexHash.getUncompressedSize();
+            stream.compressedSize = indexHash.getStreamSize();
+            stream.stop();
+            metricsListener.streamFinished(stream);
+        }
+    }
+
     private void validateStreamFooter() throws IOException {
         byte[] buf = new byte[DecoderUtil.STREAM_HEADER_SIZE];
         new DataInputStream(in).readFully(buf);
@@ -505,6 +645,7 @@ public class SingleXZInputStream extends InputStream {
      * ({@code read} returns {@code -1}), the arrays are automatically
      * put back to the cache by that {@code read} call. In this
      * situation {@code close(false)} is redundant (but harmless).
+     * This isn't the case if {@code reset} has been called.
      *
      * @throws  IOException if thrown by {@code in.close()}
      *
@@ -517,6 +658,9 @@ public class SingleXZInputStream extends InputStream {
                 blockDecoder = null;
             }
 
+            putArraysToCache();
+            setMetricsListener(null);
+
             try {
                 if (closeInput)
                     in.close();
@@ -525,4 +669,96 @@ public class SingleXZInputStream extends InputStream {
             }
         }
     }
+
+    /**
+     * Starts decompressing a new XZ Stream from {@code in}, reusing
+     * the already allocated decoder structures. This is much faster
+     * than creating a new {@code SingleXZInputStream} when decompressing
+     * many small Streams.
+     * <p>
+     * The memory usage limit and the integrity check verification setting
+     * stay the same. If the previous Stream hasn't been decompressed
+     * completely, the rest of it is ignored. The old input stream
+     * isn't closed.
+     * <p>
+     * Like the constructors, this reads and parses the XZ Stream Header
+     * from {@code in}. The header of the first Block is not read until
+     * {@code read} is called.
+     * <p>
+     * After this has been called, the arrays allocated from
+     * the {@link ArrayCache} aren't put back to the cache when the end
+     * of the Stream is reached so that the next call to this method can
+     * reuse them. They are put back to the cache by {@code close}.
+     *
+     * @param       in          input stream from which XZ-compressed
+     *                          data is read
+     *
+     * @throws      XZFormatException
+     *                          input is not in the XZ format
+     *
+     * @throws      CorruptedInputException
+     *                          XZ header CRC32 doesn't match
+     *
+     * @throws      UnsupportedOptionsException
+     *                          XZ header is valid but specifies options
+     *                          not supported by this implementation
+     *
+     * @throws      EOFException
+     *                          less than 12 bytes of input was available
+     *                          from {@code in}
+     *
+     * @throws      XZIOException
+     *                          the stream has been closed
+     *
+     * @throws      IOException may be thrown by {@code in}
+     *
+     * @since 1.13
+     */
+    public void reset(InputStream in) throws IOException {
+        if (this.in == null)
+            throw new XZIOException("Stream closed");
+
+        reset(in, readStreamHeader(in));
+    }
+
+    void reset(InputStream in, byte[] streamHeader) throws IOException {
+        assert this.in != null;
+
+        this.in = in;
+        keepArrays = true;
+        endReached = false;
+        exception = null;
+        indexHash.reset();
+
+        // If the previous Stream wasn't decompressed completely,
+        // the Check may contain the state of an unfinished Block.
+        // finish() resets it. The LZMA2 decoder is reset when it is
+        // reused for the next Block.
+        if (blockDecoder != null) {
+            check.finish();
+            blockDecoder = null;
+            blockMetrics = null;
+        }
+
+        if (metricsListener != null)
+            streamMetrics = new XZMetrics();
+
+        try {
+            StreamFlags flags = DecoderUtil.decodeStreamHeader(streamHeader);
+            if (flags.checkType != streamHeaderFlags.checkType)
+                check = Check.getInstance(flags.checkType);
+
+            streamHeaderFlags = flags;
+        } catch (IOException e) {
+            exception = e;
+            throw e;
+        }
+    }
+
+    void putArraysToCache() {
+        if (lzma2 != null) {
+            lzma2.putArraysToCache();
+            lzma2 = null;
+        }
+    }
 }
@@ -16,6 +16,7 @@ class UncompressedLZMA2OutputStream extends FinishableOutputStream {
     private final byte[] uncompBuf;
     private int uncompPos = 0;
     private boolean dictResetNeeded = true;
+    private long chunkCount = 0;
 
     private boolean finished = false;
     private IOException exception = null;
@@ -96,6 +97,11 @@ class UncompressedLZMA2OutputStream extends FinishableOutputStream {
         outData.writeShort(len - 1);
         outData.write(buf, off, len);
         dictResetNeeded = false;
+        ++chunkCount;
+    }
+
+    long getChunkCount() {
+        return chunkCount;
     }
 
     private void writeEndMarker() throws IOException {
@@ -0,0 +1,868 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.tukaani.xz.check.Check;
+import org.tukaani.xz.common.DecoderUtil;
+import org.tukaani.xz.common.StreamFlags;
+import org.tukaani.xz.index.IndexHash;
+import org.tukaani.xz.lz.LZDecoder;
+import org.tukaani.xz.lzma.LZMADecoder;
+import org.tukaani.xz.rangecoder.RangeDecoderFromBuffer;
+import org.tukaani.xz.simple.SimpleFilter;
+
+/**
+ * Decompresses the .xz format without blocking on input.
+ * <p>
+ * This is like {@code java.util.zip.Inflater}: the application gives
+ * compressed input with {@link #setInput(ByteBuffer)} and gets
+ * uncompressed output with {@link #decode(ByteBuffer)} whenever it has
+ * data or space. The decoder never waits for more input. It can stop at
+ * any input or output boundary and continue when it gets more input or
+ * output space. This suits event-driven network code where a thread per
+ * connection isn't wanted.
+ * <p>
+ * The input may contain multiple concatenated XZ Streams and
+ * Stream Padding like with {@link XZInputStream}. The caller detects
+ * the end of the data from its own framing or from the end of
+ * the connection. Then {@link #finished()} tells if the input was
+ * complete.
+ * <p>
+ * The input is buffered only when needed: headers and the compressed
+ * data of one LZMA2 chunk (at most 64 KiB) at a time. The Index is
+ * validated as it arrives, so its size doesn't matter. Besides
+ * the LZMA2 dictionary, the decoder keeps at most 64 KiB of
+ * uncompressed data waiting for output space.
+ * <p>
+ * Example:
+ * <blockquote><pre>
+ * XZDecoder decoder = new XZDecoder();
+ * ByteBuffer out = ByteBuffer.allocate(8192);
+ *
+ * // Call this whenever compressed data arrives.
+ * void onData(ByteBuffer compressed) throws IOException {
+ *     decoder.setInput(compressed);
+ *     while (!decoder.needsInput()) {
+ *         decoder.decode(out);
+ *         out.flip();
+ *         consume(out);
+ *         out.clear();
+ *     }
+ * }
+ *
+ * // Call this at the end of the data.
+ * void onEnd() throws IOException {
+ *     if (!decoder.finished())
+ *         throw new EOFException();
+ *
+ *     decoder.end();
+ * }
+ * </pre></blockquote>
+ *
+ * @see XZEncoder
+ * @since 1.13
+ */
+public class XZDecoder {
+    private static final int BUF_SIZE = 64 << 10;
+    private static final int COMPRESSED_SIZE_MAX = 1 << 16;
+
+    private static final int STREAM_HEADER = 0;
+    private static final int BLOCK_HEADER = 1;
+    private static final int CHUNK_HEADER = 2;
+    private static final int LZMA_INPUT = 3;
+    private static final int LZMA_DATA = 4;
+    private static final int UNCOMPRESSED_DATA = 5;
+    private static final int BLOCK_PADDING = 6;
+    private static final int BLOCK_CHECK = 7;
+    private static final int INDEX = 8;
+    private static final int STREAM_FOOTER = 9;
+    private static final int STREAM_PADDING = 10;
+
+    private final int memoryLimit;
+    private final boolean verifyCheck;
+    private final ArrayCache arrayCache;
+
+    private ByteBuffer input = null;
+    private int state = STREAM_HEADER;
+    private boolean isFirstStream = true;
+    private IOException exception = null;
+    private boolean ended = false;
+
+    /**
+     * A header or other field that is collected from the input before
+     * it is decoded.
+     */
+    private byte[] temp = new byte[DecoderUtil.STREAM_HEADER_SIZE];
+    private int tempSize = 0;
+
+    private StreamFlags streamHeaderFlags;
+    private Check check;
+    private final IndexHash indexHash = new IndexHash();
+
+    private BlockHeader blockHeader;
+    private long compressedSize;
+    private long uncompressedSize;
+
+    /**
+     * The filters before LZMA2 in decoding order.
+     */
+    private Filter[] filters;
+
+    /**
+     * {@code filterPos[i]} is the end of the data that has passed
+     * {@code filters[i]}.
+     */
+    private int[] filterPos;
+
+    private LZDecoder lz = null;
+    private int dictSize = -1;
+    private RangeDecoderFromBuffer rc = null;
+    private LZMADecoder lzma = null;
+    private int lzmaProps = -1;
+    private boolean needDictReset;
+    private boolean needProps;
+    private int chunkUncompressedSize;
+    private int chunkCompressedSize;
+
+    /**
+     * Uncompressed data: {@code buf[outPos, filteredEnd)} is ready to be
+     * returned and {@code buf[filteredEnd, end)} hasn't passed all
+     * filters yet.
+     */
+    private final byte[] buf = new byte[BUF_SIZE];
+    private int outPos = 0;
+    private int filteredEnd = 0;
+    private int end = 0;
+
+    /**
+     * Listener set with {@code setMetricsListener} or {@code null}.
+     * The metrics objects are {@code null} when nothing is being
+     * measured.
+     */
+    private XZMetrics.Listener metricsListener = null;
+    private XZMetrics streamMetrics = null;
+    private XZMetrics blockMetrics = null;
+
+    /**
+     * Creates a new decoder with no memory usage limit. This is the same
+     * as {@code XZDecoder(-1, true, ArrayCache.getDefaultCache())}.
+     */
+    public XZDecoder() {
+        this(-1, true, ArrayCache.getDefaultCache());
+    }
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param       memoryLimit memory usage limit in kibibytes (KiB)
+     *                          for each Block, or {@code -1} to impose
+     *                          no memory usage limit
+     *
+     * @param       verifyCheck if {@code true}, the integrity checks
+     *                          will be verified; this should almost never
+     *                          be set to {@code false}
+     *
+     * @param       arrayCache  cache to be used for allocating large arrays
+     */
+    public XZDecoder(int memoryLimit, boolean verifyCheck,
+                     ArrayCache arrayCache) {
+        this.memoryLimit = memoryLimit;
+        this.verifyCheck = verifyCheck;
+        this.arrayCache = arrayCache;
+    }
+
+    /**
+     * Sets a listener that gets the {@link XZMetrics} of each XZ Block
+     * and of each concatenated XZ Stream. Use {@code null} to stop
+     * collecting the metrics. The totals of the current Stream are
+     * collected from the time the listener is set. If this is called
+     * in the middle of a Block, that Block isn't reported. The I/O
+     * time is always zero because the decoder doesn't do I/O.
+     *
+     * @param       listener    listener to use or {@code null}
+     */
+    public void setMetricsListener(XZMetrics.Listener listener) {
+        XZMetrics.listenerChanged(metricsListener, listener);
+        metricsListener = listener;
+        streamMetrics = listener == null ? null : new XZMetrics();
+        blockMetrics = null;
+    }
+
+    /**
+     * Sets the compressed input. The decoder reads from the position of
+     * {@code input} and advances it as the data is used. The buffer must
+     * not be modified until it has been used up or replaced with another
+     * call to this method. Bytes left in the previous buffer are
+     * ignored, so this should be called when {@link #needsInput()}
+     * returns true.
+     */
+    public void setInput(ByteBuffer input) {
+        this.input = input;
+    }
+
+    /**
+     * Returns true if {@link #decode(ByteBuffer)} cannot do anything
+     * before more input is given with {@link #setInput(ByteBuffer)}.
+     * This is false as long as there is input left or uncompressed data
+     * waiting for output space.
+     */
+    public boolean needsInput() {
+        return (input == null || !input.hasRemaining())
+               && outPos == filteredEnd && state != LZMA_DATA;
+    }
+
+    /**
+     * Returns true if the input so far has been a complete .xz file and
+     * all uncompressed data has been returned. More input could still
+     * start another concatenated XZ Stream.
+     */
+    public boolean finished() {
+        return state == STREAM_PADDING && tempSize == 0
+               && outPos == filteredEnd;
+    }
+
+    /**
+     * Decompresses into {@code out}. As much input is used and as much
+     * output is produced as possible. The position of {@code out} is
+     * advanced by the number of bytes written.
+     *
+     * @return      number of bytes written to {@code out}
+     *
+     * @throws      XZFormatException
+     *                          input is not in the XZ format
+     *
+     * @throws      CorruptedInputException
+     *                          input is corrupt
+     *
+     * @throws      UnsupportedOptionsException
+     *                          input uses unsupported options
+     *
+     * @throws      MemoryLimitException
+     *                          memory usage limit was exceeded
+     *
+     * @throws      XZIOException
+     *                          {@code end()} has been called
+     */
+    public int decode(ByteBuffer out) throws IOException {
+        if (ended)
+            throw new XZIOException("Decoder has been ended");
+
+        if (exception != null)
+            throw exception;
+
+        int written = 0;
+
+        try {
+            while (true) {
+                int copySize = Math.min(out.remaining(), filteredEnd - outPos);
+                out.put(buf, outPos, copySize);
+                outPos += copySize;
+                written += copySize;
+
+                int oldState = state;
+                int oldTempSize = tempSize;
+                int oldInputPos = input == null ? 0 : input.position();
+                int oldEnd = end;
+
+                step();
+
+                if (state == oldState && tempSize == oldTempSize
+                        && end == oldEnd && (input == null
+                            || input.position() == oldInputPos)) {
+                    // No progress is possible until there is more input
+                    // or output space. Copy what the step made ready.
+                    copySize = Math.min(out.remaining(),
+                                        filteredEnd - outPos);
+                    out.put(buf, outPos, copySize);
+                    outPos += copySize;
+                    written += copySize;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            exception = e;
+            throw e;
+        }
+
+        return written;
+    }
+
+    /**
+     * Resets the decoder to decompress a new .xz file. The arrays are
+     * kept so that decompressing many small files is faster.
+     */
+    public void reset() {
+        input = null;
+        state = STREAM_HEADER;
+        isFirstStream = true;
+        exception = null;
+
+        // The Check may hold the state of a Block that wasn't finished.
+        check = null;
+
+        if (metricsListener != null)
+            streamMetrics = new XZMetrics();
+
+        blockMetrics = null;
+
+        tempSize = 0;
+        outPos = 0;
+        filteredEnd = 0;
+        end = 0;
+    }
+
+    /**
+     * Puts the arrays back to the {@code ArrayCache}. The decoder cannot
+     * be used after this.
+     */
+    public void end() {
+        if (lz != null) {
+            lz.putArraysToCache(arrayCache);
+            lz = null;
+        }
+
+        if (rc != null) {
+            rc.putArraysToCache(arrayCache);
+            rc = null;
+        }
+
+        input = null;
+        ended = true;
+        setMetricsListener(null);
+    }
+
+    /**
+     * Collects {@code size} bytes into {@code temp}.
+     *
+     * @return      true if at least {@code size} bytes are available
+     */
+    private boolean fill(int size) {
+        if (temp.length < size)
+            temp = Arrays.copyOf(temp, size);
+
+        if (input != null && tempSize < size) {
+            int n = Math.min(size - tempSize, input.remaining());
+            input.get(temp, tempSize, n);
+            tempSize += n;
+        }
+
+        return tempSize >= size;
+    }
+
+    /**
+     * Makes room at the end of {@code buf} if possible.
+     *
+     * @return      number of bytes that can be decoded into {@code buf}
+     */
+    private int getSpace() {
+        if (end == buf.length && outPos > 0) {
+            System.arraycopy(buf, outPos, buf, 0, end - outPos);
+            for (int i = 0; i < filterPos.length; ++i)
+                filterPos[i] -= outPos;
+
+            filteredEnd -= outPos;
+            end -= outPos;
+            outPos = 0;
+        }
+
+        return buf.length - end;
+    }
+
+    /**
+     * Does the next thing that is possible with the available input and
+     * output space.
+     */
+    private void step() throws IOException {
+        switch (state) {
+            case STREAM_HEADER:
+                if (fill(DecoderUtil.STREAM_HEADER_SIZE))
+                    decodeStreamHeader();
+
+                break;
+
+            case BLOCK_HEADER:
+                if (!fill(1))
+                    break;
+
+                if (temp[0] == 0x00) {
+                    tempSize = 0;
+                    state = INDEX;
+                } else if (fill(4 * ((temp[0] & 0xFF) + 1))) {
+                    decodeBlockHeader();
+                }
+
+                break;
+
+            case CHUNK_HEADER:
+                decodeChunkHeader();
+                break;
+
+            case LZMA_INPUT:
+                if (fill(chunkCompressedSize)) {
+                    rc.prepareInputBuffer(temp, 0, chunkCompressedSize);
+                    addCompressedSize(chunkCompressedSize);
+                    tempSize = 0;
+                    state = LZMA_DATA;
+                }
+
+                break;
+
+            case LZMA_DATA:
+            case UNCOMPRESSED_DATA:
+                if (blockMetrics == null) {
+                    decodeData();
+                } else {
+                    long checkNanos = blockMetrics.checkNanos;
+                    long start = System.nanoTime();
+                    decodeData();
+                    blockMetrics.codingNanos += System.nanoTime() - start
+                            - (blockMetrics.checkNanos - checkNanos);
+                }
+
+                break;
+
+            case BLOCK_PADDING:
+                if (fill((int)(-compressedSize & 3))) {
+                    for (int i = 0; i < tempSize; ++i)
+                        if (temp[i] != 0x00)
+                            throw new CorruptedInputException();
+
+                    tempSize = 0;
+                    state = BLOCK_CHECK;
+                }
+
+                break;
+
+            case BLOCK_CHECK:
+                if (fill(check.getSize()))
+                    validateCheck();
+
+                break;
+
+            case INDEX:
+                decodeIndex();
+                break;
+
+            case STREAM_FOOTER:
+                if (fill(DecoderUtil.STREAM_HEADER_SIZE))
+                    decodeStreamFooter();
+
+                break;
+
+            case STREAM_PADDING:
+                // Stream Padding is a multiple of four zero bytes.
+                // Other bytes start the next Stream.
+                if (fill(4)) {
+                    if (temp[0] == 0 && temp[1] == 0 && temp[2] == 0
+                            && temp[3] == 0)
+                        tempSize = 0;
+                    else
+                        state = STREAM_HEADER;
+                }
+
+                break;
+
+            default:
+                throw new Error();
+        }
+    }
+
+    private void decodeStreamHeader() throws IOException {
+        StreamFlags flags;
+        try {
+            flags = DecoderUtil.decodeStreamHeader(temp);
+        } catch (XZFormatException e) {
+            if (isFirstStream)
+                throw e;
+
+            // Since this isn't the first .xz Stream, it is more
+            // logical to tell that the data is corrupt.
+            throw new CorruptedInputException(
+                    "Garbage after a valid XZ Stream");
+        }
+
+        if (check == null || flags.checkType != streamHeaderFlags.checkType)
+            check = Check.getInstance(flags.checkType);
+
+        streamHeaderFlags = flags;
+        indexHash.reset();
+
+        if (metricsListener != null && streamMetrics == null)
+            streamMetrics = new XZMetrics();
+
+        isFirstStream = false;
+        tempSize = 0;
+        state = BLOCK_HEADER;
+    }
+
+    private void decodeBlockHeader() throws IOException {
+        blockHeader = new BlockHeader(Arrays.copyOf(temp, tempSize),
+                                      check.getSize());
+        blockHeader.checkMemoryUsage(memoryLimit);
+
+        FilterDecoder[] decoders = blockHeader.filters;
+        int last = decoders.length - 1;
+
+        // LZMA2 is always the last filter. The dictionary buffer is
+        // reused if the size is the same.
+        int newDictSize = LZMA2InputStream.getDictSize(
+                ((LZMA2Decoder)decoders[last]).getDictSize());
+        if (lz == null || newDictSize != dictSize) {
+            if (lz != null)
+                lz.putArraysToCache(arrayCache);
+
+            lz = null;
+            lzma = null;
+            lzmaProps = -1;
+
+            try {
+                lz = new LZDecoder(newDictSize, null, arrayCache);
+            } catch (UncheckedIOException e) {
+                throw MemoryBudget.unwrap(e);
+            }
+
+            dictSize = newDictSize;
+        }
+
+        if (rc == null) {
+            try {
+                rc = new RangeDecoderFromBuffer(COMPRESSED_SIZE_MAX,
+                                                arrayCache);
+            } catch (UncheckedIOException e) {
+                throw MemoryBudget.unwrap(e);
+            }
+        }
+
+        needDictReset = true;
+        needProps = true;
+
+        filters = new Filter[last];
+        filterPos = new int[last];
+        for (int i = 0; i < last; ++i) {
+            filters[i] = createFilter(decoders[last - 1 - i]);
+            filterPos[i] = end;
+        }
+
+        compressedSize = 0;
+        uncompressedSize = 0;
+        tempSize = 0;
+        state = CHUNK_HEADER;
+
+        if (metricsListener != null)
+            blockMetrics = new XZMetrics();
+    }
+
+    private void decodeChunkHeader() throws IOException {
+        if (!fill(1))
+            return;
+
+        int control = temp[0] & 0xFF;
+
+        if (control == 0x00) {
+            addCompressedSize(1);
+            endBlockData();
+            tempSize = 0;
+            state = BLOCK_PADDING;
+            return;
+        }
+
+        if (control >= 0x80) {
+            if (!fill(control >= 0xC0 ? 6 : 5))
+                return;
+        } else if (control <= 0x02) {
+            if (!fill(3))
+                return;
+        } else {
+            throw new CorruptedInputException();
+        }
+
+        addCompressedSize(tempSize);
+        tempSize = 0;
+
+        if (control >= 0xE0 || control == 0x01) {
+            needProps = true;
+            needDictReset = false;
+            lz.reset();
+        } else if (needDictReset) {
+            throw new CorruptedInputException();
+        }
+
+        if (control >= 0x80) {
+            chunkUncompressedSize = ((control & 0x1F) << 16)
+                    + ((temp[1] & 0xFF) << 8) + (temp[2] & 0xFF) + 1;
+            chunkCompressedSize
+                    = ((temp[3] & 0xFF) << 8) + (temp[4] & 0xFF) + 1;
+
+            if (control >= 0xC0) {
+                needProps = false;
+                decodeProps(temp[5] & 0xFF);
+            } else if (needProps) {
+                throw new CorruptedInputException();
+            } else if (control >= 0xA0) {
+                lzma.reset();
+            }
+
+            state = LZMA_INPUT;
+
+            if (blockMetrics != null)
+                ++blockMetrics.lzmaChunkCount;
+        } else {
+            chunkUncompressedSize
+                    = ((temp[1] & 0xFF) << 8) + (temp[2] & 0xFF) + 1;
+            state = UNCOMPRESSED_DATA;
+
+            if (blockMetrics != null)
+                ++blockMetrics.uncompressedChunkCount;
+        }
+    }
+
+    private void decodeProps(int props) throws IOException {
+        // Reuse the old decoder if the properties didn't change.
+        // The probabilities need to be reset in any case.
+        if (props == lzmaProps) {
+            lzma.reset();
+            return;
+        }
+
+        if (props > (4 * 5 + 4) * 9 + 8)
+            throw new CorruptedInputException();
+
+        int pb = props / (9 * 5);
+        props -= pb * 9 * 5;
+        int lp = props / 9;
+        int lc = props - lp * 9;
+
+        if (lc + lp > 4)
+            throw new CorruptedInputException();
+
+        lzma = new LZMADecoder(lz, rc, lc, lp, pb);
+        lzmaProps = (pb * 5 + lp) * 9 + lc;
+    }
+
+    private void decodeData() throws IOException {
+        if (state == LZMA_DATA)
+            decodeLZMA();
+        else
+            copyUncompressed();
+    }
+
+    private void decodeLZMA() throws IOException {
+        int copySizeMax = Math.min(chunkUncompressedSize, getSpace());
+        if (copySizeMax == 0)
+            return;
+
+        lz.setLimit(copySizeMax);
+        lzma.decode();
+
+        int copiedSize = lz.flush(buf, end);
+        end += copiedSize;
+        chunkUncompressedSize -= copiedSize;
+
+        if (chunkUncompressedSize == 0) {
+            if (!rc.isFinished() || lz.hasPending())
+                throw new CorruptedInputException();
+
+            state = CHUNK_HEADER;
+        }
+
+        runFilters(false);
+    }
+
+    private void copyUncompressed() throws IOException {
+        int len = Math.min(chunkUncompressedSize, getSpace());
+        if (input != null)
+            len = Math.min(len, input.remaining());
+        else
+            len = 0;
+
+        if (len == 0)
+            return;
+
+        // The data goes through temp because the dictionary buffer
+        // isn't accessible and the input might not have an array.
+        if (temp.length < len)
+            temp = Arrays.copyOf(temp, len);
+
+        input.get(temp, 0, len);
+        addCompressedSize(len);
+
+        int off = 0;
+        while (off < len) {
+            off += lz.copyUncompressed(temp, off, len - off);
+            end += lz.flush(buf, end);
+        }
+
+        chunkUncompressedSize -= len;
+        if (chunkUncompressedSize == 0)
+            state = CHUNK_HEADER;
+
+        runFilters(false);
+    }
+
+    /**
+     * Passes the new data through the filters before LZMA2 and updates
+     * the integrity check. At the end of the Block, the bytes held back
+     * by the filters are passed through unfiltered.
+     */
+    private void runFilters(boolean endOfBlock) throws IOException {
+        int prev = end;
+        for (int i = 0; i < filters.length; ++i) {
+            int len = prev - filterPos[i];
+            if (len > 0)
+                filterPos[i] += filters[i].code(buf, filterPos[i], len);
+
+            if (endOfBlock)
+                filterPos[i] = prev;
+
+            prev = filterPos[i];
+        }
+
+        if (prev > filteredEnd) {
+            if (verifyCheck) {
+                if (blockMetrics == null) {
+                    check.update(buf, filteredEnd, prev - filteredEnd);
+                } else {
+                    long start = System.nanoTime();
+                    check.update(buf, filteredEnd, prev - filteredEnd);
+                    blockMetrics.checkNanos += System.nanoTime() - start;
+                }
+            }
+
+            uncompressedSize += prev - filteredEnd;
+            filteredEnd = prev;
+
+            if (blockHeader.uncompressedSizeInHeader != -1
+                    && uncompressedSize
+                        > blockHeader.uncompressedSizeInHeader)
+                throw new CorruptedInputException();
+        }
+    }
+
+    private void addCompressedSize(int size) throws IOException {
+        compressedSize += size;
+        if (compressedSize > blockHeader.compressedSizeLimit)
+            throw new CorruptedInputException();
+    }
+
+    private void endBlockData() throws IOException {
+        runFilters(true);
+
+        // Validate Compressed Size and Uncompressed Size if they were
+        // present in Block Header.
+        if ((blockHeader.compressedSizeInHeader != -1
+                    && blockHeader.compressedSizeInHeader != compressedSize)
+                || (blockHeader.uncompressedSizeInHeader != -1
+                    && blockHeader.uncompressedSizeInHeader
+                        != uncompressedSize))
+            throw new CorruptedInputException();
+    }
+
+    private void validateCheck() throws IOException {
+        if (verifyCheck && !Arrays.equals(check.finish(),
+                                          Arrays.copyOf(temp, tempSize)))
+            throw new CorruptedInputException("Integrity check ("
+                    + check.getName() + ") does not match");
+
+        long unpaddedSize = blockHeader.headerSize + compressedSize
+                            + check.getSize();
+        indexHash.add(unpaddedSize, uncompressedSize);
+        tempSize = 0;
+        state = BLOCK_HEADER;
+        blockFinished(unpaddedSize);
+    }
+
+    /**
+     * Gives the counters of the finished Block to the listener.
+     */
+    private void blockFinished(long unpaddedSize) {
+        XZMetrics block = blockMetrics;
+        blockMetrics = null;
+
+        if (block != null && metricsListener != null) {
+            block.blockCount = 1;
+            block.uncompressedSize = uncompressedSize;
+            block.compressedSize = (unpaddedSize + 3) & ~3;
+            block.stop();
+            streamMetrics.add(block);
+            metricsListener.blockFinished(block);
+        }
+    }
+
+    /**
+     * Gives the totals of the finished Stream to the listener.
+     */
+    private void streamFinished() {
+        if (metricsListener != null) {
+            XZMetrics stream = streamMetrics;
+            streamMetrics = null;
+
+            stream.uncompressedSize = indexHash.getUncompressedSize();
+            stream.compressedSize = indexHash.getStreamSize();
+            stream.stop();
+            metricsListener.streamFinished(stream);
+        }
+    }
+
+    private void decodeIndex() throws IOException {
+        // The Index Indicator has been read already. The rest of
+        // the Index is validated as it arrives so that it doesn't need
+        // to be buffered no matter how many Blocks there are.
+        if (input != null && indexHash.validate(input))
+            state = STREAM_FOOTER;
+    }
+
+    private void decodeStreamFooter() throws IOException {
+        StreamFlags streamFooterFlags = DecoderUtil.decodeStreamFooter(temp);
+
+        if (!DecoderUtil.areStreamFlagsEqual(streamHeaderFlags,
+                                             streamFooterFlags)
+                || indexHash.getIndexSize() != streamFooterFlags.backwardSize)
+            throw new CorruptedInputException(
+                    "XZ Stream Footer does not match Stream Header");
+
+        tempSize = 0;
+        state = STREAM_PADDING;
+        streamFinished();
+    }
+
+    private static Filter createFilter(FilterDecoder decoder) {
+        if (decoder instanceof DeltaDecoder) {
+            final org.tukaani.xz.delta.DeltaDecoder delta
+                    = new org.tukaani.xz.delta.DeltaDecoder(
+                            ((DeltaDecoder)decoder).getDistance());
+            return new Filter() {
+                @Override
+                int code(byte[] buf, int off, int len) {
+                    delta.decode(buf, off, len);
+                    return len;
+                }
+            };
+        }
+
+        final SimpleFilter simpleFilter
+                = ((BCJDecoder)decoder).getSimpleFilter();
+        return new Filter() {
+            @Override
+            int code(byte[] buf, int off, int len) {
+                return simpleFilter.code(buf, off, len);
+            }
+        };
+    }
+
+    /**
+     * A filter that converts data in place. It may leave some bytes at
+     * the end unconverted until more data is available.
+     */
+    private abstract static class Filter {
+        /**
+         * @return      number of bytes converted
+         */
+        abstract int code(byte[] buf, int off, int len);
+    }
+}
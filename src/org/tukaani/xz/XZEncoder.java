@@ -0,0 +1,276 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compresses into the .xz format without blocking on output.
+ * <p>
+ * This is like {@code java.util.zip.Deflater}: the application gives
+ * uncompressed input with {@link #setInput(ByteBuffer)} and gets
+ * compressed output with {@link #encode(ByteBuffer)} whenever it has
+ * output space. The end of the input is marked with {@link #finish()}.
+ * The encoder can stop at any input or output boundary.
+ * <p>
+ * The compressed data is produced by {@link XZOutputStream}, so
+ * the output is identical to what {@code XZOutputStream} would produce
+ * with the same options and flushes. Compressed data that doesn't fit
+ * into the output buffer is kept until the next call to
+ * {@code encode}. The encoder takes at most 64 KiB of input at a time
+ * so that the amount of such data stays small.
+ * <p>
+ * Example:
+ * <blockquote><pre>
+ * XZEncoder encoder = new XZEncoder(new LZMA2Options(), XZ.CHECK_CRC64);
+ * ByteBuffer out = ByteBuffer.allocate(8192);
+ *
+ * encoder.setInput(data);
+ * encoder.finish();
+ * while (!encoder.finished()) {
+ *     encoder.encode(out);
+ *     out.flip();
+ *     send(out);
+ *     out.clear();
+ * }
+ *
+ * encoder.end();
+ * </pre></blockquote>
+ *
+ * @see XZDecoder
+ * @since 1.13
+ */
+public class XZEncoder {
+    private static final int INPUT_SIZE_MAX = 64 << 10;
+
+    private final PendingOutput pending = new PendingOutput();
+    private final XZOutputStream xz;
+
+    private ByteBuffer input = null;
+    private byte[] inBuf = null;
+    private boolean flushRequested = false;
+    private boolean finishRequested = false;
+    private boolean xzFinished = false;
+    private IOException exception = null;
+
+    /**
+     * Creates a new encoder with one filter. This is the same as
+     * {@code XZEncoder(new FilterOptions[] { filterOptions }, checkType,
+     * ArrayCache.getDefaultCache())}.
+     */
+    public XZEncoder(FilterOptions filterOptions, int checkType)
+            throws IOException {
+        this(new FilterOptions[] { filterOptions }, checkType,
+             ArrayCache.getDefaultCache());
+    }
+
+    /**
+     * Creates a new encoder.
+     *
+     * @param       filterOptions
+     *                          array of filter options to use
+     *
+     * @param       checkType   type of the integrity check,
+     *                          for example XZ.CHECK_CRC32
+     *
+     * @param       arrayCache  cache to be used for allocating large arrays
+     *
+     * @throws      UnsupportedOptionsException
+     *                          invalid filter chain
+     */
+    public XZEncoder(FilterOptions[] filterOptions, int checkType,
+                     ArrayCache arrayCache) throws IOException {
+        xz = new XZOutputStream(pending, filterOptions, checkType,
+                                arrayCache);
+    }
+
+    /**
+     * Sets a listener that gets the {@link XZMetrics} of each XZ Block
+     * and of the XZ Stream. See
+     * {@link XZOutputStream#setMetricsListener(XZMetrics.Listener)}.
+     *
+     * @param       listener    listener to use or {@code null}
+     */
+    public void setMetricsListener(XZMetrics.Listener listener) {
+        xz.setMetricsListener(listener);
+    }
+
+    /**
+     * Sets the uncompressed input. The encoder reads from the position
+     * of {@code input} and advances it as the data is used. The buffer
+     * must not be modified until it has been used up or replaced with
+     * another call to this method. Bytes left in the previous buffer
+     * are ignored, so this should be called when {@link #needsInput()}
+     * returns true.
+     */
+    public void setInput(ByteBuffer input) {
+        this.input = input;
+    }
+
+    /**
+     * Requests a flush like {@link XZOutputStream#flush()}. After
+     * the next calls to {@link #encode(ByteBuffer)} have used all input
+     * and {@link #needsInput()} returns true, the output so far can be
+     * decompressed completely. Flushing often makes the compression
+     * worse.
+     */
+    public void flush() {
+        flushRequested = true;
+    }
+
+    /**
+     * Marks the end of the input. No input may be given after this.
+     * {@link #encode(ByteBuffer)} needs to be called until
+     * {@link #finished()} returns true.
+     */
+    public void finish() {
+        finishRequested = true;
+    }
+
+    /**
+     * Returns true if {@link #encode(ByteBuffer)} cannot do anything
+     * before more input is given or {@link #flush()} or
+     * {@link #finish()} is called.
+     */
+    public boolean needsInput() {
+        return (input == null || !input.hasRemaining())
+               && pending.size == 0 && !flushRequested
+               && !finishRequested;
+    }
+
+    /**
+     * Returns true if {@link #finish()} has been called and all
+     * compressed data has been returned.
+     */
+    public boolean finished() {
+        return xzFinished && pending.size == 0;
+    }
+
+    /**
+     * Compresses into {@code out}. As much input is used and as much
+     * output is produced as possible. The position of {@code out} is
+     * advanced by the number of bytes written.
+     *
+     * @return      number of bytes written to {@code out}
+     *
+     * @throws      XZIOException
+     *                          {@code end()} has been called
+     */
+    public int encode(ByteBuffer out) throws IOException {
+        if (exception != null)
+            throw exception;
+
+        int written = pending.drain(out);
+
+        try {
+            while (out.hasRemaining() && pending.size == 0) {
+                if (input != null && input.hasRemaining()) {
+                    if (finishRequested && xzFinished)
+                        throw new XZIOException("Stream finished");
+
+                    writeInput();
+                } else if (finishRequested) {
+                    if (xzFinished)
+                        break;
+
+                    xz.finish();
+                    xzFinished = true;
+                    flushRequested = false;
+                } else if (flushRequested) {
+                    xz.flush();
+                    flushRequested = false;
+                } else {
+                    break;
+                }
+
+                written += pending.drain(out);
+            }
+        } catch (IOException e) {
+            exception = e;
+            throw e;
+        }
+
+        return written;
+    }
+
+    /**
+     * Puts the arrays back to the {@code ArrayCache}. The encoder cannot
+     * be used after this. Calling this before {@link #finished()} returns
+     * true discards the rest of the compressed data.
+     */
+    public void end() {
+        if (exception == null)
+            exception = new XZIOException("Encoder has been ended");
+
+        input = null;
+        inBuf = null;
+
+        try {
+            xz.close();
+        } catch (IOException e) {
+            // The output goes to memory and it is being discarded.
+        }
+    }
+
+    private void writeInput() throws IOException {
+        int len = Math.min(input.remaining(), INPUT_SIZE_MAX);
+
+        if (input.hasArray()) {
+            int pos = input.position();
+            xz.write(input.array(), input.arrayOffset() + pos, len);
+            input.position(pos + len);
+        } else {
+            if (inBuf == null)
+                inBuf = new byte[INPUT_SIZE_MAX];
+
+            input.get(inBuf, 0, len);
+            xz.write(inBuf, 0, len);
+        }
+    }
+
+    /**
+     * Compressed data that hasn't been returned yet.
+     */
+    private static class PendingOutput extends OutputStream {
+        private byte[] buf = new byte[4096];
+        private int pos = 0;
+        int size = 0;
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte)b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (pos + size + len > buf.length) {
+                System.arraycopy(buf, pos, buf, 0, size);
+                pos = 0;
+
+                if (size + len > buf.length)
+                    buf = Arrays.copyOf(buf, Math.max(size + len,
+                                                      buf.length * 2));
+            }
+
+            System.arraycopy(b, off, buf, pos + size, len);
+            size += len;
+        }
+
+        int drain(ByteBuffer out) {
+            int n = Math.min(size, out.remaining());
+            out.put(buf, pos, n);
+            pos += n;
+            size -= n;
+
+            if (size == 0)
+                pos = 0;
+
+            return n;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import org.tukaani.xz.common.DecoderUtil;
+import org.tukaani.xz.common.StreamFlags;
+import org.tukaani.xz.index.IndexDecoder;
+
+/**
+ * Appends data to an existing .xz file without recompressing
+ * the old data.
+ * <p>
+ * There are two ways to append:
+ * <ul>
+ *   <li>{@link #appendStream(RandomAccessFile, FilterOptions[], int)}
+ *       writes a new XZ Stream after the existing data. The old data
+ *       isn't modified at all, so the file stays valid if appending is
+ *       interrupted. Every call adds about 60 bytes of Stream headers and
+ *       the file becomes a concatenation of Streams. All XZ decompressors
+ *       support concatenated Streams.</li>
+ *   <li>{@link #appendBlocks(RandomAccessFile, FilterOptions[])} removes
+ *       the Index and Stream Footer of the last Stream and continues
+ *       the Stream with new Blocks. When the returned stream is finished,
+ *       a new Index containing both the old and the new Blocks is
+ *       written. The file stays a single Stream, but it is invalid until
+ *       {@code finish()} or {@code close()} has been called
+ *       successfully.</li>
+ * </ul>
+ * <p>
+ * In both cases only the end of the file is read, so the cost depends
+ * on the amount of new data and the number of existing Blocks in the last
+ * Stream, not on the size of the file. The result can be read with
+ * {@link SeekableXZInputStream} too. To append data that can be accessed
+ * randomly, use {@link XZOutputStream#setBlockSize(long)} on the returned
+ * stream.
+ * <p>
+ * Closing the returned {@code XZOutputStream} closes the
+ * {@code RandomAccessFile}.
+ * <p>
+ * Example:
+ * <blockquote><pre>
+ * RandomAccessFile file = new RandomAccessFile("log.xz", "rw");
+ * XZOutputStream out = XZFileAppender.appendBlocks(
+ *         file, new FilterOptions[] { new LZMA2Options() });
+ * out.write(newLogLines);
+ * out.close();
+ * </pre></blockquote>
+ *
+ * @since 1.13
+ */
+public class XZFileAppender {
+    private XZFileAppender() {}
+
+    /**
+     * Appends a new XZ Stream to the end of {@code file}. This is
+     * the same as
+     * {@code appendStream(file, filterOptions, checkType,
+     * ArrayCache.getDefaultCache())}.
+     */
+    public static XZOutputStream appendStream(RandomAccessFile file,
+                                              FilterOptions[] filterOptions,
+                                              int checkType)
+            throws IOException {
+        return appendStream(file, filterOptions, checkType,
+                            ArrayCache.getDefaultCache());
+    }
+
+    /**
+     * Appends a new XZ Stream to the end of {@code file}.
+     * <p>
+     * If {@code file} isn't empty, the headers of the last Stream are
+     * checked first so that data won't be appended to something that
+     * isn't an .xz file.
+     *
+     * @param       file        .xz file opened in a writable mode,
+     *                          or an empty file
+     *
+     * @param       filterOptions
+     *                          filter chain for the new Stream
+     *
+     * @param       checkType   type of the integrity check for the new
+     *                          Stream
+     *
+     * @param       arrayCache  cache to be used for allocating large arrays
+     *
+     * @return      a compressor for the new Stream
+     *
+     * @throws      XZFormatException
+     *                          {@code file} is not in the XZ format
+     *
+     * @throws      CorruptedInputException
+     *                          the end of the .xz file is corrupt
+     *
+     * @throws      UnsupportedOptionsException
+     *                          invalid filter chain or unsupported
+     *                          integrity check type
+     *
+     * @throws      IOException may be thrown by {@code file}
+     */
+    public static XZOutputStream appendStream(RandomAccessFile file,
+                                              FilterOptions[] filterOptions,
+                                              int checkType,
+                                              ArrayCache arrayCache)
+            throws IOException {
+        long end = file.length();
+        if (end > 0)
+            decodeLastStream(file);
+
+        file.seek(end);
+        return new XZOutputStream(getOutputStream(file), filterOptions,
+                                  checkType, arrayCache);
+    }
+
+    /**
+     * Appends new Blocks to the last XZ Stream in {@code file}. This is
+     * the same as
+     * {@code appendBlocks(file, filterOptions,
+     * ArrayCache.getDefaultCache())}.
+     */
+    public static XZOutputStream appendBlocks(RandomAccessFile file,
+                                              FilterOptions[] filterOptions)
+            throws IOException {
+        return appendBlocks(file, filterOptions,
+                            ArrayCache.getDefaultCache());
+    }
+
+    /**
+     * Appends new Blocks to the last XZ Stream in {@code file}.
+     * <p>
+     * The new Blocks use the integrity check type of the existing Stream.
+     * The filter chain may differ from the one used for the old Blocks.
+     * Stream Padding after the last Stream is removed. If {@code file}
+     * is empty, a new Stream using CRC64 is started.
+     * <p>
+     * The Index and Stream Footer of the last Stream are removed before
+     * this returns, so the file is invalid until the returned stream
+     * has been finished. If the application fails before that, the file
+     * can be repaired only by recompressing the data.
+     *
+     * @param       file        .xz file opened in a writable mode,
+     *                          or an empty file
+     *
+     * @param       filterOptions
+     *                          filter chain for the new Blocks
+     *
+     * @param       arrayCache  cache to be used for allocating large arrays
+     *
+     * @return      a compressor that continues the last Stream
+     *
+     * @throws      XZFormatException
+     *                          {@code file} is not in the XZ format
+     *
+     * @throws      CorruptedInputException
+     *                          the end of the .xz file is corrupt
+     *
+     * @throws      UnsupportedOptionsException
+     *                          invalid filter chain or the Stream uses
+     *                          an unsupported integrity check type
+     *
+     * @throws      IOException may be thrown by {@code file}
+     */
+    public static XZOutputStream appendBlocks(RandomAccessFile file,
+                                              FilterOptions[] filterOptions,
+                                              ArrayCache arrayCache)
+            throws IOException {
+        if (file.length() == 0) {
+            file.seek(0);
+            return new XZOutputStream(getOutputStream(file), filterOptions,
+                                      XZ.CHECK_CRC64, arrayCache);
+        }
+
+        IndexDecoder index = decodeLastStream(file);
+        int checkType = index.getStreamFlags().checkType;
+
+        // The constructor validates the filter chain and doesn't write
+        // anything, so the file is modified only if the options are OK.
+        XZOutputStream out = new XZOutputStream(getOutputStream(file),
+                                                filterOptions, checkType,
+                                                arrayCache, index);
+
+        // decodeLastStream leaves the file position at the beginning of
+        // the Index. The new Blocks overwrite the old Index.
+        file.setLength(file.getFilePointer());
+        return out;
+    }
+
+    /**
+     * Decodes the Index of the last Stream in {@code file} and checks
+     * that the Stream Header and Stream Footer match. On return,
+     * the file position is at the beginning of the Index field.
+     */
+    private static IndexDecoder decodeLastStream(RandomAccessFile file)
+            throws IOException {
+        SeekableFileInputStream in = new SeekableFileInputStream(file);
+
+        long pos = in.length();
+        if ((pos & 3) != 0)
+            throw new CorruptedInputException(
+                    "XZ file size is not a multiple of 4 bytes");
+
+        // Skip Stream Padding.
+        byte[] buf = new byte[DecoderUtil.STREAM_HEADER_SIZE];
+        while (true) {
+            if (pos < DecoderUtil.STREAM_HEADER_SIZE * 2)
+                throw new XZFormatException();
+
+            in.seek(pos - DecoderUtil.STREAM_HEADER_SIZE);
+            file.readFully(buf);
+
+            if (buf[8] != 0x00 || buf[9] != 0x00 || buf[10] != 0x00
+                    || buf[11] != 0x00)
+                break;
+
+            pos -= 4;
+        }
+
+        pos -= DecoderUtil.STREAM_HEADER_SIZE;
+        StreamFlags streamFooter = DecoderUtil.decodeStreamFooter(buf);
+        if (streamFooter.backwardSize >= pos)
+            throw new CorruptedInputException(
+                    "Backward Size in XZ Stream Footer is too big");
+
+        long indexPos = pos - streamFooter.backwardSize;
+        in.seek(indexPos);
+        IndexDecoder index = new IndexDecoder(in, streamFooter, 0, -1);
+
+        long off = index.getStreamSize() - DecoderUtil.STREAM_HEADER_SIZE;
+        if (pos < off)
+            throw new CorruptedInputException("XZ Index indicates "
+                    + "too big compressed size for the XZ Stream");
+
+        in.seek(pos - off);
+        file.readFully(buf);
+        StreamFlags streamHeader = DecoderUtil.decodeStreamHeader(buf);
+        if (!DecoderUtil.areStreamFlagsEqual(streamHeader, streamFooter))
+            throw new CorruptedInputException(
+                    "XZ Stream Footer does not match Stream Header");
+
+        in.seek(indexPos);
+        return index;
+    }
+
+    /**
+     * Returns an unbuffered stream that writes to {@code file}.
+     * XZOutputStream writes the data of each LZMA2 chunk in one piece,
+     * so a buffer would only help with the small header fields and
+     * the Index. {@code XZOutputStream.finish()} doesn't flush, so with
+     * a buffer the end of the file wouldn't be written by
+     * {@code finish()}.
+     */
+    private static OutputStream getOutputStream(final RandomAccessFile file) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                file.write(b);
+            }
+
+            @Override
+            public void write(byte[] buf, int off, int len)
+                    throws IOException {
+                file.write(buf, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                file.close();
+            }
+        };
+    }
+}
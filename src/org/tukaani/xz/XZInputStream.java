@@ -7,6 +7,7 @@ package org.tukaani.xz;
 import java.io.InputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.EOFException;
 import org.tukaani.xz.common.DecoderUtil;
 
@@ -63,6 +64,24 @@ public class XZInputStream extends InputStream {
     private boolean endReached = false;
     private IOException exception = null;
 
+    /**
+     * The decoder of the previous Stream. It is reset and reused for
+     * the next Stream.
+     */
+    private SingleXZInputStream prevXzIn = null;
+
+    /**
+     * If true, the arrays of {@code prevXzIn} aren't returned to the cache
+     * at the end of the input. This is set by {@code reset}.
+     */
+    private boolean keepArrays = false;
+
+    /**
+     * Listener that is given to each {@code SingleXZInputStream},
+     * or {@code null}.
+     */
+    private XZMetrics.Listener metricsListener = null;
+
     private final byte[] tempBuf = new byte[1];
 
     /**
@@ -304,6 +323,27 @@ public class XZInputStream extends InputStream {
                                             arrayCache);
     }
 
+    /**
+     * Sets a listener that gets the {@link XZMetrics} of each XZ Block
+     * and of each concatenated XZ Stream. Use {@code null} to stop
+     * collecting the metrics. The totals of the current Stream are
+     * collected from the time the listener is set. If this is called
+     * in the middle of a Block, that Block isn't reported.
+     *
+     * @param       listener    listener to use or {@code null}
+     *
+     * @since 1.13
+     */
+    public void setMetricsListener(XZMetrics.Listener listener) {
+        metricsListener = listener;
+
+        if (xzIn != null)
+            xzIn.setMetricsListener(listener);
+
+        if (prevXzIn != null)
+            prevXzIn.setMetricsListener(listener);
+    }
+
     /**
      * Decompresses the next byte from this input stream.
      * <p>
@@ -372,6 +412,64 @@ public class XZInputStream extends InputStream {
         if (len == 0)
             return 0;
 
+        return decode(buf, off, null, len);
+    }
+
+    /**
+     * Like {@code read(byte[], int, int)} but writes the data to
+     * {@code out}, directly from the LZMA2 dictionary buffer if possible.
+     */
+    int read(OutputStream out, int len) throws IOException {
+        if (len == 0)
+            return 0;
+
+        return decode(null, 0, out, len);
+    }
+
+    /**
+     * Decompresses the rest of the data and writes it to {@code out}.
+     * If the filter chain has only LZMA2, the data is written directly
+     * from the dictionary buffer of the LZMA2 decoder. This avoids
+     * copying the data through an intermediate buffer.
+     * <p>
+     * {@code out} must not modify the array that is passed to its
+     * {@code write} method.
+     *
+     * @param       out         the output stream to write to
+     *
+     * @return      the number of bytes transferred
+     *
+     * @throws      CorruptedInputException
+     * @throws      UnsupportedOptionsException
+     * @throws      MemoryLimitException
+     *
+     * @throws      XZIOException if the stream has been closed
+     *
+     * @throws      EOFException
+     *                          compressed input is truncated or corrupt
+     *
+     * @throws      IOException may be thrown by {@code in} or {@code out}
+     *
+     * @since 1.13
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        if (out == null)
+            throw new NullPointerException();
+
+        long total = 0;
+        int ret;
+        while ((ret = read(out, Integer.MAX_VALUE)) != -1)
+            total += ret;
+
+        return total;
+    }
+
+    /**
+     * Decompresses into {@code buf} or, if {@code out} isn't null,
+     * into {@code out}.
+     */
+    private int decode(byte[] buf, int off, OutputStream out, int len)
+            throws IOException {
         if (in == null)
             throw new XZIOException("Stream closed");
 
@@ -391,13 +489,15 @@ public class XZInputStream extends InputStream {
                         return size == 0 ? -1 : size;
                 }
 
-                int ret = xzIn.read(buf, off, len);
+                int ret = out == null ? xzIn.read(buf, off, len)
+                                      : xzIn.read(out, len);
 
                 if (ret > 0) {
                     size += ret;
                     off += ret;
                     len -= ret;
                 } else if (ret == -1) {
+                    prevXzIn = xzIn;
                     xzIn = null;
                 }
             }
@@ -422,6 +522,10 @@ public class XZInputStream extends InputStream {
             int ret = inData.read(buf, 0, 1);
             if (ret == -1) {
                 endReached = true;
+
+                if (!keepArrays)
+                    putArraysToCache();
+
                 return;
             }
 
@@ -437,8 +541,15 @@ public class XZInputStream extends InputStream {
         inData.readFully(buf, 4, DecoderUtil.STREAM_HEADER_SIZE - 4);
 
         try {
-            xzIn = new SingleXZInputStream(in, memoryLimit, verifyCheck, buf,
-                                           arrayCache);
+            if (prevXzIn == null) {
+                xzIn = new SingleXZInputStream(in, memoryLimit, verifyCheck,
+                                               buf, arrayCache);
+                xzIn.setMetricsListener(metricsListener);
+            } else {
+                xzIn = prevXzIn;
+                prevXzIn = null;
+                xzIn.reset(in, buf);
+            }
         } catch (XZFormatException e) {
             // Since this isn't the first .xz Stream, it is more
             // logical to tell that the data is corrupt.
@@ -499,6 +610,7 @@ public class XZInputStream extends InputStream {
      * ({@code read} returns {@code -1}), the arrays are automatically
      * put back to the cache by that {@code read} call. In this
      * situation {@code close(false)} is redundant (but harmless).
+     * This isn't the case if {@code reset} has been called.
      *
      * @throws  IOException if thrown by {@code in.close()}
      *
@@ -511,6 +623,9 @@ public class XZInputStream extends InputStream {
                 xzIn = null;
             }
 
+            putArraysToCache();
+            setMetricsListener(null);
+
             try {
                 if (closeInput)
                     in.close();
@@ -519,4 +634,76 @@ public class XZInputStream extends InputStream {
             }
         }
     }
+
+    /**
+     * Starts decompressing new .xz data from {@code in}, reusing
+     * the already allocated decoder structures. This is much faster
+     * than creating a new {@code XZInputStream} when decompressing
+     * many small .xz files or messages.
+     * <p>
+     * The memory usage limit and the integrity check verification setting
+     * stay the same. If the previous input hasn't been decompressed
+     * completely, the rest of it is ignored. The old input stream
+     * isn't closed.
+     * <p>
+     * Like the constructors, this reads and parses the first
+     * XZ Stream Header from {@code in}.
+     * <p>
+     * After this has been called, the arrays allocated from
+     * the {@link ArrayCache} aren't put back to the cache when the end
+     * of the input is reached so that the next call to this method can
+     * reuse them. They are put back to the cache by {@code close}.
+     *
+     * @param       in          input stream from which .xz data is read
+     *
+     * @throws      XZFormatException
+     *                          input is not in the XZ format
+     *
+     * @throws      CorruptedInputException
+     *                          XZ header CRC32 doesn't match
+     *
+     * @throws      UnsupportedOptionsException
+     *                          XZ header is valid but specifies options
+     *                          not supported by this implementation
+     *
+     * @throws      EOFException
+     *                          less than 12 bytes of input was available
+     *                          from {@code in}
+     *
+     * @throws      XZIOException
+     *                          the stream has been closed
+     *
+     * @throws      IOException may be thrown by {@code in}
+     *
+     * @since 1.13
+     */
+    public void reset(InputStream in) throws IOException {
+        if (this.in == null)
+            throw new XZIOException("Stream closed");
+
+        byte[] streamHeader = SingleXZInputStream.readStreamHeader(in);
+
+        this.in = in;
+        keepArrays = true;
+        endReached = false;
+        exception = null;
+
+        if (xzIn == null) {
+            xzIn = prevXzIn;
+            prevXzIn = null;
+        }
+
+        if (xzIn == null) {
+            xzIn = new SingleXZInputStream(in, memoryLimit, verifyCheck,
+                                           streamHeader, arrayCache);
+            xzIn.setMetricsListener(metricsListener);
+        } else {
+            xzIn.reset(in, streamHeader);
+        }
+    }
+
+    private void putArraysToCache() {
+        if (prevXzIn != null)
+            prevXzIn.putArraysToCache();
+    }
 }
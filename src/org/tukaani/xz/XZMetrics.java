@@ -0,0 +1,243 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Performance counters of one XZ Block or one XZ Stream.
+ * <p>
+ * A {@link Listener} can be set with
+ * {@link XZOutputStream#setMetricsListener(XZMetrics.Listener)},
+ * {@link XZEncoder#setMetricsListener(XZMetrics.Listener)},
+ * {@link XZInputStream#setMetricsListener(XZMetrics.Listener)},
+ * {@link SingleXZInputStream#setMetricsListener(XZMetrics.Listener)}, or
+ * {@link XZDecoder#setMetricsListener(XZMetrics.Listener)}.
+ * The listener gets the counters of each Block when the Block has been
+ * finished and the totals of each Stream when the Stream has been
+ * finished. It is called in the thread that called the method of
+ * the stream that finished the Block or the Stream. Closing the stream,
+ * or calling {@code end()} of {@code XZEncoder} or {@code XZDecoder},
+ * removes the listener.
+ * <p>
+ * Nothing is measured when no listener has been set. With a listener,
+ * {@code System.nanoTime()} is called a few times per {@code write}
+ * or {@code read} call, so with small writes or reads the overhead
+ * may be noticeable. Use a buffer of some kilobytes in front of
+ * the stream in that case.
+ * <p>
+ * The time is split into three parts:
+ * <ul>
+ *   <li>Coding: the filter chain, that is, LZMA2 (the match finder and
+ *       the range encoder, or the LZMA2 decoder) and the other
+ *       filters.</li>
+ *   <li>Check: calculating the integrity check.</li>
+ *   <li>I/O: writing the compressed data to the underlying output
+ *       stream or reading it from the underlying input stream.
+ *       {@code XZEncoder} and {@code XZDecoder} don't do I/O, so
+ *       their I/O time is zero.</li>
+ * </ul>
+ * The match finder and the range encoder aren't timed separately
+ * because the encoder alternates between them for every LZMA symbol.
+ * Timing them separately would slow down the encoder too much.
+ * The ratio of LZMA chunks to uncompressed chunks tells how much of
+ * the data was found to be incompressible.
+ * <p>
+ * {@link ArrayCache} usage isn't counted per stream because the arrays
+ * are usually allocated when a stream is created, before a listener
+ * can be set. {@link BasicArrayCache#getHitCount()} and
+ * {@link BasicArrayCache#getMissCount()} tell how well the cache works.
+ * They are updated only while at least one stream has a listener so
+ * that the shared counters cost nothing when metrics aren't used.
+ * <p>
+ * The objects given to the listener aren't modified afterwards and
+ * may be kept by the listener.
+ *
+ * @since 1.13
+ */
+public class XZMetrics {
+    /**
+     * Receives the counters of finished Blocks and Streams.
+     *
+     * @since 1.13
+     */
+    public interface Listener {
+        /**
+         * Called after an XZ Block has been finished.
+         *
+         * @param       block       counters of the Block
+         */
+        void blockFinished(XZMetrics block);
+
+        /**
+         * Called after an XZ Stream has been finished. With
+         * {@code XZOutputStream} this happens in {@code finish()},
+         * {@code close()}, or {@code reset(OutputStream)}. With
+         * the decompressors this happens when the Stream Footer
+         * has been read.
+         *
+         * @param       stream      totals of the Stream
+         */
+        void streamFinished(XZMetrics stream);
+    }
+
+    /**
+     * Number of streams that currently have a listener.
+     */
+    private static final AtomicInteger listenerCount = new AtomicInteger();
+
+    private final long startTime = System.nanoTime();
+
+    long blockCount = 0;
+    long uncompressedSize = 0;
+    long compressedSize = 0;
+    long lzmaChunkCount = 0;
+    long uncompressedChunkCount = 0;
+    long codingNanos = 0;
+    long checkNanos = 0;
+    long ioNanos = 0;
+    long elapsedNanos = 0;
+
+    XZMetrics() {}
+
+    /**
+     * Updates the listener count when a stream replaces
+     * the listener {@code old} with {@code listener}.
+     */
+    static void listenerChanged(Listener old, Listener listener) {
+        if (old == null && listener != null)
+            listenerCount.incrementAndGet();
+        else if (old != null && listener == null)
+            listenerCount.decrementAndGet();
+    }
+
+    /**
+     * Returns true if at least one stream has a listener.
+     */
+    static boolean isEnabled() {
+        return listenerCount.get() != 0;
+    }
+
+    /**
+     * Adds the counters of a finished Block.
+     */
+    void add(XZMetrics block) {
+        blockCount += block.blockCount;
+        uncompressedSize += block.uncompressedSize;
+        compressedSize += block.compressedSize;
+        lzmaChunkCount += block.lzmaChunkCount;
+        uncompressedChunkCount += block.uncompressedChunkCount;
+        addTimes(block);
+    }
+
+    /**
+     * Adds only the times of {@code other}.
+     */
+    void addTimes(XZMetrics other) {
+        codingNanos += other.codingNanos;
+        checkNanos += other.checkNanos;
+        ioNanos += other.ioNanos;
+    }
+
+    /**
+     * Sets the elapsed time. This is called when the Block or Stream
+     * has been finished.
+     */
+    void stop() {
+        elapsedNanos = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Gets the number of Blocks. This is one for a Block. For a Stream
+     * this counts only the Blocks that were compressed or decompressed,
+     * not the Blocks copied with {@link XZOutputStream#copyBlocks}.
+     */
+    public long getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Gets the uncompressed size in bytes.
+     */
+    public long getUncompressedSize() {
+        return uncompressedSize;
+    }
+
+    /**
+     * Gets the compressed size in bytes. For a Block this includes
+     * the Block Header, Block Padding, and the Check. For a Stream
+     * this is the size of the whole Stream without Stream Padding.
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Gets the number of LZMA2 chunks that contain LZMA-compressed data.
+     */
+    public long getLZMAChunkCount() {
+        return lzmaChunkCount;
+    }
+
+    /**
+     * Gets the number of LZMA2 chunks that contain uncompressed data.
+     * The encoder writes those when compression doesn't make
+     * the data smaller.
+     */
+    public long getUncompressedChunkCount() {
+        return uncompressedChunkCount;
+    }
+
+    /**
+     * Gets the time spent in the filter chain in nanoseconds.
+     * This doesn't include the time of the integrity check and I/O.
+     */
+    public long getCodingNanos() {
+        return codingNanos;
+    }
+
+    /**
+     * Gets the time spent calculating the integrity check in
+     * nanoseconds.
+     */
+    public long getCheckNanos() {
+        return checkNanos;
+    }
+
+    /**
+     * Gets the time spent writing or reading compressed data in
+     * nanoseconds. This includes only the compressed data of
+     * the Blocks, not the headers or the Index.
+     */
+    public long getIONanos() {
+        return ioNanos;
+    }
+
+    /**
+     * Gets the wall-clock time from the start to the end of the Block
+     * or Stream in nanoseconds. This includes the time the application
+     * spent between the calls to the stream. A Stream starts when it is
+     * created or reset, or when the listener is set. A Block starts
+     * when its Block Header is written or read. With
+     * {@link FilterTrials}, the Block Header is written after
+     * the whole Block has been buffered.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "blocks=" + blockCount
+                + " uncompressed=" + uncompressedSize
+                + " compressed=" + compressedSize
+                + " lzmaChunks=" + lzmaChunkCount
+                + " uncompressedChunks=" + uncompressedChunkCount
+                + " codingNanos=" + codingNanos
+                + " checkNanos=" + checkNanos
+                + " ioNanos=" + ioNanos
+                + " elapsedNanos=" + elapsedNanos;
+    }
+}
@@ -6,9 +6,12 @@ package org.tukaani.xz;
 
 import java.io.OutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import org.tukaani.xz.common.EncoderUtil;
 import org.tukaani.xz.common.StreamFlags;
 import org.tukaani.xz.check.Check;
+import org.tukaani.xz.index.IndexDecoder;
 import org.tukaani.xz.index.IndexEncoder;
 
 /**
@@ -45,6 +48,13 @@ import org.tukaani.xz.index.IndexEncoder;
  *                    + " KiB");
  * XZOutputStream outxz = new XZOutputStream(outfile, options);
  * </pre></blockquote>
+ * <p>
+ * Splitting the data into XZ Blocks of 1&nbsp;MiB so that the file can
+ * be decompressed with random access using {@link SeekableXZInputStream}:
+ * <blockquote><pre>
+ * XZOutputStream outxz = new XZOutputStream(outfile, new LZMA2Options());
+ * outxz.setBlockSize(1 &lt;&lt; 20);
+ * </pre></blockquote>
  */
 public class XZOutputStream extends FinishableOutputStream {
     private final ArrayCache arrayCache;
@@ -64,6 +74,70 @@ public class XZOutputStream extends FinishableOutputStream {
      */
     private boolean filtersSupportFlushing;
 
+    /**
+     * If not null, the filter chain of each Block is chosen by analyzing
+     * the first bytes of the Block. Those bytes are collected into
+     * {@code analyzerBuf} before the Block is started.
+     */
+    private FilterAnalyzer filterAnalyzer = null;
+    private byte[] analyzerBuf = null;
+    private int analyzerBufSize = 0;
+
+    /**
+     * The filter chain that was last returned by the analyzer and is
+     * currently in {@code filters}, or null if {@code filters} came
+     * from somewhere else.
+     */
+    private FilterOptions[] analyzerChain = null;
+
+    /**
+     * If not null, each Block is buffered into {@code trialBuf} and
+     * compressed with all candidate filter chains when it is finished.
+     */
+    private FilterTrials filterTrials = null;
+    private byte[] trialBuf = null;
+    private int trialBufSize = 0;
+
+    /**
+     * With {@code FilterTrials}, a Block is finished automatically
+     * when this much data has been buffered.
+     */
+    private static final int TRIAL_BLOCK_SIZE_MAX = 1 << 30;
+
+    /**
+     * Uncompressed size after which a new Block is started automatically,
+     * or zero if Blocks are only finished by the application.
+     */
+    private long blockSizeLimit = 0;
+
+    /**
+     * If true, a Block that has reached {@code blockSizeLimit} is
+     * finished only at the next record boundary marked by the
+     * application.
+     */
+    private boolean alignBlocksToRecords = false;
+
+    /**
+     * If not null, Blocks are split at content-defined boundaries and
+     * {@code blockSizeLimit} is the maximum Block size.
+     */
+    private BlockChunker chunker = null;
+
+    /**
+     * Uncompressed size of the current Block, including data buffered
+     * for {@code FilterAnalyzer} or {@code FilterTrials}.
+     */
+    private long blockUncompressedSize = 0;
+
+    /**
+     * Listener set with {@code setMetricsListener} or {@code null}.
+     * The counters of the current Stream and Block are collected only
+     * when there is a listener.
+     */
+    private XZMetrics.Listener metricsListener = null;
+    private XZMetrics streamMetrics = null;
+    private XZMetrics blockMetrics = null;
+
     private IOException exception = null;
     private boolean finished = false;
 
@@ -269,6 +343,19 @@ public class XZOutputStream extends FinishableOutputStream {
     public XZOutputStream(OutputStream out, FilterOptions[] filterOptions,
                           int checkType, ArrayCache arrayCache)
             throws IOException {
+        this(out, filterOptions, checkType, arrayCache, null);
+    }
+
+    /**
+     * Creates a new XZ compressor that either starts a new Stream or,
+     * if {@code existingIndex} isn't null, continues an existing Stream
+     * whose Index and Stream Footer have been removed. In the latter
+     * case {@code out} must be positioned where the Index was, and
+     * {@code checkType} must be the one used by the existing Stream.
+     */
+    XZOutputStream(OutputStream out, FilterOptions[] filterOptions,
+                   int checkType, ArrayCache arrayCache,
+                   IndexDecoder existingIndex) throws IOException {
         this.arrayCache = arrayCache;
         this.out = out;
         setFiltersForNextBlock(filterOptions);
@@ -276,7 +363,10 @@ public class XZOutputStream extends FinishableOutputStream {
         streamFlags.checkType = checkType;
         check = Check.getInstance(checkType);
 
-        encodeStreamHeader();
+        if (existingIndex == null)
+            encodeStreamHeader();
+        else
+            existingIndex.addRecordsTo(index);
     }
 
     /**
@@ -305,6 +395,10 @@ public class XZOutputStream extends FinishableOutputStream {
      * middle of a XZ Block. Use {@code endBlock()} to finish the
      * current XZ Block before calling this function. The new filter chain
      * will then be used for the next XZ Block.
+     * <p>
+     * If a {@link FilterAnalyzer} or {@link FilterTrials} has been set,
+     * it chooses the filter chain of the next XZ Block and the chain
+     * given here is ignored.
      *
      * @param       filterOptions
      *                          new filter chain to use
@@ -315,11 +409,256 @@ public class XZOutputStream extends FinishableOutputStream {
      */
     public void updateFilters(FilterOptions[] filterOptions)
             throws XZIOException {
-        if (blockEncoder != null)
+        if (isInBlock())
             throw new UnsupportedOptionsException("Changing filter options "
                     + "in the middle of a XZ Block not implemented");
 
         setFiltersForNextBlock(filterOptions);
+        analyzerChain = null;
+    }
+
+    /**
+     * Sets a filter analyzer that chooses the filter chain for each
+     * XZ Block based on the data. Use {@code null} to stop using
+     * an analyzer. Then the filter chain chosen for the previous Block
+     * stays in use until {@code updateFilters} is called.
+     * <p>
+     * At the start of each Block, up to {@link FilterAnalyzer#SAMPLE_SIZE}
+     * bytes are buffered and analyzed before the Block is started with
+     * the chosen filter chain. The buffered data is compressed normally
+     * after that. If the Block ends earlier, for example, because of
+     * {@code endBlock()}, {@code flush()}, or {@code finish()}, the data
+     * buffered so far is analyzed.
+     * <p>
+     * Like {@code updateFilters}, this cannot be called in the middle
+     * of a Block.
+     *
+     * @param       analyzer    analyzer to use or {@code null}
+     *
+     * @throws      UnsupportedOptionsException
+     *                          trying to change the analyzer in the middle
+     *                          of a Block
+     *
+     * @since 1.13
+     */
+    public void setFilterAnalyzer(FilterAnalyzer analyzer)
+            throws XZIOException {
+        if (isInBlock())
+            throw new UnsupportedOptionsException("Changing filter options "
+                    + "in the middle of a XZ Block not implemented");
+
+        filterAnalyzer = analyzer;
+        analyzerChain = null;
+    }
+
+    /**
+     * Sets candidate filter chains that are all tried for each XZ Block.
+     * Use {@code null} to stop trying the candidates. Then the filter
+     * chain given to the constructor or {@code updateFilters} is used
+     * again.
+     * <p>
+     * With trials, the uncompressed data of each Block is buffered
+     * in memory and nothing is compressed until the Block is finished
+     * with {@code endBlock()}, {@code flush()}, or {@code finish()}.
+     * Call {@code endBlock()} regularly to keep the memory usage
+     * reasonable. If a Block grows to 1&nbsp;GiB, it is finished
+     * automatically. {@code flush()} always finishes the current Block.
+     * <p>
+     * If both a {@link FilterAnalyzer} and {@code FilterTrials} have
+     * been set, the trials are used.
+     * <p>
+     * Like {@code updateFilters}, this cannot be called in the middle
+     * of a Block.
+     *
+     * @param       trials      candidate filter chains or {@code null}
+     *
+     * @throws      UnsupportedOptionsException
+     *                          trying to change the trials in the middle
+     *                          of a Block
+     *
+     * @since 1.13
+     */
+    public void setFilterTrials(FilterTrials trials) throws XZIOException {
+        if (isInBlock())
+            throw new UnsupportedOptionsException("Changing filter options "
+                    + "in the middle of a XZ Block not implemented");
+
+        if (filterTrials != null && filterTrials != trials)
+            filterTrials.putArraysToCache();
+
+        filterTrials = trials;
+        if (trials == null)
+            trialBuf = null;
+    }
+
+    /**
+     * Sets the uncompressed size of XZ Blocks. This is equivalent to
+     * {@code setBlockSize(blockSize, false)}.
+     *
+     * @param       blockSize   uncompressed size of each Block, or zero
+     *                          to disable automatic Block splitting
+     *
+     * @throws      UnsupportedOptionsException
+     *                          {@code blockSize} is negative
+     *
+     * @since 1.13
+     */
+    public void setBlockSize(long blockSize) throws XZIOException {
+        setBlockSize(blockSize, false);
+    }
+
+    /**
+     * Sets the uncompressed size of XZ Blocks. When a Block reaches this
+     * size, it is finished and a new Block is started automatically like
+     * {@code endBlock()} was called. This is like the
+     * {@code --block-size} option in the {@code xz} tool. The resulting
+     * file can be decompressed with random access using
+     * {@link SeekableXZInputStream}, and the Blocks could be decompressed
+     * in parallel.
+     * <p>
+     * The encoders are reused from one Block to the next, so small
+     * Blocks don't cause repeated memory allocation. Each Block still
+     * starts with an empty dictionary which reduces the compression ratio.
+     * It's good to set the LZMA2 dictionary size to at most the Block
+     * size because a bigger dictionary only wastes memory.
+     * <p>
+     * If {@code alignToRecords} is true, a Block that has reached
+     * {@code blockSize} is finished only when the application calls
+     * {@link #endRecord()}. Then Blocks don't split records in the middle
+     * and a record can be decompressed by decompressing only one Block.
+     * The Blocks will be a little bigger than {@code blockSize} and
+     * a record bigger than {@code blockSize} makes a Block that is even
+     * bigger.
+     * <p>
+     * Calling {@code endBlock()} is still allowed. It finishes the Block
+     * early and the next Block gets the full {@code blockSize}.
+     * The setting can be changed at any time and it affects the current
+     * Block too. By default Blocks are split only by {@code endBlock()}
+     * and {@code flush()}.
+     * <p>
+     * This disables content-defined Block boundaries set with
+     * {@link #setContentDefinedBlocks(int, int, int)}.
+     *
+     * @param       blockSize   uncompressed size of each Block, or zero
+     *                          to disable automatic Block splitting
+     *
+     * @param       alignToRecords
+     *                          finish Blocks only at record boundaries
+     *                          marked with {@code endRecord()}
+     *
+     * @throws      UnsupportedOptionsException
+     *                          {@code blockSize} is negative
+     *
+     * @since 1.13
+     */
+    public void setBlockSize(long blockSize, boolean alignToRecords)
+            throws XZIOException {
+        if (blockSize < 0)
+            throw new UnsupportedOptionsException(
+                    "Block size cannot be negative: " + blockSize);
+
+        blockSizeLimit = blockSize;
+        alignBlocksToRecords = alignToRecords;
+        chunker = null;
+    }
+
+    /**
+     * Splits the data into XZ Blocks at content-defined boundaries.
+     * <p>
+     * With fixed-size Blocks, inserting or removing a single byte moves
+     * all the following Block boundaries, so the compressed Blocks after
+     * the change are all different. With content-defined boundaries,
+     * the boundaries are chosen by a rolling hash of the uncompressed
+     * data. After a change, the boundaries soon match the ones in
+     * the unchanged version again, and the Blocks after that are
+     * byte-for-byte identical to the Blocks from the unchanged version.
+     * Thus deduplicating storage or transfer can share them.
+     * This requires that the other settings, like the filter chain
+     * and the integrity check type, are the same, and that
+     * {@code endBlock()} or {@code flush()} aren't called by the
+     * application.
+     * <p>
+     * Each Block is at least {@code minSize} bytes (except the last one)
+     * and at most {@code maxSize} bytes. The average size is roughly
+     * {@code avgSize}. If {@code avgSize} equals {@code minSize}, all
+     * Blocks except the last one are exactly {@code minSize} bytes,
+     * which doesn't depend on the data. Small Blocks reduce
+     * the compression ratio, so sizes of at least a few hundred
+     * kibibytes are recommended.
+     * The boundaries depend only on the data and the three sizes, and
+     * they will stay the same in future versions of XZ for Java.
+     * <p>
+     * This disables the Block size set with {@code setBlockSize}.
+     * Use {@code setBlockSize} to disable content-defined Blocks.
+     *
+     * @param       minSize     minimum Block size
+     * @param       avgSize     approximate average Block size
+     * @param       maxSize     maximum Block size
+     *
+     * @throws      UnsupportedOptionsException
+     *                          unless
+     *                          {@code 0 < minSize <= avgSize <= maxSize}
+     *
+     * @since 1.13
+     */
+    public void setContentDefinedBlocks(int minSize, int avgSize,
+                                        int maxSize) throws XZIOException {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize)
+            throw new UnsupportedOptionsException(
+                    "Invalid content-defined Block sizes: " + minSize
+                    + ", " + avgSize + ", " + maxSize);
+
+        blockSizeLimit = maxSize;
+        alignBlocksToRecords = false;
+        chunker = new BlockChunker(minSize, avgSize);
+    }
+
+    /**
+     * Marks the end of a record. If Blocks are aligned to records
+     * (see {@link #setBlockSize(long, boolean)}) and the current Block
+     * has reached the Block size, the Block is finished. Otherwise
+     * this does nothing.
+     *
+     * @throws      XZIOException
+     *                          XZ Stream has grown too big
+     *
+     * @throws      XZIOException
+     *                          stream finished or closed
+     *
+     * @throws      IOException may be thrown by the underlying output stream
+     *
+     * @since 1.13
+     */
+    public void endRecord() throws IOException {
+        if (alignBlocksToRecords && blockSizeLimit > 0
+                && blockUncompressedSize >= blockSizeLimit)
+            endBlock();
+    }
+
+    /**
+     * Sets a listener that gets the {@link XZMetrics} of each XZ Block
+     * and of the XZ Stream. Use {@code null} to stop collecting
+     * the metrics. The Stream totals are collected from the time
+     * the listener is set. If this is called in the middle of a Block,
+     * that Block isn't reported.
+     * <p>
+     * Without a listener nothing is measured, so there is no need to
+     * avoid this method for performance reasons when the metrics
+     * aren't needed.
+     *
+     * @param       listener    listener to use or {@code null}
+     *
+     * @since 1.13
+     */
+    public void setMetricsListener(XZMetrics.Listener listener) {
+        XZMetrics.listenerChanged(metricsListener, listener);
+        metricsListener = listener;
+        streamMetrics = listener == null ? null : new XZMetrics();
+    }
+
+    private boolean isInBlock() {
+        return blockEncoder != null || analyzerBufSize > 0
+                || trialBufSize > 0;
     }
 
     // This is called from updateFilters and from a constructor.
@@ -340,6 +679,11 @@ public class XZOutputStream extends FinishableOutputStream {
         }
 
         RawCoder.validate(newFilters);
+
+        // The encoders of the old filter chain won't be reused.
+        if (filters != null)
+            putArraysToCache();
+
         filters = newFilters;
     }
 
@@ -396,18 +740,142 @@ public class XZOutputStream extends FinishableOutputStream {
         if (finished)
             throw new XZIOException("Stream finished or closed");
 
+        if (blockSizeLimit == 0 || alignBlocksToRecords) {
+            writeToBlock(buf, off, len);
+            return;
+        }
+
+        while (len > 0) {
+            // blockUncompressedSize can exceed the limit if the limit was
+            // lowered in the middle of a Block.
+            int size = (int)Math.max(1, Math.min(
+                    len, blockSizeLimit - blockUncompressedSize));
+
+            boolean boundary = false;
+            if (chunker != null) {
+                int boundaryPos = chunker.findBoundary(
+                        buf, off, size, blockUncompressedSize);
+                if (boundaryPos > 0) {
+                    size = boundaryPos;
+                    boundary = true;
+                }
+            }
+
+            writeToBlock(buf, off, size);
+            off += size;
+            len -= size;
+
+            if (boundary || blockUncompressedSize >= blockSizeLimit)
+                endBlock();
+        }
+    }
+
+    private void writeToBlock(byte[] buf, int off, int len)
+            throws IOException {
+        if (filterTrials != null) {
+            writeTrialBuf(buf, off, len);
+            return;
+        }
+
         try {
-            if (blockEncoder == null)
-                blockEncoder = new BlockOutputStream(out, filters, check,
-                                                     arrayCache);
+            if (blockEncoder == null) {
+                if (filterAnalyzer != null) {
+                    // Collect the sample for the analyzer. The Block is
+                    // started only when the sample is complete.
+                    if (analyzerBuf == null)
+                        analyzerBuf = new byte[FilterAnalyzer.SAMPLE_SIZE];
+
+                    int copySize = Math.min(len, analyzerBuf.length
+                                                 - analyzerBufSize);
+                    System.arraycopy(buf, off, analyzerBuf, analyzerBufSize,
+                                     copySize);
+                    analyzerBufSize += copySize;
+                    blockUncompressedSize += copySize;
+                    off += copySize;
+                    len -= copySize;
+
+                    if (analyzerBufSize < analyzerBuf.length)
+                        return;
+                }
+
+                startBlock();
+            }
 
             blockEncoder.write(buf, off, len);
+            blockUncompressedSize += len;
         } catch (IOException e) {
             exception = e;
             throw e;
         }
     }
 
+    /**
+     * Buffers data for {@code FilterTrials}.
+     */
+    private void writeTrialBuf(byte[] buf, int off, int len)
+            throws IOException {
+        while (len > 0) {
+            int copySize = Math.min(len,
+                                    TRIAL_BLOCK_SIZE_MAX - trialBufSize);
+
+            if (trialBuf == null || trialBuf.length - trialBufSize
+                                    < copySize) {
+                long newSize = Math.max(
+                        trialBuf == null ? 0 : trialBuf.length * 2L,
+                        trialBufSize + (long)copySize);
+                newSize = Math.max(newSize, 4096);
+                newSize = Math.min(newSize, TRIAL_BLOCK_SIZE_MAX);
+
+                trialBuf = trialBuf == null ? new byte[(int)newSize]
+                           : Arrays.copyOf(trialBuf, (int)newSize);
+            }
+
+            System.arraycopy(buf, off, trialBuf, trialBufSize, copySize);
+            trialBufSize += copySize;
+            blockUncompressedSize += copySize;
+            off += copySize;
+            len -= copySize;
+
+            if (trialBufSize == TRIAL_BLOCK_SIZE_MAX)
+                endBlock();
+        }
+    }
+
+    /**
+     * Starts a new Block. If an analyzer is in use, the filter chain is
+     * chosen first and the buffered sample is written to the new Block.
+     */
+    private void startBlock() throws IOException {
+        if (filterAnalyzer != null) {
+            FilterOptions[] chain;
+            try {
+                chain = filterAnalyzer.analyze(analyzerBuf, 0,
+                                               analyzerBufSize, arrayCache);
+            } catch (UncheckedIOException e) {
+                throw MemoryBudget.unwrap(e);
+            }
+
+            // Keep the old encoders if the chain didn't change so that
+            // their arrays can be reused.
+            if (chain != analyzerChain) {
+                setFiltersForNextBlock(chain);
+                analyzerChain = chain;
+            }
+        }
+
+        if (metricsListener != null)
+            blockMetrics = new XZMetrics();
+
+        blockEncoder = new BlockOutputStream(out, filters, check,
+                                             arrayCache, blockMetrics);
+
+        if (analyzerBufSize > 0) {
+            int size = analyzerBufSize;
+            analyzerBufSize = 0;
+            blockEncoder.write(analyzerBuf, 0, size);
+        }
+    }
+
     /**
      * Finishes the current XZ Block (but not the whole XZ Stream).
      * This doesn't flush the stream so it's possible that not all data will
@@ -446,12 +914,38 @@ public class XZOutputStream extends FinishableOutputStream {
         // NOTE: Once there is threading with multiple Blocks, it's possible
         // that this function will be more like a barrier that returns
         // before the last Block has been finished.
-        if (blockEncoder != null) {
+        blockUncompressedSize = 0;
+
+        if (chunker != null)
+            chunker.reset();
+
+        if (trialBufSize > 0) {
             try {
+                if (metricsListener != null)
+                    blockMetrics = new XZMetrics();
+
+                FilterTrials.EncodedBlock block = filterTrials.encode(
+                        out, trialBuf, trialBufSize, streamFlags.checkType,
+                        arrayCache, blockMetrics);
+                index.add(block.unpaddedSize, block.uncompressedSize);
+                trialBufSize = 0;
+                blockFinished();
+            } catch (IOException e) {
+                exception = e;
+                throw e;
+            }
+        }
+
+        if (blockEncoder != null || analyzerBufSize > 0) {
+            try {
+                if (blockEncoder == null)
+                    startBlock();
+
                 blockEncoder.finish();
                 index.add(blockEncoder.getUnpaddedSize(),
                           blockEncoder.getUncompressedSize());
                 blockEncoder = null;
+                blockFinished();
             } catch (IOException e) {
                 exception = e;
                 throw e;
@@ -459,6 +953,77 @@ public class XZOutputStream extends FinishableOutputStream {
         }
     }
 
+    /**
+     * Copies compressed XZ Blocks from an existing .xz file without
+     * decompressing them. The current Block is finished first like
+     * {@code endBlock()} would do. Then the Blocks are copied byte for byte
+     * and added to the Index of this Stream. This can be used to
+     * concatenate .xz files into a single Stream or to split a file into
+     * smaller files at Block boundaries at the speed of copying files:
+     * <blockquote><pre>
+     * XZOutputStream out = new XZOutputStream(outfile, new LZMA2Options(),
+     *                                         in.getBlockCheckType(0));
+     * out.copyBlocks(in, 0, in.getBlockCount());
+     * out.finish();
+     * </pre></blockquote>
+     * <p>
+     * The Blocks must use the same integrity check type as this Stream.
+     * All Blocks are checked before anything is copied. The filter chains
+     * of the Blocks don't need to match the filter chain of this stream.
+     * <p>
+     * The Blocks are read with the {@code SeekableInputStream} given
+     * to {@code in}. Its position is restored afterwards so decompressing
+     * with {@code in} can be continued normally.
+     *
+     * @param       in          .xz file to copy the Blocks from
+     * @param       firstBlock  number of the first Block to copy
+     * @param       blockCount  number of Blocks to copy
+     *
+     * @throws      IndexOutOfBoundsException
+     *                          the range of Blocks isn't inside
+     *                          {@code in}
+     *
+     * @throws      UnsupportedOptionsException
+     *                          a Block uses a different integrity check
+     *                          type than this Stream
+     *
+     * @throws      XZIOException
+     *                          XZ Stream has grown too big
+     *
+     * @throws      XZIOException
+     *                          stream finished or closed, or {@code in}
+     *                          has been closed
+     *
+     * @throws      IOException may be thrown by the underlying streams
+     *
+     * @since 1.13
+     */
+    public void copyBlocks(SeekableXZInputStream in, int firstBlock,
+                           int blockCount) throws IOException {
+        if (firstBlock < 0 || blockCount < 0
+                || firstBlock > in.getBlockCount() - blockCount)
+            throw new IndexOutOfBoundsException();
+
+        for (int i = firstBlock; i < firstBlock + blockCount; ++i)
+            if (in.getBlockCheckType(i) != streamFlags.checkType)
+                throw new UnsupportedOptionsException("XZ Block " + i
+                        + " uses a different integrity check type");
+
+        endBlock();
+
+        byte[] buf = new byte[64 << 10];
+
+        try {
+            for (int i = firstBlock; i < firstBlock + blockCount; ++i) {
+                long unpaddedSize = in.copyBlock(i, out, buf);
+                index.add(unpaddedSize, in.getBlockSize(i));
+            }
+        } catch (IOException e) {
+            exception = e;
+            throw e;
+        }
+    }
+
     /**
      * Flushes the encoder and calls {@code out.flush()}.
      * All buffered pending data will then be decompressible from
@@ -490,6 +1055,12 @@ public class XZOutputStream extends FinishableOutputStream {
             throw new XZIOException("Stream finished or closed");
 
         try {
+            if (trialBufSize > 0)
+                endBlock();
+
+            if (blockEncoder == null && analyzerBufSize > 0)
+                startBlock();
+
             if (blockEncoder != null) {
                 if (filtersSupportFlushing) {
                     // This will eventually call out.flush() so
@@ -529,23 +1100,142 @@ public class XZOutputStream extends FinishableOutputStream {
     @Override
     public void finish() throws IOException {
         if (!finished) {
-            // This checks for pending exceptions so we don't need to
-            // worry about it here.
-            endBlock();
+            finishStream();
+            putArraysToCache();
+
+            if (filterTrials != null)
+                filterTrials.putArraysToCache();
+        }
+    }
+
+    /**
+     * Finishes the current XZ Stream and starts a new one, writing it to
+     * a new output stream. The filter chain and the integrity check type
+     * stay the same. The encoder state is reset so the new Stream is
+     * fully independent of the old one, but the already allocated
+     * encoder structures are reused. This is much faster than creating
+     * a new {@code XZOutputStream} when compressing many small inputs.
+     * <p>
+     * If the current Stream hasn't been finished yet, it is finished first
+     * like {@code finish()} would do, except that the encoder's arrays
+     * aren't returned to the {@code ArrayCache}. If {@code finish()} has
+     * already been called, the arrays have been returned to the cache
+     * and new arrays will be allocated for the new Stream.
+     * <p>
+     * The old output stream isn't closed or flushed. The Stream Header of
+     * the new Stream is written to {@code out} before this returns.
+     *
+     * @param       out         output stream to which the compressed data
+     *                          of the new Stream will be written
+     *
+     * @throws      XZIOException
+     *                          XZ Stream has grown too big
+     *
+     * @throws      XZIOException
+     *                          the stream has been closed
+     *
+     * @throws      IOException may be thrown by the old or
+     *                          the new output stream
+     *
+     * @since 1.13
+     */
+    public void reset(OutputStream out) throws IOException {
+        if (out == null)
+            throw new NullPointerException();
 
+        if (exception != null)
+            throw exception;
+
+        if (this.out == null)
+            throw new XZIOException("Stream closed");
+
+        if (!finished) {
+            boolean success = false;
             try {
-                index.encode(out);
-                encodeStreamFooter();
-            } catch (IOException e) {
-                exception = e;
-                throw e;
+                finishStream();
+                success = true;
+            } finally {
+                // The encoder cannot be used after a failure, so
+                // the arrays won't be needed anymore.
+                if (!success) {
+                    putArraysToCache();
+
+                    if (filterTrials != null)
+                        filterTrials.putArraysToCache();
+                }
             }
+        }
+
+        index.reset();
+        this.out = out;
+
+        if (metricsListener != null)
+            streamMetrics = new XZMetrics();
 
-            // Set it to true only if everything goes fine. Setting it earlier
-            // would cause repeated calls to finish() do nothing instead of
-            // throwing an exception to indicate an earlier error.
-            finished = true;
+        try {
+            encodeStreamHeader();
+        } catch (IOException e) {
+            exception = e;
+            throw e;
         }
+
+        finished = false;
+    }
+
+    private void finishStream() throws IOException {
+        // This checks for pending exceptions so we don't need to
+        // worry about it here.
+        endBlock();
+
+        try {
+            index.encode(out);
+            encodeStreamFooter();
+        } catch (IOException e) {
+            exception = e;
+            throw e;
+        }
+
+        // Set it to true only if everything goes fine. Setting it earlier
+        // would cause repeated calls to finish() do nothing instead of
+        // throwing an exception to indicate an earlier error.
+        finished = true;
+        streamFinished();
+    }
+
+    /**
+     * Gives the counters of the finished Block to the listener.
+     */
+    private void blockFinished() {
+        XZMetrics block = blockMetrics;
+        blockMetrics = null;
+
+        if (block != null && metricsListener != null) {
+            block.stop();
+            streamMetrics.add(block);
+            metricsListener.blockFinished(block);
+        }
+    }
+
+    /**
+     * Gives the totals of the finished Stream to the listener.
+     */
+    private void streamFinished() {
+        if (metricsListener != null) {
+            XZMetrics stream = streamMetrics;
+            streamMetrics = null;
+
+            // Use the Index for the sizes so that the Blocks copied
+            // with copyBlocks are included.
+            stream.uncompressedSize = index.getUncompressedSize();
+            stream.compressedSize = index.getStreamSize();
+            stream.stop();
+            metricsListener.streamFinished(stream);
+        }
+    }
+
+    private void putArraysToCache() {
+        for (int i = 0; i < filters.length; ++i)
+            filters[i].putArraysToCache();
     }
 
     /**
@@ -580,6 +1270,7 @@ public class XZOutputStream extends FinishableOutputStream {
             }
 
             out = null;
+            setMetricsListener(null);
         }
 
         if (exception != null)
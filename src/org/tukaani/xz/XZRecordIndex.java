@@ -0,0 +1,351 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import org.tukaani.xz.common.DecoderUtil;
+import org.tukaani.xz.common.EncoderUtil;
+
+/**
+ * Maps record numbers and keys to XZ Blocks and uncompressed offsets
+ * inside the Blocks.
+ * <p>
+ * An index is created with {@link XZRecordWriter} which writes each
+ * record into exactly one Block. The index can be saved into a separate
+ * file with {@link #writeTo(OutputStream)} and loaded with
+ * {@link #readFrom(InputStream)}. A record can then be read from
+ * the .xz file with {@link SeekableXZInputStream} by decompressing only
+ * the beginning of one Block:
+ * <blockquote><pre>
+ * XZRecordIndex index = XZRecordIndex.readFrom(indexFile);
+ * SeekableXZInputStream in = new SeekableXZInputStream(
+ *         new SeekableFileInputStream("log.xz"));
+ * byte[] record = index.readRecord(in, index.findRecord(timestamp));
+ * </pre></blockquote>
+ * <p>
+ * Every record has a key. The keys are non-decreasing in record order,
+ * so {@link #findRecord(long)} can find the first record with
+ * a given key with binary search. Keys can be, for example, timestamps
+ * of log lines. If the keys aren't needed, they can be left zero.
+ * <p>
+ * The index uses about 28 bytes of memory per record. The saved form
+ * is usually 3-5 bytes per record.
+ *
+ * @since 1.13
+ */
+public class XZRecordIndex {
+    private static final byte[] MAGIC = { (byte)0xFD, 'X', 'Z', 'R', 'I', 0 };
+
+    private int recordCount = 0;
+    private long[] keys = new long[64];
+    private int[] blocks = new int[64];
+    private long[] offsets = new long[64];
+    private long[] sizes = new long[64];
+
+    XZRecordIndex() {}
+
+    /**
+     * Adds a record. The caller must make sure that the record is in
+     * the same or the next Block as the previous record, that the keys
+     * are non-decreasing, and that the records don't overlap.
+     */
+    void add(long key, int block, long offset, long size)
+            throws XZIOException {
+        if (recordCount == keys.length) {
+            if (recordCount == Integer.MAX_VALUE)
+                throw new XZIOException("XZ record index has grown too big");
+
+            int newSize = (int)Math.min(recordCount * 2L, Integer.MAX_VALUE);
+            keys = Arrays.copyOf(keys, newSize);
+            blocks = Arrays.copyOf(blocks, newSize);
+            offsets = Arrays.copyOf(offsets, newSize);
+            sizes = Arrays.copyOf(sizes, newSize);
+        }
+
+        keys[recordCount] = key;
+        blocks[recordCount] = block;
+        offsets[recordCount] = offset;
+        sizes[recordCount] = size;
+        ++recordCount;
+    }
+
+    /**
+     * Gets the number of records.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the key of the given record.
+     *
+     * @throws      IndexOutOfBoundsException
+     *                          {@code record < 0} or
+     *                          {@code record >= getRecordCount()}
+     */
+    public long getKey(int record) {
+        checkRecord(record);
+        return keys[record];
+    }
+
+    /**
+     * Gets the number of the XZ Block that contains the given record.
+     * The number can be used with
+     * {@link SeekableXZInputStream#seekToBlock(int)}.
+     *
+     * @throws      IndexOutOfBoundsException
+     *                          {@code record < 0} or
+     *                          {@code record >= getRecordCount()}
+     */
+    public int getBlockNumber(int record) {
+        checkRecord(record);
+        return blocks[record];
+    }
+
+    /**
+     * Gets the uncompressed offset of the given record from the beginning
+     * of its XZ Block.
+     *
+     * @throws      IndexOutOfBoundsException
+     *                          {@code record < 0} or
+     *                          {@code record >= getRecordCount()}
+     */
+    public long getOffsetInBlock(int record) {
+        checkRecord(record);
+        return offsets[record];
+    }
+
+    /**
+     * Gets the uncompressed size of the given record.
+     *
+     * @throws      IndexOutOfBoundsException
+     *                          {@code record < 0} or
+     *                          {@code record >= getRecordCount()}
+     */
+    public long getRecordSize(int record) {
+        checkRecord(record);
+        return sizes[record];
+    }
+
+    /**
+     * Finds the first record whose key is greater than or equal to
+     * {@code key}.
+     *
+     * @return      number of the record, or {@code getRecordCount()}
+     *              if all keys are smaller than {@code key}
+     */
+    public int findRecord(long key) {
+        int low = 0;
+        int high = recordCount;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+    }
+
+    /**
+     * Seeks {@code in} to the beginning of the given record.
+     * Like {@link SeekableXZInputStream#seek(long)}, this only stores
+     * the new position. The next read decompresses the Block of
+     * the record from its beginning up to the record.
+     *
+     * @param       in          the .xz file from which this index
+     *                          was created
+     * @param       record      number of the record
+     *
+     * @throws      IndexOutOfBoundsException
+     *                          {@code record < 0} or
+     *                          {@code record >= getRecordCount()}
+     *
+     * @throws      XZIOException
+     *                          the index doesn't match {@code in},
+     *                          or {@code in} has been closed
+     *
+     * @throws      IOException may be thrown by {@code in}
+     */
+    public void seekToRecord(SeekableXZInputStream in, int record)
+            throws IOException {
+        checkRecord(record);
+
+        int block = blocks[record];
+        if (block >= in.getBlockCount()
+                || offsets[record] + sizes[record] > in.getBlockSize(block))
+            throw new XZIOException(
+                    "XZ record index doesn't match the .xz file");
+
+        in.seekToBlock(block);
+        if (offsets[record] > 0)
+            in.seek(in.position() + offsets[record]);
+    }
+
+    /**
+     * Reads the given record from {@code in}. After this returns,
+     * the position of {@code in} is at the end of the record.
+     *
+     * @param       in          the .xz file from which this index
+     *                          was created
+     * @param       record      number of the record
+     *
+     * @return      the uncompressed record
+     *
+     * @throws      IndexOutOfBoundsException
+     *                          {@code record < 0} or
+     *                          {@code record >= getRecordCount()}
+     *
+     * @throws      XZIOException
+     *                          the index doesn't match {@code in},
+     *                          the record is too big for a byte array,
+     *                          or {@code in} has been closed
+     *
+     * @throws      CorruptedInputException
+     * @throws      UnsupportedOptionsException
+     * @throws      MemoryLimitException
+     *
+     * @throws      EOFException
+     *                          the .xz file is truncated
+     *
+     * @throws      IOException may be thrown by {@code in}
+     */
+    public byte[] readRecord(SeekableXZInputStream in, int record)
+            throws IOException {
+        checkRecord(record);
+
+        if (sizes[record] > Integer.MAX_VALUE)
+            throw new XZIOException("XZ record is too big for an array");
+
+        byte[] buf = new byte[(int)sizes[record]];
+        seekToRecord(in, record);
+        new DataInputStream(in).readFully(buf);
+        return buf;
+    }
+
+    /**
+     * Writes this index to {@code out}. The format stores the differences
+     * between consecutive records as variable-length integers and ends
+     * with a CRC32 of the whole index.
+     *
+     * @throws      IOException may be thrown by {@code out}
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        CheckedOutputStream outChecked
+                = new CheckedOutputStream(out, new CRC32());
+
+        outChecked.write(MAGIC);
+        EncoderUtil.encodeVLI(outChecked, recordCount);
+
+        // The first key may be negative. A VLI holds only 63 bits so
+        // the sign is stored in its own byte and the rest as a VLI.
+        // The other keys are stored as differences to the previous key.
+        // XZRecordWriter ensures that the differences fit in 63 bits.
+        long prevKey = recordCount > 0 ? keys[0] : 0;
+        outChecked.write(prevKey < 0 ? 1 : 0);
+        EncoderUtil.encodeVLI(outChecked, prevKey ^ (prevKey >> 63));
+
+        int prevBlock = 0;
+        for (int i = 0; i < recordCount; ++i) {
+            EncoderUtil.encodeVLI(outChecked, blocks[i] - prevBlock);
+            EncoderUtil.encodeVLI(outChecked, sizes[i]);
+            EncoderUtil.encodeVLI(outChecked, keys[i] - prevKey);
+            prevBlock = blocks[i];
+            prevKey = keys[i];
+        }
+
+        long value = outChecked.getChecksum().getValue();
+        for (int i = 0; i < 4; ++i)
+            out.write((byte)(value >>> (i * 8)));
+    }
+
+    /**
+     * Reads an index that was written with {@link #writeTo(OutputStream)}.
+     *
+     * @throws      CorruptedInputException
+     *                          the input isn't a valid record index
+     *
+     * @throws      EOFException
+     *                          the input is truncated
+     *
+     * @throws      IOException may be thrown by {@code in}
+     */
+    public static XZRecordIndex readFrom(InputStream in) throws IOException {
+        CheckedInputStream inChecked = new CheckedInputStream(in, new CRC32());
+        DataInputStream inData = new DataInputStream(inChecked);
+
+        byte[] buf = new byte[MAGIC.length];
+        inData.readFully(buf);
+        if (!Arrays.equals(buf, MAGIC))
+            throw new CorruptedInputException(
+                    "Input is not an XZ record index");
+
+        long count = DecoderUtil.decodeVLI(inChecked);
+        if (count > Integer.MAX_VALUE)
+            throw new CorruptedInputException("XZ record index is corrupt");
+
+        int sign = inData.readUnsignedByte();
+        if (sign > 1)
+            throw new CorruptedInputException("XZ record index is corrupt");
+
+        long key = DecoderUtil.decodeVLI(inChecked);
+        if (sign == 1)
+            key = ~key;
+
+        XZRecordIndex index = new XZRecordIndex();
+        int block = 0;
+        long offset = 0;
+
+        for (int i = 0; i < count; ++i) {
+            long blockDelta = DecoderUtil.decodeVLI(inChecked);
+            long size = DecoderUtil.decodeVLI(inChecked);
+            long keyDelta = DecoderUtil.decodeVLI(inChecked);
+
+            // keyDelta is non-negative so the sum is smaller than key
+            // only if it overflows.
+            if (blockDelta > Integer.MAX_VALUE - block
+                    || key + keyDelta < key)
+                throw new CorruptedInputException(
+                        "XZ record index is corrupt");
+
+            if (blockDelta > 0) {
+                block += (int)blockDelta;
+                offset = 0;
+            } else if (i > 0) {
+                offset += index.sizes[i - 1];
+                if (offset < 0)
+                    throw new CorruptedInputException(
+                            "XZ record index is corrupt");
+            }
+
+            key += keyDelta;
+            index.add(key, block, offset, size);
+        }
+
+        long value = inChecked.getChecksum().getValue();
+        for (int i = 0; i < 4; ++i)
+            if (((value >>> (i * 8)) & 0xFF) != inData.readUnsignedByte())
+                throw new CorruptedInputException(
+                        "XZ record index is corrupt");
+
+        return index;
+    }
+
+    private void checkRecord(int record) {
+        if (record < 0 || record >= recordCount)
+            throw new IndexOutOfBoundsException(
+                    "Invalid XZ record number: " + record);
+    }
+}
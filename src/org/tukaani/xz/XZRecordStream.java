@@ -0,0 +1,428 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Splits a .xz file into a {@code Stream} of lines or other delimited
+ * records that can be processed in parallel.
+ * <p>
+ * The returned streams are backed by a {@code Spliterator} that splits
+ * the file at XZ Block boundaries using the Index of the file. Each part
+ * is decompressed with its own {@link SeekableXZInputStream}, so with
+ * {@code .parallel()} the decompression is spread over the threads of
+ * the stream. A record that crosses a Block boundary is returned
+ * once and in one piece: it belongs to the part where it starts, and
+ * that part continues decompressing into the next Block to get
+ * the end of the record.
+ * <p>
+ * Parallel processing is possible only if the file has multiple Blocks.
+ * Files created with {@link XZOutputStream#setBlockSize(long)} or with
+ * the {@code xz} tool in multi-threaded mode are suitable. A file with
+ * one Block is processed by one thread.
+ * <p>
+ * The order of the records is kept, so {@code forEachOrdered} and
+ * {@code collect} see the records in the same order as
+ * {@code BufferedReader.lines()} would. Errors are thrown as
+ * {@code UncheckedIOException}. The returned stream should be closed
+ * to close the files, for example, with try-with-resources:
+ * <blockquote><pre>
+ * try (Stream&lt;String&gt; lines = XZRecordStream.lines(
+ *         new File("log.xz"), StandardCharsets.UTF_8)) {
+ *     long errors = lines.parallel()
+ *             .filter(line -&gt; line.contains("ERROR"))
+ *             .count();
+ * }
+ * </pre></blockquote>
+ *
+ * @since 1.13
+ */
+public class XZRecordStream {
+    private XZRecordStream() {}
+
+    /**
+     * Gets the lines of a .xz file. This is the same as
+     * {@code lines(factory, charset)} with a factory that opens
+     * {@code file} with {@link SeekableFileInputStream}.
+     */
+    public static Stream<String> lines(File file, Charset charset)
+            throws IOException {
+        return lines(getFactory(file), charset);
+    }
+
+    /**
+     * Gets the lines of a .xz file.
+     * <p>
+     * Lines are terminated by {@code '\n'} or {@code "\r\n"} and
+     * the terminators aren't included in the strings. The charset must
+     * encode {@code '\n'} as the byte 0x0A and never use the byte 0x0A
+     * for anything else. UTF-8, ISO-8859-1, and US-ASCII are fine while
+     * UTF-16 isn't.
+     *
+     * @param       factory     opens the .xz file; this is called once
+     *                          here and once for every part that is
+     *                          decompressed
+     *
+     * @param       charset     charset of the text
+     *
+     * @throws      XZFormatException
+     * @throws      CorruptedInputException
+     * @throws      UnsupportedOptionsException
+     *
+     * @throws      IOException may be thrown by the streams from
+     *                          {@code factory}
+     */
+    public static Stream<String> lines(SeekableInputFactory factory,
+                                       final Charset charset)
+            throws IOException {
+        return records(factory, (byte)'\n').map(
+                new Function<ByteBuffer, String>() {
+                    @Override
+                    public String apply(ByteBuffer record) {
+                        int len = record.remaining();
+                        if (len > 0 && record.get(len - 1) == '\r')
+                            --len;
+
+                        return new String(record.array(), 0, len, charset);
+                    }
+                });
+    }
+
+    /**
+     * Gets the records of a .xz file. This is the same as
+     * {@code records(factory, delimiter)} with a factory that opens
+     * {@code file} with {@link SeekableFileInputStream}.
+     */
+    public static Stream<ByteBuffer> records(File file, byte delimiter)
+            throws IOException {
+        return records(getFactory(file), delimiter);
+    }
+
+    /**
+     * Gets the records of a .xz file.
+     * <p>
+     * Each record ends with {@code delimiter}. The last record doesn't
+     * need to have a delimiter. The delimiters aren't included in
+     * the records. Each record is in its own array which starts at
+     * the beginning of the {@code ByteBuffer}.
+     *
+     * @param       factory     opens the .xz file; this is called once
+     *                          here and once for every part that is
+     *                          decompressed
+     *
+     * @param       delimiter   the byte that ends a record
+     *
+     * @throws      XZFormatException
+     * @throws      CorruptedInputException
+     * @throws      UnsupportedOptionsException
+     *
+     * @throws      IOException may be thrown by the streams from
+     *                          {@code factory}
+     */
+    public static Stream<ByteBuffer> records(SeekableInputFactory factory,
+                                             byte delimiter)
+            throws IOException {
+        final Source source = new Source(factory, delimiter);
+        Stream<ByteBuffer> stream = StreamSupport.stream(
+                new RecordSpliterator(source, 0, source.blockPos.length - 1),
+                false);
+
+        return stream.onClose(new Runnable() {
+            @Override
+            public void run() {
+                source.closeAll();
+            }
+        });
+    }
+
+    private static SeekableInputFactory getFactory(final File file) {
+        return new SeekableInputFactory() {
+            @Override
+            public SeekableInputStream open() throws IOException {
+                return new SeekableFileInputStream(file);
+            }
+        };
+    }
+
+    /**
+     * State shared by all parts of one stream.
+     */
+    private static class Source {
+        final SeekableInputFactory factory;
+        final byte delimiter;
+
+        /**
+         * Uncompressed start positions of the Blocks, followed by
+         * the uncompressed size of the file.
+         */
+        final long[] blockPos;
+
+        private final Set<Closeable> openStreams = new HashSet<Closeable>();
+
+        Source(SeekableInputFactory factory, byte delimiter)
+                throws IOException {
+            this.factory = factory;
+            this.delimiter = delimiter;
+
+            SeekableXZInputStream in = open();
+            try {
+                blockPos = new long[in.getBlockCount() + 1];
+                for (int i = 0; i < blockPos.length - 1; ++i)
+                    blockPos[i] = in.getBlockPos(i);
+
+                blockPos[blockPos.length - 1] = in.length();
+            } finally {
+                close(in);
+            }
+        }
+
+        SeekableXZInputStream open() throws IOException {
+            SeekableInputStream file = factory.open();
+            try {
+                SeekableXZInputStream in = new SeekableXZInputStream(file);
+                synchronized (openStreams) {
+                    openStreams.add(in);
+                }
+
+                return in;
+            } catch (IOException e) {
+                file.close();
+                throw e;
+            }
+        }
+
+        void close(SeekableXZInputStream in) throws IOException {
+            synchronized (openStreams) {
+                openStreams.remove(in);
+            }
+
+            in.close();
+        }
+
+        /**
+         * Closes the streams of parts that weren't processed to the end,
+         * for example, because of {@code findFirst()} or an exception.
+         */
+        void closeAll() {
+            List<Closeable> streams;
+            synchronized (openStreams) {
+                streams = new ArrayList<Closeable>(openStreams);
+                openStreams.clear();
+            }
+
+            IOException failure = null;
+            for (Closeable stream : streams) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    if (failure == null)
+                        failure = e;
+                }
+            }
+
+            if (failure != null)
+                throw new UncheckedIOException(failure);
+        }
+    }
+
+    /**
+     * Returns the records that start in the uncompressed range
+     * from the end of the first record that ends at or after
+     * the beginning of the Block {@code firstBlock} to the end of
+     * the first record that ends at or after the end of the Block
+     * {@code endBlock - 1}. The first part starts from the beginning of
+     * the file. This way each record belongs to exactly one part and
+     * the decision doesn't require decompressing the previous Block.
+     */
+    private static class RecordSpliterator implements Spliterator<ByteBuffer> {
+        private static final int BUF_SIZE = 8192;
+
+        private final Source source;
+        private int firstBlock;
+        private final int endBlock;
+
+        private SeekableXZInputStream in = null;
+        private boolean finished = false;
+
+        private byte[] buf;
+        private int bufPos = 0;
+        private int bufSize = 0;
+
+        /**
+         * Uncompressed position of {@code buf[bufSize]}.
+         */
+        private long bufEndPos;
+
+        private byte[] record = new byte[0];
+        private int recordSize;
+
+        RecordSpliterator(Source source, int firstBlock, int endBlock) {
+            this.source = source;
+            this.firstBlock = firstBlock;
+            this.endBlock = endBlock;
+        }
+
+        @Override
+        public Spliterator<ByteBuffer> trySplit() {
+            if (in != null || finished || endBlock - firstBlock < 2)
+                return null;
+
+            int mid = (firstBlock + endBlock) >>> 1;
+            RecordSpliterator prefix
+                    = new RecordSpliterator(source, firstBlock, mid);
+            firstBlock = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            // The number of records isn't known so the uncompressed size
+            // is used. It is only needed to compare the parts.
+            return finished ? 0 : source.blockPos[endBlock]
+                                  - source.blockPos[firstBlock];
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+            if (finished)
+                return false;
+
+            try {
+                if (in == null && !start()) {
+                    finish();
+                    return false;
+                }
+
+                long delimiterPos = readRecord(true);
+                if (delimiterPos < 0 && recordSize == 0) {
+                    finish();
+                    return false;
+                }
+
+                ByteBuffer result = ByteBuffer.wrap(
+                        Arrays.copyOf(record, recordSize));
+
+                if (delimiterPos < 0
+                        || delimiterPos >= source.blockPos[endBlock])
+                    finish();
+
+                action.accept(result);
+                return true;
+
+            } catch (IOException e) {
+                finished = true;
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Opens the file and skips the record that belongs to
+         * the previous part.
+         *
+         * @return      true if this part has records, false otherwise
+         */
+        private boolean start() throws IOException {
+            if (firstBlock == endBlock)
+                return false;
+
+            buf = new byte[BUF_SIZE];
+            in = source.open();
+            in.seekToBlock(firstBlock);
+            bufEndPos = source.blockPos[firstBlock];
+
+            if (firstBlock == 0)
+                return true;
+
+            long delimiterPos = readRecord(false);
+            return delimiterPos >= 0
+                   && delimiterPos < source.blockPos[endBlock];
+        }
+
+        /**
+         * Reads up to and including the next delimiter. If {@code keep}
+         * is true, the bytes before the delimiter are stored in
+         * {@code record}.
+         *
+         * @return      uncompressed position of the delimiter,
+         *              or -1 if the end of the file was reached
+         */
+        private long readRecord(boolean keep) throws IOException {
+            recordSize = 0;
+
+            while (true) {
+                if (bufPos == bufSize) {
+                    bufSize = in.read(buf, 0, buf.length);
+                    bufPos = 0;
+                    if (bufSize == -1) {
+                        bufSize = 0;
+                        return -1;
+                    }
+
+                    bufEndPos += bufSize;
+                }
+
+                int start = bufPos;
+                while (bufPos < bufSize && buf[bufPos] != source.delimiter)
+                    ++bufPos;
+
+                if (keep)
+                    append(start, bufPos - start);
+
+                if (bufPos < bufSize) {
+                    ++bufPos;
+                    return bufEndPos - (bufSize - bufPos) - 1;
+                }
+            }
+        }
+
+        private void append(int off, int len) throws IOException {
+            if (recordSize + len > record.length) {
+                if (recordSize + len < 0)
+                    throw new XZIOException(
+                            "Record is too big for a byte array");
+
+                record = Arrays.copyOf(record, Math.max(recordSize + len,
+                        (int)Math.min(record.length * 2L,
+                                      Integer.MAX_VALUE - 8)));
+            }
+
+            System.arraycopy(buf, off, record, recordSize, len);
+            recordSize += len;
+        }
+
+        private void finish() throws IOException {
+            finished = true;
+            buf = null;
+            record = null;
+
+            if (in != null) {
+                SeekableXZInputStream s = in;
+                in = null;
+                source.close(s);
+            }
+        }
+    }
+}
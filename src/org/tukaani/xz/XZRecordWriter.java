@@ -0,0 +1,187 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Compresses records, for example, lines of a log file, so that every
+ * record can be read without decompressing the records before it.
+ * <p>
+ * The records are written to an {@link XZOutputStream} so that
+ * XZ Blocks are split only between records. Meanwhile an
+ * {@link XZRecordIndex} is built that maps the record numbers and
+ * user-supplied keys to Blocks and offsets inside the Blocks.
+ * The .xz file is a normal .xz file that any XZ decompressor can read.
+ * The index is meant to be saved separately with
+ * {@link XZRecordIndex#writeTo(java.io.OutputStream)}.
+ * <p>
+ * Reading one record needs decompressing its Block from the beginning
+ * up to the record. With a smaller Block size a lookup is faster but
+ * the compression ratio is worse. Block sizes from 64 KiB to 1 MiB
+ * are reasonable for log files.
+ * <p>
+ * Example:
+ * <blockquote><pre>
+ * XZOutputStream out = new XZOutputStream(
+ *         new FileOutputStream("log.xz"), new LZMA2Options());
+ * XZRecordWriter writer = new XZRecordWriter(out, 256 &lt;&lt; 10);
+ * for (LogLine line : lines) {
+ *     byte[] buf = (line.getText() + "\n").getBytes("UTF-8");
+ *     writer.writeRecord(buf, 0, buf.length, line.getTimestamp());
+ * }
+ * writer.close();
+ *
+ * FileOutputStream indexFile = new FileOutputStream("log.xz.idx");
+ * writer.getIndex().writeTo(indexFile);
+ * indexFile.close();
+ * </pre></blockquote>
+ *
+ * @since 1.13
+ */
+public class XZRecordWriter implements Closeable {
+    private final XZOutputStream out;
+    private final long blockSize;
+    private final XZRecordIndex index = new XZRecordIndex();
+
+    private int blockNumber = 0;
+    private long blockPos = 0;
+    private long lastKey = 0;
+    private boolean finished = false;
+
+    /**
+     * Creates a new record writer.
+     * <p>
+     * {@code out} must be a new {@code XZOutputStream} to which nothing
+     * has been written, and it must not be used directly while this
+     * writer is in use. Otherwise the Block numbers in the index will
+     * be wrong. Automatic Block splitting of {@code out} is disabled with
+     * {@code setBlockSize(0)} because this class ends the Blocks itself.
+     *
+     * @param       out         stream to write the compressed records to
+     *
+     * @param       blockSize   a Block is finished when its uncompressed
+     *                          size has reached this and a new record
+     *                          is written
+     *
+     * @throws      UnsupportedOptionsException
+     *                          {@code blockSize} isn't positive
+     */
+    public XZRecordWriter(XZOutputStream out, long blockSize)
+            throws XZIOException {
+        if (blockSize <= 0)
+            throw new UnsupportedOptionsException(
+                    "Block size must be positive: " + blockSize);
+
+        out.setBlockSize(0);
+        this.out = out;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Writes a record with the same key as the previous record, or zero
+     * if this is the first record. This is the same as
+     * {@code writeRecord(buf, off, len, key)} with the previous key.
+     */
+    public void writeRecord(byte[] buf, int off, int len)
+            throws IOException {
+        writeRecord(buf, off, len, lastKey);
+    }
+
+    /**
+     * Writes a record. The record should include its delimiter, for
+     * example, the newline character, so that the decompressed file
+     * can be split into records again.
+     *
+     * @param       buf         buffer containing the record
+     * @param       off         start offset in {@code buf}
+     * @param       len         length of the record
+     * @param       key         key of the record; it must not be smaller
+     *                          than the key of the previous record
+     *                          and it may be at most
+     *                          {@code Long.MAX_VALUE} greater than
+     *                          the key of the previous record
+     *
+     * @throws      IllegalArgumentException
+     *                          {@code key} is smaller than the key of
+     *                          the previous record or the difference
+     *                          to the previous key is greater than
+     *                          {@code Long.MAX_VALUE}
+     *
+     * @throws      XZIOException
+     *                          the index or the XZ Stream has grown
+     *                          too big
+     *
+     * @throws      XZIOException
+     *                          {@code finish()} or {@code close()}
+     *                          was already called
+     *
+     * @throws      IOException may be thrown by the underlying output stream
+     */
+    public void writeRecord(byte[] buf, int off, int len, long key)
+            throws IOException {
+        if (off < 0 || len < 0 || off + len < 0 || off + len > buf.length)
+            throw new IndexOutOfBoundsException();
+
+        if (finished)
+            throw new XZIOException("Stream finished or closed");
+
+        if (index.getRecordCount() > 0) {
+            if (key < lastKey)
+                throw new IllegalArgumentException(
+                        "XZ record keys must be non-decreasing");
+
+            if (key - lastKey < 0)
+                throw new IllegalArgumentException(
+                        "XZ record key range is too big");
+        }
+
+        // A full Block is finished only when the next record arrives.
+        // This way finish() never leaves an empty Block number in
+        // the index.
+        if (blockPos >= blockSize) {
+            out.endBlock();
+            ++blockNumber;
+            blockPos = 0;
+        }
+
+        out.write(buf, off, len);
+        index.add(key, blockNumber, blockPos, len);
+        blockPos += len;
+        lastKey = key;
+    }
+
+    /**
+     * Gets the index of the records written so far. The same object is
+     * returned every time and it is updated when more records are
+     * written.
+     */
+    public XZRecordIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Finishes the compression without closing the underlying stream.
+     *
+     * @throws      IOException may be thrown by the underlying output stream
+     */
+    public void finish() throws IOException {
+        out.finish();
+        finished = true;
+    }
+
+    /**
+     * Finishes the compression and closes the underlying stream.
+     * The index stays available with {@link #getIndex()}.
+     *
+     * @throws      IOException may be thrown by the underlying output stream
+     */
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        out.close();
+    }
+}
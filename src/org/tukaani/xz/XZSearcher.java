@@ -0,0 +1,724 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Searches the uncompressed contents of a .xz file with multiple threads.
+ * <p>
+ * The XZ Blocks of the file are decompressed and searched in parallel
+ * using an {@code ExecutorService}. Each Block is decompressed
+ * independently with {@link SeekableXZInputStream}, so this helps only
+ * with files that have multiple Blocks. The search of a Block continues
+ * a little into the next Block so that matches crossing a Block boundary
+ * are found too. Each match is reported once, by the Block where
+ * the match starts.
+ * <p>
+ * The matches are returned in the order of their positions.
+ * {@link #stream(byte[])} returns them as they are found while
+ * {@link #findAll(byte[])} collects them into a list. Only a limited
+ * number of Blocks is searched ahead of the consumer of the stream, so
+ * the memory usage doesn't depend on the size of the file.
+ * <p>
+ * Example:
+ * <blockquote><pre>
+ * ExecutorService executor = Executors.newFixedThreadPool(
+ *         Runtime.getRuntime().availableProcessors());
+ * try (XZSearcher searcher = new XZSearcher(new File("log.xz"), executor);
+ *      Stream&lt;XZSearcher.Hit&gt; hits = searcher.stream(
+ *             "OutOfMemoryError".getBytes(StandardCharsets.UTF_8))) {
+ *     hits.forEach(hit -&gt; System.out.println(hit.getPosition()));
+ * }
+ * </pre></blockquote>
+ *
+ * @since 1.13
+ */
+public class XZSearcher implements Closeable {
+    /**
+     * Maximum supported match length of regular expressions.
+     */
+    public static final int MAX_MATCH_LENGTH = 64 << 20;
+
+    /**
+     * Amount of uncompressed data searched at once. Big Blocks are
+     * searched in pieces of this size so that the memory usage
+     * doesn't depend on the Block size.
+     */
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+     * A match found by {@code XZSearcher}.
+     *
+     * @since 1.13
+     */
+    public static class Hit {
+        private final long position;
+        private final int length;
+        private final int blockNumber;
+
+        Hit(long position, int length, int blockNumber) {
+            this.position = position;
+            this.length = length;
+            this.blockNumber = blockNumber;
+        }
+
+        /**
+         * Gets the uncompressed position of the first byte of the match.
+         * This can be used with {@link SeekableXZInputStream#seek(long)}.
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * Gets the length of the match in bytes.
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the number of the XZ Block where the match starts.
+         */
+        public int getBlockNumber() {
+            return blockNumber;
+        }
+    }
+
+    private final SeekableInputFactory factory;
+    private final ExecutorService executor;
+    private final int maxPendingBlocks;
+
+    /**
+     * Uncompressed start positions of the Blocks, followed by
+     * the uncompressed size of the file.
+     */
+    private final long[] blockPos;
+
+    /**
+     * Decompressors that aren't in use. Opening a new one requires
+     * parsing the Index, so they are reused between Blocks.
+     */
+    private final ArrayDeque<SeekableXZInputStream> idleStreams
+            = new ArrayDeque<SeekableXZInputStream>();
+    private boolean closed = false;
+
+    /**
+     * Creates a searcher for a file. This is the same as
+     * {@code new XZSearcher(factory, executor)} with a factory that
+     * opens {@code file} with {@link SeekableFileInputStream}.
+     */
+    public XZSearcher(final File file, ExecutorService executor)
+            throws IOException {
+        this(new SeekableInputFactory() {
+            @Override
+            public SeekableInputStream open() throws IOException {
+                return new SeekableFileInputStream(file);
+            }
+        }, executor);
+    }
+
+    /**
+     * Creates a searcher for a .xz file. The Index of the file is read
+     * to find the Blocks.
+     *
+     * @param       factory     opens the .xz file; each thread that
+     *                          searches opens the file once
+     *
+     * @param       executor    executor used to search the Blocks in
+     *                          parallel, or {@code null} to search them
+     *                          one after another in the thread that reads
+     *                          the results
+     *
+     * @throws      XZFormatException
+     * @throws      CorruptedInputException
+     * @throws      UnsupportedOptionsException
+     *
+     * @throws      IOException may be thrown by the streams from
+     *                          {@code factory}
+     */
+    public XZSearcher(SeekableInputFactory factory, ExecutorService executor)
+            throws IOException {
+        this.factory = factory;
+        this.executor = executor;
+        maxPendingBlocks = executor == null
+                ? 1 : 2 * Runtime.getRuntime().availableProcessors();
+
+        SeekableXZInputStream in = openStream();
+        blockPos = new long[in.getBlockCount() + 1];
+        for (int i = 0; i < blockPos.length - 1; ++i)
+            blockPos[i] = in.getBlockPos(i);
+
+        blockPos[blockPos.length - 1] = in.length();
+        releaseStream(in);
+    }
+
+    /**
+     * Finds all occurrences of a byte sequence. Overlapping occurrences
+     * are all reported.
+     *
+     * @throws      IllegalArgumentException
+     *                          {@code pattern} is empty
+     *
+     * @throws      XZIOException
+     *                          this searcher has been closed
+     *
+     * @throws      IOException errors from decompression or from
+     *                          the file
+     */
+    public List<Hit> findAll(byte[] pattern) throws IOException {
+        return collect(stream(pattern));
+    }
+
+    /**
+     * Finds all matches of a regular expression. See
+     * {@link #stream(Pattern, int)} for how the data is matched.
+     *
+     * @throws      IllegalArgumentException
+     *                          {@code maxMatchLength} is not in the range
+     *                          [1, {@link #MAX_MATCH_LENGTH}]
+     *
+     * @throws      XZIOException
+     *                          this searcher has been closed
+     *
+     * @throws      IOException errors from decompression or from
+     *                          the file
+     */
+    public List<Hit> findAll(Pattern regex, int maxMatchLength)
+            throws IOException {
+        return collect(stream(regex, maxMatchLength));
+    }
+
+    /**
+     * Returns the occurrences of a byte sequence as a stream.
+     * Overlapping occurrences are all reported.
+     * <p>
+     * Closing the stream cancels the search of the Blocks that haven't
+     * been started yet. Decompression errors are thrown as
+     * {@code UncheckedIOException} when the stream reaches the Block
+     * that failed.
+     *
+     * @throws      IllegalArgumentException
+     *                          {@code pattern} is empty
+     *
+     * @throws      XZIOException
+     *                          this searcher has been closed
+     */
+    public Stream<Hit> stream(final byte[] pattern) throws XZIOException {
+        if (pattern.length == 0)
+            throw new IllegalArgumentException("Search pattern is empty");
+
+        final byte[] p = pattern.clone();
+        return stream(new BlockMatcher() {
+            @Override
+            int overlap() {
+                return p.length - 1;
+            }
+
+            @Override
+            int lookBehind() {
+                return 0;
+            }
+
+            @Override
+            boolean allowsOverlap() {
+                return true;
+            }
+
+            @Override
+            long find(byte[] buf, int begin, int size, int end, long pos,
+                      long minPos, int block, List<Hit> hits) {
+                int last = Math.min(end, size - p.length + 1);
+                byte first = p[0];
+
+                for (int i = begin; i < last; ++i) {
+                    if (buf[i] != first)
+                        continue;
+
+                    int j = 1;
+                    while (j < p.length && buf[i + j] == p[j])
+                        ++j;
+
+                    if (j == p.length)
+                        hits.add(new Hit(pos + i, p.length, block));
+                }
+
+                return minPos;
+            }
+        });
+    }
+
+    /**
+     * Returns the matches of a regular expression as a stream.
+     * <p>
+     * The bytes are given to the regular expression as ISO-8859-1
+     * characters, so every byte is one character and the positions of
+     * the matches are byte positions. Patterns containing only ASCII
+     * characters work with UTF-8 text too.
+     * <p>
+     * The matching is restarted at the beginning of each XZ Block:
+     * {@code ^}, {@code \b}, and lookbehind don't see the previous
+     * Block. The matches don't overlap like with
+     * {@code Matcher.find()}: if a match continues into the next Block,
+     * the matches of that Block that start before its end are dropped.
+     * Big Blocks are searched in pieces, and
+     * lookbehind can see at least {@code maxMatchLength - 1} bytes
+     * before the current piece. A match may extend past the end of
+     * the piece or into the next Block by at most
+     * {@code maxMatchLength - 1} bytes; longer matches are cut or
+     * missed, and {@code $} and lookahead treat the end of that window
+     * as the end of the input. Thus a pattern that can match long
+     * strings, for example, {@code "ERROR.*"}, should be limited like
+     * {@code "ERROR[^\n]*"}.
+     * <p>
+     * Closing the stream cancels the search of the Blocks that haven't
+     * been started yet. Decompression errors are thrown as
+     * {@code UncheckedIOException} when the stream reaches the Block
+     * that failed.
+     *
+     * @param       regex       regular expression to search
+     *
+     * @param       maxMatchLength
+     *                          maximum length of a match
+     *
+     * @throws      IllegalArgumentException
+     *                          {@code maxMatchLength} is not in the range
+     *                          [1, {@link #MAX_MATCH_LENGTH}]
+     *
+     * @throws      XZIOException
+     *                          this searcher has been closed
+     */
+    public Stream<Hit> stream(final Pattern regex, final int maxMatchLength)
+            throws XZIOException {
+        if (maxMatchLength < 1 || maxMatchLength > MAX_MATCH_LENGTH)
+            throw new IllegalArgumentException(
+                    "Invalid maximum match length: " + maxMatchLength);
+
+        return stream(new BlockMatcher() {
+            @Override
+            int overlap() {
+                return maxMatchLength - 1;
+            }
+
+            @Override
+            int lookBehind() {
+                return maxMatchLength - 1;
+            }
+
+            @Override
+            boolean allowsOverlap() {
+                return false;
+            }
+
+            @Override
+            long find(byte[] buf, int begin, int size, int end, long pos,
+                      long minPos, int block, List<Hit> hits) {
+                // The region starts where the search continues.
+                // Transparent bounds let lookbehind see the bytes before
+                // it, and without anchoring bounds ^ doesn't match at
+                // the start of the region unless a line starts there.
+                Matcher m = regex.matcher(new ByteCharSequence(buf, size));
+                m.useTransparentBounds(true);
+                m.useAnchoringBounds(false);
+                int from = (int)Math.max(begin, minPos - pos);
+
+                while (from <= size) {
+                    m.region(from, size);
+                    if (!m.find() || m.start() >= end)
+                        break;
+
+                    hits.add(new Hit(pos + m.start(), m.end() - m.start(),
+                                     block));
+
+                    // An empty match must not be found again.
+                    from = m.end() > m.start() ? m.end() : m.end() + 1;
+                }
+
+                return pos + from;
+            }
+        });
+    }
+
+    /**
+     * Closes the files that were opened by this searcher. Searches that
+     * are in progress may fail.
+     */
+    @Override
+    public void close() throws IOException {
+        List<SeekableXZInputStream> streams;
+        synchronized (idleStreams) {
+            closed = true;
+            streams = new ArrayList<SeekableXZInputStream>(idleStreams);
+            idleStreams.clear();
+        }
+
+        IOException failure = null;
+        for (SeekableXZInputStream in : streams) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+
+        if (failure != null)
+            throw failure;
+    }
+
+    private static List<Hit> collect(Stream<Hit> stream) throws IOException {
+        try {
+            List<Hit> hits = new ArrayList<Hit>();
+            Iterator<Hit> i = stream.iterator();
+            while (i.hasNext())
+                hits.add(i.next());
+
+            return hits;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private Stream<Hit> stream(BlockMatcher matcher)
+            throws XZIOException {
+        synchronized (idleStreams) {
+            if (closed)
+                throw new XZIOException("Stream closed");
+        }
+
+        final BlockResults results = new BlockResults(matcher);
+        Stream<List<Hit>> blocks = StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(
+                        results, Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+
+        return blocks.onClose(new Runnable() {
+            @Override
+            public void run() {
+                results.cancel();
+            }
+        }).flatMap(new Function<List<Hit>, Stream<Hit>>() {
+            @Override
+            public Stream<Hit> apply(List<Hit> hits) {
+                return hits.stream();
+            }
+        });
+    }
+
+    /**
+     * Finds matches from a window of uncompressed data. The same object
+     * is used from multiple threads so it must not have mutable state.
+     */
+    private abstract static class BlockMatcher {
+        /**
+         * Gets how many bytes after the end of a Block need to be
+         * searched to find all matches that start in the Block.
+         */
+        abstract int overlap();
+
+        /**
+         * Gets how many bytes before a piece of a big Block need to be
+         * kept so that the matcher can look at them.
+         */
+        abstract int lookBehind();
+
+        /**
+         * Returns true if overlapping matches are all reported. If false,
+         * a match that starts before the end of the previous match is
+         * dropped. Such a match is possible only when the previous match
+         * started in the previous Block and continued into this one.
+         */
+        abstract boolean allowsOverlap();
+
+        /**
+         * Finds the matches that start in {@code buf[begin, end)} and
+         * are within {@code buf[0, size)}. {@code buf[0, begin)} holds
+         * the bytes before the piece being searched. {@code buf[0]} is
+         * at the uncompressed position {@code pos}. Matches that start
+         * before {@code minPos} are ignored.
+         *
+         * @return      {@code minPos} for the next call in the same Block
+         */
+        abstract long find(byte[] buf, int begin, int size, int end,
+                           long pos, long minPos, int block,
+                           List<Hit> hits);
+    }
+
+    private List<Hit> searchBlock(int block, BlockMatcher matcher)
+            throws IOException {
+        List<Hit> hits = new ArrayList<Hit>();
+        long start = blockPos[block];
+        long end = blockPos[block + 1];
+        long minPos = start;
+        int overlap = matcher.overlap();
+
+        if (start == end)
+            return hits;
+
+        // A Block that fits in one chunk has nothing before it.
+        int lookBehind = end - start > CHUNK_SIZE ? matcher.lookBehind() : 0;
+        byte[] buf = new byte[lookBehind
+                              + (int)Math.min(CHUNK_SIZE, end - start)
+                              + overlap];
+
+        // buf[0, begin) holds the end of the previous chunk and
+        // buf[begin] is at the uncompressed position start.
+        int begin = 0;
+        int size = 0;
+
+        SeekableXZInputStream in = getStream();
+        boolean success = false;
+        try {
+            in.seekToBlock(block);
+
+            do {
+                // Read the rest of the chunk and the overlap. The overlap
+                // of the last chunk comes from the following Blocks.
+                int limit = (int)Math.min(buf.length,
+                                          begin + end - start + overlap);
+                while (size < limit) {
+                    int ret = in.read(buf, size, limit - size);
+                    if (ret == -1)
+                        break;
+
+                    size += ret;
+                }
+
+                int chunkEnd = begin + (int)Math.min(
+                        Math.min(size - begin, end - start), CHUNK_SIZE);
+                minPos = matcher.find(buf, begin, size, chunkEnd,
+                                      start - begin, minPos, block, hits);
+
+                int keep = Math.min(chunkEnd, lookBehind);
+                System.arraycopy(buf, chunkEnd - keep, buf, 0,
+                                 size - chunkEnd + keep);
+                size -= chunkEnd - keep;
+                start += chunkEnd - begin;
+                begin = keep;
+            } while (start < end && size > begin);
+
+            success = true;
+        } finally {
+            // A failed stream may be in a bad state so it isn't reused.
+            if (success)
+                releaseStream(in);
+            else
+                in.close();
+        }
+
+        return hits;
+    }
+
+    private SeekableXZInputStream openStream() throws IOException {
+        SeekableInputStream file = factory.open();
+        try {
+            return new SeekableXZInputStream(file);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private SeekableXZInputStream getStream() throws IOException {
+        synchronized (idleStreams) {
+            if (closed)
+                throw new XZIOException("Stream closed");
+
+            if (!idleStreams.isEmpty())
+                return idleStreams.pop();
+        }
+
+        return openStream();
+    }
+
+    private void releaseStream(SeekableXZInputStream in) throws IOException {
+        synchronized (idleStreams) {
+            if (!closed) {
+                idleStreams.push(in);
+                return;
+            }
+        }
+
+        in.close();
+    }
+
+    /**
+     * Searches the Blocks in order keeping at most
+     * {@code maxPendingBlocks} Blocks in progress.
+     */
+    private class BlockResults implements Iterator<List<Hit>> {
+        private final BlockMatcher matcher;
+        private final ArrayDeque<Future<List<Hit>>> pending
+                = new ArrayDeque<Future<List<Hit>>>();
+        private int nextBlock = 0;
+        private boolean cancelled = false;
+
+        /**
+         * The end position of the last match that has been returned.
+         */
+        private long prevEnd = 0;
+
+        BlockResults(BlockMatcher matcher) {
+            this.matcher = matcher;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (executor == null)
+                return !cancelled && nextBlock < blockPos.length - 1;
+
+            startBlocks();
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public List<Hit> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            List<Hit> hits;
+            try {
+                hits = executor == null ? searchBlock(nextBlock++, matcher)
+                                        : waitFor(pending.poll());
+            } catch (IOException e) {
+                cancel();
+                throw new UncheckedIOException(e);
+            }
+
+            if (matcher.allowsOverlap() || hits.isEmpty())
+                return hits;
+
+            // The matches within a Block don't overlap, so only those at
+            // the beginning of the list can overlap the previous match.
+            int first = 0;
+            while (first < hits.size()
+                    && hits.get(first).getPosition() < prevEnd)
+                ++first;
+
+            hits = hits.subList(first, hits.size());
+            if (!hits.isEmpty()) {
+                Hit last = hits.get(hits.size() - 1);
+                prevEnd = last.getPosition() + last.getLength();
+            }
+
+            return hits;
+        }
+
+        private void startBlocks() {
+            while (!cancelled && pending.size() < maxPendingBlocks
+                    && nextBlock < blockPos.length - 1) {
+                final int block = nextBlock++;
+                pending.add(executor.submit(new Callable<List<Hit>>() {
+                    @Override
+                    public List<Hit> call() throws IOException {
+                        return searchBlock(block, matcher);
+                    }
+                }));
+            }
+        }
+
+        private List<Hit> waitFor(Future<List<Hit>> future)
+                throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException)cause;
+
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException)cause;
+
+                if (cause instanceof Error)
+                    throw (Error)cause;
+
+                throw new IOException(cause);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            for (Future<List<Hit>> future : pending)
+                future.cancel(false);
+
+            pending.clear();
+        }
+    }
+
+    /**
+     * Shows bytes as ISO-8859-1 characters without copying them.
+     */
+    private static class ByteCharSequence implements CharSequence {
+        private final byte[] buf;
+        private final int off;
+        private final int len;
+
+        ByteCharSequence(byte[] buf, int len) {
+            this(buf, 0, len);
+        }
+
+        private ByteCharSequence(byte[] buf, int off, int len) {
+            this.buf = buf;
+            this.off = off;
+            this.len = len;
+        }
+
+        @Override
+        public int length() {
+            return len;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= len)
+                throw new IndexOutOfBoundsException();
+
+            return (char)(buf[off + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || start > end || end > len)
+                throw new IndexOutOfBoundsException();
+
+            return new ByteCharSequence(buf, off + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[len];
+            for (int i = 0; i < len; ++i)
+                chars[i] = (char)(buf[off + i] & 0xFF);
+
+            return new String(chars);
+        }
+    }
+}
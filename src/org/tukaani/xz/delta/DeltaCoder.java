@@ -9,6 +9,12 @@ abstract class DeltaCoder {
     static final int DISTANCE_MIN = 1;
     static final int DISTANCE_MAX = 256;
 
+    /**
+     * With distances of at least this many bytes, the bytes are
+     * processed eight at a time.
+     */
+    static final int DISTANCE_WIDE_MIN = 8;
+
     final int distance;
     final byte[] history;
 
@@ -20,4 +26,23 @@ abstract class DeltaCoder {
         this.distance = distance;
         this.history = new byte[distance];
     }
+
+    /**
+     * Adds each of the eight bytes in {@code b} to the corresponding byte
+     * in {@code a} modulo 256. Carries don't propagate to the next byte.
+     */
+    static long addBytes(long a, long b) {
+        return ((a & 0x7F7F7F7F7F7F7F7FL) + (b & 0x7F7F7F7F7F7F7F7FL))
+               ^ ((a ^ b) & 0x8080808080808080L);
+    }
+
+    /**
+     * Subtracts each of the eight bytes in {@code b} from the corresponding
+     * byte in {@code a} modulo 256. Borrows don't propagate to the next
+     * byte.
+     */
+    static long subBytes(long a, long b) {
+        return ((a | 0x8080808080808080L) - (b & 0x7F7F7F7F7F7F7F7FL))
+               ^ ((a ^ ~b) & 0x8080808080808080L);
+    }
 }
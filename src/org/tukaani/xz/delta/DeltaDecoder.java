@@ -5,6 +5,8 @@
 
 package org.tukaani.xz.delta;
 
+import org.tukaani.xz.common.ByteArrayView;
+
 public class DeltaDecoder extends DeltaCoder {
     public DeltaDecoder(int distance) {
         super(distance);
@@ -18,7 +20,17 @@ public class DeltaDecoder extends DeltaCoder {
             buf[off + i] += history[i];
         }
 
-        // Then process rest just within buf.
+        // Then process rest just within buf. With long distances the bytes
+        // being added are at least eight bytes behind and thus already
+        // decoded, so eight bytes can be processed at a time.
+        if (distance >= DISTANCE_WIDE_MIN) {
+            for ( ; i <= len - 8; i += 8) {
+                long x = ByteArrayView.getLongLE(buf, off + i);
+                long y = ByteArrayView.getLongLE(buf, off + i - distance);
+                ByteArrayView.setLongLE(buf, off + i, addBytes(x, y));
+            }
+        }
+
         for ( ; i < len; ++i) {
             buf[off + i] += buf[off + i - distance];
         }
@@ -5,6 +5,8 @@
 
 package org.tukaani.xz.delta;
 
+import org.tukaani.xz.common.ByteArrayView;
+
 public class DeltaEncoder extends DeltaCoder {
     public DeltaEncoder(int distance) {
         super(distance);
@@ -33,6 +35,14 @@ public class DeltaEncoder extends DeltaCoder {
             System.arraycopy(in, in_off, history, distance - i, len);
         }
 
+        if (distance >= DISTANCE_WIDE_MIN) {
+            for ( ; i <= len - 8; i += 8) {
+                long x = ByteArrayView.getLongLE(in, in_off + i);
+                long y = ByteArrayView.getLongLE(in, in_off + i - distance);
+                ByteArrayView.setLongLE(out, i, subBytes(x, y));
+            }
+        }
+
         for ( ; i < len; ++i) {
             out[i] = (byte)(in[in_off + i] - in[in_off + i - distance]);
         }
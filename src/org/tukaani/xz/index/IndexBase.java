@@ -27,6 +27,10 @@ abstract class IndexBase {
         return (getUnpaddedIndexSize() + 3) & ~3;
     }
 
+    public long getUncompressedSize() {
+        return uncompressedSum;
+    }
+
     public long getStreamSize() {
         return Util.STREAM_HEADER_SIZE + blocksSum + getIndexSize()
                 + Util.STREAM_HEADER_SIZE;
@@ -36,6 +40,13 @@ abstract class IndexBase {
         return (int)((4 - getUnpaddedIndexSize()) & 3);
     }
 
+    void reset() {
+        blocksSum = 0;
+        uncompressedSum = 0;
+        indexListSize = 0;
+        recordCount = 0;
+    }
+
     void add(long unpaddedSize, long uncompressedSize) throws XZIOException {
         blocksSum += (unpaddedSize + 3) & ~3;
         uncompressedSum += uncompressedSize;
@@ -13,6 +13,7 @@ import org.tukaani.xz.SeekableInputStream;
 import org.tukaani.xz.CorruptedInputException;
 import org.tukaani.xz.MemoryLimitException;
 import org.tukaani.xz.UnsupportedOptionsException;
+import org.tukaani.xz.XZIOException;
 
 public final class IndexDecoder extends IndexBase {
     private final StreamFlags streamFlags;
@@ -137,6 +138,23 @@ public final class IndexDecoder extends IndexBase {
         uncompressedOffset = prev.uncompressedOffset + prev.uncompressedSum;
     }
 
+    /**
+     * Adds the Records of this Index to {@code encoder} so that more
+     * Blocks can be appended to the Stream.
+     */
+    public void addRecordsTo(IndexEncoder encoder) throws XZIOException {
+        long prevUnpadded = 0;
+        long prevUncompressed = 0;
+
+        for (int i = 0; i < unpadded.length; ++i) {
+            long blockPos = (prevUnpadded + 3) & ~3;
+            encoder.add(unpadded[i] - blockPos,
+                        uncompressed[i] - prevUncompressed);
+            prevUnpadded = unpadded[i];
+            prevUncompressed = uncompressed[i];
+        }
+    }
+
     public int getMemoryUsage() {
         return memoryUsage;
     }
@@ -151,10 +169,6 @@ public final class IndexDecoder extends IndexBase {
         return (int)recordCount;
     }
 
-    public long getUncompressedSize() {
-        return uncompressedSum;
-    }
-
     public long getLargestBlockSize() {
         return largestBlockSize;
     }
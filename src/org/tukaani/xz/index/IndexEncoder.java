@@ -19,6 +19,15 @@ public class IndexEncoder extends IndexBase {
         super(new XZIOException("XZ Stream or its Index has grown too big"));
     }
 
+    /**
+     * Forgets all Records so that the Index of a new Stream can be built.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        records.clear();
+    }
+
     @Override
     public void add(long unpaddedSize, long uncompressedSize)
             throws XZIOException {
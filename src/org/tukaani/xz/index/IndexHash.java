@@ -5,18 +5,35 @@
 package org.tukaani.xz.index;
 
 import java.io.InputStream;
-import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.zip.CheckedInputStream;
-import org.tukaani.xz.common.DecoderUtil;
+import java.util.zip.CRC32;
+import org.tukaani.xz.common.Util;
 import org.tukaani.xz.XZIOException;
 import org.tukaani.xz.CorruptedInputException;
 
 public class IndexHash extends IndexBase {
+    private static final int SEQ_COUNT = 0;
+    private static final int SEQ_UNPADDED = 1;
+    private static final int SEQ_UNCOMPRESSED = 2;
+    private static final int SEQ_PADDING = 3;
+    private static final int SEQ_CRC32 = 4;
+    private static final int SEQ_DONE = 5;
+
     private org.tukaani.xz.check.Check hash;
 
+    // State of the Index decoder. The Index is decoded one byte at
+    // a time so that it never needs to be buffered.
+    private final CRC32 crc32 = new CRC32();
+    private int seq;
+    private long vli;
+    private int vliPos;
+    private long unpaddedSize;
+    private int pos;
+    private IndexHash stored;
+
     public IndexHash() {
         super(new CorruptedInputException());
 
@@ -25,6 +42,32 @@ public class IndexHash extends IndexBase {
         } catch (java.security.NoSuchAlgorithmException e) {
             hash = new org.tukaani.xz.check.CRC32();
         }
+
+        resetDecoder();
+    }
+
+    /**
+     * Forgets all Records so that the Index of a new Stream can be
+     * validated.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+
+        // finish() resets the state of the hash.
+        hash.finish();
+        resetDecoder();
+    }
+
+    private void resetDecoder() {
+        // Index Indicator (0x00) has already been read by the caller
+        // so add 0x00 to the CRC32 here.
+        crc32.reset();
+        crc32.update(0x00);
+
+        seq = SEQ_COUNT;
+        vliPos = 0;
+        stored = null;
     }
 
     @Override
@@ -38,40 +81,120 @@ public class IndexHash extends IndexBase {
         hash.update(buf.array());
     }
 
+    /**
+     * Validates the Index against the Blocks that have been added.
+     * The Index Indicator must have been read already. Exactly the rest
+     * of the Index is read from {@code in}.
+     */
     public void validate(InputStream in) throws IOException {
-        // Index Indicator (0x00) has already been read by BlockInputStream
-        // so add 0x00 to the CRC32 here.
-        java.util.zip.CRC32 crc32 = new java.util.zip.CRC32();
-        crc32.update('\0');
-        CheckedInputStream inChecked = new CheckedInputStream(in, crc32);
-
-        // Get and validate the Number of Records field.
-        // If Block Header Size was corrupt and became Index Indicator,
-        // this error would actually be about corrupt Block Header.
-        // This is why the error message mentions both possibilities.
-        long storedRecordCount = DecoderUtil.decodeVLI(inChecked);
-        if (storedRecordCount != recordCount)
-            throw new CorruptedInputException(
-                    "XZ Block Header or the start of XZ Index is corrupt");
-
-        // Decode and hash the Index field and compare it to
-        // the hash value calculated from the decoded Blocks.
-        IndexHash stored = new IndexHash();
-        for (long i = 0; i < recordCount; ++i) {
-            long unpaddedSize = DecoderUtil.decodeVLI(inChecked);
-            long uncompressedSize = DecoderUtil.decodeVLI(inChecked);
-
-            try {
-                stored.add(unpaddedSize, uncompressedSize);
-            } catch (XZIOException e) {
-                throw new CorruptedInputException("XZ Index is corrupt");
-            }
-
-            if (stored.blocksSum > blocksSum
-                    || stored.uncompressedSum > uncompressedSum
-                    || stored.indexListSize > indexListSize)
-                throw new CorruptedInputException("XZ Index is corrupt");
+        while (seq != SEQ_DONE) {
+            int b = in.read();
+            if (b == -1)
+                throw new EOFException();
+
+            decodeByte(b);
+        }
+    }
+
+    /**
+     * Validates the Index like {@link #validate(InputStream)} but
+     * without blocking: the available bytes of the Index are used from
+     * {@code in} and this can be called again when more input arrives.
+     *
+     * @return      true if the whole Index has been validated,
+     *              false if more input is needed
+     */
+    public boolean validate(ByteBuffer in) throws IOException {
+        while (seq != SEQ_DONE && in.hasRemaining())
+            decodeByte(in.get() & 0xFF);
+
+        return seq == SEQ_DONE;
+    }
+
+    private void decodeByte(int b) throws IOException {
+        if (seq != SEQ_CRC32)
+            crc32.update(b);
+
+        switch (seq) {
+            case SEQ_COUNT:
+                if (!decodeVLI(b))
+                    break;
+
+                // Get and validate the Number of Records field.
+                // If Block Header Size was corrupt and became Index
+                // Indicator, this error would actually be about corrupt
+                // Block Header. This is why the error message mentions
+                // both possibilities.
+                if (vli != recordCount)
+                    throw new CorruptedInputException(
+                            "XZ Block Header or the start of XZ Index "
+                            + "is corrupt");
+
+                // Decode and hash the Index field and compare it to
+                // the hash value calculated from the decoded Blocks.
+                stored = new IndexHash();
+                seq = SEQ_UNPADDED;
+                checkListEnd();
+                break;
+
+            case SEQ_UNPADDED:
+                if (decodeVLI(b)) {
+                    unpaddedSize = vli;
+                    seq = SEQ_UNCOMPRESSED;
+                }
+
+                break;
+
+            case SEQ_UNCOMPRESSED:
+                if (!decodeVLI(b))
+                    break;
+
+                try {
+                    stored.add(unpaddedSize, vli);
+                } catch (XZIOException e) {
+                    throw new CorruptedInputException("XZ Index is corrupt");
+                }
+
+                if (stored.blocksSum > blocksSum
+                        || stored.uncompressedSum > uncompressedSum
+                        || stored.indexListSize > indexListSize)
+                    throw new CorruptedInputException("XZ Index is corrupt");
+
+                seq = SEQ_UNPADDED;
+                checkListEnd();
+                break;
+
+            case SEQ_PADDING:
+                if (b != 0x00)
+                    throw new CorruptedInputException("XZ Index is corrupt");
+
+                if (--pos == 0)
+                    seq = SEQ_CRC32;
+
+                break;
+
+            case SEQ_CRC32:
+                long value = crc32.getValue();
+                if (((value >>> (pos * 8)) & 0xFF) != b)
+                    throw new CorruptedInputException("XZ Index is corrupt");
+
+                if (++pos == 4)
+                    seq = SEQ_DONE;
+
+                break;
+
+            default:
+                throw new IllegalStateException();
         }
+    }
+
+    /**
+     * If all Records have been decoded, compares them to the Blocks and
+     * continues to Index Padding.
+     */
+    private void checkListEnd() throws IOException {
+        if (stored.recordCount != recordCount)
+            return;
 
         if (stored.blocksSum != blocksSum
                 || stored.uncompressedSum != uncompressedSum
@@ -79,16 +202,34 @@ public class IndexHash extends IndexBase {
                 || !Arrays.equals(stored.hash.finish(), hash.finish()))
             throw new CorruptedInputException("XZ Index is corrupt");
 
-        // Index Padding
-        DataInputStream inData = new DataInputStream(inChecked);
-        for (int i = getIndexPaddingSize(); i > 0; --i)
-            if (inData.readUnsignedByte() != 0x00)
-                throw new CorruptedInputException("XZ Index is corrupt");
-
-        // CRC32
-        long value = crc32.getValue();
-        for (int i = 0; i < 4; ++i)
-            if (((value >>> (i * 8)) & 0xFF) != inData.readUnsignedByte())
-                throw new CorruptedInputException("XZ Index is corrupt");
+        // The padding is followed by the CRC32 whose bytes are counted
+        // with pos from zero.
+        pos = getIndexPaddingSize();
+        seq = pos > 0 ? SEQ_PADDING : SEQ_CRC32;
+    }
+
+    /**
+     * Decodes the next byte of a variable-length integer into
+     * {@code vli} like {@code DecoderUtil.decodeVLI}.
+     *
+     * @return      true if the integer is complete
+     */
+    private boolean decodeVLI(int b) throws CorruptedInputException {
+        if (vliPos == 0)
+            vli = 0;
+        else if (b == 0x00)
+            throw new CorruptedInputException();
+
+        vli |= (long)(b & 0x7F) << (vliPos * 7);
+
+        if ((b & 0x80) == 0x00) {
+            vliPos = 0;
+            return true;
+        }
+
+        if (++vliPos >= Util.VLI_SIZE_MAX)
+            throw new CorruptedInputException();
+
+        return false;
     }
 }
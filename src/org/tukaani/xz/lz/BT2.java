@@ -0,0 +1,245 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+// SPDX-FileContributor: Igor Pavlov <https://7-zip.org/>
+
+package org.tukaani.xz.lz;
+
+import org.tukaani.xz.ArrayCache;
+
+// Binary Tree match finder with 2-byte hashing
+final class BT2 extends LZEncoder {
+    private final Hash2 hash;
+    private final int[] tree;
+    private final Matches matches;
+    private final int depthLimit;
+
+    private final int cyclicSize;
+    private int cyclicPos = -1;
+    private int lzPos;
+
+    static int getMemoryUsage(int dictSize) {
+        return Hash2.getMemoryUsage() + dictSize / (1024 / 8) + 10;
+    }
+
+    BT2(int dictSize, int beforeSizeMin, int readAheadMax,
+            int niceLen, int matchLenMax, int depthLimit,
+            ArrayCache arrayCache) {
+        super(dictSize, beforeSizeMin, readAheadMax, niceLen, matchLenMax,
+              arrayCache);
+
+        cyclicSize = dictSize + 1;
+        lzPos = cyclicSize;
+
+        hash = new Hash2(arrayCache);
+        tree = arrayCache.getIntArray(cyclicSize * 2, false);
+
+        // Subtracting 1 because the shortest match that this match
+        // finder can find is 2 bytes, so there's no need to reserve
+        // space for one-byte matches.
+        matches = new Matches(niceLen - 1);
+
+        this.depthLimit = depthLimit > 0 ? depthLimit : 16 + niceLen / 2;
+    }
+
+    @Override
+    public void putArraysToCache(ArrayCache arrayCache) {
+        arrayCache.putArray(tree);
+        hash.putArraysToCache(arrayCache);
+        super.putArraysToCache(arrayCache);
+    }
+
+    @Override
+    int movePos() {
+        int avail = movePos(niceLen, 2);
+
+        if (avail != 0) {
+            if (++lzPos == Integer.MAX_VALUE) {
+                int normalizationOffset = Integer.MAX_VALUE - cyclicSize;
+                hash.normalize(normalizationOffset);
+                normalize(tree, cyclicSize * 2, normalizationOffset);
+                lzPos -= normalizationOffset;
+            }
+
+            if (++cyclicPos == cyclicSize)
+                cyclicPos = 0;
+        }
+
+        return avail;
+    }
+
+    @Override
+    public Matches getMatches() {
+        matches.count = 0;
+
+        int matchLenLimit = matchLenMax;
+        int niceLenLimit = niceLen;
+        int avail = movePos();
+
+        if (avail < matchLenLimit) {
+            if (avail == 0)
+                return matches;
+
+            matchLenLimit = avail;
+            if (niceLenLimit > avail)
+                niceLenLimit = avail;
+        }
+
+        hash.calcHashes(buf, readPos);
+        int currentMatch = hash.getHash2Pos();
+        hash.updateTables(lzPos);
+
+        // Unlike BT3 and BT4, there is no shortcut for finding short
+        // matches. All matches, two-byte matches included, are found
+        // from the binary tree.
+        int lenBest = 1;
+
+        int depth = depthLimit;
+
+        int ptr0 = (cyclicPos << 1) + 1;
+        int ptr1 = cyclicPos << 1;
+        int len0 = 0;
+        int len1 = 0;
+
+        while (true) {
+            int delta = lzPos - currentMatch;
+
+            // Return if the search depth limit has been reached or
+            // if the distance of the potential match exceeds the
+            // dictionary size.
+            if (depth-- == 0 || delta >= cyclicSize) {
+                tree[ptr0] = 0;
+                tree[ptr1] = 0;
+                return matches;
+            }
+
+            int pair = (cyclicPos - delta
+                        + (delta > cyclicPos ? cyclicSize : 0)) << 1;
+            int len = Math.min(len0, len1);
+
+            if (buf[readPos + len - delta] == buf[readPos + len]) {
+                len = MatchLength.getLen(buf, readPos, delta,
+                                         len + 1, matchLenLimit);
+
+                if (len > lenBest) {
+                    lenBest = len;
+                    matches.len[matches.count] = len;
+                    matches.dist[matches.count] = delta - 1;
+                    ++matches.count;
+
+                    if (len >= niceLenLimit) {
+                        tree[ptr1] = tree[pair];
+                        tree[ptr0] = tree[pair + 1];
+                        return matches;
+                    }
+                }
+            }
+
+            if ((buf[readPos + len - delta] & 0xFF)
+                    < (buf[readPos + len] & 0xFF)) {
+                tree[ptr1] = currentMatch;
+                ptr1 = pair + 1;
+                currentMatch = tree[ptr1];
+                len1 = len;
+            } else {
+                tree[ptr0] = currentMatch;
+                ptr0 = pair;
+                currentMatch = tree[ptr0];
+                len0 = len;
+            }
+        }
+    }
+
+    private void skip(int niceLenLimit, int currentMatch) {
+        int depth = depthLimit;
+
+        int ptr0 = (cyclicPos << 1) + 1;
+        int ptr1 = cyclicPos << 1;
+        int len0 = 0;
+        int len1 = 0;
+
+        while (true) {
+            int delta = lzPos - currentMatch;
+
+            if (depth-- == 0 || delta >= cyclicSize) {
+                tree[ptr0] = 0;
+                tree[ptr1] = 0;
+                return;
+            }
+
+            int pair = (cyclicPos - delta
+                        + (delta > cyclicPos ? cyclicSize : 0)) << 1;
+            int len = Math.min(len0, len1);
+
+            if (buf[readPos + len - delta] == buf[readPos + len]) {
+                // No need to look for longer matches than niceLenLimit
+                // because we only are updating the tree, not returning
+                // matches found to the caller.
+                len = MatchLength.getLen(buf, readPos, delta,
+                                         len + 1, niceLenLimit);
+                if (len == niceLenLimit) {
+                    tree[ptr1] = tree[pair];
+                    tree[ptr0] = tree[pair + 1];
+                    return;
+                }
+            }
+
+            if ((buf[readPos + len - delta] & 0xFF)
+                    < (buf[readPos + len] & 0xFF)) {
+                tree[ptr1] = currentMatch;
+                ptr1 = pair + 1;
+                currentMatch = tree[ptr1];
+                len1 = len;
+            } else {
+                tree[ptr0] = currentMatch;
+                ptr0 = pair;
+                currentMatch = tree[ptr0];
+                len0 = len;
+            }
+        }
+    }
+
+    @Override
+    public void skip(int len) {
+        while (len-- > 0) {
+            int niceLenLimit = niceLen;
+            int avail = movePos();
+
+            if (avail < niceLenLimit) {
+                if (avail == 0)
+                    continue;
+
+                niceLenLimit = avail;
+            }
+
+            hash.calcHashes(buf, readPos);
+            int currentMatch = hash.getHash2Pos();
+            hash.updateTables(lzPos);
+
+            skip(niceLenLimit, currentMatch);
+        }
+    }
+
+    @Override
+    void resetMatchFinder() {
+        if (lzPos > Integer.MAX_VALUE - 1 - cyclicSize) {
+            hash.normalize(lzPos);
+            normalize(tree, cyclicSize * 2, lzPos);
+            lzPos = 0;
+        }
+
+        lzPos += cyclicSize;
+    }
+
+    @Override
+    void copyMatchFinderFrom(LZEncoder other) {
+        BT2 o = (BT2)other;
+        assert o.cyclicSize == cyclicSize;
+
+        hash.copyFrom(o.hash);
+        int copySize = getCyclicCopySize(o.lzPos, o.cyclicPos, cyclicSize);
+        System.arraycopy(o.tree, 0, tree, 0, copySize * 2);
+        cyclicPos = o.cyclicPos;
+        lzPos = o.lzPos;
+    }
+}
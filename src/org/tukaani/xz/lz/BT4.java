@@ -49,7 +49,8 @@ final class BT4 extends LZEncoder {
         super.putArraysToCache(arrayCache);
     }
 
-    private int movePos() {
+    @Override
+    int movePos() {
         int avail = movePos(niceLen, 4);
 
         if (avail != 0) {
@@ -258,4 +259,27 @@ final class BT4 extends LZEncoder {
             skip(niceLenLimit, currentMatch);
         }
     }
+
+    @Override
+    void resetMatchFinder() {
+        if (lzPos > Integer.MAX_VALUE - 1 - cyclicSize) {
+            hash.normalize(lzPos);
+            normalize(tree, cyclicSize * 2, lzPos);
+            lzPos = 0;
+        }
+
+        lzPos += cyclicSize;
+    }
+
+    @Override
+    void copyMatchFinderFrom(LZEncoder other) {
+        BT4 o = (BT4)other;
+        assert o.cyclicSize == cyclicSize;
+
+        hash.copyFrom(o.hash);
+        int copySize = getCyclicCopySize(o.lzPos, o.cyclicPos, cyclicSize);
+        System.arraycopy(o.tree, 0, tree, 0, copySize * 2);
+        cyclicPos = o.cyclicPos;
+        lzPos = o.lzPos;
+    }
 }
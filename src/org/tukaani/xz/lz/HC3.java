@@ -0,0 +1,205 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+// SPDX-FileContributor: Igor Pavlov <https://7-zip.org/>
+
+package org.tukaani.xz.lz;
+
+import org.tukaani.xz.ArrayCache;
+
+// Hash Chain match finder with 2- and 3-byte hashing
+final class HC3 extends LZEncoder {
+    private final Hash23 hash;
+    private final int[] chain;
+    private final Matches matches;
+    private final int depthLimit;
+
+    private final int cyclicSize;
+    private int cyclicPos = -1;
+    private int lzPos;
+
+    /**
+     * Gets approximate memory usage of the match finder as kibibytes.
+     */
+    static int getMemoryUsage(int dictSize) {
+        return Hash23.getMemoryUsage(dictSize) + dictSize / (1024 / 4) + 10;
+    }
+
+    /**
+     * Creates a new LZEncoder with the HC3 match finder.
+     * See {@code LZEncoder.getInstance} for parameter descriptions.
+     */
+    HC3(int dictSize, int beforeSizeMin, int readAheadMax,
+            int niceLen, int matchLenMax, int depthLimit,
+            ArrayCache arrayCache) {
+        super(dictSize, beforeSizeMin, readAheadMax, niceLen, matchLenMax,
+              arrayCache);
+
+        hash = new Hash23(dictSize, arrayCache);
+
+        // +1 because we need dictSize bytes of history + the current byte.
+        cyclicSize = dictSize + 1;
+        chain = arrayCache.getIntArray(cyclicSize, false);
+        lzPos = cyclicSize;
+
+        // Subtracting 1 because the shortest match that this match
+        // finder can find is 2 bytes, so there's no need to reserve
+        // space for one-byte matches.
+        matches = new Matches(niceLen - 1);
+
+        // Use the same default depth limit as HC4.
+        this.depthLimit = (depthLimit > 0) ? depthLimit : 4 + niceLen / 4;
+    }
+
+    @Override
+    public void putArraysToCache(ArrayCache arrayCache) {
+        arrayCache.putArray(chain);
+        hash.putArraysToCache(arrayCache);
+        super.putArraysToCache(arrayCache);
+    }
+
+    /**
+     * Moves to the next byte, checks that there is enough available space,
+     * and possibly normalizes the hash tables and the hash chain.
+     *
+     * @return      number of bytes available, including the current byte
+     */
+    @Override
+    int movePos() {
+        int avail = movePos(3, 3);
+
+        if (avail != 0) {
+            if (++lzPos == Integer.MAX_VALUE) {
+                int normalizationOffset = Integer.MAX_VALUE - cyclicSize;
+                hash.normalize(normalizationOffset);
+                normalize(chain, cyclicSize, normalizationOffset);
+                lzPos -= normalizationOffset;
+            }
+
+            if (++cyclicPos == cyclicSize)
+                cyclicPos = 0;
+        }
+
+        return avail;
+    }
+
+    @Override
+    public Matches getMatches() {
+        matches.count = 0;
+        int matchLenLimit = matchLenMax;
+        int niceLenLimit = niceLen;
+        int avail = movePos();
+
+        if (avail < matchLenLimit) {
+            if (avail == 0)
+                return matches;
+
+            matchLenLimit = avail;
+            if (niceLenLimit > avail)
+                niceLenLimit = avail;
+        }
+
+        hash.calcHashes(buf, readPos);
+        int delta2 = lzPos - hash.getHash2Pos();
+        int currentMatch = hash.getHash3Pos();
+        hash.updateTables(lzPos);
+
+        chain[cyclicPos] = currentMatch;
+
+        int lenBest = 2;
+
+        // See if the hash from the first two bytes found a match.
+        // The hashing algorithm guarantees that if the first byte
+        // matches, also the second byte does, so there's no need to
+        // test the second byte.
+        if (delta2 < cyclicSize && buf[readPos - delta2] == buf[readPos]) {
+            lenBest = MatchLength.getLen(buf, readPos, delta2,
+                                         lenBest, matchLenLimit);
+            matches.len[0] = lenBest;
+            matches.dist[0] = delta2 - 1;
+            matches.count = 1;
+
+            // Return if it is long enough (niceLen or reached the end of
+            // the dictionary).
+            if (lenBest >= niceLenLimit)
+                return matches;
+        }
+
+        // Look for better matches from the hash chain.
+        int depth = depthLimit;
+
+        while (true) {
+            int delta = lzPos - currentMatch;
+
+            // Return if the search depth limit has been reached or
+            // if the distance of the potential match exceeds the
+            // dictionary size.
+            if (depth-- == 0 || delta >= cyclicSize)
+                return matches;
+
+            currentMatch = chain[cyclicPos - delta
+                                 + (delta > cyclicPos ? cyclicSize : 0)];
+
+            // Test the first byte and the first new byte that would give us
+            // a match that is at least one byte longer than lenBest. This
+            // too short matches get quickly skipped.
+            if (buf[readPos + lenBest - delta] == buf[readPos + lenBest]
+                    && buf[readPos - delta] == buf[readPos]) {
+                // Calculate the length of the match.
+                int len = MatchLength.getLen(buf, readPos, delta,
+                                             1, matchLenLimit);
+
+                // Use the match if and only if it is better than the longest
+                // match found so far.
+                if (len > lenBest) {
+                    lenBest = len;
+                    matches.len[matches.count] = len;
+                    matches.dist[matches.count] = delta - 1;
+                    ++matches.count;
+
+                    // Return if it is long enough (niceLen or reached the
+                    // end of the dictionary).
+                    if (len >= niceLenLimit)
+                        return matches;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void skip(int len) {
+        assert len >= 0;
+
+        while (len-- > 0) {
+            if (movePos() != 0) {
+                // Update the hash chain and hash tables.
+                hash.calcHashes(buf, readPos);
+                chain[cyclicPos] = hash.getHash3Pos();
+                hash.updateTables(lzPos);
+            }
+        }
+    }
+
+    @Override
+    void resetMatchFinder() {
+        if (lzPos > Integer.MAX_VALUE - 1 - cyclicSize) {
+            hash.normalize(lzPos);
+            normalize(chain, cyclicSize, lzPos);
+            lzPos = 0;
+        }
+
+        lzPos += cyclicSize;
+    }
+
+    @Override
+    void copyMatchFinderFrom(LZEncoder other) {
+        HC3 o = (HC3)other;
+        assert o.cyclicSize == cyclicSize;
+
+        hash.copyFrom(o.hash);
+        int copySize = getCyclicCopySize(o.lzPos, o.cyclicPos, cyclicSize);
+        System.arraycopy(o.chain, 0, chain, 0, copySize);
+        cyclicPos = o.cyclicPos;
+        lzPos = o.lzPos;
+    }
+}
@@ -66,7 +66,8 @@ final class HC4 extends LZEncoder {
      *
      * @return      number of bytes available, including the current byte
      */
-    private int movePos() {
+    @Override
+    int movePos() {
         int avail = movePos(4, 4);
 
         if (avail != 0) {
@@ -202,4 +203,27 @@ final class HC4 extends LZEncoder {
             }
         }
     }
+
+    @Override
+    void resetMatchFinder() {
+        if (lzPos > Integer.MAX_VALUE - 1 - cyclicSize) {
+            hash.normalize(lzPos);
+            normalize(chain, cyclicSize, lzPos);
+            lzPos = 0;
+        }
+
+        lzPos += cyclicSize;
+    }
+
+    @Override
+    void copyMatchFinderFrom(LZEncoder other) {
+        HC4 o = (HC4)other;
+        assert o.cyclicSize == cyclicSize;
+
+        hash.copyFrom(o.hash);
+        int copySize = getCyclicCopySize(o.lzPos, o.cyclicPos, cyclicSize);
+        System.arraycopy(o.chain, 0, chain, 0, copySize);
+        cyclicPos = o.cyclicPos;
+        lzPos = o.lzPos;
+    }
 }
@@ -0,0 +1,160 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.lz;
+
+import org.tukaani.xz.ArrayCache;
+import org.tukaani.xz.common.ByteArrayView;
+
+// Hash Table match finder with 4-byte hashing
+//
+// Each hash table entry remembers only the most recent position with
+// that hash value. There are no hash chains, thus at most one match
+// candidate is tested per byte. This is much faster but also finds
+// far fewer matches than HC4.
+final class HT4 extends LZEncoder {
+    /**
+     * Maximum number of entries in the hash table. A single-slot table
+     * only needs to be big enough to hold the recently seen positions,
+     * and keeping it small keeps it in the CPU cache.
+     */
+    private static final int HASH_SIZE_MAX = 1 << 18;
+
+    private final int[] hashTable;
+    private final int hashSize;
+    private final int hashShift;
+    private final Matches matches;
+
+    private final int dictSize;
+    private int lzPos;
+
+    private static int getHashSize(int dictSize) {
+        return Math.min(Hash234.getHash4Size(dictSize), HASH_SIZE_MAX);
+    }
+
+    /**
+     * Gets approximate memory usage of the match finder as kibibytes.
+     */
+    static int getMemoryUsage(int dictSize) {
+        return getHashSize(dictSize) / (1024 / 4) + 10;
+    }
+
+    /**
+     * Creates a new LZEncoder with the HT4 match finder.
+     * See {@code LZEncoder.getInstance} for parameter descriptions.
+     * The depth limit is ignored because only one candidate is ever
+     * tested.
+     */
+    HT4(int dictSize, int beforeSizeMin, int readAheadMax,
+            int niceLen, int matchLenMax, ArrayCache arrayCache) {
+        super(dictSize, beforeSizeMin, readAheadMax, niceLen, matchLenMax,
+              arrayCache);
+
+        hashSize = getHashSize(dictSize);
+        hashTable = arrayCache.getIntArray(hashSize, true);
+        hashShift = Integer.numberOfLeadingZeros(hashSize - 1);
+
+        this.dictSize = dictSize;
+
+        // Positions stored in the hash table are always bigger than
+        // dictSize. Thus zero (an unused entry) is always too far away.
+        lzPos = dictSize + 1;
+
+        matches = new Matches(1);
+    }
+
+    @Override
+    public void putArraysToCache(ArrayCache arrayCache) {
+        arrayCache.putArray(hashTable);
+        super.putArraysToCache(arrayCache);
+    }
+
+    /**
+     * Moves to the next byte, checks that there is enough available space,
+     * and possibly normalizes the hash table.
+     *
+     * @return      number of bytes available, including the current byte
+     */
+    @Override
+    int movePos() {
+        int avail = movePos(4, 4);
+
+        if (avail != 0) {
+            if (++lzPos == Integer.MAX_VALUE) {
+                int normalizationOffset = Integer.MAX_VALUE - dictSize - 1;
+                normalize(hashTable, hashSize, normalizationOffset);
+                lzPos -= normalizationOffset;
+            }
+        }
+
+        return avail;
+    }
+
+    /**
+     * Calculates the hash of the four bytes at the current position.
+     * Multiplicative hashing spreads the values well over the table
+     * whose size is a power of two.
+     */
+    private int calcHash() {
+        return (ByteArrayView.getIntLE(buf, readPos) * 0x9E3779B1)
+               >>> hashShift;
+    }
+
+    @Override
+    public Matches getMatches() {
+        matches.count = 0;
+        int avail = movePos();
+        if (avail == 0)
+            return matches;
+
+        int matchLenLimit = Math.min(avail, matchLenMax);
+
+        int hashValue = calcHash();
+        int delta = lzPos - hashTable[hashValue];
+        hashTable[hashValue] = lzPos;
+
+        // Test the first byte quickly before calculating the length.
+        // A different hash value doesn't guarantee anything so the length
+        // has to be calculated from the beginning.
+        if (delta <= dictSize && buf[readPos - delta] == buf[readPos]) {
+            int len = MatchLength.getLen(buf, readPos, delta,
+                                         1, matchLenLimit);
+            if (len >= 2) {
+                matches.len[0] = len;
+                matches.dist[0] = delta - 1;
+                matches.count = 1;
+            }
+        }
+
+        return matches;
+    }
+
+    @Override
+    public void skip(int len) {
+        assert len >= 0;
+
+        while (len-- > 0)
+            if (movePos() != 0)
+                hashTable[calcHash()] = lzPos;
+    }
+
+    @Override
+    void resetMatchFinder() {
+        if (lzPos > Integer.MAX_VALUE - 2 - dictSize) {
+            normalize(hashTable, hashSize, lzPos);
+            lzPos = 0;
+        }
+
+        lzPos += dictSize + 1;
+    }
+
+    @Override
+    void copyMatchFinderFrom(LZEncoder other) {
+        HT4 o = (HT4)other;
+        assert o.hashSize == hashSize && o.dictSize == dictSize;
+
+        System.arraycopy(o.hashTable, 0, hashTable, 0, hashSize);
+        lzPos = o.lzPos;
+    }
+}
@@ -0,0 +1,52 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+// SPDX-FileContributor: Igor Pavlov <https://7-zip.org/>
+
+package org.tukaani.xz.lz;
+
+import org.tukaani.xz.ArrayCache;
+
+// 2-byte hashing
+//
+// There are only 2^16 possible values so the two bytes are used
+// directly as the index and no collisions are possible.
+final class Hash2 {
+    private static final int HASH_2_SIZE = 1 << 16;
+
+    private final int[] hash2Table;
+    private int hash2Value = 0;
+
+    static int getMemoryUsage() {
+        // Size of the hash array + a little extra
+        return HASH_2_SIZE / (1024 / 4) + 4;
+    }
+
+    Hash2(ArrayCache arrayCache) {
+        hash2Table = arrayCache.getIntArray(HASH_2_SIZE, true);
+    }
+
+    void putArraysToCache(ArrayCache arrayCache) {
+        arrayCache.putArray(hash2Table);
+    }
+
+    void calcHashes(byte[] buf, int off) {
+        hash2Value = (buf[off] & 0xFF) | ((buf[off + 1] & 0xFF) << 8);
+    }
+
+    int getHash2Pos() {
+        return hash2Table[hash2Value];
+    }
+
+    void updateTables(int pos) {
+        hash2Table[hash2Value] = pos;
+    }
+
+    void normalize(int normalizationOffset) {
+        LZEncoder.normalize(hash2Table, HASH_2_SIZE, normalizationOffset);
+    }
+
+    void copyFrom(Hash2 other) {
+        System.arraycopy(other.hash2Table, 0, hash2Table, 0, HASH_2_SIZE);
+    }
+}
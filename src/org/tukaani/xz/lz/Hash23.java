@@ -0,0 +1,87 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+// SPDX-FileContributor: Igor Pavlov <https://7-zip.org/>
+
+package org.tukaani.xz.lz;
+
+import org.tukaani.xz.ArrayCache;
+
+// 2- and 3-byte hashing
+final class Hash23 extends CRC32Hash {
+    private static final int HASH_2_SIZE = 1 << 10;
+    private static final int HASH_2_MASK = HASH_2_SIZE - 1;
+
+    private final int hash3Mask;
+
+    private final int[] hash2Table;
+    private final int[] hash3Table;
+    private final int hash3Size;
+
+    private int hash2Value = 0;
+    private int hash3Value = 0;
+
+    static int getHash3Size(int dictSize) {
+        int h = dictSize - 1;
+        h |= h >>> 1;
+        h |= h >>> 2;
+        h |= h >>> 4;
+        h |= h >>> 8;
+        h >>>= 1;
+        h |= 0xFFFF;
+
+        // With three-byte hashing there are only 2^24 different values
+        // so a bigger table would be a waste of memory.
+        if (h > (1 << 24))
+            h = (1 << 24) - 1;
+
+        return h + 1;
+    }
+
+    static int getMemoryUsage(int dictSize) {
+        // Sizes of the hash arrays + a little extra
+        return (HASH_2_SIZE + getHash3Size(dictSize)) / (1024 / 4) + 4;
+    }
+
+    Hash23(int dictSize, ArrayCache arrayCache) {
+        hash2Table = arrayCache.getIntArray(HASH_2_SIZE, true);
+
+        hash3Size = getHash3Size(dictSize);
+        hash3Table = arrayCache.getIntArray(hash3Size, true);
+        hash3Mask = hash3Size - 1;
+    }
+
+    void putArraysToCache(ArrayCache arrayCache) {
+        arrayCache.putArray(hash3Table);
+        arrayCache.putArray(hash2Table);
+    }
+
+    void calcHashes(byte[] buf, int off) {
+        int temp = crcTable[buf[off] & 0xFF] ^ (buf[off + 1] & 0xFF);
+        hash2Value = temp & HASH_2_MASK;
+        hash3Value = (temp ^ ((buf[off + 2] & 0xFF) << 8)) & hash3Mask;
+    }
+
+    int getHash2Pos() {
+        return hash2Table[hash2Value];
+    }
+
+    int getHash3Pos() {
+        return hash3Table[hash3Value];
+    }
+
+    void updateTables(int pos) {
+        hash2Table[hash2Value] = pos;
+        hash3Table[hash3Value] = pos;
+    }
+
+    void normalize(int normalizationOffset) {
+        LZEncoder.normalize(hash2Table, HASH_2_SIZE, normalizationOffset);
+        LZEncoder.normalize(hash3Table, hash3Size, normalizationOffset);
+    }
+
+    void copyFrom(Hash23 other) {
+        System.arraycopy(other.hash2Table, 0, hash2Table, 0, HASH_2_SIZE);
+        System.arraycopy(other.hash3Table, 0, hash3Table, 0, hash3Size);
+    }
+}
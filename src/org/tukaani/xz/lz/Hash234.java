@@ -95,4 +95,10 @@ final class Hash234 extends CRC32Hash {
         LZEncoder.normalize(hash3Table, HASH_3_SIZE, normalizationOffset);
         LZEncoder.normalize(hash4Table, hash4Size, normalizationOffset);
     }
+
+    void copyFrom(Hash234 other) {
+        System.arraycopy(other.hash2Table, 0, hash2Table, 0, HASH_2_SIZE);
+        System.arraycopy(other.hash3Table, 0, hash3Table, 0, HASH_3_SIZE);
+        System.arraycopy(other.hash4Table, 0, hash4Table, 0, hash4Size);
+    }
 }
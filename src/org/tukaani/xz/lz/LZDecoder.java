@@ -7,6 +7,7 @@ package org.tukaani.xz.lz;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import org.tukaani.xz.ArrayCache;
 import org.tukaani.xz.CorruptedInputException;
 
@@ -50,6 +51,8 @@ public final class LZDecoder {
         pos = 0;
         full = 0;
         limit = 0;
+        pendingLen = 0;
+        pendingDist = 0;
         buf[bufSize - 1] = 0x00;
     }
 
@@ -153,6 +156,40 @@ public final class LZDecoder {
             full = pos;
     }
 
+    /**
+     * Copies uncompressed data from an array like
+     * {@code copyUncompressed(DataInputStream, int)} does.
+     *
+     * @return      number of bytes copied, which is less than
+     *              {@code len} if the end of the dictionary buffer
+     *              was reached
+     */
+    public int copyUncompressed(byte[] in, int off, int len) {
+        int copySize = Math.min(bufSize - pos, len);
+        System.arraycopy(in, off, buf, pos, copySize);
+        pos += copySize;
+
+        if (full < pos)
+            full = pos;
+
+        return copySize;
+    }
+
+    /**
+     * Writes the data that has been decoded since the previous flush
+     * to {@code out} directly from the dictionary buffer.
+     */
+    public int flush(OutputStream out) throws IOException {
+        int copySize = pos - start;
+        out.write(buf, start, copySize);
+
+        if (pos == bufSize)
+            pos = 0;
+
+        start = pos;
+        return copySize;
+    }
+
     public int flush(byte[] out, int outOff) {
         int copySize = pos - start;
         if (pos == bufSize)
@@ -8,11 +8,19 @@ package org.tukaani.xz.lz;
 import java.io.OutputStream;
 import java.io.IOException;
 import org.tukaani.xz.ArrayCache;
+import org.tukaani.xz.ResettableArrayCache;
 
 public abstract class LZEncoder {
+    public static final int MF_HC3 = 0x03;
     public static final int MF_HC4 = 0x04;
+    public static final int MF_BT2 = 0x12;
+    public static final int MF_BT3 = 0x13;
     public static final int MF_BT4 = 0x14;
 
+    // This isn't in liblzma. It's only used internally by
+    // LZMAEncoderTurbo and cannot be selected via LZMA2Options.
+    public static final int MF_HT4 = 0x24;
+
     /**
      * Number of bytes to keep available before the current byte
      * when moving the LZ window.
@@ -73,14 +81,30 @@ public abstract class LZEncoder {
                            matchLenMax) / 1024 + 10;
 
         switch (mf) {
+            case MF_HC3:
+                m += HC3.getMemoryUsage(dictSize);
+                break;
+
             case MF_HC4:
                 m += HC4.getMemoryUsage(dictSize);
                 break;
 
+            case MF_BT2:
+                m += BT2.getMemoryUsage(dictSize);
+                break;
+
+            case MF_BT3:
+                m += BT3.getMemoryUsage(dictSize);
+                break;
+
             case MF_BT4:
                 m += BT4.getMemoryUsage(dictSize);
                 break;
 
+            case MF_HT4:
+                m += HT4.getMemoryUsage(dictSize);
+                break;
+
             default:
                 throw new IllegalArgumentException();
         }
@@ -116,14 +140,49 @@ public abstract class LZEncoder {
             int dictSize, int extraSizeBefore, int extraSizeAfter,
             int niceLen, int matchLenMax, int mf, int depthLimit,
             ArrayCache arrayCache) {
+        // The match finders allocate several arrays. If one of them
+        // cannot be allocated, put the ones that were already allocated
+        // back to the cache. Otherwise a MemoryBudget would keep counting
+        // them after the failure.
+        ResettableArrayCache allocated = new ResettableArrayCache(arrayCache);
+        try {
+            return newMatchFinder(dictSize, extraSizeBefore, extraSizeAfter,
+                                  niceLen, matchLenMax, mf, depthLimit,
+                                  allocated);
+        } catch (RuntimeException | Error e) {
+            allocated.reset();
+            throw e;
+        }
+    }
+
+    private static LZEncoder newMatchFinder(
+            int dictSize, int extraSizeBefore, int extraSizeAfter,
+            int niceLen, int matchLenMax, int mf, int depthLimit,
+            ArrayCache arrayCache) {
         switch (mf) {
+            case MF_HC3:
+                return new HC3(dictSize, extraSizeBefore, extraSizeAfter,
+                               niceLen, matchLenMax, depthLimit, arrayCache);
+
             case MF_HC4:
                 return new HC4(dictSize, extraSizeBefore, extraSizeAfter,
                                niceLen, matchLenMax, depthLimit, arrayCache);
 
+            case MF_BT2:
+                return new BT2(dictSize, extraSizeBefore, extraSizeAfter,
+                               niceLen, matchLenMax, depthLimit, arrayCache);
+
+            case MF_BT3:
+                return new BT3(dictSize, extraSizeBefore, extraSizeAfter,
+                               niceLen, matchLenMax, depthLimit, arrayCache);
+
             case MF_BT4:
                 return new BT4(dictSize, extraSizeBefore, extraSizeAfter,
                                niceLen, matchLenMax, depthLimit, arrayCache);
+
+            case MF_HT4:
+                return new HT4(dictSize, extraSizeBefore, extraSizeAfter,
+                               niceLen, matchLenMax, arrayCache);
         }
 
         throw new IllegalArgumentException();
@@ -153,6 +212,21 @@ public abstract class LZEncoder {
         arrayCache.putArray(buf);
     }
 
+    /**
+     * Resets the LZEncoder to the state it had right after it was created.
+     * Everything in the dictionary is forgotten but the allocated buffers
+     * are kept so that new independent data can be encoded without
+     * allocating and clearing them again.
+     */
+    public void reset() {
+        readPos = -1;
+        readLimit = -1;
+        finishing = false;
+        writePos = 0;
+        pendingSize = 0;
+        resetMatchFinder();
+    }
+
     /**
      * Sets a preset dictionary. If a preset dictionary is wanted, this
      * function must be called immediately after creating the LZEncoder
@@ -173,6 +247,58 @@ public abstract class LZEncoder {
         }
     }
 
+    /**
+     * Copies the state of another LZEncoder into this one. The other
+     * LZEncoder must use the same match finder and must have been created
+     * with the same arguments. The other LZEncoder isn't modified, so
+     * multiple threads may copy from the same instance at the same time.
+     * <p>
+     * This is meant for preset dictionaries: an LZEncoder can be primed
+     * with {@code setPresetDict} once and then copied into new or reset
+     * LZEncoders. Copying the arrays is much faster than running the preset
+     * dictionary through the match finder again, especially with
+     * the binary tree match finders.
+     */
+    public void copyStateFrom(LZEncoder other) {
+        if (other.getClass() != getClass() || other.bufSize != bufSize
+                || other.keepSizeBefore != keepSizeBefore
+                || other.keepSizeAfter != keepSizeAfter
+                || other.matchLenMax != matchLenMax
+                || other.niceLen != niceLen)
+            throw new IllegalArgumentException();
+
+        System.arraycopy(other.buf, 0, buf, 0, other.writePos);
+        readPos = other.readPos;
+        readLimit = other.readLimit;
+        finishing = other.finishing;
+        writePos = other.writePos;
+        pendingSize = other.pendingSize;
+        copyMatchFinderFrom(other);
+    }
+
+    /**
+     * Copies the match finder state from another LZEncoder of the same
+     * type. This is called by {@code copyStateFrom}.
+     */
+    abstract void copyMatchFinderFrom(LZEncoder other);
+
+    /**
+     * Gets how many elements from the beginning of a cyclic buffer of
+     * a hash chain or binary tree match finder need to be copied in
+     * {@code copyMatchFinderFrom}.
+     * <p>
+     * lzPos and cyclicPos start from cyclicSize and -1 and are incremented
+     * together. As long as their difference hasn't changed, the cyclic
+     * buffer hasn't wrapped around and the match finder hasn't been reset
+     * or normalized. Then only the elements up to and including cyclicPos
+     * have been written and the rest are never read before they are
+     * overwritten. Otherwise the whole buffer is needed.
+     */
+    static int getCyclicCopySize(int lzPos, int cyclicPos, int cyclicSize) {
+        return lzPos - cyclicPos == cyclicSize + 1 ? cyclicPos + 1
+                                                  : cyclicSize;
+    }
+
     /**
      * Moves data from the end of the buffer to the beginning, discarding
      * old data and making space for new input.
@@ -403,6 +529,79 @@ public abstract class LZEncoder {
         return avail;
     }
 
+    /**
+     * Skips at most {@code lenMax} bytes without running them through
+     * the match finder. The skipped bytes stay in the dictionary but
+     * the match finder won't find matches that point to them. This is
+     * much faster than {@code skip} and meant for data that will be
+     * stored uncompressed anyway.
+     *
+     * @return      the number of bytes skipped; it is zero if there is
+     *              not enough input available
+     */
+    public int skipUnindexed(int lenMax) {
+        int len = Math.min(lenMax, readLimit - readPos);
+        if (len <= 0)
+            return 0;
+
+        // The bytes aren't added to the hash tables, hash chain, or
+        // binary tree. Nothing will point to these positions, thus
+        // the old values left in the chain or tree are never read.
+        for (int i = 0; i < len; ++i)
+            movePos();
+
+        return len;
+    }
+
+    /**
+     * Estimates the order-0 entropy of {@code len} bytes starting
+     * {@code backward} bytes before the next byte. Only a sample of at
+     * most 4096 bytes is looked at.
+     *
+     * @return      estimated entropy as bits per byte in the range [0, 8]
+     */
+    public double getEntropy(int backward, int len) {
+        int[] freq = new int[256];
+        int step = Math.max(len / 4096, 1);
+        int count = 0;
+
+        for (int i = readPos + 1 - backward, end = i + len; i < end;
+                i += step) {
+            ++freq[buf[i] & 0xFF];
+            ++count;
+        }
+
+        double entropy = 0;
+        for (int i = 0; i < 256; ++i) {
+            if (freq[i] > 0) {
+                double p = (double)freq[i] / count;
+                entropy -= p * Math.log(p);
+            }
+        }
+
+        return entropy / Math.log(2);
+    }
+
+    /**
+     * Moves the read position forward by one byte and updates
+     * the position variables of the match finder.
+     *
+     * @return      number of bytes available, including the current byte
+     */
+    abstract int movePos();
+
+    /**
+     * Makes the match finder forget all positions it has seen. This is
+     * called from {@code reset} after the window has been emptied.
+     * <p>
+     * Implementations don't clear their arrays. Instead they jump
+     * {@code lzPos} forward so far that every position stored in
+     * the hash tables, hash chain, or binary tree is too far behind
+     * and is thus ignored like an unused entry. If the jump would
+     * overflow, the arrays are normalized to zero first.
+     */
+    abstract void resetMatchFinder();
+
     /**
      * Runs match finder for the next byte and returns the matches found.
      */
@@ -14,6 +14,8 @@ import org.tukaani.xz.rangecoder.RangeEncoder;
 public abstract class LZMAEncoder extends LZMACoder {
     public static final int MODE_FAST = 1;
     public static final int MODE_NORMAL = 2;
+    public static final int MODE_LAZY = 3;
+    public static final int MODE_TURBO = 4;
 
     /**
      * LZMA2 chunk is considered full when its uncompressed size exceeds
@@ -77,6 +79,16 @@ public abstract class LZMAEncoder extends LZMACoder {
                         dictSize, extraSizeBefore, mf);
                 break;
 
+            case MODE_LAZY:
+                m += LZMAEncoderLazy.getMemoryUsage(
+                        dictSize, extraSizeBefore, mf);
+                break;
+
+            case MODE_TURBO:
+                m += LZMAEncoderTurbo.getMemoryUsage(
+                        dictSize, extraSizeBefore);
+                break;
+
             default:
                 throw new IllegalArgumentException();
         }
@@ -101,6 +113,17 @@ public abstract class LZMAEncoder extends LZMACoder {
                                              dictSize, extraSizeBefore,
                                              niceLen, mf, depthLimit,
                                              arrayCache);
+
+            case MODE_LAZY:
+                return new LZMAEncoderLazy(rc, lc, lp, pb,
+                                           dictSize, extraSizeBefore,
+                                           niceLen, mf, depthLimit,
+                                           arrayCache);
+
+            case MODE_TURBO:
+                return new LZMAEncoderTurbo(rc, lc, lp, pb,
+                                            dictSize, extraSizeBefore,
+                                            niceLen, arrayCache);
         }
 
         throw new IllegalArgumentException();
@@ -176,6 +199,34 @@ public abstract class LZMAEncoder extends LZMACoder {
         readAhead = -1;
     }
 
+    /**
+     * Resets the encoder and its LZEncoder so that new independent data
+     * can be encoded like with a freshly created encoder. Unlike with
+     * {@code reset()}, the dictionary is forgotten too. The allocated
+     * buffers and tables are kept.
+     */
+    public void resetDict() {
+        resetDict(null);
+    }
+
+    /**
+     * Like {@code resetDict()} but if {@code primedLZ} isn't null,
+     * the dictionary is replaced with a copy of the dictionary of
+     * {@code primedLZ} instead of being cleared. {@code primedLZ} must have
+     * been created with the same settings as this encoder and primed with
+     * a preset dictionary.
+     */
+    public void resetDict(LZEncoder primedLZ) {
+        if (primedLZ == null)
+            lz.reset();
+        else
+            lz.copyStateFrom(primedLZ);
+
+        readAhead = -1;
+        reset();
+        uncompressedSize = 0;
+    }
+
     public int getUncompressedSize() {
         return uncompressedSize;
     }
@@ -229,6 +280,23 @@ public abstract class LZMAEncoder extends LZMACoder {
         return true;
     }
 
+    /**
+     * Skips input without encoding it so that it can be stored in
+     * LZMA2 uncompressed chunks. The match finder isn't updated for
+     * the skipped bytes. {@code reset()} must have been called after
+     * the last encoded symbol.
+     *
+     * @param       limit       maximum uncompressed size of the chunk
+     *
+     * @return      true if the uncompressed size reached {@code limit},
+     *              false if more input is needed
+     */
+    public boolean skipForLZMA2(int limit) {
+        assert readAhead == -1;
+        uncompressedSize += lz.skipUnindexed(limit - uncompressedSize);
+        return uncompressedSize >= limit;
+    }
+
     private boolean encodeInit() throws IOException {
         assert readAhead == -1;
         if (!lz.hasEnoughData(0))
@@ -0,0 +1,271 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.lzma;
+
+import org.tukaani.xz.ArrayCache;
+import org.tukaani.xz.lz.LZEncoder;
+import org.tukaani.xz.lz.Matches;
+import org.tukaani.xz.rangecoder.RangeEncoder;
+
+/**
+ * Lazy matching encoder.
+ * <p>
+ * This sits between LZMAEncoderFast and LZMAEncoderNormal. Like the fast
+ * encoder, only the longest match from the match finder and the repeated
+ * matches are considered at each position. Unlike the fast encoder, the
+ * choice is made by comparing the prices of the symbols, and a match is
+ * deferred if encoding one or two literals followed by a match (possibly
+ * a repeated match) starting at a later byte is cheaper per byte.
+ */
+final class LZMAEncoderLazy extends LZMAEncoder {
+    /**
+     * Number of bytes after the current byte that are looked at before
+     * deciding whether to encode a match at the current byte.
+     */
+    private static final int LOOKAHEAD = 2;
+
+    private static final int EXTRA_SIZE_BEFORE = LOOKAHEAD;
+    private static final int EXTRA_SIZE_AFTER = MATCH_LEN_MAX - 1 + LOOKAHEAD;
+
+    /**
+     * The longest match found by the match finder for the current byte
+     * (index 0) and the bytes that have already been run through the
+     * match finder. Only the elements [0, readAhead] are valid.
+     */
+    private final int[] mainLens = new int[LOOKAHEAD + 1];
+    private final int[] mainDists = new int[LOOKAHEAD + 1];
+
+    // Result of findCandidate
+    private int candLen;
+    private int candPriceLen;
+    private int candBack;
+    private int candPrice;
+
+    // This is a field solely to avoid allocating the object again and
+    // again on each function call.
+    private final State nextState = new State();
+
+    static int getMemoryUsage(int dictSize, int extraSizeBefore, int mf) {
+        return LZEncoder.getMemoryUsage(
+                dictSize, Math.max(extraSizeBefore, EXTRA_SIZE_BEFORE),
+                EXTRA_SIZE_AFTER, MATCH_LEN_MAX, mf);
+    }
+
+    LZMAEncoderLazy(RangeEncoder rc, int lc, int lp, int pb,
+                    int dictSize, int extraSizeBefore,
+                    int niceLen, int mf, int depthLimit,
+                    ArrayCache arrayCache) {
+        super(rc, LZEncoder.getInstance(dictSize,
+                                        Math.max(extraSizeBefore,
+                                                 EXTRA_SIZE_BEFORE),
+                                        EXTRA_SIZE_AFTER,
+                                        niceLen, MATCH_LEN_MAX,
+                                        mf, depthLimit, arrayCache),
+              lc, lp, pb, dictSize, niceLen);
+    }
+
+    /**
+     * Runs the match finder for the next byte and stores the longest
+     * match to {@code mainLens} and {@code mainDists}.
+     */
+    private void readMatches() {
+        Matches matches = getMatches();
+        int len = 0;
+        int dist = 0;
+
+        if (matches.count > 0) {
+            len = matches.len[matches.count - 1];
+            dist = matches.dist[matches.count - 1];
+        }
+
+        mainLens[readAhead] = len;
+        mainDists[readAhead] = dist;
+    }
+
+    /**
+     * Gets the price of encoding the byte at the given forward offset
+     * from the current byte as a literal.
+     */
+    private int getLiteralPrice(int forward, int pos, State curState) {
+        int curByte = lz.getByte(forward, readAhead);
+        int matchByte = lz.getByte(forward, readAhead + reps[0] + 1);
+        int prevByte = lz.getByte(forward, readAhead + 1);
+        return literalEncoder.getPrice(curByte, matchByte, prevByte,
+                                       pos, curState);
+    }
+
+    /**
+     * Returns true if encoding {@code len1} bytes with {@code price1} is
+     * cheaper per byte than encoding {@code len2} bytes with
+     * {@code price2}. On a tie the longer one wins.
+     */
+    private static boolean isCheaper(int price1, int len1,
+                                     int price2, int len2) {
+        int a = price1 * len2;
+        int b = price2 * len1;
+        return a < b || (a == b && len1 > len2);
+    }
+
+    /**
+     * Finds the match that is the cheapest per byte at the given forward
+     * offset from the current byte. The result is stored in
+     * {@code candLen}, {@code candPriceLen}, {@code candBack}, and
+     * {@code candPrice}. {@code candLen} is zero if there is no match.
+     * <p>
+     * The lengths used for calculating the prices are limited to
+     * {@code niceLen} because longer lengths aren't in the price tables.
+     *
+     * @param       forward     offset from the current byte; the match
+     *                          finder must have been run for that byte
+     * @param       avail       number of bytes available at that offset,
+     *                          at most {@code MATCH_LEN_MAX}
+     * @param       curState    state at that offset
+     * @param       posState    posState at that offset
+     */
+    private void findCandidate(int forward, int avail,
+                               State curState, int posState) {
+        candLen = 0;
+        candPriceLen = 0;
+        candBack = -1;
+        candPrice = 0;
+
+        int anyMatchPrice = getAnyMatchPrice(curState, posState);
+        int anyRepPrice = getAnyRepPrice(anyMatchPrice, curState);
+
+        for (int rep = 0; rep < REPS; ++rep) {
+            int len = lz.getMatchLen(forward - readAhead, reps[rep], avail);
+            if (len < MATCH_LEN_MIN)
+                continue;
+
+            int priceLen = Math.min(len, niceLen);
+            int price = getLongRepPrice(anyRepPrice, rep, curState, posState)
+                        + repLenEncoder.getPrice(priceLen, posState);
+
+            if (candLen == 0 || isCheaper(price, priceLen,
+                                          candPrice, candPriceLen)) {
+                candLen = len;
+                candPriceLen = priceLen;
+                candBack = rep;
+                candPrice = price;
+            }
+        }
+
+        int mainLen = Math.min(mainLens[forward], avail);
+        if (mainLen >= MATCH_LEN_MIN) {
+            int mainDist = mainDists[forward];
+            int priceLen = Math.min(mainLen, niceLen);
+            int price = getMatchAndLenPrice(
+                    getNormalMatchPrice(anyMatchPrice, curState),
+                    mainDist, priceLen, posState);
+
+            if (candLen == 0 || isCheaper(price, priceLen,
+                                          candPrice, candPriceLen)) {
+                candLen = mainLen;
+                candPriceLen = priceLen;
+                candBack = mainDist + REPS;
+                candPrice = price;
+            }
+        }
+    }
+
+    /**
+     * Skips the rest of the symbol in the match finder if needed and
+     * moves the matches of the bytes that have already been read ahead
+     * past the end of the symbol to the beginning of the arrays.
+     */
+    private int finishSymbol(int len) {
+        if (len - 1 > readAhead)
+            skip(len - 1 - readAhead);
+
+        for (int i = len; i <= readAhead; ++i) {
+            mainLens[i - len] = mainLens[i];
+            mainDists[i - len] = mainDists[i];
+        }
+
+        return len;
+    }
+
+    @Override
+    int getNextSymbol() {
+        // Get the matches for the current byte unless they were already
+        // found during the previous calls to this function.
+        if (readAhead == -1)
+            readMatches();
+
+        back = -1;
+
+        // Get the number of bytes available starting from the current
+        // byte, but not more than the maximum match length. If there
+        // aren't enough bytes remaining to encode a match at all, return
+        // immediately to encode this byte as a literal.
+        int avail = Math.min(lz.getAvail() + readAhead, MATCH_LEN_MAX);
+        if (avail < MATCH_LEN_MIN)
+            return finishSymbol(1);
+
+        // Return immediately if there is a long enough repeated match.
+        // This is checked before the prices because the price tables
+        // don't cover lengths above niceLen.
+        for (int rep = 0; rep < REPS; ++rep) {
+            int len = lz.getMatchLen(-readAhead, reps[rep], avail);
+            if (len >= niceLen) {
+                back = rep;
+                return finishSymbol(len);
+            }
+        }
+
+        if (mainLens[0] >= niceLen) {
+            back = mainDists[0] + REPS;
+            return finishSymbol(mainLens[0]);
+        }
+
+        updatePrices();
+
+        int pos = lz.getPos() - readAhead;
+        findCandidate(0, avail, state, pos & posMask);
+
+        if (candLen == 0)
+            return finishSymbol(1);
+
+        int bestLen = candLen;
+        int bestPriceLen = candPriceLen;
+        int bestBack = candBack;
+        int bestPrice = candPrice;
+
+        // If the match is more expensive per byte than a literal,
+        // a literal is a better choice.
+        int literalPrice = getLiteralPrice(0, pos, state);
+        if (isCheaper(literalPrice, 1, bestPrice, bestPriceLen))
+            return finishSymbol(1);
+
+        // See if encoding the current byte, and possibly the next one too,
+        // as literals and then a match starting at a later byte covers at
+        // least as many bytes and is cheaper per byte. If so, encode
+        // the current byte as a literal now and decide the rest on
+        // the next call.
+        nextState.set(state);
+
+        for (int i = 1; i <= LOOKAHEAD && i + MATCH_LEN_MIN <= avail; ++i) {
+            if (i > 1)
+                literalPrice += getLiteralPrice(i - 1, pos + i - 1,
+                                                nextState);
+
+            nextState.updateLiteral();
+
+            if (readAhead < i)
+                readMatches();
+
+            findCandidate(i, avail - i, nextState, (pos + i) & posMask);
+
+            if (candLen >= MATCH_LEN_MIN && i + candLen >= bestLen
+                    && isCheaper(literalPrice + candPrice,
+                                 i + candPriceLen,
+                                 bestPrice, bestPriceLen))
+                return finishSymbol(1);
+        }
+
+        back = bestBack;
+        return finishSymbol(bestLen);
+    }
+}
@@ -0,0 +1,91 @@
+// SPDX-License-Identifier: 0BSD
+// SPDX-FileCopyrightText: The XZ for Java authors and contributors
+// SPDX-FileContributor: Lasse Collin <lasse.collin@tukaani.org>
+
+package org.tukaani.xz.lzma;
+
+import org.tukaani.xz.ArrayCache;
+import org.tukaani.xz.lz.LZEncoder;
+import org.tukaani.xz.lz.Matches;
+import org.tukaani.xz.rangecoder.RangeEncoder;
+
+/**
+ * Greedy encoder for maximum speed.
+ * <p>
+ * This always uses the HT4 match finder which tests only one match
+ * candidate per byte. Of the repeated matches only rep0 is tested.
+ * There is no lookahead and no price calculation; the first usable match
+ * is encoded. The match finder and depth limit given by the caller are
+ * ignored.
+ */
+final class LZMAEncoderTurbo extends LZMAEncoder {
+    private static final int EXTRA_SIZE_BEFORE = 1;
+    private static final int EXTRA_SIZE_AFTER = MATCH_LEN_MAX - 1;
+
+    static int getMemoryUsage(int dictSize, int extraSizeBefore) {
+        return LZEncoder.getMemoryUsage(
+                dictSize, Math.max(extraSizeBefore, EXTRA_SIZE_BEFORE),
+                EXTRA_SIZE_AFTER, MATCH_LEN_MAX, LZEncoder.MF_HT4);
+    }
+
+    LZMAEncoderTurbo(RangeEncoder rc, int lc, int lp, int pb,
+                     int dictSize, int extraSizeBefore, int niceLen,
+                     ArrayCache arrayCache) {
+        super(rc, LZEncoder.getInstance(dictSize,
+                                        Math.max(extraSizeBefore,
+                                                 EXTRA_SIZE_BEFORE),
+                                        EXTRA_SIZE_AFTER,
+                                        niceLen, MATCH_LEN_MAX,
+                                        LZEncoder.MF_HT4, 0, arrayCache),
+              lc, lp, pb, dictSize, niceLen);
+    }
+
+    @Override
+    int getNextSymbol() {
+        // Nothing is ever read ahead so the matches are always needed.
+        assert readAhead == -1;
+        Matches matches = getMatches();
+
+        back = -1;
+
+        // Get the number of bytes available in the dictionary, but
+        // not more than the maximum match length. If there aren't
+        // enough bytes remaining to encode a match at all, return
+        // immediately to encode this byte as a literal.
+        int avail = Math.min(lz.getAvail(), MATCH_LEN_MAX);
+        if (avail < MATCH_LEN_MIN)
+            return 1;
+
+        int repLen = lz.getMatchLen(reps[0], avail);
+
+        int mainLen = 0;
+        int mainDist = 0;
+
+        if (matches.count > 0) {
+            mainLen = matches.len[0];
+            mainDist = matches.dist[0];
+
+            // Short matches with long distances tend to take more space
+            // than encoding the same bytes as literals.
+            if ((mainLen == MATCH_LEN_MIN && mainDist >= 0x80)
+                    || (mainLen == MATCH_LEN_MIN + 1
+                        && mainDist >= (1 << 15)))
+                mainLen = 0;
+        }
+
+        // rep0 is so cheap to encode that it is preferred even if
+        // the normal match is a little longer.
+        if (repLen >= MATCH_LEN_MIN && repLen + 2 >= mainLen) {
+            back = 0;
+            skip(repLen - 1);
+            return repLen;
+        }
+
+        if (mainLen < MATCH_LEN_MIN)
+            return 1;
+
+        back = mainDist + REPS;
+        skip(mainLen - 1);
+        return mainLen;
+    }
+}
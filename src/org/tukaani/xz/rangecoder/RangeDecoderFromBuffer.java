@@ -27,6 +27,15 @@ public final class RangeDecoderFromBuffer extends RangeDecoder {
         arrayCache.putArray(buf);
     }
 
+    /**
+     * Resets the decoder to the state it had right after it was created.
+     */
+    public void reset() {
+        range = 0;
+        code = 0;
+        pos = buf.length;
+    }
+
     public void prepareInputBuffer(DataInputStream in, int len)
             throws IOException {
         if (len < INIT_SIZE)
@@ -47,6 +56,27 @@ public final class RangeDecoderFromBuffer extends RangeDecoder {
         in.readFully(buf, pos, len);
     }
 
+    /**
+     * Like {@code prepareInputBuffer(DataInputStream, int)} but takes
+     * the compressed data from an array.
+     */
+    public void prepareInputBuffer(byte[] in, int off, int len)
+            throws IOException {
+        if (len < INIT_SIZE)
+            throw new CorruptedInputException();
+
+        if (in[off] != 0x00)
+            throw new CorruptedInputException();
+
+        code = ((in[off + 1] & 0xFF) << 24) | ((in[off + 2] & 0xFF) << 16)
+               | ((in[off + 3] & 0xFF) << 8) | (in[off + 4] & 0xFF);
+        range = 0xFFFFFFFF;
+
+        len -= INIT_SIZE;
+        pos = buf.length - len;
+        System.arraycopy(in, off + INIT_SIZE, buf, pos, len);
+    }
+
     public boolean isFinished() {
         return pos == buf.length && code == 0;
     }
@@ -22,6 +22,10 @@ public final class RISCVDecoder implements SimpleFilter {
         int i;
 
         for (i = off; i <= end; i += 2) {
+            i = RISCVEncoder.skipNonCandidates(buf, i, end);
+            if (i > end)
+                break;
+
             int inst = buf[i] & 0xFF;
 
             if (inst == 0xEF) {
@@ -14,6 +14,36 @@ public final class RISCVEncoder implements SimpleFilter {
         pos = startPos;
     }
 
+    /**
+     * Skips over the 16-bit aligned positions that cannot be the start
+     * of JAL or AUIPC, eight bytes at a time. Returns the position of
+     * the next possible candidate at or after {@code i}, or a position
+     * greater than {@code end} if there is none. The result has the same
+     * alignment as {@code i}. This is used by {@code RISCVDecoder} too.
+     */
+    static int skipNonCandidates(byte[] buf, int i, int end) {
+        while (i <= end - 6) {
+            long w = ByteArrayView.getLongLE(buf, i);
+
+            // Find the bytes that equal 0xEF (JAL) or whose lowest seven
+            // bits equal 0x17 (AUIPC). The lowest set bit of each
+            // zero-byte test is exact. Higher bits may be false positives
+            // but those are checked again by the caller.
+            long jal = w ^ 0xEFEFEFEFEFEFEFEFL;
+            long auipc = (w & 0x7F7F7F7F7F7F7F7FL) ^ 0x1717171717171717L;
+            long found = (((jal - 0x0101010101010101L) & ~jal)
+                          | ((auipc - 0x0101010101010101L) & ~auipc))
+                         & 0x0080008000800080L;
+
+            if (found != 0)
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+
+            i += 8;
+        }
+
+        return i;
+    }
+
     @Override
     public int code(byte[] buf, int off, int len) {
         int end = off + len - 8;
@@ -22,6 +52,10 @@ public final class RISCVEncoder implements SimpleFilter {
         // The loop is advanced by 2 bytes every iteration since the
         // instruction stream may include 16-bit instructions (C extension).
         for (i = off; i <= end; i += 2) {
+            i = skipNonCandidates(buf, i, end);
+            if (i > end)
+                break;
+
             int inst = buf[i] & 0xFF;
 
             if (inst == 0xEF) {
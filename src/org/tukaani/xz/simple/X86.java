@@ -35,6 +35,25 @@ public final class X86 implements SimpleFilter {
         int i;
 
         for (i = off; i <= end; ++i) {
+            // Most bytes aren't 0xE8 or 0xE9. Skip over them eight bytes
+            // at a time. The lowest set bit in "found" is always exact,
+            // so this never skips over a 0xE8 or 0xE9 byte.
+            while (i <= end - 7) {
+                long x = (ByteArrayView.getLongLE(buf, i)
+                          & 0xFEFEFEFEFEFEFEFEL) ^ 0xE8E8E8E8E8E8E8E8L;
+                long found = (x - 0x0101010101010101L) & ~x
+                             & 0x8080808080808080L;
+                if (found != 0) {
+                    i += Long.numberOfTrailingZeros(found) >>> 3;
+                    break;
+                }
+
+                i += 8;
+            }
+
+            if (i > end)
+                break;
+
             if ((buf[i] & 0xFE) != 0xE8)
                 continue;
 